@@ -50,6 +50,7 @@ import org.apache.ambari.server.events.TaskCreateEvent;
 import org.apache.ambari.server.events.publishers.AmbariEventPublisher;
 import org.apache.ambari.server.events.publishers.STOMPUpdatePublisher;
 import org.apache.ambari.server.events.publishers.TaskEventPublisher;
+import org.apache.ambari.server.orm.AmbariJpaLocalTxnInterceptor;
 import org.apache.ambari.server.orm.dao.ClusterDAO;
 import org.apache.ambari.server.orm.dao.ExecutionCommandDAO;
 import org.apache.ambari.server.orm.dao.HostDAO;
@@ -521,6 +522,7 @@ public class ActionDBAccessorImpl implements ActionDBAccessor {
     long now = System.currentTimeMillis();
 
     List<Long> requestsToCheck = new ArrayList<>();
+    List<HostRoleCommandEntity> entitiesToMerge = new ArrayList<>();
 
     List<HostRoleCommandEntity> commandEntities;
     try {
@@ -565,30 +567,37 @@ public class ActionDBAccessorImpl implements ActionDBAccessor {
         if (commandEntity.getStatus().isCompletedState()) {
           commandEntity.setEndTime(now);
         }
-
-        try {
-          hrcOperationsLock.writeLock().lock();
-          hostRoleCommandDAO.merge(commandEntity);
-        } finally {
-          hrcOperationsLock.writeLock().unlock();
-        }
-
-        if (commandEntity.getStatus().isCompletedState()) {
-          String actionId = report.getActionId();
-          long[] requestStageIds = StageUtils.getRequestStage(actionId);
-          long requestId = requestStageIds[0];
-          long stageId = requestStageIds[1];
-          auditLog(commandEntity, requestId);
-          if (requestDAO.getLastStageId(requestId).equals(stageId)) {
-            requestsToCheck.add(requestId);
-          }
-        }
+        entitiesToMerge.add(commandEntity);
       } else {
        LOG.warn(String.format("Request for invalid transition of host role command status received for task id %d from " +
            "agent: %s -> %s",commandEntity.getTaskId(), existingTaskStatus, reportedTaskStatus));
       }
     }
 
+    // all reported changes are merged in a single transaction instead of one transaction per task
+    if (!entitiesToMerge.isEmpty()) {
+      try {
+        hrcOperationsLock.writeLock().lock();
+        hostRoleCommandDAO.mergeAll(entitiesToMerge);
+      } finally {
+        hrcOperationsLock.writeLock().unlock();
+      }
+    }
+
+    for (HostRoleCommandEntity commandEntity : entitiesToMerge) {
+      if (commandEntity.getStatus().isCompletedState()) {
+        String actionId = taskReports.get(commandEntity.getTaskId()).getActionId();
+        long[] requestStageIds = StageUtils.getRequestStage(actionId);
+        long requestId = requestStageIds[0];
+        long stageId = requestStageIds[1];
+        // the reports may be processed in a batch transaction which is replayed report by report if it fails
+        AmbariJpaLocalTxnInterceptor.runAfterBatchCommit(() -> auditLog(commandEntity, requestId));
+        if (requestDAO.getLastStageId(requestId).equals(stageId)) {
+          requestsToCheck.add(requestId);
+        }
+      }
+    }
+
     for (Long requestId : requestsToCheck) {
       endRequestIfCompleted(requestId);
     }
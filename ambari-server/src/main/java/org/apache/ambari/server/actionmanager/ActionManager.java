@@ -93,7 +93,7 @@ public class ActionManager {
       }
     }
     db.persistActions(request);
-    scheduler.awake();
+    scheduler.awake(request.getRequestId());
   }
 
   public List<Request> getRequests(Collection<Long> requestIds) {
@@ -248,7 +248,7 @@ public class ActionManager {
 
   public void cancelRequest(long requestId, String reason) {
     scheduler.scheduleCancellingRequest(requestId, reason);
-    scheduler.awake();
+    scheduler.awake(requestId);
   }
 
   //todo: proper static injection
@@ -21,16 +21,23 @@ import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.persistence.EntityManager;
 
@@ -47,14 +54,17 @@ import org.apache.ambari.server.agent.ExecutionCommand;
 import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.controller.HostsMap;
 import org.apache.ambari.server.events.ActionFinalReportReceivedEvent;
+import org.apache.ambari.server.events.TaskUpdateEvent;
 import org.apache.ambari.server.events.jpa.EntityManagerCacheInvalidationEvent;
 import org.apache.ambari.server.events.listeners.tasks.TaskStatusListener;
 import org.apache.ambari.server.events.publishers.AgentCommandsPublisher;
 import org.apache.ambari.server.events.publishers.AmbariEventPublisher;
 import org.apache.ambari.server.events.publishers.JPAEventPublisher;
+import org.apache.ambari.server.events.publishers.TaskEventPublisher;
 import org.apache.ambari.server.metadata.RoleCommandOrder;
 import org.apache.ambari.server.metadata.RoleCommandOrderProvider;
 import org.apache.ambari.server.metadata.RoleCommandPair;
+import org.apache.ambari.server.metrics.system.impl.ServerInternalsMetricsSource;
 import org.apache.ambari.server.orm.dao.HostRoleCommandDAO;
 import org.apache.ambari.server.orm.entities.HostRoleCommandEntity;
 import org.apache.ambari.server.orm.entities.RequestEntity;
@@ -75,6 +85,10 @@ import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.base.Function;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
@@ -85,6 +99,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.google.common.eventbus.Subscribe;
 import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.google.inject.Singleton;
@@ -96,6 +111,12 @@ import com.google.inject.persist.UnitOfWork;
  * This class encapsulates the action scheduler thread.
  * Action schedule frequently looks at action database and determines if
  * there is an action that can be scheduled.
+ * <p/>
+ * When {@link Configuration#isEventDrivenStageScheduling()} is enabled, the
+ * scheduler sleeps until a task of a request completes, a request is
+ * submitted or cancelled, or a command may time out, and then processes only
+ * the affected requests. All the requests in progress are still processed on
+ * every {@link Configuration#getStageReconciliationInterval()} seconds.
  */
 @Singleton
 class ActionScheduler implements Runnable {
@@ -105,6 +126,8 @@ class ActionScheduler implements Runnable {
   public static final String FAILED_TASK_ABORT_REASONING =
     "Server considered task failed and automatically aborted it";
 
+  private static final String METRIC_PREFIX = "action.scheduler";
+
   @Inject
   private RoleCommandOrderProvider roleCommandOrderProvider;
 
@@ -185,6 +208,71 @@ class ActionScheduler implements Runnable {
 
   private AtomicBoolean taskStatusLoaded = new AtomicBoolean();
 
+  /**
+   * true if the scheduler processes only the requests affected by events,
+   * see {@link Configuration#isEventDrivenStageScheduling()}.
+   */
+  private volatile boolean eventDriven = false;
+
+  /**
+   * true if the next event driven run should process all the requests in
+   * progress.
+   */
+  private volatile boolean fullScanRequested = false;
+
+  /**
+   * Requests which were submitted, cancelled or had tasks completed since the
+   * last event driven run.
+   */
+  private final Set<Long> readyRequests = ConcurrentHashMap.newKeySet();
+
+  /**
+   * The time of the earliest ready signal not processed yet, 0 if there is
+   * none.
+   */
+  private final AtomicLong readySince = new AtomicLong();
+
+  /**
+   * Requests with a stage in progress which were not processed during the
+   * last run because of other requests (exclusive request, parallel stage
+   * execution disabled, stages sharing hosts). They are processed along with
+   * the ready requests since completion of others may unblock them.
+   * Accessed by the scheduler thread only.
+   */
+  private final Set<Long> waitingRequests = new HashSet<>();
+
+  /**
+   * Maps request IDs to the earliest time one of the commands of its stage in
+   * progress may time out.
+   */
+  private final Map<Long, Long> timeoutChecks = new ConcurrentHashMap<>();
+
+  /**
+   * The time of the next run processing all the requests in progress.
+   */
+  private long nextReconciliation = 0;
+
+  /**
+   * Processes stages of different requests concurrently, {@code null} if
+   * stages are processed by the scheduler thread only, see
+   * {@link Configuration#getParallelStageExecutionThreads()}.
+   */
+  private volatile ExecutorService stageExecutor;
+
+  /**
+   * The entity managers of the stage executor threads which are processing
+   * stages.
+   */
+  private final Set<EntityManager> stageEntityManagers = ConcurrentHashMap.newKeySet();
+
+  private Timer schedulingLatency;
+  private Timer cycleTime;
+  private Timer stageTime;
+  private Histogram cycleStages;
+  private Histogram cycleStageGroups;
+  private Counter eventCycles;
+  private Counter reconciliations;
+
   //Cache for clusterHostinfo, key - stageId-requestId
   private Cache<String, Map<String, Set<String>>> clusterHostInfoCache;
   private Cache<String, Map<String, String>> commandParamsStageCache;
@@ -213,6 +301,7 @@ class ActionScheduler implements Runnable {
     serverActionExecutor = new ServerActionExecutor(db, sleepTime);
 
     initializeCaches();
+    initializeMetrics();
   }
 
   /**
@@ -256,6 +345,7 @@ class ActionScheduler implements Runnable {
 
     serverActionExecutor = new ServerActionExecutor(db, sleepTime);
     initializeCaches();
+    initializeMetrics();
   }
 
   /**
@@ -302,7 +392,41 @@ class ActionScheduler implements Runnable {
       build();
   }
 
+  /**
+   * Initializes the scheduling metrics.
+   */
+  private void initializeMetrics() {
+    MetricRegistry registry = ServerInternalsMetricsSource.getRegistry();
+    schedulingLatency = registry.timer(METRIC_PREFIX + ".latency");
+    cycleTime = registry.timer(METRIC_PREFIX + ".cycle.time");
+    cycleStages = registry.histogram(METRIC_PREFIX + ".cycle.stages");
+    cycleStageGroups = registry.histogram(METRIC_PREFIX + ".cycle.stage.groups");
+    stageTime = registry.timer(METRIC_PREFIX + ".stage.time");
+    eventCycles = registry.counter(METRIC_PREFIX + ".cycles.event");
+    reconciliations = registry.counter(METRIC_PREFIX + ".cycles.reconciliation");
+  }
+
+  /**
+   * Registers the scheduler for task status changes which are used to run
+   * the event driven scheduler.
+   *
+   * @param taskEventPublisher
+   *          the publisher of task events
+   */
+  @Inject
+  void registerTaskEventPublisher(TaskEventPublisher taskEventPublisher) {
+    taskEventPublisher.register(this);
+  }
+
   public void start() {
+    eventDriven = configuration.isEventDrivenStageScheduling();
+
+    int stageExecutionThreads = configuration.getParallelStageExecutionThreads();
+    if (configuration.getParallelStageExecution() && stageExecutionThreads > 1) {
+      stageExecutor = Executors.newFixedThreadPool(stageExecutionThreads,
+        new ThreadFactoryBuilder().setNameFormat("ambari-action-scheduler-stage-%d").setDaemon(true).build());
+    }
+
     schedulerThread = new Thread(this, "ambari-action-scheduler");
     schedulerThread.start();
 
@@ -315,6 +439,10 @@ class ActionScheduler implements Runnable {
     shouldRun = false;
     schedulerThread.interrupt();
 
+    if (null != stageExecutor) {
+      stageExecutor.shutdownNow();
+    }
+
     // Stop the ServerActionExecutor. Since it is directly related to the ActionScheduler it should
     // be started and stopped along with it.
     serverActionExecutor.stop();
@@ -326,24 +454,77 @@ class ActionScheduler implements Runnable {
    * The method is guaranteed to return quickly.
    */
   public void awake() {
+    fullScanRequested = true;
+    synchronized (wakeupSyncObject) {
+      activeAwakeRequest = true;
+      wakeupSyncObject.notify();
+    }
+  }
+
+  /**
+   * Should be called from another thread when the specified request was
+   * submitted or changed, so that the scheduler processes it ASAP. The event
+   * driven scheduler processes only the requests it was awaken for.
+   *
+   * @param requestId
+   *          the ID of the request to process
+   */
+  public void awake(long requestId) {
+    if (!eventDriven) {
+      awake();
+      return;
+    }
+
+    readyRequests.add(requestId);
+    readySince.compareAndSet(0, System.currentTimeMillis());
     synchronized (wakeupSyncObject) {
       activeAwakeRequest = true;
       wakeupSyncObject.notify();
     }
   }
 
+  /**
+   * Awakes the event driven scheduler for the requests which had tasks
+   * completed, since that may allow the next commands or stages to be
+   * scheduled.
+   *
+   * @param event
+   *          the task update event
+   */
+  @Subscribe
+  public void onTaskUpdateEvent(TaskUpdateEvent event) {
+    if (!eventDriven) {
+      return;
+    }
+
+    Set<Long> requestIds = new HashSet<>();
+    for (HostRoleCommand hostRoleCommand : event.getHostRoleCommands()) {
+      if (hostRoleCommand.getStatus().isCompletedState()) {
+        requestIds.add(hostRoleCommand.getRequestId());
+      }
+    }
+
+    for (Long requestId : requestIds) {
+      awake(requestId);
+    }
+  }
+
   @Override
   public void run() {
     while (shouldRun) {
       try {
         synchronized (wakeupSyncObject) {
           if (!activeAwakeRequest) {
-            wakeupSyncObject.wait(sleepTime);
+            wakeupSyncObject.wait(eventDriven ? getEventDrivenWaitTime() : sleepTime);
           }
           activeAwakeRequest = false;
         }
 
-        doWork();
+        if (eventDriven) {
+          doEventDrivenWork();
+        } else {
+          doWork();
+        }
 
       } catch (InterruptedException ex) {
         LOG.warn("Scheduler thread is interrupted going to stop", ex);
@@ -358,7 +539,74 @@ class ActionScheduler implements Runnable {
     }
   }
 
+  /**
+   * @return the time to wait until the next command may time out or the next
+   *         full scan of the requests in progress is due, at least 1 ms.
+   */
+  private long getEventDrivenWaitTime() {
+    long wakeupTime = nextReconciliation;
+    for (Long timeoutCheck : timeoutChecks.values()) {
+      wakeupTime = Math.min(wakeupTime, timeoutCheck);
+    }
+    return Math.max(1, wakeupTime - System.currentTimeMillis());
+  }
+
+  /**
+   * Processes the requests which were signalled as ready or may have commands
+   * timed out, or all the requests in progress when the reconciliation
+   * interval passed or a full run was requested.
+   */
+  private void doEventDrivenWork() throws AmbariException {
+    long now = System.currentTimeMillis();
+    long signalTime = readySince.getAndSet(0);
+    if (signalTime > 0) {
+      schedulingLatency.update(now - signalTime, TimeUnit.MILLISECONDS);
+    }
+
+    Set<Long> affectedRequests = new HashSet<>();
+    for (Iterator<Long> iterator = readyRequests.iterator(); iterator.hasNext(); ) {
+      affectedRequests.add(iterator.next());
+      iterator.remove();
+    }
+
+    if (fullScanRequested || now >= nextReconciliation) {
+      fullScanRequested = false;
+      nextReconciliation = now + TimeUnit.SECONDS.toMillis(configuration.getStageReconciliationInterval());
+      reconciliations.inc();
+      doWork();
+      return;
+    }
+
+    for (Map.Entry<Long, Long> timeoutCheck : timeoutChecks.entrySet()) {
+      if (timeoutCheck.getValue() <= now) {
+        affectedRequests.add(timeoutCheck.getKey());
+      }
+    }
+
+    if (affectedRequests.isEmpty()) {
+      return;
+    }
+
+    affectedRequests.addAll(waitingRequests);
+    eventCycles.inc();
+    doWork(affectedRequests);
+  }
+
   public void doWork() throws AmbariException {
+    doWork(null);
+  }
+
+  /**
+   * Processes the stages in progress.
+   *
+   * @param affectedRequests
+   *          the requests to process, or {@code null} to process all the
+   *          requests in progress. Other requests are still taken into
+   *          account when deciding which stages may run in parallel.
+   */
+  private void doWork(Set<Long> affectedRequests) throws AmbariException {
+    int processedStages = 0;
+    Timer.Context timerContext = cycleTime.time();
     try {
       unitOfWork.begin();
 
@@ -377,6 +625,8 @@ class ActionScheduler implements Runnable {
           LOG.debug("There are no stages currently in progress.");
         }
 
+        waitingRequests.clear();
+        timeoutChecks.clear();
         return;
       }
 
@@ -389,6 +639,20 @@ class ActionScheduler implements Runnable {
 
       publishInProgressTasks(firstStageInProgressPerRequest);
 
+      // forget requests which are no longer in progress and mark the ones to
+      // process as waiting until they are actually processed
+      Set<Long> requestIdsInProgress = new HashSet<>();
+      for (Stage stage : firstStageInProgressPerRequest) {
+        requestIdsInProgress.add(stage.getRequestId());
+      }
+      timeoutChecks.keySet().retainAll(requestIdsInProgress);
+      waitingRequests.retainAll(requestIdsInProgress);
+      for (Long requestId : requestIdsInProgress) {
+        if (affectedRequests == null || affectedRequests.contains(requestId)) {
+          waitingRequests.add(requestId);
+        }
+      }
+
       if (firstStageInProgressPerRequest.isEmpty()) {
         // Nothing to do
         if (LOG.isDebugEnabled()) {
@@ -405,6 +669,7 @@ class ActionScheduler implements Runnable {
       List<Stage> stages = filterParallelPerHostStages(firstStageInProgressPerRequest);
 
       boolean exclusiveRequestIsGoing = false;
+      Map<Stage, RequestEntity> stagesToProcess = new LinkedHashMap<>();
       // This loop greatly depends on the fact that order of stages in
       // a list does not change between invocations
       for (Stage stage : stages) {
@@ -436,132 +701,300 @@ class ActionScheduler implements Runnable {
           }
         }
 
-        // Commands that will be scheduled in current scheduler wakeup
-        List<ExecutionCommand> commandsToSchedule = new ArrayList<>();
-        Multimap<Long, AgentCommand> commandsToEnqueue = ArrayListMultimap.create();
-        Map<String, RoleStats> roleStats = processInProgressStage(stage, commandsToSchedule, commandsToEnqueue);
-
-        // Check if stage is failed
-        boolean failed = false;
-        for (Map.Entry<String, RoleStats> entry : roleStats.entrySet()) {
-
-          String role = entry.getKey();
-          RoleStats stats = entry.getValue();
-
-          if (LOG.isDebugEnabled()) {
-            LOG.debug("Stats for role: {}, stats={}", role, stats);
+        if (affectedRequests != null && !affectedRequests.contains(requestId)) {
+          // nothing has changed for the request since it was processed last time
+          LOG.debug("==> Skipping request {} which has no changes", requestId);
+          if (!configuration.getParallelStageExecution()) {
+            return;
           }
-
-          // only fail the request if the role failed and the stage is not
-          // skippable
-          if (stats.isRoleFailed() && !stage.isSkippable()) {
-            LOG.warn("{} failed, request {} will be aborted", role, request.getRequestId());
-
-            failed = true;
+          if (exclusiveRequestIsGoing) {
             break;
           }
+          continue;
         }
 
-        if (!failed) {
-          // Prior stage may have failed and it may need to fail the whole request
-          failed = hasPreviousStageFailed(stage);
+        waitingRequests.remove(requestId);
+        stagesToProcess.put(stage, request);
+
+        if (!configuration.getParallelStageExecution()) { // If disabled
+          break;
         }
 
-        if (failed) {
-          LOG.error("Operation completely failed, aborting request id: {}", stage.getRequestId());
-          cancelHostRoleCommands(stage.getOrderedHostRoleCommands(), FAILED_TASK_ABORT_REASONING);
-          abortOperationsForStage(stage);
-          return;
+        if (exclusiveRequestIsGoing) {
+          // As a result, we will prevent any further stages from being executed
+          LOG.debug("Stage requires exclusive execution, skipping all executing any further stages");
+          break;
         }
+      }
 
-        List<ExecutionCommand> commandsToStart = new ArrayList<>();
-        List<ExecutionCommand> commandsToUpdate = new ArrayList<>();
+      processedStages = stagesToProcess.size();
+      if (!processStages(stagesToProcess) || !configuration.getParallelStageExecution()) {
+        return;
+      }
 
-        //Schedule what we have so far
+      requestsInProgress.retainAll(runningRequestIds);
 
+    } finally {
+      LOG.debug("Scheduler finished work.");
+      unitOfWork.end();
+      timerContext.stop();
+      cycleStages.update(processedStages);
+    }
+  }
 
-        for (ExecutionCommand cmd : commandsToSchedule) {
-          processHostRole(request, stage, cmd, commandsToStart, commandsToUpdate);
+  /**
+   * Processes the stages of different requests. Stages which share hosts are
+   * processed one after another in the order they are given, while the
+   * others may be processed concurrently by the stage executor.
+   * <p/>
+   * There is a single stage per request, so each {@link Stage} and its
+   * {@link RequestEntity} are only used by the thread of their group. They
+   * were loaded by the entity manager of the scheduler thread, which is not
+   * used again before all the groups are done. The groups share the clusters,
+   * the DB accessor and the stage caches only, which are thread safe.
+   *
+   * @param stagesToProcess
+   *          the stages to process, mapped to their requests
+   * @return {@code false} if processing was stopped since a request failed
+   *         and was aborted
+   */
+  private boolean processStages(Map<Stage, RequestEntity> stagesToProcess) throws AmbariException {
+    ExecutorService executor = stageExecutor;
+    List<List<Stage>> stageGroups = null == executor || stagesToProcess.size() <= 1
+        ? Collections.singletonList(new ArrayList<>(stagesToProcess.keySet()))
+        : groupStagesByHosts(stagesToProcess.keySet());
+
+    cycleStageGroups.update(stageGroups.size());
+    if (stageGroups.size() <= 1) {
+      for (Stage stage : stagesToProcess.keySet()) {
+        if (!processStage(stagesToProcess.get(stage), stage)) {
+          return false;
         }
+      }
+      return true;
+    }
 
-        LOG.debug("==> Commands to start: {}", commandsToStart.size());
-        LOG.debug("==> Commands to update: {}", commandsToUpdate.size());
+    List<Future<Boolean>> futures = new ArrayList<>(stageGroups.size());
+    for (List<Stage> stageGroup : stageGroups) {
+      futures.add(executor.submit(() -> processStageGroup(stagesToProcess, stageGroup)));
+    }
+
+    // wait for all the groups before reporting a failure, so that no stage is
+    // processed after the scheduler finished its work
+    boolean processed = true;
+    Throwable failure = null;
+    for (Future<Boolean> future : futures) {
+      try {
+        processed &= future.get();
+      } catch (ExecutionException e) {
+        if (null == failure) {
+          failure = e.getCause();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new AmbariException("Interrupted while waiting for the stages to be processed", e);
+      }
+    }
 
-        //Multimap is analog of Map<Object, List<Object>> but allows to avoid nested loop
-        ListMultimap<String, ServiceComponentHostEvent> eventMap = formEventMap(stage, commandsToStart);
-        Map<ExecutionCommand, String> commandsToAbort = new HashMap<>();
-        if (!eventMap.isEmpty()) {
-          LOG.debug("==> processing {} serviceComponentHostEvents...", eventMap.size());
-          Cluster cluster = clusters.getCluster(stage.getClusterName());
-          if (cluster != null) {
-            Map<ServiceComponentHostEvent, String> failedEvents = cluster.processServiceComponentHostEvents(eventMap);
+    if (failure instanceof AmbariException) {
+      throw (AmbariException) failure;
+    } else if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    } else if (null != failure) {
+      throw new AmbariException("Unable to process the stages in progress", failure);
+    }
 
-            if (failedEvents.size() > 0) {
-              LOG.error("==> {} events failed.", failedEvents.size());
-            }
+    return processed;
+  }
 
-            for (Iterator<ExecutionCommand> iterator = commandsToUpdate.iterator(); iterator.hasNext(); ) {
-              ExecutionCommand cmd = iterator.next();
-              for (ServiceComponentHostEvent event : failedEvents.keySet()) {
-                if (StringUtils.equals(event.getHostName(), cmd.getHostname()) &&
-                  StringUtils.equals(event.getServiceComponentName(), cmd.getRole())) {
-                  iterator.remove();
-                  commandsToAbort.put(cmd, failedEvents.get(event));
-                  break;
-                }
-              }
+  /**
+   * Processes stages sharing hosts on a stage executor thread within its own
+   * unit of work.
+   */
+  private boolean processStageGroup(Map<Stage, RequestEntity> stagesToProcess, List<Stage> stageGroup)
+      throws AmbariException {
+    unitOfWork.begin();
+    EntityManager entityManager = entityManagerProvider.get();
+    stageEntityManagers.add(entityManager);
+    try {
+      for (Stage stage : stageGroup) {
+        if (!processStage(stagesToProcess.get(stage), stage)) {
+          return false;
+        }
+      }
+      return true;
+    } finally {
+      stageEntityManagers.remove(entityManager);
+      unitOfWork.end();
+    }
+  }
+
+  /**
+   * Splits the stages into groups which do not share any host, so that
+   * commands of a host are never scheduled concurrently. Stages within a
+   * group keep the order they were given in.
+   */
+  private List<List<Stage>> groupStagesByHosts(Collection<Stage> stages) {
+    Map<Stage, Integer> order = new HashMap<>();
+    List<List<Stage>> stageGroups = new ArrayList<>();
+    Map<String, List<Stage>> stageGroupsByHost = new HashMap<>();
+    for (Stage stage : stages) {
+      order.put(stage, order.size());
+
+      List<Stage> stageGroup = null;
+      for (String host : stage.getHosts()) {
+        List<Stage> hostGroup = stageGroupsByHost.get(host);
+        if (null == hostGroup || hostGroup == stageGroup) {
+          continue;
+        }
+
+        if (null == stageGroup) {
+          stageGroup = hostGroup;
+        } else {
+          // the stage joins two groups
+          stageGroup.addAll(hostGroup);
+          stageGroup.sort(Comparator.comparing(order::get));
+          stageGroups.remove(hostGroup);
+          for (Map.Entry<String, List<Stage>> entry : stageGroupsByHost.entrySet()) {
+            if (entry.getValue() == hostGroup) {
+              entry.setValue(stageGroup);
             }
-          } else {
-            LOG.warn("There was events to process but cluster {} not found", stage.getClusterName());
           }
         }
+      }
 
-        LOG.debug("==> Scheduling {} tasks...", commandsToUpdate.size());
-        db.bulkHostRoleScheduled(stage, commandsToUpdate);
+      if (null == stageGroup) {
+        stageGroup = new ArrayList<>();
+        stageGroups.add(stageGroup);
+      }
+      stageGroup.add(stage);
+      for (String host : stage.getHosts()) {
+        stageGroupsByHost.put(host, stageGroup);
+      }
+    }
+    return stageGroups;
+  }
 
-        if (commandsToAbort.size() > 0) { // Code branch may be a bit slow, but is extremely rarely used
-          LOG.debug("==> Aborting {} tasks...", commandsToAbort.size());
-          // Build a list of HostRoleCommands
-          List<Long> taskIds = new ArrayList<>();
-          for (ExecutionCommand command : commandsToAbort.keySet()) {
-            taskIds.add(command.getTaskId());
-          }
-          Collection<HostRoleCommand> hostRoleCommands = db.getTasks(taskIds);
+  /**
+   * Processes timeouts and schedules the commands of the stage.
+   *
+   * @return {@code false} if the stage failed and its request was aborted
+   */
+  private boolean processStage(RequestEntity request, Stage stage) throws AmbariException {
+    Timer.Context timerContext = stageTime.time();
+    try {
+      // Commands that will be scheduled in current scheduler wakeup
+      List<ExecutionCommand> commandsToSchedule = new ArrayList<>();
+      Multimap<Long, AgentCommand> commandsToEnqueue = ArrayListMultimap.create();
+      Map<String, RoleStats> roleStats = processInProgressStage(stage, commandsToSchedule, commandsToEnqueue);
 
-          cancelHostRoleCommands(hostRoleCommands, FAILED_TASK_ABORT_REASONING);
-          db.bulkAbortHostRole(stage, commandsToAbort);
-        }
+      // Check if stage is failed
+      boolean failed = false;
+      for (Map.Entry<String, RoleStats> entry : roleStats.entrySet()) {
 
-        LOG.debug("==> Adding {} tasks to queue...", commandsToUpdate.size());
-        for (ExecutionCommand cmd : commandsToUpdate) {
-          // Do not queue up server actions; however if we encounter one, wake up the ServerActionExecutor
-          if (Role.AMBARI_SERVER_ACTION.name().equals(cmd.getRole())) {
-            serverActionExecutor.awake();
-          } else {
-            commandsToEnqueue.put(clusters.getHost(cmd.getHostname()).getHostId(), cmd);
-          }
-        }
-        if (!commandsToEnqueue.isEmpty()) {
-          agentCommandsPublisher.sendAgentCommand(commandsToEnqueue);
-        }
-        LOG.debug("==> Finished.");
+        String role = entry.getKey();
+        RoleStats stats = entry.getValue();
 
-        if (!configuration.getParallelStageExecution()) { // If disabled
-          return;
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("Stats for role: {}, stats={}", role, stats);
         }
 
-        if (exclusiveRequestIsGoing) {
-          // As a result, we will prevent any further stages from being executed
-          LOG.debug("Stage requires exclusive execution, skipping all executing any further stages");
+        // only fail the request if the role failed and the stage is not
+        // skippable
+        if (stats.isRoleFailed() && !stage.isSkippable()) {
+          LOG.warn("{} failed, request {} will be aborted", role, request.getRequestId());
+
+          failed = true;
           break;
         }
       }
 
-      requestsInProgress.retainAll(runningRequestIds);
+      if (!failed) {
+        // Prior stage may have failed and it may need to fail the whole request
+        failed = hasPreviousStageFailed(stage);
+      }
+
+      if (failed) {
+        LOG.error("Operation completely failed, aborting request id: {}", stage.getRequestId());
+        cancelHostRoleCommands(stage.getOrderedHostRoleCommands(), FAILED_TASK_ABORT_REASONING);
+        abortOperationsForStage(stage);
+        return false;
+      }
+
+      List<ExecutionCommand> commandsToStart = new ArrayList<>();
+      List<ExecutionCommand> commandsToUpdate = new ArrayList<>();
+
+      //Schedule what we have so far
+
+
+      for (ExecutionCommand cmd : commandsToSchedule) {
+        processHostRole(request, stage, cmd, commandsToStart, commandsToUpdate);
+      }
+
+      LOG.debug("==> Commands to start: {}", commandsToStart.size());
+      LOG.debug("==> Commands to update: {}", commandsToUpdate.size());
+
+      //Multimap is analog of Map<Object, List<Object>> but allows to avoid nested loop
+      ListMultimap<String, ServiceComponentHostEvent> eventMap = formEventMap(stage, commandsToStart);
+      Map<ExecutionCommand, String> commandsToAbort = new HashMap<>();
+      if (!eventMap.isEmpty()) {
+        LOG.debug("==> processing {} serviceComponentHostEvents...", eventMap.size());
+        Cluster cluster = clusters.getCluster(stage.getClusterName());
+        if (cluster != null) {
+          Map<ServiceComponentHostEvent, String> failedEvents = cluster.processServiceComponentHostEvents(eventMap);
+
+          if (failedEvents.size() > 0) {
+            LOG.error("==> {} events failed.", failedEvents.size());
+          }
 
+          for (Iterator<ExecutionCommand> iterator = commandsToUpdate.iterator(); iterator.hasNext(); ) {
+            ExecutionCommand cmd = iterator.next();
+            for (ServiceComponentHostEvent event : failedEvents.keySet()) {
+              if (StringUtils.equals(event.getHostName(), cmd.getHostname()) &&
+                StringUtils.equals(event.getServiceComponentName(), cmd.getRole())) {
+                iterator.remove();
+                commandsToAbort.put(cmd, failedEvents.get(event));
+                break;
+              }
+            }
+          }
+        } else {
+          LOG.warn("There was events to process but cluster {} not found", stage.getClusterName());
+        }
+      }
+
+      LOG.debug("==> Scheduling {} tasks...", commandsToUpdate.size());
+      db.bulkHostRoleScheduled(stage, commandsToUpdate);
+
+      if (commandsToAbort.size() > 0) { // Code branch may be a bit slow, but is extremely rarely used
+        LOG.debug("==> Aborting {} tasks...", commandsToAbort.size());
+        // Build a list of HostRoleCommands
+        List<Long> taskIds = new ArrayList<>();
+        for (ExecutionCommand command : commandsToAbort.keySet()) {
+          taskIds.add(command.getTaskId());
+        }
+        Collection<HostRoleCommand> hostRoleCommands = db.getTasks(taskIds);
+
+        cancelHostRoleCommands(hostRoleCommands, FAILED_TASK_ABORT_REASONING);
+        db.bulkAbortHostRole(stage, commandsToAbort);
+      }
+
+      LOG.debug("==> Adding {} tasks to queue...", commandsToUpdate.size());
+      for (ExecutionCommand cmd : commandsToUpdate) {
+        // Do not queue up server actions; however if we encounter one, wake up the ServerActionExecutor
+        if (Role.AMBARI_SERVER_ACTION.name().equals(cmd.getRole())) {
+          serverActionExecutor.awake();
+        } else {
+          commandsToEnqueue.put(clusters.getHost(cmd.getHostname()).getHostId(), cmd);
+        }
+      }
+      if (!commandsToEnqueue.isEmpty()) {
+        agentCommandsPublisher.sendAgentCommand(commandsToEnqueue);
+      }
+      LOG.debug("==> Finished.");
+      return true;
     } finally {
-      LOG.debug("Scheduler finished work.");
-      unitOfWork.end();
+      timerContext.stop();
     }
   }
 
@@ -734,6 +1167,11 @@ class ActionScheduler implements Runnable {
     long now = System.currentTimeMillis();
     Set<RoleCommandPair> rolesCommandsInProgress = s.getHostRolesInProgress();
 
+    // the earliest time one of the commands may time out; never earlier than
+    // the regular scheduler interval, so that commands which are not timed
+    // out when expected don't keep the scheduler busy
+    long timeoutCheck = Long.MAX_VALUE;
+
     Cluster cluster = null;
     if (null != s.getClusterName()) {
       cluster = clusters.getCluster(s.getClusterName());
@@ -879,9 +1317,19 @@ class ActionScheduler implements Runnable {
             //Need to schedule first time
             commandsToSchedule.add(c);
             LOG.trace("===>commandsToSchedule(first_time)={}", commandsToSchedule.size());
+            timeoutCheck = Math.min(timeoutCheck, now + commandTimeout);
           }
         }
 
+        // queued commands are not timed out while another command is in progress on the host;
+        // completion of that command awakes the scheduler for the request anyway
+        String hostName = (null == hostObj) ? null : hostObj.getHostName();
+        if (status == HostRoleStatus.IN_PROGRESS
+            || (status == HostRoleStatus.QUEUED && !hasCommandInProgress(s, hostName))) {
+          timeoutCheck = Math.min(timeoutCheck,
+            Math.max(s.getLastAttemptTime(hostName, roleStr) + commandTimeout, now + sleepTime));
+        }
+
         updateRoleStats(status, roleStats.get(roleStr));
         if (status == HostRoleStatus.FAILED) {
           LOG.info("Role {} on host {} was failed", roleStr, host);
@@ -890,6 +1338,12 @@ class ActionScheduler implements Runnable {
       }
     }
     LOG.debug("Collected {} commands to schedule in this wakeup.", commandsToSchedule.size());
+
+    if (timeoutCheck == Long.MAX_VALUE) {
+      timeoutChecks.remove(s.getRequestId());
+    } else {
+      timeoutChecks.put(s.getRequestId(), timeoutCheck);
+    }
     return roleStats;
   }
 
@@ -1377,6 +1831,12 @@ class ActionScheduler implements Runnable {
       if (null != threadEntityManager && threadEntityManager.isOpen()) {
         threadEntityManager.clear();
       }
+
+      for (EntityManager entityManager : stageEntityManagers) {
+        if (entityManager.isOpen()) {
+          entityManager.clear();
+        }
+      }
     } catch (Throwable throwable) {
       LOG.error("Unable to clear the EntityManager for the scheduler thread", throwable);
     }
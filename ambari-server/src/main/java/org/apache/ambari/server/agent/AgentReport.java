@@ -33,6 +33,20 @@ public abstract class AgentReport<R> {
     return hostName;
   }
 
+  protected R getReport() {
+    return report;
+  }
+
+  /**
+   * Reports rejected because the server is overloaded are dropped. Agents send most reports
+   * again - status reports periodically, command reports until they are acknowledged - report
+   * types the agent sends only once should return {@code false} to be queued in any case.
+   * @return {@code true} if the agent sends the report again when it was rejected
+   */
+  public boolean isResentOnRejection() {
+    return true;
+  }
+
   public final void process() throws AmbariException {
     process(report, hostName);
   }
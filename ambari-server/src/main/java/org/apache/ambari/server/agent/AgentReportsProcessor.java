@@ -17,70 +17,374 @@
  */
 package org.apache.ambari.server.agent;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.metrics.system.impl.ServerInternalsMetricsSource;
+import org.apache.ambari.server.orm.AmbariJpaLocalTxnInterceptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.google.inject.persist.Transactional;
 import com.google.inject.persist.UnitOfWork;
 
+/**
+ * Processes agents' reports asynchronously. Reports of every host are kept in a separate queue and
+ * are processed in the order they were received, but hosts are not bound to particular threads:
+ * a host with pending reports is handed to whichever worker is free, so one slow host holds up
+ * only its own reports. The total number of queued reports is bounded, when the limit is reached
+ * {@link #addAgentReport(AgentReport)} rejects the report right away, unless it is a report the
+ * agent does not send again.
+ * <p/>
+ * If {@link Configuration#AGENTS_REPORT_COMMANDS_BATCH_WINDOW} is set, command status reports are
+ * not processed by the workers directly. They are collected from many hosts during the window and
+ * processed in a single transaction, while their hosts stay scheduled so that no later report of
+ * the same host overtakes them. If the batch transaction fails, the reports of the batch are
+ * processed one by one.
+ */
 @Singleton
 public class AgentReportsProcessor {
   private static final Logger LOG = LoggerFactory.getLogger(AgentReportsProcessor.class);
 
-  private final int poolSize;
+  /**
+   * Maximum number of reports of one host processed before the host is returned to the end of
+   * the ready queue, so that hosts with long backlogs do not occupy workers indefinitely.
+   */
+  private static final int MAX_REPORTS_PER_TURN = 16;
 
-  private final List<ExecutorService> executors;
+  private static final String METRIC_PREFIX = "agent.reports";
 
-  public void addAgentReport(AgentReport agentReport) {
-    int hash = agentReport.getHostName().hashCode();
-    hash = hash == Integer.MIN_VALUE ? 0 : hash;
-    int executorNumber = Math.abs(hash) % poolSize;
-    executors.get(executorNumber).execute(new AgentReportProcessingTask(agentReport));
-  }
+  private final Semaphore backlogPermits;
+  private final ConcurrentMap<String, HostReportsQueue> hostQueues = new ConcurrentHashMap<>();
+  private final BlockingQueue<HostReportsQueue> readyHosts = new LinkedBlockingQueue<>();
+  private final ExecutorService workers;
+
+  private final long commandsBatchWindow;
+  private final int commandsBatchSize;
+  private final BlockingQueue<BatchedReport> commandReports = new LinkedBlockingQueue<>();
+
+  private final Timer queueLatency;
+  private final Timer processingTime;
+  private final Counter rejectedReports;
+  private final Counter overflowReports;
+  private final Counter coalescedReports;
+  private final Histogram commandsBatchSizes;
+  private final Counter commandsBatchFallbacks;
 
   @Inject
   private UnitOfWork unitOfWork;
 
   @Inject
   public AgentReportsProcessor(Configuration configuration) {
+    int poolSize = configuration.getAgentsReportThreadPoolSize();
+    int capacity = configuration.getAgentsReportQueueCapacity();
+    backlogPermits = new Semaphore(capacity);
+    commandsBatchWindow = configuration.getAgentsReportCommandsBatchWindow();
+    commandsBatchSize = configuration.getAgentsReportCommandsBatchSize();
+
+    MetricRegistry registry = ServerInternalsMetricsSource.getRegistry();
+    queueLatency = registry.timer(METRIC_PREFIX + ".queue.latency");
+    processingTime = registry.timer(METRIC_PREFIX + ".processing.time");
+    rejectedReports = registry.counter(METRIC_PREFIX + ".rejected");
+    overflowReports = registry.counter(METRIC_PREFIX + ".overflow");
+    coalescedReports = registry.counter(METRIC_PREFIX + ".coalesced");
+    commandsBatchSizes = registry.histogram(METRIC_PREFIX + ".commands.batch.size");
+    commandsBatchFallbacks = registry.counter(METRIC_PREFIX + ".commands.batch.fallbacks");
+    ServerInternalsMetricsSource.registerGauge(METRIC_PREFIX + ".backlog",
+        (Gauge<Integer>) () -> capacity - backlogPermits.availablePermits());
+    ServerInternalsMetricsSource.registerGauge(METRIC_PREFIX + ".ready.hosts", (Gauge<Integer>) readyHosts::size);
 
     ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("agent-report-processor-%d").build();
-    poolSize = configuration.getAgentsReportThreadPoolSize();
-    executors = new ArrayList<>();
+    workers = Executors.newFixedThreadPool(poolSize, threadFactory);
     for (int i = 0; i < poolSize; i++) {
-      executors.add(Executors.newSingleThreadExecutor(threadFactory));
+      workers.execute(new AgentReportsWorker());
+    }
+    if (commandsBatchWindow > 0) {
+      Thread batcher = new ThreadFactoryBuilder().setNameFormat("agent-command-reports-batcher-%d").build()
+          .newThread(new CommandReportsBatcher());
+      batcher.start();
+    }
+  }
+
+  /**
+   * Queues report for processing. The call never waits, so that the inbound STOMP thread is not
+   * held: if the reports backlog is full the report is rejected and the agent sends it again.
+   * Reports the agent does not send again (see {@link AgentReport#isResentOnRejection()}) are
+   * queued beyond the limit instead.
+   * @param agentReport report to process
+   * @return {@code false} if the report was rejected because the backlog is full
+   */
+  public boolean addAgentReport(AgentReport agentReport) {
+    boolean permitAcquired = backlogPermits.tryAcquire();
+    if (!permitAcquired) {
+      if (agentReport.isResentOnRejection()) {
+        rejectedReports.inc();
+        LOG.warn("Agent reports backlog is full, report from host {} was rejected", agentReport.getHostName());
+        return false;
+      }
+      overflowReports.inc();
+      LOG.warn("Agent reports backlog is full, queueing {} from host {} over the limit as it is not resent",
+          agentReport.getClass().getSimpleName(), agentReport.getHostName());
+    }
+    HostReportsQueue hostQueue = hostQueues.computeIfAbsent(agentReport.getHostName(), HostReportsQueue::new);
+    if (hostQueue.add(new QueuedReport(agentReport, permitAcquired))) {
+      readyHosts.add(hostQueue);
+    }
+    return true;
+  }
+
+  /**
+   * @return number of reports queued for processing
+   */
+  public int getBacklogSize() {
+    int size = 0;
+    for (HostReportsQueue hostQueue : hostQueues.values()) {
+      size += hostQueue.size();
+    }
+    return size;
+  }
+
+  private void processReport(QueuedReport queuedReport) {
+    queueLatency.update(System.nanoTime() - queuedReport.queuedAt, TimeUnit.NANOSECONDS);
+    Timer.Context timerContext = processingTime.time();
+    try {
+      unitOfWork.begin();
+      processReportSafely(queuedReport.report);
+    } catch (RuntimeException e) {
+      LOG.error("Unexpected error processing agent report from host {}", queuedReport.report.getHostName(), e);
+    } finally {
+      unitOfWork.end();
+      timerContext.stop();
     }
   }
 
-  private class AgentReportProcessingTask implements Runnable {
+  private void processReportSafely(AgentReport report) {
+    try {
+      report.process();
+    } catch (AmbariException e) {
+      LOG.error("Error processing agent reports", e);
+    }
+  }
 
-    private final AgentReport agentReport;
+  /**
+   * Processes command status reports of several hosts in one transaction. Reports failing with
+   * {@link AmbariException} are skipped as they would be when processed separately, any runtime
+   * exception rolls back the whole batch. Events, audit records and in-memory state changes of
+   * the reports are tied to the transaction (see {@link AmbariJpaLocalTxnInterceptor#runAsBatch}),
+   * so replaying the reports of a rolled back batch one by one does not repeat them.
+   * @param reports reports to process in the order they were received
+   */
+  @Transactional
+  public void processCommandReportsBatch(List<AgentReport> reports) {
+    for (AgentReport report : reports) {
+      processReportSafely(report);
+    }
+  }
 
-    public AgentReportProcessingTask(AgentReport agentReport) {
-      this.agentReport = agentReport;
+  private void processBatch(List<BatchedReport> batch, long startedAt) {
+    List<AgentReport> reports = new ArrayList<>(batch.size());
+    for (BatchedReport batchedReport : batch) {
+      queueLatency.update(startedAt - batchedReport.queuedReport.queuedAt, TimeUnit.NANOSECONDS);
+      reports.add(batchedReport.queuedReport.report);
     }
+    commandsBatchSizes.update(batch.size());
+    boolean batchFailed = false;
+    try {
+      unitOfWork.begin();
+      AmbariJpaLocalTxnInterceptor.runAsBatch(() -> processCommandReportsBatch(reports));
+      processingTime.update(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+    } catch (RuntimeException e) {
+      batchFailed = true;
+      commandsBatchFallbacks.inc();
+      LOG.warn("Unable to process batch of {} command reports, processing them one by one", batch.size(), e);
+    } finally {
+      unitOfWork.end();
+    }
+    if (batchFailed) {
+      for (BatchedReport batchedReport : batch) {
+        processReport(batchedReport.queuedReport);
+      }
+    }
+  }
+
+  private static class QueuedReport {
+    private final AgentReport report;
+    private final long queuedAt = System.nanoTime();
+    private final boolean holdsPermit;
+
+    private QueuedReport(AgentReport report, boolean holdsPermit) {
+      this.report = report;
+      this.holdsPermit = holdsPermit;
+    }
+  }
+
+  private static class BatchedReport {
+    private final HostReportsQueue hostQueue;
+    private final QueuedReport queuedReport;
+
+    private BatchedReport(HostReportsQueue hostQueue, QueuedReport queuedReport) {
+      this.hostQueue = hostQueue;
+      this.queuedReport = queuedReport;
+    }
+  }
+
+  /**
+   * Pending reports of a single host. The queue is either idle, or scheduled - waiting in
+   * {@link #readyHosts} or being drained by exactly one worker - which guarantees per-host ordering.
+   */
+  private class HostReportsQueue {
+    private final String hostName;
+    private final Deque<QueuedReport> reports = new ArrayDeque<>();
+    private boolean scheduled = false;
+
+    private HostReportsQueue(String hostName) {
+      this.hostName = hostName;
+    }
+
+    /**
+     * @return {@code true} if the queue became ready and should be handed to workers
+     */
+    private synchronized boolean add(QueuedReport queuedReport) {
+      QueuedReport last = reports.peekLast();
+      if (last != null && last.report instanceof ComponentStatusAgentReport
+          && queuedReport.report instanceof ComponentStatusAgentReport) {
+        reports.pollLast();
+        QueuedReport merged = new QueuedReport(
+            ((ComponentStatusAgentReport) last.report).merge((ComponentStatusAgentReport) queuedReport.report),
+            last.holdsPermit);
+        reports.addLast(merged);
+        releasePermit(queuedReport);
+        coalescedReports.inc();
+        LOG.debug("Coalesced component status reports of host {}", hostName);
+      } else {
+        reports.addLast(queuedReport);
+      }
+      if (scheduled) {
+        return false;
+      }
+      scheduled = true;
+      return true;
+    }
+
+    private synchronized QueuedReport poll() {
+      return reports.pollFirst();
+    }
+
+    /**
+     * Called by the worker that finished its turn on this queue.
+     * @return {@code true} if there are more reports and the queue should be rescheduled
+     */
+    private synchronized boolean finishTurn() {
+      scheduled = !reports.isEmpty();
+      return scheduled;
+    }
+
+    private synchronized int size() {
+      return reports.size();
+    }
+  }
+
+  private class AgentReportsWorker implements Runnable {
 
     @Override
     public void run() {
-      try {
-        unitOfWork.begin();
+      while (!Thread.currentThread().isInterrupted()) {
+        HostReportsQueue hostQueue;
         try {
-          agentReport.process();
-        } catch (AmbariException e) {
-          LOG.error("Error processing agent reports", e);
+          hostQueue = readyHosts.take();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+        boolean handedOver = false;
+        for (int i = 0; i < MAX_REPORTS_PER_TURN; i++) {
+          QueuedReport queuedReport = hostQueue.poll();
+          if (queuedReport == null) {
+            break;
+          }
+          releasePermit(queuedReport);
+          if (commandsBatchWindow > 0 && queuedReport.report instanceof CommandStatusAgentReport) {
+            // the host stays scheduled until the batch is processed
+            commandReports.add(new BatchedReport(hostQueue, queuedReport));
+            handedOver = true;
+            break;
+          }
+          processReport(queuedReport);
+        }
+        if (!handedOver) {
+          finishTurn(hostQueue);
+        }
+      }
+    }
+  }
+
+  private void releasePermit(QueuedReport queuedReport) {
+    if (queuedReport.holdsPermit) {
+      backlogPermits.release();
+    }
+  }
+
+  private void finishTurn(HostReportsQueue hostQueue) {
+    if (hostQueue.finishTurn()) {
+      readyHosts.add(hostQueue);
+    }
+  }
+
+  /**
+   * Collects command status reports handed over by workers and processes them in batches.
+   */
+  private class CommandReportsBatcher implements Runnable {
+
+    @Override
+    public void run() {
+      List<BatchedReport> batch = new ArrayList<>();
+      while (!Thread.currentThread().isInterrupted()) {
+        try {
+          batch.add(commandReports.take());
+          long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(commandsBatchWindow);
+          while (batch.size() < commandsBatchSize) {
+            BatchedReport next = commandReports.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (next == null) {
+              break;
+            }
+            batch.add(next);
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        if (!batch.isEmpty()) {
+          try {
+            processBatch(batch, System.nanoTime());
+          } catch (RuntimeException e) {
+            LOG.error("Unexpected error processing batch of command reports", e);
+          } finally {
+            for (BatchedReport batchedReport : batch) {
+              finishTurn(batchedReport.hostQueue);
+            }
+            batch.clear();
+          }
         }
-      } finally {
-        unitOfWork.end();
       }
     }
   }
@@ -17,7 +17,10 @@
  */
 package org.apache.ambari.server.agent;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.ambari.server.AmbariException;
 
@@ -29,6 +32,30 @@ public class ComponentStatusAgentReport extends AgentReport<List<ComponentStatus
     this.hh = hh;
   }
 
+  /**
+   * Combines this report with a newer one from the same host. Statuses of components present in
+   * both reports are taken from the newer report, so the result is equivalent to processing both
+   * reports one after another.
+   * @param newer report received after this one
+   * @return combined report
+   */
+  public ComponentStatusAgentReport merge(ComponentStatusAgentReport newer) {
+    Map<String, ComponentStatus> merged = new LinkedHashMap<>();
+    for (ComponentStatus status : getReport()) {
+      merged.put(getComponentKey(status), status);
+    }
+    for (ComponentStatus status : newer.getReport()) {
+      String key = getComponentKey(status);
+      merged.remove(key);
+      merged.put(key, status);
+    }
+    return new ComponentStatusAgentReport(hh, getHostName(), new ArrayList<>(merged.values()));
+  }
+
+  private static String getComponentKey(ComponentStatus status) {
+    return status.getClusterId() + "/" + status.getServiceName() + "/" + status.getComponentName();
+  }
+
   @Override
   protected void process(List<ComponentStatus> report, String hostName) throws AmbariException {
     hh.handleComponentReportStatus(report, hostName);
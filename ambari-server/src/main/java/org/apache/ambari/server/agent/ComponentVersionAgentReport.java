@@ -29,6 +29,14 @@ public class ComponentVersionAgentReport extends AgentReport<ComponentVersionRep
     this.hh = hh;
   }
 
+  /**
+   * Versions are reported once after the agent registers, the report is never resent.
+   */
+  @Override
+  public boolean isResentOnRejection() {
+    return false;
+  }
+
   @Override
   protected void process(ComponentVersionReports report, String hostName) throws AmbariException {
     hh.handleComponentVersionReports(report, hostName);
@@ -53,6 +53,7 @@ import org.apache.ambari.server.events.publishers.AlertEventPublisher;
 import org.apache.ambari.server.events.publishers.AmbariEventPublisher;
 import org.apache.ambari.server.events.publishers.VersionEventPublisher;
 import org.apache.ambari.server.metadata.ActionMetadata;
+import org.apache.ambari.server.orm.AmbariJpaLocalTxnInterceptor;
 import org.apache.ambari.server.orm.dao.KerberosKeytabDAO;
 import org.apache.ambari.server.orm.dao.KerberosKeytabPrincipalDAO;
 import org.apache.ambari.server.orm.entities.KerberosKeytabPrincipalEntity;
@@ -349,7 +350,7 @@ public class HeartbeatProcessor extends AbstractService{
           HostRoleStatus.valueOf(report.getStatus()).isCompletedState()) {
         ActionFinalReportReceivedEvent event = new ActionFinalReportReceivedEvent(
             clusterId, hostName, report, false);
-        ambariEventPublisher.publish(event);
+        AmbariJpaLocalTxnInterceptor.runAfterBatchCommit(() -> ambariEventPublisher.publish(event));
       }
 
       // Fetch HostRoleCommand that corresponds to a given task ID
@@ -455,7 +456,7 @@ public class HeartbeatProcessor extends AbstractService{
               HostComponentVersionAdvertisedEvent event = new HostComponentVersionAdvertisedEvent(
                   cl, scHost, newVersion, repoVersionId);
 
-              versionEventPublisher.publish(event);
+              AmbariJpaLocalTxnInterceptor.runAfterBatchCommit(() -> versionEventPublisher.publish(event));
             }
 
             if (!scHost.getState().equals(org.apache.ambari.server.state.State.UPGRADING) &&
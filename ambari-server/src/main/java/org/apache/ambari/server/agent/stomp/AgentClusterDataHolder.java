@@ -18,17 +18,27 @@
 
 package org.apache.ambari.server.agent.stomp;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Objects;
 
 import javax.inject.Inject;
 
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.agent.stomp.dto.Hashable;
+import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.events.STOMPEvent;
 import org.apache.ambari.server.events.publishers.STOMPUpdatePublisher;
+import org.apache.commons.lang.StringUtils;
 
 /**
- * Is used to saving and updating last version of event in cluster scope
+ * Is used to saving and updating last version of event in cluster scope.
+ * The last {@link Configuration#AGENTS_CLUSTER_DATA_DELTAS_RETAINED} updates are kept together with
+ * the hash of the data they were applied to, so an agent which missed recent updates gets them
+ * instead of the whole data.
  * @param <T> event with hash to control version
  */
 public abstract class AgentClusterDataHolder<T extends STOMPEvent & Hashable> extends AgentDataHolder<T> {
@@ -36,11 +46,82 @@ public abstract class AgentClusterDataHolder<T extends STOMPEvent & Hashable> ex
   @Inject
   protected STOMPUpdatePublisher STOMPUpdatePublisher;
 
+  @Inject
+  private Configuration configuration;
+
   private volatile T data;
 
+  /**
+   * Recent updates, oldest first. Guarded by {@link #updateLock}.
+   */
+  private final Deque<Delta<T>> deltas = new ArrayDeque<>();
+
   public T getUpdateIfChanged(String agentHash) throws AmbariException {
     initializeDataIfNeeded(true);
-    return !Objects.equals(agentHash, data.getHash()) ? data : getEmptyData();
+    if (Objects.equals(agentHash, data.getHash())) {
+      return getEmptyData();
+    }
+    T delta = getDeltaSince(agentHash);
+    return delta != null ? delta : data;
+  }
+
+  /**
+   * Creates a copy of the update to be kept for agents which will miss it. The copy must not be
+   * affected by further changes of the data and should be in the form it is sent to agents.
+   * @param update applied update with the new hash already set
+   * @return copy of the update, or {@code null} if the holder does not support deltas
+   */
+  protected T createDelta(T update) {
+    return null;
+  }
+
+  /**
+   * Combines several consecutive deltas into a single update.
+   * @param deltas deltas in the order they were applied, the last one carries the current hash
+   * @return combined update, or {@code null} if deltas can not be combined and full data should be sent
+   */
+  protected T mergeDeltas(List<T> deltas) {
+    return deltas.size() == 1 ? deltas.get(0) : null;
+  }
+
+  /**
+   * @return update bringing data with the given hash to the current state, or {@code null} if the
+   * hash is unknown or too old
+   */
+  private T getDeltaSince(String agentHash) {
+    if (StringUtils.isEmpty(agentHash)) {
+      return null;
+    }
+    updateLock.lock();
+    try {
+      LinkedList<T> missed = new LinkedList<>();
+      Iterator<Delta<T>> iterator = deltas.descendingIterator();
+      while (iterator.hasNext()) {
+        Delta<T> delta = iterator.next();
+        missed.addFirst(delta.update);
+        if (agentHash.equals(delta.baseHash)) {
+          T merged = mergeDeltas(missed);
+          return merged != null && Objects.equals(merged.getHash(), data.getHash()) ? merged : null;
+        }
+      }
+      return null;
+    } finally {
+      updateLock.unlock();
+    }
+  }
+
+  private void recordDelta(String baseHash, T update) {
+    int retained = configuration == null ? 0 : configuration.getAgentsClusterDataDeltasRetained();
+    T delta = retained > 0 ? createDelta(update) : null;
+    if (delta == null) {
+      // the chain of deltas is broken, older ones can not be used anymore
+      deltas.clear();
+      return;
+    }
+    deltas.addLast(new Delta<>(baseHash, delta));
+    while (deltas.size() > retained) {
+      deltas.removeFirst();
+    }
   }
 
   /**
@@ -63,10 +144,12 @@ public abstract class AgentClusterDataHolder<T extends STOMPEvent & Hashable> ex
     updateLock.lock();
     try {
       initializeDataIfNeeded(true);
+      String baseHash = data.getHash();
       boolean changed = handleUpdate(update);
       if (changed) {
         regenerateDataIdentifiers(data);
         update.setHash(getData().getHash());
+        recordDelta(baseHash, update);
         STOMPUpdatePublisher.publish(update);
       }
       return changed;
@@ -96,4 +179,13 @@ public abstract class AgentClusterDataHolder<T extends STOMPEvent & Hashable> ex
     return data;
   }
 
+  private static class Delta<T> {
+    private final String baseHash;
+    private final T update;
+
+    private Delta(String baseHash, T update) {
+      this.baseHash = baseHash;
+      this.update = update;
+    }
+  }
 }
@@ -19,9 +19,11 @@ package org.apache.ambari.server.agent.stomp;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.SortedMap;
 import java.util.stream.Collectors;
 
 import org.apache.ambari.server.AmbariException;
+import org.apache.ambari.server.agent.stomp.dto.ClusterConfigs;
 import org.apache.ambari.server.events.AgentConfigsUpdateEvent;
 import org.apache.ambari.server.events.publishers.AmbariEventPublisher;
 import org.apache.ambari.server.security.encryption.Encryptor;
@@ -34,6 +36,8 @@ import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.google.inject.Singleton;
@@ -44,6 +48,12 @@ public class AgentConfigsHolder extends AgentHostDataHolder<AgentConfigsUpdateEv
   public static final Logger LOG = LoggerFactory.getLogger(AgentConfigsHolder.class);
   private final Encryptor<AgentConfigsUpdateEvent> encryptor;
 
+  /**
+   * Hashes of configs snapshots by identity, calculated before encryption of sensitive data.
+   */
+  private final Cache<SortedMap<String, ClusterConfigs>, String> snapshotHashes =
+      CacheBuilder.newBuilder().weakKeys().build();
+
   @Inject
   private ConfigHelper configHelper;
 
@@ -84,8 +94,7 @@ public class AgentConfigsHolder extends AgentHostDataHolder<AgentConfigsUpdateEv
       }
     }
 
-    for (Long hostId : hostIds) {
-      AgentConfigsUpdateEvent agentConfigsUpdateEvent = configHelper.getHostActualConfigs(hostId);
+    for (AgentConfigsUpdateEvent agentConfigsUpdateEvent : configHelper.getHostsActualConfigs(hostIds).values()) {
       updateData(agentConfigsUpdateEvent);
     }
   }
@@ -99,10 +108,28 @@ public class AgentConfigsHolder extends AgentHostDataHolder<AgentConfigsUpdateEv
     return update;
   }
 
+  /**
+   * Hosts with the same config groups membership share the same configs snapshot (see
+   * {@link ConfigHelper#getHostsActualConfigs(Collection)}), so the snapshot is hashed and its sensitive data is
+   * encrypted once. The hash should be calculated before encryption, so it is kept by snapshot identity.
+   */
   @Override
   protected void regenerateDataIdentifiers(AgentConfigsUpdateEvent data) {
-    data.setHash(getHash(data, encryptor.getEncryptionKey()));
-    encryptor.encryptSensitiveData(data);
+    SortedMap<String, ClusterConfigs> clustersConfigs = data.getClustersConfigs();
+    if (clustersConfigs == null) {
+      data.setHash(getHash(data, encryptor.getEncryptionKey()));
+      encryptor.encryptSensitiveData(data);
+    } else {
+      synchronized (clustersConfigs) {
+        String hash = snapshotHashes.getIfPresent(clustersConfigs);
+        if (hash == null) {
+          hash = getHash(data, encryptor.getEncryptionKey());
+          encryptor.encryptSensitiveData(data);
+          snapshotHashes.put(clustersConfigs, hash);
+        }
+        data.setHash(hash);
+      }
+    }
     data.setTimestamp(System.currentTimeMillis());
   }
 
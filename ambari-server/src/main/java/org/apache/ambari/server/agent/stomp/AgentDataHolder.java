@@ -18,7 +18,9 @@
 
 package org.apache.ambari.server.agent.stomp;
 
-import java.io.UnsupportedEncodingException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.concurrent.locks.ReentrantLock;
@@ -29,8 +31,8 @@ import org.apache.ambari.server.agent.stomp.dto.Hashable;
 import org.apache.ambari.server.events.AgentConfigsUpdateEvent;
 import org.apache.commons.lang.StringUtils;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
 /**
  * Is used to hash generating for event
@@ -39,11 +41,28 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 public abstract class AgentDataHolder<T extends Hashable> {
   protected final ReentrantLock updateLock = new ReentrantLock();
   private final static ObjectMapper MAPPER = new ObjectMapper();
+  private final static ObjectWriter WRITER;
   static {
     MAPPER.addMixIn(Hashable.class, HashIgnoreMixIn.class);
     MAPPER.addMixIn(AgentConfigsUpdateEvent.class, HashAndTimestampIgnoreMixIn.class);
+    WRITER = MAPPER.writer();
   }
 
+  private static final String DIGEST_ALGORITHM = "SHA-512";
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  /**
+   * Digest instances are not thread safe and are relatively expensive to look up, so each thread
+   * keeps its own and resets it before every use.
+   */
+  private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+    try {
+      return MessageDigest.getInstance(DIGEST_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("Unable to create " + DIGEST_ALGORITHM + " digest", e);
+    }
+  });
+
   protected abstract T getEmptyData();
 
   protected void regenerateDataIdentifiers(T data) {
@@ -58,26 +77,50 @@ public abstract class AgentDataHolder<T extends Hashable> {
     return getHash(data, "");
   }
 
+  /**
+   * Calculates SHA-512 of the salt followed by the JSON representation of the data. The JSON is
+   * streamed straight into the digest, so no intermediate string or byte array of the whole
+   * payload is built.
+   */
   protected String getHash(T data, String salt) {
-    String json = null;
+    MessageDigest md = DIGEST.get();
+    md.reset();
+    md.update(salt.getBytes(StandardCharsets.UTF_8));
     try {
-      json = MAPPER.writeValueAsString(data);
-    } catch (JsonProcessingException e) {
+      WRITER.writeValue(new DigestSinkOutputStream(md), data);
+    } catch (IOException e) {
       throw new RuntimeException("Error during mapping message to calculate hash", e);
     }
-    String generatedPassword = null;
-    try {
-      MessageDigest md = MessageDigest.getInstance("SHA-512");
-      md.update(salt.getBytes("UTF-8"));
-      byte[] bytes = md.digest(json.getBytes("UTF-8"));
-      StringBuilder sb = new StringBuilder();
-      for (byte b : bytes) {
-        sb.append(Integer.toString((b & 0xff) + 0x100, 16).substring(1));
-      }
-      generatedPassword = sb.toString();
-    } catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
-      e.printStackTrace();
+    return toHex(md.digest());
+  }
+
+  private static String toHex(byte[] bytes) {
+    char[] chars = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0x0f];
+      chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0x0f];
+    }
+    return new String(chars);
+  }
+
+  /**
+   * Output stream which feeds everything written to it into a digest and discards it.
+   */
+  private static final class DigestSinkOutputStream extends OutputStream {
+    private final MessageDigest md;
+
+    private DigestSinkOutputStream(MessageDigest md) {
+      this.md = md;
+    }
+
+    @Override
+    public void write(int b) {
+      md.update((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      md.update(b, off, len);
     }
-    return generatedPassword;
   }
 }
@@ -27,6 +27,7 @@ import javax.ws.rs.WebApplicationException;
 
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.HostNotRegisteredException;
+import org.apache.ambari.server.agent.AgentReport;
 import org.apache.ambari.server.agent.AgentReportsProcessor;
 import org.apache.ambari.server.agent.AgentSessionManager;
 import org.apache.ambari.server.agent.CommandReport;
@@ -78,9 +79,8 @@ public class AgentReportsController {
   public ReportsResponse handleComponentVersionReport(@Header String simpSessionId, ComponentVersionReports message)
       throws WebApplicationException, InvalidStateTransitionException, AmbariException {
 
-    agentReportsProcessor.addAgentReport(new ComponentVersionAgentReport(hh,
+    return addAgentReport(new ComponentVersionAgentReport(hh,
         agentSessionManager.getHost(simpSessionId).getHostName(), message));
-    return new ReportsResponse();
   }
 
   @MessageMapping("/component_status")
@@ -98,9 +98,8 @@ public class AgentReportsController {
       }
     }
 
-    agentReportsProcessor.addAgentReport(new ComponentStatusAgentReport(hh,
+    return addAgentReport(new ComponentStatusAgentReport(hh,
         agentSessionManager.getHost(simpSessionId).getHostName(), statuses));
-    return new ReportsResponse();
   }
 
   @MessageMapping("/commands_status")
@@ -111,16 +110,26 @@ public class AgentReportsController {
       statuses.addAll(clusterReport.getValue());
     }
 
-    agentReportsProcessor.addAgentReport(new CommandStatusAgentReport(hh,
+    return addAgentReport(new CommandStatusAgentReport(hh,
         agentSessionManager.getHost(simpSessionId).getHostName(), statuses));
-    return new ReportsResponse();
   }
 
   @MessageMapping("/host_status")
   public ReportsResponse handleHostReportStatus(@Header String simpSessionId, HostStatusReport message) throws AmbariException {
-    agentReportsProcessor.addAgentReport(new HostStatusAgentReport(hh,
+    return addAgentReport(new HostStatusAgentReport(hh,
         agentSessionManager.getHost(simpSessionId).getHostName(), message));
-    return new ReportsResponse();
+  }
+
+  /**
+   * Queues report for processing. If the reports backlog is full the agent gets failed response,
+   * keeps the report and sends it again later.
+   */
+  private ReportsResponse addAgentReport(AgentReport agentReport) {
+    ReportsResponse response = new ReportsResponse();
+    if (!agentReportsProcessor.addAgentReport(agentReport)) {
+      response.setStatus(StompResponse.StompResponseStatus.FAILED);
+    }
+    return response;
   }
 
   @MessageMapping("/alerts_status")
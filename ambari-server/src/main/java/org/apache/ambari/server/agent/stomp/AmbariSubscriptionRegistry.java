@@ -18,8 +18,10 @@
 
 package org.apache.ambari.server.agent.stomp;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -46,6 +48,7 @@ import org.springframework.messaging.simp.broker.SubscriptionRegistry;
 import org.springframework.messaging.support.MessageHeaderAccessor;
 import org.springframework.util.AntPathMatcher;
 import org.springframework.util.Assert;
+import org.springframework.util.CollectionUtils;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.util.PathMatcher;
@@ -54,8 +57,8 @@ import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 
 /**
- * Implementation of {@link SubscriptionRegistry} that has configurable cache size, optimized working with cache and
- * destinations matching.
+ * Implementation of {@link SubscriptionRegistry} that keeps an immutable index of subscriptions by destination,
+ * so messages, including host-targeted ones, are routed without scanning all sessions.
  */
 public class AmbariSubscriptionRegistry extends AbstractSubscriptionRegistry {
   private static final Logger LOG = LoggerFactory.getLogger(AmbariSubscriptionRegistry.class);
@@ -70,17 +73,18 @@ public class AmbariSubscriptionRegistry extends AbstractSubscriptionRegistry {
 
   private String selectorHeaderName = "selector";
 
-  private volatile boolean selectorHeaderInUse = false;
-
   private final ExpressionParser expressionParser = new SpelExpressionParser();
 
-  private final DestinationCache destinationCache;
+  private final Cache<String, Expression> selectorExpressions;
+
+  private final DestinationIndex destinationIndex;
 
   private final SessionSubscriptionRegistry subscriptionRegistry = new SessionSubscriptionRegistry();
 
   public AmbariSubscriptionRegistry(int cacheLimit) {
     this.cacheLimit = cacheLimit;
-    destinationCache = new DestinationCache();
+    selectorExpressions = CacheBuilder.newBuilder().maximumSize(cacheLimit).build();
+    destinationIndex = new DestinationIndex();
   }
 
   /**
@@ -144,7 +148,7 @@ public class AmbariSubscriptionRegistry extends AbstractSubscriptionRegistry {
 
     Expression expression = getSelectorExpression(message.getHeaders());
     this.subscriptionRegistry.addSubscription(sessionId, subsId, destination, expression);
-    this.destinationCache.updateAfterNewSubscription(destination, sessionId, subsId);
+    this.destinationIndex.addSubscription(destination, sessionId, new Subscription(subsId, expression));
   }
 
   @Nullable
@@ -154,8 +158,8 @@ public class AmbariSubscriptionRegistry extends AbstractSubscriptionRegistry {
       String selector = SimpMessageHeaderAccessor.getFirstNativeHeader(getSelectorHeaderName(), headers);
       if (selector != null) {
         try {
-          expression = this.expressionParser.parseExpression(selector);
-          this.selectorHeaderInUse = true;
+          // sessions subscribing with the same selector share the parsed expression
+          expression = this.selectorExpressions.get(selector, () -> this.expressionParser.parseExpression(selector));
           if (logger.isTraceEnabled()) {
             logger.trace("Subscription selector: [" + selector + "]");
           }
@@ -176,7 +180,7 @@ public class AmbariSubscriptionRegistry extends AbstractSubscriptionRegistry {
     if (info != null) {
       String destination = info.removeSubscription(subsId);
       if (destination != null) {
-        this.destinationCache.updateAfterRemovedSubscription(sessionId, subsId);
+        this.destinationIndex.removeSubscription(destination, sessionId, subsId);
       }
     }
   }
@@ -185,41 +189,36 @@ public class AmbariSubscriptionRegistry extends AbstractSubscriptionRegistry {
   public void unregisterAllSubscriptions(String sessionId) {
     SessionSubscriptionInfo info = this.subscriptionRegistry.removeSubscriptions(sessionId);
     if (info != null) {
-      this.destinationCache.updateAfterRemovedSession(info);
+      this.destinationIndex.removeSession(info);
     }
   }
 
   @Override
   protected MultiValueMap<String, String> findSubscriptionsInternal(String destination, Message<?> message) {
-    MultiValueMap<String, String> result = this.destinationCache.getSubscriptions(destination, message);
-    return filterSubscriptions(result, message);
+    DestinationSubscriptions subscriptions = this.destinationIndex.getSubscriptions(destination);
+    if (subscriptions == null) {
+      return new LinkedMultiValueMap<>();
+    }
+    return filterSubscriptions(subscriptions, message);
   }
 
   private MultiValueMap<String, String> filterSubscriptions(
-      MultiValueMap<String, String> allMatches, Message<?> message) {
+      DestinationSubscriptions allMatches, Message<?> message) {
 
-    if (!this.selectorHeaderInUse) {
-      return allMatches;
+    if (!allMatches.isSelectorInUse()) {
+      return allMatches.getSubscriptionIds();
     }
-    MultiValueMap<String, String> result = new LinkedMultiValueMap<>(allMatches.size());
-    allMatches.forEach((sessionId, subIds) -> {
-      subIds.forEach(subId -> {
-        SessionSubscriptionInfo info = this.subscriptionRegistry.getSubscriptions(sessionId);
-        if (info == null) {
-          return;
-        }
-        Subscription sub = info.getSubscription(subId);
-        if (sub == null) {
-          return;
-        }
+    MultiValueMap<String, String> result = new LinkedMultiValueMap<>(allMatches.getSessions().size());
+    allMatches.getSessions().forEach((sessionId, subs) -> {
+      subs.forEach(sub -> {
         Expression expression = sub.getSelectorExpression();
         if (expression == null) {
-          result.add(sessionId, subId);
+          result.add(sessionId, sub.getId());
           return;
         }
         try {
           if (Boolean.TRUE.equals(expression.getValue(messageEvalContext, message, Boolean.class))) {
-            result.add(sessionId, subId);
+            result.add(sessionId, sub.getId());
           }
         }
         catch (SpelEvaluationException ex) {
@@ -237,119 +236,125 @@ public class AmbariSubscriptionRegistry extends AbstractSubscriptionRegistry {
 
   @Override
   public String toString() {
-    return "DefaultSubscriptionRegistry[" + this.destinationCache + ", " + this.subscriptionRegistry + "]";
+    return "DefaultSubscriptionRegistry[" + this.destinationIndex + ", " + this.subscriptionRegistry + "]";
   }
 
 
   /**
-   * A cache for destinations previously resolved via
-   * {@link org.springframework.messaging.simp.broker.DefaultSubscriptionRegistry#findSubscriptionsInternal(String, Message)}
+   * Index of subscriptions by exact destination. Host-targeted messages are resolved by the user destination
+   * handler to destinations with a single subscribed session, so the look-up does not depend on the number of
+   * sessions. Snapshots are immutable and replaced on subscription changes, so messages are routed without
+   * locking or copying.
    */
-  private class DestinationCache {
+  private class DestinationIndex {
 
-    /** Map from destination -> <sessionId, subscriptionId> for fast look-ups */
-    private final Map<String, LinkedMultiValueMap<String, String>> accessCache =
-        new ConcurrentHashMap<>(cacheLimit);
+    /** Map from destination -> subscriptions snapshot */
+    private final ConcurrentMap<String, DestinationSubscriptions> index = new ConcurrentHashMap<>(cacheLimit);
 
-    //TODO optimize usage of this cache on perf cluster
-    private final Cache<String, String> notSubscriptionCache =
-        CacheBuilder.newBuilder().maximumSize(cacheLimit).build();
+    @Nullable
+    public DestinationSubscriptions getSubscriptions(String destination) {
+      return this.index.get(destination);
+    }
+
+    public void addSubscription(String destination, String sessionId, Subscription subscription) {
+      this.index.compute(destination, (key, value) ->
+          (value == null ? DestinationSubscriptions.EMPTY : value).withSubscription(sessionId, subscription));
+    }
 
-    public LinkedMultiValueMap<String, String> getSubscriptions(String destination, Message<?> message) {
-      LinkedMultiValueMap<String, String> copiedSubscriptions = new LinkedMultiValueMap<>();
-      if (notSubscriptionCache.asMap().keySet().contains(destination)) {
-        return copiedSubscriptions;
+    public void removeSubscription(String destination, String sessionId, String subsId) {
+      this.index.computeIfPresent(destination, (key, value) -> value.withoutSubscription(sessionId, subsId));
+    }
+
+    public void removeSession(SessionSubscriptionInfo info) {
+      for (String destination : info.getDestinations()) {
+        this.index.computeIfPresent(destination, (key, value) -> value.withoutSession(info.getSessionId()));
       }
-      this.accessCache.compute(destination, (key, value) -> {
-        if (value == null) {
-          LinkedMultiValueMap<String, String> result = new LinkedMultiValueMap<>();
-          subscriptionRegistry.getAllSubscriptions().forEach((info) -> {
-            info.getDestinations().forEach((destinationPattern) -> {
-              //TODO temporary changed to more fast-acting check without regex, need move investigation
-              if (destinationPattern.equals(destination)) {
-                info.getSubscriptions(destinationPattern).forEach((subscription) -> {
-                  result.add(info.sessionId, subscription.getId());
-                });
-              }
-            });
-          });
-          if (!result.isEmpty()) {
-            copiedSubscriptions.addAll(result.deepCopy());
-            return result;
-          } else {
-            notSubscriptionCache.put(destination, "");
-            return null;
-          }
-        } else {
-          copiedSubscriptions.addAll(value.deepCopy());
-          return value;
-        }
-      });
-      return copiedSubscriptions;
     }
 
-    public void updateAfterNewSubscription(String destination, String sessionId, String subsId) {
-      LinkedMultiValueMap<String, String> updatedMap = this.accessCache.computeIfPresent(destination, (key, value) -> {
-        if (getPathMatcher().match(destination, key)) {
-          LinkedMultiValueMap<String, String> subs = value;
-          subs.add(sessionId, subsId);
-          return subs;
+    @Override
+    public String toString() {
+      return "index[" + this.index.size() + " destination(s)]";
+    }
+  }
+
+
+  /**
+   * Immutable subscriptions of a single destination.
+   */
+  private static final class DestinationSubscriptions {
+
+    private static final DestinationSubscriptions EMPTY = new DestinationSubscriptions(Collections.emptyMap());
+
+    // sessionId -> subscriptions
+    private final Map<String, List<Subscription>> sessions;
+
+    // sessionId -> subscription ids, returned as is when there are no selectors
+    private final MultiValueMap<String, String> subscriptionIds;
+
+    private final boolean selectorInUse;
+
+    private DestinationSubscriptions(Map<String, List<Subscription>> sessions) {
+      this.sessions = Collections.unmodifiableMap(sessions);
+      LinkedMultiValueMap<String, String> ids = new LinkedMultiValueMap<>(sessions.size());
+      boolean selectors = false;
+      for (Map.Entry<String, List<Subscription>> entry : sessions.entrySet()) {
+        for (Subscription sub : entry.getValue()) {
+          ids.add(entry.getKey(), sub.getId());
+          selectors |= sub.getSelectorExpression() != null;
         }
-        return value;
-      });
-      if (updatedMap == null) {
-        this.notSubscriptionCache.invalidate(destination);
       }
+      this.subscriptionIds = CollectionUtils.unmodifiableMultiValueMap(ids);
+      this.selectorInUse = selectors;
     }
 
-    public void updateAfterRemovedSubscription(String sessionId, String subsId) {
-      for (Iterator<Map.Entry<String, LinkedMultiValueMap<String, String>>> iterator =
-           this.accessCache.entrySet().iterator(); iterator.hasNext(); ) {
-        Map.Entry<String, LinkedMultiValueMap<String, String>> entry = iterator.next();
-        String destination = entry.getKey();
-        this.accessCache.compute(destination, (key, value) -> {
-          if (value != null) {
-            List<String> subscriptions = value.get(sessionId);
-            if (subscriptions != null) {
-              subscriptions.remove(subsId);
-              if (subscriptions.isEmpty()) {
-                value.remove(sessionId);
-              }
-              if (value.isEmpty()) {
-                return null;
-              } else {
-                this.notSubscriptionCache.invalidate(destination);
-              }
-            }
-          }
-          return value;
-        });
-      }
+    public Map<String, List<Subscription>> getSessions() {
+      return this.sessions;
     }
 
-    public void updateAfterRemovedSession(SessionSubscriptionInfo info) {
-      for (Iterator<Map.Entry<String, LinkedMultiValueMap<String, String>>> iterator =
-           this.accessCache.entrySet().iterator(); iterator.hasNext(); ) {
-        Map.Entry<String, LinkedMultiValueMap<String, String>> entry = iterator.next();
-        String destination = entry.getKey();
-        this.accessCache.compute(destination, (key, value) -> {
-          if (value != null) {
-            if (value.remove(info.getSessionId()) != null) {
-              if (value.isEmpty()) {
-                return null;
-              } else {
-                this.notSubscriptionCache.invalidate(destination);
-              }
-            }
-          }
-          return value;
-        });
+    public MultiValueMap<String, String> getSubscriptionIds() {
+      return this.subscriptionIds;
+    }
+
+    public boolean isSelectorInUse() {
+      return this.selectorInUse;
+    }
+
+    public DestinationSubscriptions withSubscription(String sessionId, Subscription subscription) {
+      Map<String, List<Subscription>> updated = new LinkedHashMap<>(this.sessions);
+      List<Subscription> subs = new ArrayList<>(updated.getOrDefault(sessionId, Collections.emptyList()));
+      subs.remove(subscription);
+      subs.add(subscription);
+      updated.put(sessionId, Collections.unmodifiableList(subs));
+      return new DestinationSubscriptions(updated);
+    }
+
+    @Nullable
+    public DestinationSubscriptions withoutSubscription(String sessionId, String subsId) {
+      List<Subscription> subs = this.sessions.get(sessionId);
+      if (subs == null) {
+        return this;
+      }
+      List<Subscription> remaining = new ArrayList<>(subs);
+      if (!remaining.removeIf(sub -> sub.getId().equals(subsId))) {
+        return this;
       }
+      Map<String, List<Subscription>> updated = new LinkedHashMap<>(this.sessions);
+      if (remaining.isEmpty()) {
+        updated.remove(sessionId);
+      } else {
+        updated.put(sessionId, Collections.unmodifiableList(remaining));
+      }
+      return updated.isEmpty() ? null : new DestinationSubscriptions(updated);
     }
 
-    @Override
-    public String toString() {
-      return "cache[" + this.accessCache.size() + " destination(s)]";
+    @Nullable
+    public DestinationSubscriptions withoutSession(String sessionId) {
+      if (!this.sessions.containsKey(sessionId)) {
+        return this;
+      }
+      Map<String, List<Subscription>> updated = new LinkedHashMap<>(this.sessions);
+      updated.remove(sessionId);
+      return updated.isEmpty() ? null : new DestinationSubscriptions(updated);
     }
   }
 
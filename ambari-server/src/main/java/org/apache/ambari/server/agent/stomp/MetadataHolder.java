@@ -110,6 +110,11 @@ public class MetadataHolder extends AgentClusterDataHolder<MetadataUpdateEvent>
     return changed;
   }
 
+  @Override
+  protected MetadataUpdateEvent createDelta(MetadataUpdateEvent update) {
+    return update.deepCopy();
+  }
+
   @Override
   protected MetadataUpdateEvent getEmptyData() {
     return MetadataUpdateEvent.emptyUpdate();
@@ -73,10 +73,18 @@ public class TopologyHolder extends AgentClusterDataHolder<TopologyUpdateEvent>
   @Override
   public TopologyUpdateEvent getUpdateIfChanged(String agentHash) throws AmbariException {
     TopologyUpdateEvent topologyUpdateEvent = super.getUpdateIfChanged(agentHash);
-    prepareAgentTopology(topologyUpdateEvent);
+    // deltas are already kept in the agent form
+    if (!(topologyUpdateEvent instanceof TopologyAgentUpdateEvent)) {
+      prepareAgentTopology(topologyUpdateEvent);
+    }
     return topologyUpdateEvent;
   }
 
+  @Override
+  protected TopologyUpdateEvent createDelta(TopologyUpdateEvent update) {
+    return createAgentUpdate(update);
+  }
+
   /**
    * Is used during agent registering to provide base info about clusters topology.
    * @return filled TopologyUpdateEvent with info about all components and hosts in all clusters
@@ -134,14 +142,7 @@ public class TopologyHolder extends AgentClusterDataHolder<TopologyUpdateEvent>
   public boolean updateData(TopologyUpdateEvent update) throws AmbariException {
     boolean changed = super.updateData(update);
     if (changed) {
-      // it is not allowed to change existent update event before arriving to listener and converting to json
-      // so it is better to create copy
-      TopologyUpdateEvent copiedUpdate = update.deepCopy();
-      TopologyAgentUpdateEvent topologyAgentUpdateEvent = new TopologyAgentUpdateEvent(copiedUpdate.getClusters(),
-        copiedUpdate.getHash(),
-        copiedUpdate.getEventType()
-      );
-      prepareAgentTopology(topologyAgentUpdateEvent);
+      TopologyAgentUpdateEvent topologyAgentUpdateEvent = createAgentUpdate(update);
       LOG.debug("Publishing Topology Agent Update Event hash={}", topologyAgentUpdateEvent.getHash());
       STOMPUpdatePublisher.publish(topologyAgentUpdateEvent);
     }
@@ -149,6 +150,18 @@ public class TopologyHolder extends AgentClusterDataHolder<TopologyUpdateEvent>
     return changed;
   }
 
+  private TopologyAgentUpdateEvent createAgentUpdate(TopologyUpdateEvent update) {
+    // it is not allowed to change existent update event before arriving to listener and converting to json
+    // so it is better to create copy
+    TopologyUpdateEvent copiedUpdate = update.deepCopy();
+    TopologyAgentUpdateEvent topologyAgentUpdateEvent = new TopologyAgentUpdateEvent(copiedUpdate.getClusters(),
+      copiedUpdate.getHash(),
+      copiedUpdate.getEventType()
+    );
+    prepareAgentTopology(topologyAgentUpdateEvent);
+    return topologyAgentUpdateEvent;
+  }
+
   @Override
   protected boolean handleUpdate(TopologyUpdateEvent update) throws AmbariException {
     TopologyUpdateHandlingReport report = new TopologyUpdateHandlingReport();
@@ -67,6 +67,31 @@ public class MetadataCluster {
     return new MetadataCluster(securityType, null, false, clusterLevelParams, null);
   }
 
+  /**
+   * @return copy of the cluster metadata which is not affected by further updates of this instance
+   */
+  public MetadataCluster deepCopy() {
+    try {
+      lock.lock();
+      SortedMap<String, SortedMap<String, String>> copiedAgentConfigs = null;
+      if (agentConfigs != null) {
+        copiedAgentConfigs = new TreeMap<>();
+        for (Map.Entry<String, SortedMap<String, String>> agentConfig : agentConfigs.entrySet()) {
+          copiedAgentConfigs.put(agentConfig.getKey(), new TreeMap<>(agentConfig.getValue()));
+        }
+      }
+      MetadataCluster copy = new MetadataCluster(null,
+          serviceLevelParams == null ? null : new TreeMap<>(serviceLevelParams),
+          fullServiceLevelMetadata,
+          clusterLevelParams == null ? null : new TreeMap<>(clusterLevelParams),
+          copiedAgentConfigs);
+      copy.statusCommandsToRun.addAll(statusCommandsToRun);
+      return copy;
+    } finally {
+      lock.unlock();
+    }
+  }
+
   public Set<String> getStatusCommandsToRun() {
     return statusCommandsToRun;
   }
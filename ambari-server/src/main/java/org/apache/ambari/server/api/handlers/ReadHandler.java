@@ -51,7 +51,11 @@ public class ReadHandler implements RequestHandler {
   public Result handleRequest(Request request) {
     Query query = request.getResource().getQuery();
 
-    query.setPageRequest(request.getPageRequest());
+    try {
+      query.setPageRequest(request.getPageRequest());
+    } catch (IllegalArgumentException e) {
+      return new ResultImpl(new ResultStatus(ResultStatus.STATUS.BAD_REQUEST, e.getMessage()));
+    }
     query.setSortRequest(request.getSortRequest());
     query.setRenderer(request.getRenderer());
 
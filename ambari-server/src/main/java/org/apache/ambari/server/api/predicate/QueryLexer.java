@@ -51,6 +51,7 @@ public class QueryLexer {
   public static final String QUERY_PAGE_SIZE = "page_size";
   public static final String QUERY_TO        = "to";
   public static final String QUERY_FROM      = "from";
+  public static final String QUERY_CURSOR    = "cursor";
   public static final String QUERY_MINIMAL   = "minimal_response";
   public static final String QUERY_SORT      = "sortBy";
   public static final String QUERY_DOAS      = "doAs";
@@ -215,6 +216,7 @@ public class QueryLexer {
     SET_IGNORE.add(QUERY_PAGE_SIZE);
     SET_IGNORE.add(QUERY_TO);
     SET_IGNORE.add(QUERY_FROM);
+    SET_IGNORE.add(QUERY_CURSOR);
     SET_IGNORE.add(QUERY_MINIMAL);
     SET_IGNORE.add(QUERY_SORT);
     SET_IGNORE.add(QUERY_DOAS);
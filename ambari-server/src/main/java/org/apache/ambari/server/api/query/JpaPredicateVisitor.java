@@ -40,6 +40,11 @@ import org.apache.ambari.server.controller.utilities.PredicateHelper;
 /**
  * The {@link JpaPredicateVisitor} is used to convert an Ambari
  * {@link Predicate} into a JPA {@link javax.persistence.criteria.Predicate}.
+ * <p/>
+ * Parts of the predicate which can not be converted are left out in a way
+ * that the JPA predicate never filters out an entity which matches the Ambari
+ * predicate; such parts must still be evaluated against the resources (see
+ * {@link #isFullyTranslated()}).
  */
 public abstract class JpaPredicateVisitor<T> implements PredicateVisitor {
   /**
@@ -76,6 +81,12 @@ public abstract class JpaPredicateVisitor<T> implements PredicateVisitor {
   private ArrayDeque<List<javax.persistence.criteria.Predicate>> m_queue =
     new ArrayDeque<>();
 
+  /**
+   * {@code true} until a part of the predicate is encountered which can not be
+   * converted.
+   */
+  private boolean m_fullyTranslated = true;
+
   /**
    * Constructor.
    *
@@ -91,6 +102,22 @@ public abstract class JpaPredicateVisitor<T> implements PredicateVisitor {
     m_root = m_query.from(entityClass);
   }
 
+  /**
+   * Constructor for a visitor which converts predicates against the given root
+   * of another query.
+   *
+   * @param visitor
+   *          the visitor providing the entity manager.
+   * @param root
+   *          the root of the query the predicate is built for.
+   */
+  private JpaPredicateVisitor(JpaPredicateVisitor<T> visitor, Root<T> root) {
+    m_entityManager = visitor.m_entityManager;
+    m_builder = visitor.m_builder;
+    m_query = null;
+    m_root = root;
+  }
+
   /**
    * Gets the entity class that is the root type in the JPA {@code from} clause.
    *
@@ -120,6 +147,53 @@ public abstract class JpaPredicateVisitor<T> implements PredicateVisitor {
     return m_lastPredicate;
   }
 
+  /**
+   * Gets whether the whole Ambari {@link Predicate} was converted into the
+   * {@link #getJpaPredicate() JPA predicate}. Only in that case the entities
+   * returned by the query match the Ambari predicate exactly, so that the
+   * result can be paged by the database.
+   *
+   * @return {@code true} if no part of the predicate was left out.
+   */
+  public boolean isFullyTranslated() {
+    return m_fullyTranslated;
+  }
+
+  /**
+   * Creates a query counting the entities which match the given predicate,
+   * converted the same way as by this visitor.
+   *
+   * @param predicate
+   *          the Ambari predicate, or {@code null} to count all entities.
+   * @return the count query (never {@code null}).
+   */
+  public CriteriaQuery<Long> createCountQuery(Predicate predicate) {
+    CriteriaQuery<Long> countQuery = m_builder.createQuery(Long.class);
+    Root<T> countRoot = countQuery.from(getEntityClass());
+
+    JpaPredicateVisitor<T> countVisitor = new JpaPredicateVisitor<T>(this, countRoot) {
+      @Override
+      public Class<T> getEntityClass() {
+        return JpaPredicateVisitor.this.getEntityClass();
+      }
+
+      @Override
+      public List<? extends SingularAttribute<?, ?>> getPredicateMapping(String propertyId) {
+        return JpaPredicateVisitor.this.getPredicateMapping(propertyId);
+      }
+    };
+
+    if (null != predicate) {
+      PredicateHelper.visit(predicate, countVisitor);
+    }
+
+    countQuery.select(m_builder.count(countRoot));
+    if (null != countVisitor.getJpaPredicate()) {
+      countQuery.where(countVisitor.getJpaPredicate());
+    }
+    return countQuery;
+  }
+
   /**
    * Gets the query to use along with {@link #getJpaPredicate()}.
    *
@@ -149,6 +223,7 @@ public abstract class JpaPredicateVisitor<T> implements PredicateVisitor {
     List<? extends SingularAttribute<?, ?>> singularAttributes = getPredicateMapping(propertyId);
 
     if (null == singularAttributes || singularAttributes.size() == 0) {
+      m_fullyTranslated = false;
       return;
     }
 
@@ -168,6 +243,7 @@ public abstract class JpaPredicateVisitor<T> implements PredicateVisitor {
     }
 
     if (null == path) {
+      m_fullyTranslated = false;
       return;
     }
 
@@ -197,14 +273,11 @@ public abstract class JpaPredicateVisitor<T> implements PredicateVisitor {
     }
 
     if (null == jpaPredicate) {
+      m_fullyTranslated = false;
       return;
     }
 
-    if (null == m_queue.peekLast()) {
-      m_lastPredicate = jpaPredicate;
-    } else {
-      m_queue.peekLast().add(jpaPredicate);
-    }
+    addPredicate(jpaPredicate);
   }
 
   /**
@@ -215,6 +288,7 @@ public abstract class JpaPredicateVisitor<T> implements PredicateVisitor {
     // no predicates, no work
     Predicate[] predicates = predicate.getPredicates();
     if (predicates.length == 0) {
+      m_fullyTranslated = false;
       return;
     }
 
@@ -227,25 +301,31 @@ public abstract class JpaPredicateVisitor<T> implements PredicateVisitor {
     for (int i = 0; i < predicates.length; i++) {
       PredicateHelper.visit(predicates[i], this);
     }
-    javax.persistence.criteria.Predicate jpaPredicate = null;
+
     // the list is done; deque and apply logical AND or OR
     predicateList = m_queue.pollLast();
-    if (predicateList != null) {
-      javax.persistence.criteria.Predicate[] array = new javax.persistence.criteria.Predicate[predicateList.size()];
-      array = predicateList.toArray(array);
-
-      if ("AND".equals(operator)) {
-        jpaPredicate = m_builder.and(array);
-      } else {
-        jpaPredicate = m_builder.or(array);
-      }
+    if (predicateList == null || predicateList.isEmpty()) {
+      return;
+    }
+
+    javax.persistence.criteria.Predicate[] array = new javax.persistence.criteria.Predicate[predicateList.size()];
+    array = predicateList.toArray(array);
 
-      if (null == m_queue.peekLast()) {
-        m_lastPredicate = jpaPredicate;
-      } else {
-        m_queue.peekLast().add(jpaPredicate);
+    javax.persistence.criteria.Predicate jpaPredicate;
+    if ("AND".equals(operator)) {
+      // leaving out a term only widens a conjunction
+      jpaPredicate = m_builder.and(array);
+    } else {
+      // leaving out a term narrows a disjunction, so it can only be used if
+      // every term was converted
+      if (predicateList.size() < predicates.length) {
+        m_fullyTranslated = false;
+        return;
       }
+      jpaPredicate = m_builder.or(array);
     }
+
+    addPredicate(jpaPredicate);
   }
 
   /**
@@ -253,6 +333,9 @@ public abstract class JpaPredicateVisitor<T> implements PredicateVisitor {
    */
   @Override
   public void acceptUnaryPredicate(UnaryPredicate predicate) {
+    // a negation is not converted since SQL and resource evaluation treat
+    // missing (NULL) values differently
+    m_fullyTranslated = false;
   }
 
   /**
@@ -267,5 +350,21 @@ public abstract class JpaPredicateVisitor<T> implements PredicateVisitor {
    */
   @Override
   public void acceptCategoryPredicate(CategoryPredicate predicate) {
+    m_fullyTranslated = false;
+  }
+
+  /**
+   * Adds the converted predicate to the chain currently being built, or makes
+   * it the result if there is no chain.
+   *
+   * @param jpaPredicate
+   *          the converted predicate.
+   */
+  private void addPredicate(javax.persistence.criteria.Predicate jpaPredicate) {
+    if (null == m_queue.peekLast()) {
+      m_lastPredicate = jpaPredicate;
+    } else {
+      m_queue.peekLast().add(jpaPredicate);
+    }
   }
 }
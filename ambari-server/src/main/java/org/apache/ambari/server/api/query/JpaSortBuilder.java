@@ -17,12 +17,16 @@
  */
 package org.apache.ambari.server.api.query;
 
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Member;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
+import javax.persistence.Column;
+import javax.persistence.JoinColumn;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Order;
@@ -30,6 +34,7 @@ import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Root;
 import javax.persistence.metamodel.SingularAttribute;
 
+import org.apache.ambari.server.controller.spi.PageCursor;
 import org.apache.ambari.server.controller.spi.SortRequest;
 import org.apache.ambari.server.controller.spi.SortRequestProperty;
 import org.apache.commons.lang.ObjectUtils;
@@ -85,39 +90,7 @@ public class JpaSortBuilder<T> {
         continue;
       }
 
-      Path<?> path = null;
-      for (SingularAttribute<?, ?> singularAttribute : singularAttributes) {
-        if (null == path) {
-
-          CriteriaQuery<T> query = visitor.getCriteriaQuery();
-          Set<Root<?>> roots = query.getRoots();
-
-          // if there are existing roots; use the existing roots to prevent more
-          // roots from being added potentially causing a cartesian product
-          // where we don't want one
-          if (null != roots && !roots.isEmpty()) {
-            Iterator<Root<?>> iterator = roots.iterator();
-            while (iterator.hasNext()) {
-              Root<?> root = iterator.next();
-
-              Class<?> visitorEntityClass = visitor.getEntityClass();
-              if (ObjectUtils.equals(visitorEntityClass, root.getJavaType())
-                  || ObjectUtils.equals(visitorEntityClass, root.getModel().getJavaType())) {
-                path = root.get(singularAttribute.getName());
-                break;
-              }
-            }
-          }
-
-          // no roots exist already which match this entity class, create a new
-          // path
-          if (null == path) {
-            path = query.from(visitor.getEntityClass()).get(singularAttribute.getName());
-          }
-        } else {
-          path = path.get(singularAttribute.getName());
-        }
-      }
+      Path<?> path = getPath(singularAttributes, visitor);
 
       Order sortOrder = null;
       if (sort.getOrder() == org.apache.ambari.server.controller.spi.SortRequest.Order.ASC) {
@@ -131,4 +104,222 @@ public class JpaSortBuilder<T> {
 
     return sortOrders;
   }
+
+  /**
+   * Gets whether the database orders the entities by the given properties the
+   * same way as the resources are ordered in memory, so that a query limited
+   * to the first entities returns the first resources. This is only the case
+   * if all properties are mapped to columns which can not be {@code null},
+   * since databases differ in where they sort {@code null}, while resources
+   * always sort it first, and are not enums, which are sorted by ordinal in
+   * memory and by name in the database.
+   *
+   * @param properties
+   *          the sort properties (not {@code null}).
+   * @param visitor
+   *          a visitor that knows how to convert the Ambari properties into
+   *          {@link SingularAttribute} (not {@code null}).
+   * @return {@code true} if the database order is the same as the order of
+   *         the resources.
+   */
+  public boolean isOrderExact(List<SortRequestProperty> properties,
+      JpaPredicateVisitor<T> visitor) {
+
+    for (SortRequestProperty property : properties) {
+      List<? extends SingularAttribute<?, ?>> singularAttributes = visitor.getPredicateMapping(property.getPropertyId());
+      if (null == singularAttributes || singularAttributes.isEmpty()) {
+        return false;
+      }
+
+      for (SingularAttribute<?, ?> attribute : singularAttributes) {
+        if (isNullable(attribute)) {
+          return false;
+        }
+      }
+
+      if (singularAttributes.get(singularAttributes.size() - 1).getJavaType().isEnum()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Gets whether an attribute may be {@code null}. The metamodel only knows
+   * about {@code @Basic(optional = false)}, so the column mapping of the field
+   * is checked as well.
+   *
+   * @param attribute
+   *          the attribute (not {@code null}).
+   * @return {@code true} if the attribute is not known to be always set.
+   */
+  private static boolean isNullable(SingularAttribute<?, ?> attribute) {
+    if (attribute.isId() || !attribute.isOptional() || attribute.getJavaType().isPrimitive()) {
+      return false;
+    }
+
+    Member member = attribute.getJavaMember();
+    if (member instanceof AnnotatedElement) {
+      AnnotatedElement element = (AnnotatedElement) member;
+      Column column = element.getAnnotation(Column.class);
+      if (null != column) {
+        return column.nullable();
+      }
+      JoinColumn joinColumn = element.getAnnotation(JoinColumn.class);
+      if (null != joinColumn) {
+        return joinColumn.nullable();
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Builds a predicate which restricts a query to the entities that sort after
+   * the position of a {@link PageCursor}. The cursor is compared property by
+   * property, in the same way as resources are compared in memory, where
+   * {@code null} sorts before all other values.
+   *
+   * @param properties
+   *          the leading properties of the cursor to restrict on (not
+   *          {@code null}).
+   * @param cursor
+   *          the cursor (not {@code null}).
+   * @param visitor
+   *          a visitor that knows how to convert the Ambari properties into
+   *          {@link SingularAttribute} (not {@code null}).
+   * @return the predicate, or {@code null} if the cursor can not be expressed
+   *         as a JPA predicate.
+   */
+  public javax.persistence.criteria.Predicate buildKeysetPredicate(
+      List<SortRequestProperty> properties, PageCursor cursor,
+      JpaPredicateVisitor<T> visitor) {
+
+    CriteriaBuilder builder = visitor.getCriteriaBuilder();
+    List<javax.persistence.criteria.Predicate> equalities = new ArrayList<>(properties.size());
+    List<javax.persistence.criteria.Predicate> alternatives = new ArrayList<>(properties.size());
+
+    for (int i = 0; i < properties.size(); i++) {
+      SortRequestProperty property = properties.get(i);
+      List<? extends SingularAttribute<?, ?>> singularAttributes = visitor.getPredicateMapping(property.getPropertyId());
+
+      // enums are sorted by ordinal in memory and by name in the database
+      if (null == singularAttributes || singularAttributes.isEmpty() || cursor.isEnumValue(i)) {
+        return null;
+      }
+
+      @SuppressWarnings("unchecked")
+      Path<Comparable<Object>> path = (Path<Comparable<Object>>) getPath(singularAttributes, visitor);
+      Object cursorValue = cursor.getValues().get(i);
+
+      javax.persistence.criteria.Predicate after = null;
+      javax.persistence.criteria.Predicate equality;
+      if (null == cursorValue) {
+        if (property.getOrder() == SortRequest.Order.ASC) {
+          after = builder.isNotNull(path);
+        }
+        equality = builder.isNull(path);
+      } else {
+        Comparable<Object> value = toAttributeValue(cursorValue,
+            singularAttributes.get(singularAttributes.size() - 1).getJavaType());
+        if (null == value) {
+          return null;
+        }
+
+        if (property.getOrder() == SortRequest.Order.ASC) {
+          after = builder.greaterThan(path, value);
+        } else {
+          after = builder.or(builder.lessThan(path, value), builder.isNull(path));
+        }
+        equality = builder.equal(path, value);
+      }
+
+      if (null != after) {
+        List<javax.persistence.criteria.Predicate> conjunction = new ArrayList<>(equalities);
+        conjunction.add(after);
+        alternatives.add(builder.and(conjunction.toArray(new javax.persistence.criteria.Predicate[0])));
+      }
+      equalities.add(equality);
+    }
+
+    return builder.or(alternatives.toArray(new javax.persistence.criteria.Predicate[0]));
+  }
+
+  /**
+   * Gets the path of a mapped property, rooted at the query of the visitor.
+   *
+   * @param singularAttributes
+   *          the attributes of the property (not {@code null}).
+   * @param visitor
+   *          the visitor providing the query (not {@code null}).
+   * @return the path (never {@code null}).
+   */
+  private Path<?> getPath(List<? extends SingularAttribute<?, ?>> singularAttributes,
+      JpaPredicateVisitor<T> visitor) {
+    Path<?> path = null;
+    for (SingularAttribute<?, ?> singularAttribute : singularAttributes) {
+      if (null == path) {
+
+        CriteriaQuery<T> query = visitor.getCriteriaQuery();
+        Set<Root<?>> roots = query.getRoots();
+
+        // if there are existing roots; use the existing roots to prevent more
+        // roots from being added potentially causing a cartesian product
+        // where we don't want one
+        if (null != roots && !roots.isEmpty()) {
+          Iterator<Root<?>> iterator = roots.iterator();
+          while (iterator.hasNext()) {
+            Root<?> root = iterator.next();
+
+            Class<?> visitorEntityClass = visitor.getEntityClass();
+            if (ObjectUtils.equals(visitorEntityClass, root.getJavaType())
+                || ObjectUtils.equals(visitorEntityClass, root.getModel().getJavaType())) {
+              path = root.get(singularAttribute.getName());
+              break;
+            }
+          }
+        }
+
+        // no roots exist already which match this entity class, create a new
+        // path
+        if (null == path) {
+          path = query.from(visitor.getEntityClass()).get(singularAttribute.getName());
+        }
+      } else {
+        path = path.get(singularAttribute.getName());
+      }
+    }
+    return path;
+  }
+
+  /**
+   * Converts a cursor value into the type of an entity attribute.
+   *
+   * @param value
+   *          a {@link Number} or {@link String} cursor value (not {@code null}).
+   * @param javaType
+   *          the type of the attribute.
+   * @return the converted value, or {@code null} if the value can not be
+   *         compared with the attribute.
+   */
+  @SuppressWarnings("unchecked")
+  private static Comparable<Object> toAttributeValue(Object value, Class<?> javaType) {
+    Object converted = null;
+    if (value instanceof Number) {
+      Number number = (Number) value;
+      if (javaType == Long.class || javaType == long.class) {
+        converted = number.longValue();
+      } else if (javaType == Integer.class || javaType == int.class) {
+        converted = number.intValue();
+      } else if (javaType == Short.class || javaType == short.class) {
+        converted = number.shortValue();
+      } else if (javaType == Double.class || javaType == double.class) {
+        converted = number.doubleValue();
+      } else if (javaType == Float.class || javaType == float.class) {
+        converted = number.floatValue();
+      }
+    } else if (value instanceof String && javaType == String.class) {
+      converted = value;
+    }
+    return (Comparable<Object>) converted;
+  }
 }
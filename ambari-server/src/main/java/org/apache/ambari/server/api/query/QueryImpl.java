@@ -23,6 +23,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -43,6 +44,7 @@ import org.apache.ambari.server.controller.predicate.EqualsPredicate;
 import org.apache.ambari.server.controller.spi.ClusterController;
 import org.apache.ambari.server.controller.spi.NoSuchParentResourceException;
 import org.apache.ambari.server.controller.spi.NoSuchResourceException;
+import org.apache.ambari.server.controller.spi.PageCursor;
 import org.apache.ambari.server.controller.spi.PageRequest;
 import org.apache.ambari.server.controller.spi.PageRequest.StartingPoint;
 import org.apache.ambari.server.controller.spi.PageResponse;
@@ -53,6 +55,7 @@ import org.apache.ambari.server.controller.spi.Resource;
 import org.apache.ambari.server.controller.spi.ResourceProvider;
 import org.apache.ambari.server.controller.spi.Schema;
 import org.apache.ambari.server.controller.spi.SortRequest;
+import org.apache.ambari.server.controller.spi.SortRequestProperty;
 import org.apache.ambari.server.controller.spi.SystemException;
 import org.apache.ambari.server.controller.spi.TemporalInfo;
 import org.apache.ambari.server.controller.spi.UnsupportedPropertyException;
@@ -815,11 +818,15 @@ public class QueryImpl implements Query, ResourceInstance {
           pageRequest, sortRequest
         );
         iterResource = pageResponse.getIterable();
-        tree.setProperty("count", pageResponse.getTotalResourceCount().toString());
+        if (pageResponse.getTotalResourceCount() != null) {
+          tree.setProperty("count", pageResponse.getTotalResourceCount().toString());
+        }
       }
 
       int count = 1;
+      Resource lastResource = null;
       for (Resource resource : iterResource) {
+        lastResource = resource;
 
         // add a child node for the resource and provide a unique name.  The name is never used.
         TreeNode<Resource> node = tree.addChild(
@@ -835,6 +842,14 @@ public class QueryImpl implements Query, ResourceInstance {
           node.addChild(childResult);
         }
       }
+
+      // a full cursor page links to the page which follows it
+      if (pageRequest != null && pageRequest.getStartingPoint() == StartingPoint.CursorStart &&
+          lastResource != null && count > pageRequest.getPageSize()) {
+        List<SortRequestProperty> cursorProperties = PageCursor.getCursorProperties(
+            resourceType, clusterController.getSchema(resourceType), sortRequest);
+        tree.setProperty("next", PageCursor.fromResource(lastResource, cursorProperties).encode());
+      }
     }
     return renderer.finalizeResult(result);
   }
@@ -987,7 +1002,9 @@ public class QueryImpl implements Query, ResourceInstance {
     // Initiate this request's requestInfoProperties with the ones set from the original request
     Map<String, String> requestInfoProperties = new HashMap<>(this.requestInfoProperties);
 
-    if (pageRequest != null) {
+    // a cursor page does not start at a fixed position, so it can not be
+    // expressed as a number of leading resources
+    if (pageRequest != null && pageRequest.getStartingPoint() != StartingPoint.CursorStart) {
       requestInfoProperties.put(BaseRequest.PAGE_SIZE_PROPERTY_KEY,
           Integer.toString(pageRequest.getPageSize() + pageRequest.getOffset()));
 
@@ -43,6 +43,7 @@ import org.apache.ambari.server.api.resources.ResourceInstance;
 import org.apache.ambari.server.controller.internal.PageRequestImpl;
 import org.apache.ambari.server.controller.internal.SortRequestImpl;
 import org.apache.ambari.server.controller.internal.TemporalInfoImpl;
+import org.apache.ambari.server.controller.spi.PageCursor;
 import org.apache.ambari.server.controller.spi.PageRequest;
 import org.apache.ambari.server.controller.spi.Predicate;
 import org.apache.ambari.server.controller.spi.SortRequest;
@@ -238,8 +239,9 @@ public abstract class BaseRequest implements Request {
     String pageSize = m_uriInfo.getQueryParameters().getFirst(QueryLexer.QUERY_PAGE_SIZE);
     String from     = m_uriInfo.getQueryParameters().getFirst(QueryLexer.QUERY_FROM);
     String to       = m_uriInfo.getQueryParameters().getFirst(QueryLexer.QUERY_TO);
+    String cursor   = m_uriInfo.getQueryParameters().getFirst(QueryLexer.QUERY_CURSOR);
 
-    if (pageSize == null && from == null && to == null) {
+    if (pageSize == null && from == null && to == null && cursor == null) {
       return null;
     }
 
@@ -247,7 +249,15 @@ public abstract class BaseRequest implements Request {
     PageRequest.StartingPoint startingPoint;
 
     // TODO : support other starting points
-    if (from != null) {
+    if (cursor != null) {
+      if (from != null || to != null) {
+        throw new IllegalArgumentException("The page cursor can not be combined with from or to");
+      }
+      // "start" requests the first page of a keyset paged resource set
+      return new PageRequestImpl(PageRequest.StartingPoint.CursorStart,
+          pageSize == null ? DEFAULT_PAGE_SIZE : Integer.parseInt(pageSize), 0, null, null,
+          cursor.equals("start") ? null : PageCursor.decode(cursor));
+    } else if (from != null) {
       if(from.equals("start")) {
         startingPoint = PageRequest.StartingPoint.Beginning;
       } else {
@@ -18,6 +18,7 @@
 
 package org.apache.ambari.server.api.services;
 
+import java.io.IOException;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
@@ -25,6 +26,7 @@ import java.util.Set;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 
 import org.apache.ambari.server.api.resources.ResourceInstance;
@@ -36,6 +38,7 @@ import org.apache.ambari.server.api.services.parsers.RequestBodyParser;
 import org.apache.ambari.server.api.services.serializers.CsvSerializer;
 import org.apache.ambari.server.api.services.serializers.JsonSerializer;
 import org.apache.ambari.server.api.services.serializers.ResultSerializer;
+import org.apache.ambari.server.api.services.serializers.StreamingResultSerializer;
 import org.apache.ambari.server.audit.request.RequestAuditLogger;
 import org.apache.ambari.server.controller.spi.Resource;
 import org.apache.ambari.server.utils.RetryHelper;
@@ -183,7 +186,7 @@ public abstract class BaseService {
     ResultSerializer serializer = mediaType == null ? getResultSerializer() : getResultSerializer(mediaType);
 
     Response.ResponseBuilder builder = Response.status(result.getStatus().getStatusCode()).entity(
-        serializer.serialize(result));
+        mediaType == null ? createEntity(serializer, result) : serializer.serialize(result));
 
     if (mediaType != null) {
       builder.type(mediaType);
@@ -193,6 +196,32 @@ public abstract class BaseService {
     return builder.build();
   }
 
+  /**
+   * Create the response entity for the given result.  Results of streaming serializers are
+   * written directly to the response stream when the response is sent, so the serialized
+   * form of a large result is never held in memory.  The status has been sent by the time a
+   * streamed result fails, so the failure aborts the response instead.
+   *
+   * @param serializer  the result serializer
+   * @param result      the result
+   *
+   * @return the response entity
+   */
+  private Object createEntity(ResultSerializer serializer, Result result) {
+    if (serializer instanceof StreamingResultSerializer && !result.getStatus().isErrorState()) {
+      StreamingResultSerializer streamingSerializer = (StreamingResultSerializer) serializer;
+      return (StreamingOutput) out -> {
+        try {
+          streamingSerializer.serialize(result, out);
+        } catch (IOException e) {
+          LOG.error("Unable to write the response, aborting it", e);
+          throw e;
+        }
+      };
+    }
+    return serializer.serialize(result);
+  }
+
   /**
    * Obtain the factory from which to create Request instances.
    *
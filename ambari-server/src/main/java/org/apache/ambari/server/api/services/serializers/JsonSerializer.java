@@ -20,6 +20,7 @@ package org.apache.ambari.server.api.services.serializers;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.Charset;
 import java.util.Arrays;
@@ -45,7 +46,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  * JSON serializer.
  * Responsible for representing a result as JSON.
  */
-public class JsonSerializer implements ResultSerializer {
+public class JsonSerializer implements StreamingResultSerializer {
 
   /**
    * Factory used to create JSON generator.
@@ -63,16 +64,12 @@ public class JsonSerializer implements ResultSerializer {
   @Override
   public Object serialize(Result result) {
     try {
-      ByteArrayOutputStream bytesOut = init();
-
       if (result.getStatus().isErrorState()) {
         return serializeError(result.getStatus());
       }
 
-      TreeNode<Resource> treeNode = result.getResultTree();
-      processNode(treeNode);
-      processResultMetadata(result.getResultMetadata());
-      m_generator.close();
+      ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+      writeResult(result, bytesOut);
       return bytesOut.toString("UTF-8");
     } catch (IOException e) {
       //todo: exception handling.  Create ResultStatus 500 and call serializeError
@@ -80,16 +77,26 @@ public class JsonSerializer implements ResultSerializer {
     }
   }
 
+  @Override
+  public void serialize(Result result, OutputStream out) throws IOException {
+    if (result.getStatus().isErrorState()) {
+      writeError(result.getStatus(), out);
+      return;
+    }
+
+    try {
+      writeResult(result, out);
+    } catch (RuntimeException e) {
+      // the generator is left open, so the JSON written so far is not completed
+      throw new IOException("Unable to serialize to json: " + e, e);
+    }
+  }
+
   @Override
   public Object serializeError(ResultStatus error) {
     try {
-      ByteArrayOutputStream bytesOut = init();
-      //m_mapper.writeValue(m_generator, error);
-      m_generator.writeStartObject();
-      m_generator.writeNumberField("status", error.getStatus().getStatus());
-      m_generator.writeStringField("message", error.getMessage());
-      m_generator.writeEndObject();
-      m_generator.close();
+      ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+      writeError(error, bytesOut);
       return bytesOut.toString("UTF-8");
 
     } catch (IOException e) {
@@ -98,16 +105,28 @@ public class JsonSerializer implements ResultSerializer {
     }
   }
 
-  private ByteArrayOutputStream init() throws IOException {
-    ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
-    m_generator = createJsonGenerator(bytesOut);
-    Lf2SpacesIndenter indenter = new Lf2SpacesIndenter();
-    DefaultPrettyPrinter p = new DefaultPrettyPrinter();
-    p.indentObjectsWith(indenter);
-    p.indentArraysWith(indenter);
-    m_generator.setPrettyPrinter(p);
+  /**
+   * Write the result tree and metadata to the given stream.
+   *
+   * @param result  the result
+   * @param out     the stream to write to
+   */
+  private void writeResult(Result result, OutputStream out) throws IOException {
+    m_generator = createJsonGenerator(out);
 
-    return bytesOut;
+    processNode(result.getResultTree());
+    processResultMetadata(result.getResultMetadata());
+    m_generator.close();
+  }
+
+  private void writeError(ResultStatus error, OutputStream out) throws IOException {
+    m_generator = createJsonGenerator(out);
+    //m_mapper.writeValue(m_generator, error);
+    m_generator.writeStartObject();
+    m_generator.writeNumberField("status", error.getStatus().getStatus());
+    m_generator.writeStringField("message", error.getMessage());
+    m_generator.writeEndObject();
+    m_generator.close();
   }
 
   private void processResultMetadata(ResultMetadata resultMetadata) throws IOException {
@@ -176,11 +195,15 @@ public class JsonSerializer implements ResultSerializer {
   }
 
   private void processNode(TreeNode<Resource> node) throws IOException {
-    if (isObject(node)) {
+    boolean isObject = isObject(node);
+    boolean isArray = isArray(node);
+
+    if (isObject) {
       m_generator.writeStartObject();
 
       writeHref(node);
       writeItemCount(node);
+      writeNextCursor(node);
 
       Resource r = node.getObject();
       if (r != null) {
@@ -188,7 +211,7 @@ public class JsonSerializer implements ResultSerializer {
       }
     }
 
-    if (isArray(node)) {
+    if (isArray) {
       if (node.getName() != null) {
         m_generator.writeArrayFieldStart(node.getName());
       } else {
@@ -200,11 +223,11 @@ public class JsonSerializer implements ResultSerializer {
       processNode(child);
     }
 
-    if (isArray(node)) {
+    if (isArray) {
       m_generator.writeEndArray();
     }
 
-    if (isObject(node)) {
+    if (isObject) {
       m_generator.writeEndObject();
     }
   }
@@ -276,9 +299,13 @@ public class JsonSerializer implements ResultSerializer {
     }
   }
 
-  private JsonGenerator createJsonGenerator(ByteArrayOutputStream baos) throws IOException {
-    JsonGenerator generator = m_factory.createJsonGenerator(new OutputStreamWriter(baos,
+  private JsonGenerator createJsonGenerator(OutputStream out) throws IOException {
+    JsonGenerator generator = m_factory.createJsonGenerator(new OutputStreamWriter(out,
         Charset.forName("UTF-8").newEncoder()));
+    // the stream is owned by the caller, closing the generator only flushes it
+    generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    // never complete a partially written result, so that a failure is not mistaken for a short result
+    generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
 
     // Setup a pretty printer with an indenter (indenter has 2 spaces in this case)
     Lf2SpacesIndenter indenter = new Lf2SpacesIndenter();
@@ -306,6 +333,15 @@ public class JsonSerializer implements ResultSerializer {
     }
   }
 
+  private void writeNextCursor(TreeNode<Resource> node) throws IOException {
+    String nextProp = node.getStringProperty("next");
+    if (nextProp != null) {
+      m_generator.writeStringField("next", nextProp);
+      // Write once
+      node.setProperty("next", null);
+    }
+  }
+
   private static class Lf2SpacesIndenter
     implements DefaultPrettyPrinter.Indenter
   {
@@ -1729,6 +1729,46 @@ public class Configuration {
   public static final ConfigurationProperty<Boolean> PARALLEL_STAGE_EXECUTION = new ConfigurationProperty<>(
       "server.stages.parallel", Boolean.TRUE);
 
+  /**
+   * The number of threads processing stages of different requests which do
+   * not share hosts concurrently. Stages are processed by the action
+   * scheduler thread only when set to 1.
+   */
+  @Markdown(description = "The number of threads used to process stages of different requests which do not share any host concurrently. Only applies when `server.stages.parallel` is enabled. Stages are processed one after another when set to `1`.")
+  public static final ConfigurationProperty<Integer> PARALLEL_STAGE_EXECUTION_THREADS = new ConfigurationProperty<>(
+      "server.stages.parallel.threads", 1);
+
+  /**
+   * This key defines whether the action scheduler runs on task status changes, new and cancelled requests and
+   * command timeouts instead of polling the database at a fixed interval.
+   */
+  @Markdown(description = "Determines whether the action scheduler processes only the requests affected by task status changes, new or cancelled requests and command timeouts instead of polling all the requests in progress on a fixed interval.")
+  public static final ConfigurationProperty<Boolean> EVENT_DRIVEN_STAGE_SCHEDULING = new ConfigurationProperty<>(
+      "server.stages.event.driven", Boolean.FALSE);
+
+  /**
+   * The interval, in seconds, between full scans of the requests in progress when the action scheduler is
+   * event driven.
+   */
+  @Markdown(description = "The interval, in seconds, between full scans of all the requests in progress when `server.stages.event.driven` is enabled. The scan catches up with changes which were not signalled, such as agents which stopped heartbeating.")
+  public static final ConfigurationProperty<Long> STAGE_RECONCILIATION_INTERVAL = new ConfigurationProperty<>(
+      "server.stages.reconciliation.interval", 60L);
+
+  /**
+   * This key defines whether the request and stage statuses accumulated from task events are compared
+   * against the statuses calculated from all the tasks when they are read.
+   */
+  @Markdown(description = "Determines whether the statuses and progress of requests in progress, which are kept up to date from task updates, are periodically compared to the ones calculated from all the tasks of the request when they are read. Mismatches are logged and the calculated values are used instead.")
+  public static final ConfigurationProperty<Boolean> REQUEST_STATUS_CONSISTENCY_CHECK = new ConfigurationProperty<>(
+      "server.requests.status.consistency.check", Boolean.FALSE);
+
+  /**
+   * The minimal interval, in seconds, between the consistency checks of the statuses of a request.
+   */
+  @Markdown(description = "The minimal interval, in seconds, between two comparisons of the statuses of the same request in progress when `server.requests.status.consistency.check` is enabled. The statuses read in between are the ones kept up to date from task updates.")
+  public static final ConfigurationProperty<Long> REQUEST_STATUS_CONSISTENCY_CHECK_INTERVAL = new ConfigurationProperty<>(
+      "server.requests.status.consistency.check.interval", 60L);
+
   /**
    *
    * Property driving the view extraction.
@@ -1921,6 +1961,38 @@ public class Configuration {
   public static final ConfigurationProperty<Integer> AGENTS_REPORT_THREAD_POOL_SIZE = new ConfigurationProperty<>(
       "agents.reports.thread.pool.size", 10);
 
+  /**
+   * Maximum number of agents' reports which can be queued for processing across all hosts.
+   */
+  @Markdown(description = "Maximum number of agents' reports which can be queued for processing across all hosts. " +
+      "When the limit is reached new reports are rejected and agents resend them later.")
+  public static final ConfigurationProperty<Integer> AGENTS_REPORT_QUEUE_CAPACITY = new ConfigurationProperty<>(
+      "agents.reports.queue.capacity", 20000);
+
+  /**
+   * Time in milliseconds during which command status reports from different hosts are collected
+   * and then processed in a single transaction. 0 disables batching.
+   */
+  @Markdown(description = "Time in milliseconds during which command status reports from different hosts are collected " +
+      "and then processed in a single transaction. The value of `0` disables batching.")
+  public static final ConfigurationProperty<Long> AGENTS_REPORT_COMMANDS_BATCH_WINDOW = new ConfigurationProperty<>(
+      "agents.reports.commands.batch.window", 0L);
+
+  /**
+   * Maximum number of command status reports processed in a single transaction.
+   */
+  @Markdown(description = "Maximum number of command status reports processed in a single transaction.")
+  public static final ConfigurationProperty<Integer> AGENTS_REPORT_COMMANDS_BATCH_SIZE = new ConfigurationProperty<>(
+      "agents.reports.commands.batch.size", 200);
+
+  /**
+   * Number of recent topology and metadata updates kept to answer agents which missed them with deltas instead of full data.
+   */
+  @Markdown(description = "Number of recent topology and metadata updates kept to answer agents which missed them " +
+      "with deltas instead of full data. The value of `0` disables deltas.")
+  public static final ConfigurationProperty<Integer> AGENTS_CLUSTER_DATA_DELTAS_RETAINED = new ConfigurationProperty<>(
+      "agents.cluster.data.deltas.retained", 10);
+
   /**
    * Server to API STOMP endpoint heartbeat interval in milliseconds.
    */
@@ -1956,6 +2028,13 @@ public class Configuration {
   public static final ConfigurationProperty<Integer> EXECUTION_COMMANDS_RETRY_INTERVAL = new ConfigurationProperty<>(
       "execution.command.retry.interval", 15);
 
+  /**
+   * The maximum number of execution command messages emitted to an agent and not acknowledged yet. Default is 1
+   */
+  @Markdown(description = "The maximum number of execution command messages emitted to an agent which are waiting for acknowledgement. Messages beyond the window are queued and emitted in order as acknowledgements arrive. Default is 1")
+  public static final ConfigurationProperty<Integer> EXECUTION_COMMANDS_WINDOW_SIZE = new ConfigurationProperty<>(
+      "execution.command.window.size", 1);
+
   /**
    * The maximum number of threads used to extract Ambari Views when Ambari
    * Server is starting up.
@@ -2035,6 +2114,25 @@ public class Configuration {
   public static final ConfigurationProperty<Long> PROPERTY_PROVIDER_THREADPOOL_COMPLETION_TIMEOUT = new ConfigurationProperty<>(
       "server.property-provider.threadpool.completion.timeout", 5000L);
 
+  /**
+   * The number of threads used to run the {@link PropertyProvider}s of a
+   * single request concurrently.
+   */
+  @Markdown(description = "The number of threads used to run the property providers of a REST request, such as JMX, metrics and alert summary providers, concurrently. "
+      + "A value of `1` or less runs them one after another on the request thread.")
+  public static final ConfigurationProperty<Integer> PROPERTY_PROVIDER_POPULATE_THREADPOOL_SIZE = new ConfigurationProperty<>(
+      "server.property-provider.populate.threadpool.size",
+      PROCESSOR_BASED_THREADPOOL_CORE_SIZE_DEFAULT);
+
+  /**
+   * The maximum time, in {@link TimeUnit#MILLISECONDS}, that a request waits
+   * for its {@link PropertyProvider}s.
+   */
+  @Markdown(description = "The maximum time, in milliseconds, that a REST request waits for its property providers when they run concurrently. "
+      + "Resources may be returned without the properties of providers which did not finish in time. A value of `0` waits until all providers finish.")
+  public static final ConfigurationProperty<Long> PROPERTY_PROVIDER_POPULATE_TIMEOUT = new ConfigurationProperty<>(
+      "server.property-provider.populate.timeout", 0L);
+
   /**
    * The time, in {@link TimeUnit#SECONDS}, that HTTP requests remain valid when
    * inactive.
@@ -2209,7 +2307,8 @@ public class Configuration {
           @ClusterScale(clusterSize = ClusterSizeType.HOSTS_500, value = "true") },
       markdown = @Markdown(
           description = "Determines whether current alerts should be cached. "
-              + "Enabling this can increase performance on large cluster, but can also result in lost alert data if the cache is not flushed frequently."))
+              + "Enabling this can increase performance on large cluster. Alert state and firmness changes are always written to the database, "
+              + "but timestamps, text and occurrences of unchanged alerts can be lost if the cache is not flushed frequently."))
   public static final ConfigurationProperty<Boolean> ALERTS_CACHE_ENABLED = new ConfigurationProperty<>(
       "alerts.cache.enabled", Boolean.FALSE);
 
@@ -2246,6 +2345,50 @@ public class Configuration {
   public static final ConfigurationProperty<Integer> ALERTS_CACHE_SIZE = new ConfigurationProperty<>(
       "alerts.cache.size", 50000);
 
+  /**
+   * The number of cached alert updates which may be waiting to be written to
+   * the database before they are flushed ahead of the next scheduled flush.
+   */
+  @ConfigurationMarkdown(
+      group = ConfigurationGrouping.ALERTS,
+      scaleValues = {
+          @ClusterScale(clusterSize = ClusterSizeType.HOSTS_10, value = "10000" ),
+          @ClusterScale(clusterSize = ClusterSizeType.HOSTS_50, value = "10000"),
+          @ClusterScale(clusterSize = ClusterSizeType.HOSTS_100, value = "20000"),
+          @ClusterScale(clusterSize = ClusterSizeType.HOSTS_500, value = "50000") },
+      markdown = @Markdown(
+          relatedTo = "alerts.cache.enabled",
+          description = "The number of cached alert updates which are not yet written to the database after which they are flushed without waiting for the flush interval."))
+  public static final ConfigurationProperty<Integer> ALERTS_CACHE_FLUSH_THRESHOLD = new ConfigurationProperty<>(
+      "alerts.cache.flush.threshold", 10000);
+
+  /**
+   * The time after which the in-memory alert summary counts are recalculated
+   * from the database. Measured in {@link TimeUnit#MINUTES}.
+   */
+  @Markdown(description = "The time, in minutes, after which the alert summary counts kept in memory are recalculated from the database. "
+      + "The counts are updated as alerts change state in between.")
+  public static final ConfigurationProperty<Integer> ALERTS_SUMMARY_RECONCILE_INTERVAL = new ConfigurationProperty<>(
+      "alerts.summary.reconcile.interval", 5);
+
+  /**
+   * The window within which repeated notices for the same alert and target are
+   * combined into a single notification. Measured in {@link TimeUnit#SECONDS}.
+   */
+  @Markdown(description = "The time, in seconds, within which repeated notifications for the same alert to the same target are combined into one, "
+      + "so that only the latest state of a flapping alert is sent. A value of `0`, the default, sends every notification.")
+  public static final ConfigurationProperty<Integer> ALERTS_NOTIFICATION_COALESCE_WINDOW = new ConfigurationProperty<>(
+      "alerts.notification.coalesce.window", 0);
+
+  /**
+   * The number of threads used to dispatch alert notifications of each
+   * notification type.
+   */
+  @Markdown(description = "The number of threads used to send alert notifications of each notification type, such as `EMAIL` or `SNMP`. "
+      + "Notifications to the same target are always sent one at a time.")
+  public static final ConfigurationProperty<Integer> ALERTS_NOTIFICATION_DISPATCH_THREADS = new ConfigurationProperty<>(
+      "alerts.notification.dispatch.threadpool.size", 2);
+
   /**
    * When using SSL, this will be used to set the {@code Strict-Transport-Security} response header.
    */
@@ -4689,6 +4832,45 @@ public class Configuration {
     return Boolean.parseBoolean(configsMap.get(PARALLEL_STAGE_EXECUTION.getKey()));
   }
 
+  /**
+   * @return the number of threads processing stages of different requests
+   *         concurrently.
+   */
+  public int getParallelStageExecutionThreads() {
+    return Integer.parseInt(getProperty(PARALLEL_STAGE_EXECUTION_THREADS));
+  }
+
+  /**
+   * @return {@code true} if the action scheduler should run on task and request events rather than on a fixed
+   *         interval.
+   */
+  public boolean isEventDrivenStageScheduling() {
+    return Boolean.parseBoolean(getProperty(EVENT_DRIVEN_STAGE_SCHEDULING));
+  }
+
+  /**
+   * @return the interval, in seconds, between full scans of the requests in progress by the event driven action
+   *         scheduler.
+   */
+  public long getStageReconciliationInterval() {
+    return Long.parseLong(getProperty(STAGE_RECONCILIATION_INTERVAL));
+  }
+
+  /**
+   * @return {@code true} if the accumulated statuses of requests in progress should be verified against the
+   *         statuses calculated from all their tasks.
+   */
+  public boolean isRequestStatusConsistencyCheckEnabled() {
+    return Boolean.parseBoolean(getProperty(REQUEST_STATUS_CONSISTENCY_CHECK));
+  }
+
+  /**
+   * @return the minimal interval, in seconds, between the consistency checks of the statuses of a request.
+   */
+  public long getRequestStatusConsistencyCheckInterval() {
+    return Long.parseLong(getProperty(REQUEST_STATUS_CONSISTENCY_CHECK_INTERVAL));
+  }
+
   public String getCustomActionDefinitionPath() {
     return getProperty(CUSTOM_ACTION_DEFINITION);
   }
@@ -4823,6 +5005,34 @@ public class Configuration {
     return Integer.parseInt(getProperty(AGENTS_REPORT_THREAD_POOL_SIZE));
   }
 
+  /**
+   * @return maximum number of agents' reports queued for processing across all hosts.
+   */
+  public int getAgentsReportQueueCapacity() {
+    return Integer.parseInt(getProperty(AGENTS_REPORT_QUEUE_CAPACITY));
+  }
+
+  /**
+   * @return time in milliseconds during which command status reports are collected into one batch, 0 if batching is disabled.
+   */
+  public long getAgentsReportCommandsBatchWindow() {
+    return Long.parseLong(getProperty(AGENTS_REPORT_COMMANDS_BATCH_WINDOW));
+  }
+
+  /**
+   * @return maximum number of command status reports processed in a single transaction.
+   */
+  public int getAgentsReportCommandsBatchSize() {
+    return Integer.parseInt(getProperty(AGENTS_REPORT_COMMANDS_BATCH_SIZE));
+  }
+
+  /**
+   * @return number of recent topology and metadata updates kept to answer agents with deltas.
+   */
+  public int getAgentsClusterDataDeltasRetained() {
+    return Integer.parseInt(getProperty(AGENTS_CLUSTER_DATA_DELTAS_RETAINED));
+  }
+
   /**
    * @return server to API STOMP endpoint heartbeat interval in milliseconds.
    */
@@ -4858,6 +5068,13 @@ public class Configuration {
     return Integer.parseInt(getProperty(EXECUTION_COMMANDS_RETRY_INTERVAL));
   }
 
+  /**
+   * @return the maximum number of execution command messages emitted to an agent and not acknowledged yet. Default is 1
+   */
+  public int getExecutionCommandsWindowSize() {
+    return Integer.parseInt(getProperty(EXECUTION_COMMANDS_WINDOW_SIZE));
+  }
+
   /**
    * @return max thread pool size for agents, default 25
    */
@@ -4950,6 +5167,26 @@ public class Configuration {
     return Long.parseLong(getProperty(PROPERTY_PROVIDER_THREADPOOL_COMPLETION_TIMEOUT));
   }
 
+  /**
+   * Get the number of threads used to run the property providers of a request
+   * concurrently.
+   *
+   * @return the property-providers' populate thread pool size
+   */
+  public int getPropertyProvidersPopulateThreadPoolSize() {
+    return Integer.parseInt(getProperty(PROPERTY_PROVIDER_POPULATE_THREADPOOL_SIZE));
+  }
+
+  /**
+   * Get the time, in milliseconds, that a request waits for its property
+   * providers. {@code 0} means no limit.
+   *
+   * @return the property-providers' populate timeout, in millis.
+   */
+  public long getPropertyProvidersPopulateTimeout() {
+    return Long.parseLong(getProperty(PROPERTY_PROVIDER_POPULATE_TIMEOUT));
+  }
+
   /**
    * Get the view extraction thread pool timeout.
    *
@@ -5383,7 +5620,8 @@ public class Configuration {
    * If {@code true}, then alerts processed by the {@link AlertReceivedListener}
    * will not write alert data to the database on every event. Instead, data
    * like timestamps and text will be kept in a cache and flushed out
-   * periodically to the database.
+   * periodically to the database. State and firmness changes are still
+   * written immediately.
    * <p/>
    * The default value is {@code false}.
    *
@@ -5411,6 +5649,39 @@ public class Configuration {
     return Integer.parseInt(getProperty(ALERTS_CACHE_SIZE));
   }
 
+  /**
+   * Gets the number of cached alert updates which may wait for the next
+   * scheduled flush, if the cache is enabled.
+   */
+  @Experimental(feature = ExperimentalFeature.ALERT_CACHING)
+  public int getAlertCacheFlushThreshold() {
+    return Integer.parseInt(getProperty(ALERTS_CACHE_FLUSH_THRESHOLD));
+  }
+
+  /**
+   * Gets the interval, in minutes, after which the alert summary counts are
+   * recalculated from the database.
+   */
+  public int getAlertSummaryReconcileInterval() {
+    return Integer.parseInt(getProperty(ALERTS_SUMMARY_RECONCILE_INTERVAL));
+  }
+
+  /**
+   * Gets the window, in seconds, within which repeated notices for the same
+   * alert and target are combined into a single notification.
+   */
+  public int getAlertNotificationCoalesceWindow() {
+    return Integer.parseInt(getProperty(ALERTS_NOTIFICATION_COALESCE_WINDOW));
+  }
+
+  /**
+   * Gets the number of threads used to dispatch alert notifications of each
+   * notification type.
+   */
+  public int getAlertNotificationDispatchThreads() {
+    return Integer.parseInt(getProperty(ALERTS_NOTIFICATION_DISPATCH_THREADS));
+  }
+
   /**
    * Get the ambari display URL
    * @return
@@ -71,7 +71,8 @@ public class RootStompConfig {
         brokerTemplate,
         injector.getInstance(AmbariEventPublisher.class),
         configuration.getExecutionCommandsRetryCount(),
-        configuration.getExecutionCommandsRetryInterval());
+        configuration.getExecutionCommandsRetryInterval(),
+        configuration.getExecutionCommandsWindowSize());
   }
 
   @Bean
@@ -17,9 +17,12 @@
  */
 package org.apache.ambari.server.controller;
 
+import java.util.List;
+
 import org.apache.ambari.server.controller.spi.PageRequest;
 import org.apache.ambari.server.controller.spi.Predicate;
 import org.apache.ambari.server.controller.spi.SortRequest;
+import org.apache.ambari.server.controller.spi.SortRequestProperty;
 import org.apache.ambari.server.orm.entities.AlertHistoryEntity;
 
 /**
@@ -42,4 +45,11 @@ public class AlertHistoryRequest {
    * Sort information, or {@code null} for none.
    */
   public SortRequest Sort;
+
+  /**
+   * The leading properties of the cursor of a keyset page which determine the
+   * order of the alert history, or {@code null} if the page is not started
+   * from a cursor.
+   */
+  public List<SortRequestProperty> CursorProperties;
 }
@@ -3993,6 +3993,8 @@ public class AmbariManagementControllerImpl implements AmbariManagementControlle
 
     if (Boolean.TRUE.equals(request.getIsCurrent()) && serviceName != null) {
       serviceConfigVersionResponses.addAll(cluster.getActiveServiceConfigVersionResponse(serviceName));
+    } else if (serviceName != null) {
+      serviceConfigVersionResponses.addAll(cluster.getServiceConfigVersions(serviceName));
     } else {
       serviceConfigVersionResponses.addAll(cluster.getServiceConfigVersions());
     }
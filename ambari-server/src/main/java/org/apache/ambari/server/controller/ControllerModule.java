@@ -43,6 +43,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.ambari.server.AmbariService;
 import org.apache.ambari.server.EagerSingleton;
@@ -65,6 +66,7 @@ import org.apache.ambari.server.configuration.Configuration.ConnectionPoolType;
 import org.apache.ambari.server.configuration.Configuration.DatabaseType;
 import org.apache.ambari.server.controller.internal.AlertTargetResourceProvider;
 import org.apache.ambari.server.controller.internal.AuthResourceProvider;
+import org.apache.ambari.server.controller.internal.ClusterControllerImpl;
 import org.apache.ambari.server.controller.internal.ClusterStackVersionResourceProvider;
 import org.apache.ambari.server.controller.internal.ComponentResourceProvider;
 import org.apache.ambari.server.controller.internal.CredentialResourceProvider;
@@ -385,6 +387,15 @@ public class ControllerModule extends AbstractModule {
     bindConstant().annotatedWith(Names.named("actionTimeout")).to(600000L);
     bindConstant().annotatedWith(Names.named("alertServiceCorePoolSize")).to(configuration.getAlertServiceCorePoolSize());
 
+    // the property providers of a request only run concurrently with more than one thread
+    int populateThreadPoolSize = configuration.getPropertyProvidersPopulateThreadPoolSize();
+    if (populateThreadPoolSize > 1) {
+      bind(ExecutorService.class).annotatedWith(Names.named(ClusterControllerImpl.POPULATE_EXECUTOR)).toInstance(
+          ClusterControllerImpl.createPopulateExecutor(populateThreadPoolSize));
+    }
+    bindConstant().annotatedWith(Names.named(ClusterControllerImpl.POPULATE_TIMEOUT)).to(
+        configuration.getPropertyProvidersPopulateTimeout());
+
     bindConstant().annotatedWith(Names.named("dbInitNeeded")).to(dbInitNeeded);
     bindConstant().annotatedWith(Names.named("statusCheckInterval")).to(5000L);
 
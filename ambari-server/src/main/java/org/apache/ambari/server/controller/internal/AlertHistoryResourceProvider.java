@@ -32,12 +32,15 @@ import org.apache.ambari.server.controller.AmbariManagementController;
 import org.apache.ambari.server.controller.spi.ExtendedResourceProvider;
 import org.apache.ambari.server.controller.spi.NoSuchParentResourceException;
 import org.apache.ambari.server.controller.spi.NoSuchResourceException;
+import org.apache.ambari.server.controller.spi.PageCursor;
+import org.apache.ambari.server.controller.spi.PageRequest;
 import org.apache.ambari.server.controller.spi.Predicate;
 import org.apache.ambari.server.controller.spi.QueryResponse;
 import org.apache.ambari.server.controller.spi.Request;
 import org.apache.ambari.server.controller.spi.RequestStatus;
 import org.apache.ambari.server.controller.spi.Resource;
 import org.apache.ambari.server.controller.spi.ResourceAlreadyExistsException;
+import org.apache.ambari.server.controller.spi.SortRequestProperty;
 import org.apache.ambari.server.controller.spi.SystemException;
 import org.apache.ambari.server.controller.spi.UnsupportedPropertyException;
 import org.apache.ambari.server.orm.dao.AlertDefinitionDAO;
@@ -207,6 +210,10 @@ public class AlertHistoryResourceProvider extends ReadOnlyResourceProvider imple
     historyRequest.Pagination = request.getPageRequest();
     historyRequest.Sort       = request.getSortRequest();
 
+    if (isCursorPage(request)) {
+      historyRequest.CursorProperties = getCursorProperties(request);
+    }
+
     List<AlertHistoryEntity> entities = s_dao.findAll(historyRequest);
     for (AlertHistoryEntity entity : entities) {
       results.add(toResource(entity, requestPropertyIds));
@@ -220,6 +227,12 @@ public class AlertHistoryResourceProvider extends ReadOnlyResourceProvider imple
       throws SystemException, UnsupportedPropertyException,
       NoSuchResourceException, NoSuchParentResourceException {
 
+    // a cursor page is cut by the cluster controller from the alerts which
+    // follow the cursor; counting all alerts would defeat its purpose
+    if (isCursorPage(request)) {
+      return new QueryResponseImpl(getResources(request, predicate), false, false, 0);
+    }
+
     return new QueryResponseImpl(
         getResources(request, predicate),
         request.getSortRequest() != null,
@@ -227,6 +240,45 @@ public class AlertHistoryResourceProvider extends ReadOnlyResourceProvider imple
         s_dao.getCount(predicate));
   }
 
+  /**
+   * Gets whether the request asks for a page following a cursor.
+   *
+   * @param request
+   *          the request (not {@code null}).
+   * @return {@code true} for a keyset page.
+   */
+  private boolean isCursorPage(Request request) {
+    PageRequest pageRequest = request.getPageRequest();
+    return null != pageRequest
+        && pageRequest.getStartingPoint() == PageRequest.StartingPoint.CursorStart;
+  }
+
+  /**
+   * Gets the properties of the page cursor which determine the order of the
+   * alert history. Since the alert ID is unique, the key properties following
+   * it never decide the order and are left out.
+   *
+   * @param request
+   *          the request for a keyset page (not {@code null}).
+   * @return the cursor properties up to the alert ID.
+   */
+  private List<SortRequestProperty> getCursorProperties(Request request) {
+    List<SortRequestProperty> cursorProperties = PageCursor.getCursorProperties(
+        Resource.Type.AlertHistory, new SchemaImpl(this), request.getSortRequest());
+
+    PageCursor cursor = request.getPageRequest().getCursor();
+    if (null != cursor) {
+      cursor.validate(cursorProperties);
+    }
+
+    for (int i = 0; i < cursorProperties.size(); i++) {
+      if (ALERT_HISTORY_ID.equals(cursorProperties.get(i).getPropertyId())) {
+        return cursorProperties.subList(0, i + 1);
+      }
+    }
+    return cursorProperties;
+  }
+
   /**
    * Converts the {@link AlertHistoryEntity} to a {@link Resource}.
    *
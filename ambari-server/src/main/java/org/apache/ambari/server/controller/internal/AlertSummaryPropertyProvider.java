@@ -31,10 +31,10 @@ import org.apache.ambari.server.controller.spi.Resource;
 import org.apache.ambari.server.controller.spi.SystemException;
 import org.apache.ambari.server.orm.dao.AlertHostSummaryDTO;
 import org.apache.ambari.server.orm.dao.AlertSummaryDTO;
-import org.apache.ambari.server.orm.dao.AlertsDAO;
 import org.apache.ambari.server.state.AlertState;
 import org.apache.ambari.server.state.Cluster;
 import org.apache.ambari.server.state.Clusters;
+import org.apache.ambari.server.state.alert.AlertSummaryCounters;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,7 +43,9 @@ import com.google.inject.Inject;
 import com.google.inject.Provider;
 
 /**
- * Property provider that adds alert summary information to endpoints.
+ * Property provider that adds alert summary information to endpoints. The
+ * summaries are served from the {@link AlertSummaryCounters} rather than
+ * aggregated in the database for every resource.
  */
 @StaticallyInject
 public class AlertSummaryPropertyProvider extends BaseProvider implements PropertyProvider {
@@ -65,7 +67,7 @@ public class AlertSummaryPropertyProvider extends BaseProvider implements Proper
   private static Provider<Clusters> s_clusters = null;
 
   @Inject
-  private static AlertsDAO s_dao = null;
+  private static AlertSummaryCounters s_counters = null;
 
   private Resource.Type m_resourceType = null;
   private String m_clusterPropertyId = null;
@@ -92,47 +94,8 @@ public class AlertSummaryPropertyProvider extends BaseProvider implements Proper
     Set<String> propertyIds = getRequestPropertyIds(request, predicate);
 
     try {
-      // Optimization:
-      // Some information can be determined more efficiently when requested in bulk 
-      // for an entire cluster at once. 
-      // For Example:
-      //   (1) Cluster level alert-status counts
-      //   (2) Per host alert-status counts
-      // These can be determined in 1 SQL call per cluster, and results used multiple times.
-      Map<Long, Map<String, AlertSummaryDTO>> perHostSummaryMap = new HashMap<>();
-      Map<Long, AlertHostSummaryDTO> hostsSummaryMap = new HashMap<>();
-      Map<String, Cluster> resourcesClusterMap = new HashMap<>();
       for (Resource res : resources) {
-        String clusterName = (String) res.getPropertyValue(m_clusterPropertyId);
-        if (clusterName == null || resourcesClusterMap.containsKey(clusterName)) {
-          continue;
-        }
-        Cluster cluster = s_clusters.get().getCluster(clusterName);
-        resourcesClusterMap.put(clusterName, cluster);
-      }
-      for (Cluster cluster : resourcesClusterMap.values()) {
-        long clusterId = cluster.getClusterId();
-        switch (m_resourceType.getInternalType()) {
-          case Cluster:
-            // only make the calculation if asked
-            if (BaseProvider.isPropertyRequested(ALERTS_SUMMARY_HOSTS, propertyIds)) {
-              hostsSummaryMap.put(clusterId, s_dao.findCurrentHostCounts(clusterId));
-            }
-            break;
-          case Host:
-            if (resources.size() > 1) {
-              // More efficient to get information for all hosts in 1 call
-              Map<String, AlertSummaryDTO> perHostCounts = s_dao.findCurrentPerHostCounts(clusterId);
-              perHostSummaryMap.put(clusterId, perHostCounts);
-            }
-            break;
-          default:
-            break;
-        }
-      }
-
-      for (Resource res : resources) {
-        populateResource(res, propertyIds, perHostSummaryMap, hostsSummaryMap);
+        populateResource(res, propertyIds);
       }
     } catch (AmbariException e) {
       LOG.error("Could not load built-in alerts - Executor exception ({})",
@@ -141,8 +104,7 @@ public class AlertSummaryPropertyProvider extends BaseProvider implements Proper
     return resources;
   }
 
-  private void populateResource(Resource resource, Set<String> requestedIds, Map<Long, Map<String, 
-      AlertSummaryDTO>> perHostSummaryMap, Map<Long, AlertHostSummaryDTO> hostsSummaryMap) throws AmbariException {
+  private void populateResource(Resource resource, Set<String> requestedIds) throws AmbariException {
 
     AlertSummaryDTO summary = null;
     AlertHostSummaryDTO hostSummary = null;
@@ -158,34 +120,23 @@ public class AlertSummaryPropertyProvider extends BaseProvider implements Proper
 
     switch (m_resourceType.getInternalType()) {
       case Cluster:
-        long clusterId = cluster.getClusterId();
-
         // only make the calculation if asked
         if (BaseProvider.isPropertyRequested(ALERTS_SUMMARY, requestedIds)) {
-          summary = s_dao.findCurrentCounts(cluster.getClusterId(), null, null);
+          summary = s_counters.getClusterCounts(cluster.getClusterId());
         }
 
         // only make the calculation if asked
         if (BaseProvider.isPropertyRequested(ALERTS_SUMMARY_HOSTS,
             requestedIds)) {
-          if (hostsSummaryMap.containsKey(cluster.getClusterId())) {
-            hostSummary = hostsSummaryMap.get(cluster.getClusterId());
-          } else {
-            hostSummary = s_dao.findCurrentHostCounts(clusterId);
-          }
+          hostSummary = s_counters.getHostSummary(cluster.getClusterId());
         }
 
         break;
       case Service:
-        summary = s_dao.findCurrentCounts(cluster.getClusterId(), typeId, null);
+        summary = s_counters.getServiceCounts(cluster.getClusterId(), typeId);
         break;
       case Host:
-      if (perHostSummaryMap.containsKey(cluster.getClusterId()) && 
-          perHostSummaryMap.get(cluster.getClusterId()).containsKey(typeId)) {
-        summary = perHostSummaryMap.get(cluster.getClusterId()).get(typeId);
-      } else {
-        summary = s_dao.findCurrentCounts(cluster.getClusterId(), null, typeId);
-      }
+        summary = s_counters.getHostCounts(cluster.getClusterId(), typeId);
         break;
       default:
         break;
@@ -19,6 +19,7 @@ package org.apache.ambari.server.controller.internal;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -140,6 +141,19 @@ public class CalculatedStatus {
     return percent;
   }
 
+  /**
+   * Determines whether the given statuses are the same.
+   *
+   * @param other
+   *          the status to compare with
+   * @return {@code true} if the status, display status and percent complete
+   *         are the same
+   */
+  public boolean isSameAs(CalculatedStatus other) {
+    return null != other && status == other.status && displayStatus == other.displayStatus
+        && Double.compare(percent, other.percent) == 0;
+  }
+
 
   // ----- helper methods ----------------------------------------------------
 
@@ -440,7 +454,9 @@ public class CalculatedStatus {
    */
   public static CalculatedStatus statusFromRequest(HostRoleCommandDAO s_hostRoleCommandDAO,
                                                    TopologyManager topologyManager, Long requestId) {
-    Map<Long, HostRoleCommandStatusSummaryDTO> summary = s_hostRoleCommandDAO.findAggregateCounts(requestId);
+    // the summaries are shared with the DAO cache, so copy them before adding logical ones
+    Map<Long, HostRoleCommandStatusSummaryDTO> summary = new HashMap<>(
+        s_hostRoleCommandDAO.findAggregateCounts(requestId));
 
     // get summaries from TopologyManager for logical requests
     summary.putAll(topologyManager.getStageSummaries(requestId));
@@ -511,6 +527,52 @@ public class CalculatedStatus {
       taskStatuses.addAll(summary.getTaskStatuses());
     }
 
+    return statusFromStageStatuses(stageStatuses, stageDisplayStatuses,
+        calculateStatusCounts(taskStatuses), taskStatuses.size());
+  }
+
+  /**
+   * Calculates the status of a single stage from the counts of its tasks in
+   * various states, the same way {@link #statusFromStageSummary(Map, Set)}
+   * does for the summary of the stage.
+   *
+   * @param taskStatusCounts
+   *          the counts of the tasks of the stage, as returned by
+   *          {@link #calculateStatusCounts(Collection)}
+   * @param taskTotal
+   *          the number of tasks of the stage
+   * @param skippable
+   *          {@code true} if the stage is skippable
+   * @return the calculated status
+   */
+  public static CalculatedStatus statusFromStageTaskCounts(Map<HostRoleStatus, Integer> taskStatusCounts,
+      int taskTotal, boolean skippable) {
+    HostRoleStatus stageStatus = calculateSummaryStatus(taskStatusCounts, taskTotal, skippable);
+    HostRoleStatus stageDisplayStatus = calculateSummaryDisplayStatus(taskStatusCounts, taskTotal, skippable);
+
+    return statusFromStageStatuses(Collections.singleton(stageStatus), Collections.singleton(stageDisplayStatus),
+        taskStatusCounts, taskTotal);
+  }
+
+  /**
+   * Calculates the overall status of a request from the distinct statuses of
+   * its stages and the counts of its tasks in various states.
+   *
+   * @param stageStatuses
+   *          the distinct statuses of the stages
+   * @param stageDisplayStatuses
+   *          the distinct display statuses of the stages
+   * @param taskStatusCounts
+   *          the counts of the tasks of the stages, as returned by
+   *          {@link #calculateStatusCounts(Collection)}
+   * @param taskTotal
+   *          the number of tasks of the stages
+   * @return the calculated status
+   */
+  public static CalculatedStatus statusFromStageStatuses(Collection<HostRoleStatus> stageStatuses,
+      Collection<HostRoleStatus> stageDisplayStatuses, Map<HostRoleStatus, Integer> taskStatusCounts,
+      int taskTotal) {
+
     // calculate the overall status from the stage statuses
     Map<HostRoleStatus, Integer> counts = calculateStatusCounts(stageStatuses);
     Map<HostRoleStatus, Integer> displayCounts = calculateStatusCounts(stageDisplayStatuses);
@@ -518,7 +580,7 @@ public class CalculatedStatus {
     HostRoleStatus status = calculateSummaryStatusOfUpgrade(counts, stageStatuses.size());
     HostRoleStatus displayStatus = calculateSummaryDisplayStatus(displayCounts, stageDisplayStatuses.size(), false);
 
-    double progressPercent = calculateProgressPercent(calculateStatusCounts(taskStatuses), taskStatuses.size());
+    double progressPercent = calculateProgressPercent(taskStatusCounts, taskTotal);
 
     return new CalculatedStatus(status, displayStatus, progressPercent);
   }
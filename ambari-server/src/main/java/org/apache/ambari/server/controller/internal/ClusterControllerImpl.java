@@ -18,23 +18,37 @@
 
 package org.apache.ambari.server.controller.internal;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.ambari.server.controller.spi.ClusterController;
 import org.apache.ambari.server.controller.spi.ExtendedResourceProvider;
 import org.apache.ambari.server.controller.spi.NoSuchParentResourceException;
 import org.apache.ambari.server.controller.spi.NoSuchResourceException;
+import org.apache.ambari.server.controller.spi.PageCursor;
 import org.apache.ambari.server.controller.spi.PageRequest;
 import org.apache.ambari.server.controller.spi.PageResponse;
 import org.apache.ambari.server.controller.spi.Predicate;
@@ -56,8 +70,16 @@ import org.apache.ambari.server.controller.spi.UnsupportedPropertyException;
 import org.apache.ambari.server.controller.utilities.PredicateBuilder;
 import org.apache.ambari.server.controller.utilities.PredicateHelper;
 import org.apache.ambari.server.controller.utilities.PropertyHelper;
+import org.apache.ambari.server.metrics.system.impl.ServerInternalsMetricsSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.security.concurrent.DelegatingSecurityContextCallable;
+
+import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import com.google.inject.persist.jpa.AmbariJpaPersistService;
 
 /**
  * Default cluster controller implementation.
@@ -101,12 +123,69 @@ public class ClusterControllerImpl implements ClusterController {
     DEFAULT_RESOURCE_PREDICATE_EVALUATOR =
     new DefaultResourcePredicateEvaluator();
 
+  /**
+   * Prefix of the property provider metrics.
+   */
+  private static final String METRIC_PREFIX = "property.provider";
+
+  /**
+   * Name of the binding of the executor used to run the property providers of a request
+   * concurrently.
+   */
+  public static final String POPULATE_EXECUTOR = "propertyProviderPopulateExecutor";
+
+  /**
+   * Name of the binding of the time, in milliseconds, that a request waits for its concurrently
+   * run property providers.
+   */
+  public static final String POPULATE_TIMEOUT = "propertyProviderPopulateTimeout";
+
+  /**
+   * Executor used to run the property providers of a request concurrently; {@code null} if
+   * the property providers are run one after another.
+   */
+  @Inject(optional = true)
+  @Named(POPULATE_EXECUTOR)
+  private ExecutorService populateExecutor;
+
+  /**
+   * Time, in milliseconds, that a request waits for its concurrently run property providers;
+   * {@code 0} for no limit.
+   */
+  @Inject(optional = true)
+  @Named(POPULATE_TIMEOUT)
+  private long populateTimeout;
+
+  /**
+   * Used to open a unit of work for the property providers run on the executor threads, so that
+   * providers backed by DAOs do not leave entity managers behind on those threads.
+   */
+  @Inject(optional = true)
+  private AmbariJpaPersistService persistService;
+
   // ----- Constructors ------------------------------------------------------
 
   public ClusterControllerImpl(ProviderModule providerModule) {
     this.providerModule = providerModule;
   }
 
+  /**
+   * Create the executor used to run the property providers of a request concurrently.
+   *
+   * @param poolSize  the maximum number of threads
+   *
+   * @return the executor
+   */
+  public static ExecutorService createPopulateExecutor(int poolSize) {
+    ThreadFactory threadFactory = new ThreadFactoryBuilder().setDaemon(true).setNameFormat(
+        "ambari-property-provider-populate-%d").build();
+
+    // when all threads are busy the request thread runs the provider itself
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+        new SynchronousQueue<>(), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
 
 
   // ----- ClusterController -------------------------------------------------
@@ -146,14 +225,29 @@ public class ClusterControllerImpl implements ClusterController {
                                          Set<Resource> resources,
                                          Request request,
                                          Predicate predicate) throws SystemException {
-    Set<Resource> keepers = resources;
-    List<PropertyProvider> propertyProviders = ensurePropertyProviders(type);
-    for (PropertyProvider propertyProvider : propertyProviders) {
+    List<PropertyProvider> requestPropertyProviders = new ArrayList<>();
+    for (PropertyProvider propertyProvider : ensurePropertyProviders(type)) {
       if (providesRequestProperties(propertyProvider, request, predicate)) {
-        keepers = propertyProvider.populateResources(keepers, request, predicate);
+        requestPropertyProviders.add(propertyProvider);
       }
     }
-    return keepers;
+
+    if (requestPropertyProviders.size() < 2) {
+      return requestPropertyProviders.isEmpty() ? resources :
+          populateResources(requestPropertyProviders.get(0), resources, request, predicate);
+    }
+
+    ExecutorService executor = populateExecutor;
+    if (executor == null) {
+      Set<Resource> keepers = resources;
+      for (List<PropertyProvider> stage : getPopulateStages(requestPropertyProviders)) {
+        for (PropertyProvider propertyProvider : stage) {
+          keepers = populateResources(propertyProvider, keepers, request, predicate);
+        }
+      }
+      return keepers;
+    }
+    return populateResourcesConcurrently(executor, requestPropertyProviders, resources, request, predicate);
   }
 
   @Override
@@ -193,9 +287,22 @@ public class ClusterControllerImpl implements ClusterController {
         resourceComparator = new ResourceComparator(sortRequest);
       }
 
+      // a cursor page is sorted by the cursor properties, which break all ties
+      // of the requested sort by the resource keys
+      List<SortRequestProperty> cursorProperties = null;
+      boolean cursorPage = null != pageRequest && !providerAlreadyPaged &&
+          pageRequest.getStartingPoint() == PageRequest.StartingPoint.CursorStart;
+      if (cursorPage) {
+        cursorProperties = PageCursor.getCursorProperties(type, getSchema(type), sortRequest);
+        if (null != pageRequest.getCursor()) {
+          pageRequest.getCursor().validate(cursorProperties);
+        }
+        resourceComparator = new ResourceComparator(new SortRequestImpl(cursorProperties));
+      }
+
       // if the provider did not already sort the set, then sort it based
       // on the comparator
-      if (!providerAlreadySorted) {
+      if (!providerAlreadySorted || cursorPage) {
         TreeSet<Resource> sortedResources = new TreeSet<>(
           resourceComparator);
 
@@ -222,6 +329,9 @@ public class ClusterControllerImpl implements ClusterController {
           case OffsetEnd:
             return getPageToOffset(pageRequest.getPageSize(),
                 pageRequest.getOffset(), resources, predicate, provider);
+          case CursorStart:
+            return getPageAfterCursor(pageRequest.getPageSize(), pageRequest.getCursor(),
+                (TreeSet<Resource>) resources, predicate, provider);
           case PredicateStart:
           case PredicateEnd:
             // TODO : need to support the following cases for pagination
@@ -554,6 +664,237 @@ public class ClusterControllerImpl implements ClusterController {
     return size > provider.checkPropertyIds(requestPropertyIds).size();
   }
 
+  /**
+   * Populate the given resources with the given property provider, timing the call.
+   *
+   * @param propertyProvider  the property provider
+   * @param resources         the resources to populate
+   * @param request           the request
+   * @param predicate         the predicate
+   *
+   * @return the resources kept by the property provider
+   *
+   * @throws SystemException if the resources can not be populated
+   */
+  private Set<Resource> populateResources(PropertyProvider propertyProvider, Set<Resource> resources,
+                                          Request request, Predicate predicate) throws SystemException {
+    Timer.Context timerContext = ServerInternalsMetricsSource.getRegistry().timer(
+        METRIC_PREFIX + "." + getMetricName(propertyProvider) + ".populate").time();
+    try {
+      return propertyProvider.populateResources(resources, request, predicate);
+    } finally {
+      timerContext.stop();
+    }
+  }
+
+  /**
+   * Run the given property providers concurrently.  Providers which require properties supplied by
+   * other providers of the list are run after those providers finish.  Each provider is handed the
+   * resources kept by all of the providers run before it; the resources kept by every provider are
+   * returned.  The providers run on the executor populate copies of the resources, and the
+   * properties they set are copied to the resources once they finish, so no resource is changed
+   * by two providers at the same time.  If the populate timeout is exceeded, the remaining
+   * providers are cancelled, their properties are dropped and all resources they were given are
+   * kept.
+   *
+   * @param executor                the executor to run the providers on
+   * @param requestPropertyProviders the property providers which provide properties of the request
+   * @param resources               the resources to populate
+   * @param request                 the request
+   * @param predicate               the predicate
+   *
+   * @return the populated resources
+   *
+   * @throws SystemException if the resources can not be populated
+   */
+  private Set<Resource> populateResourcesConcurrently(ExecutorService executor,
+                                                      List<PropertyProvider> requestPropertyProviders,
+                                                      Set<Resource> resources,
+                                                      Request request,
+                                                      Predicate predicate) throws SystemException {
+    long timeout = populateTimeout;
+    long deadline = timeout > 0 ? System.currentTimeMillis() + timeout : Long.MAX_VALUE;
+
+    Set<Resource> keepers = resources;
+    for (List<PropertyProvider> stage : getPopulateStages(requestPropertyProviders)) {
+      if (System.currentTimeMillis() >= deadline) {
+        LOG.warn("Skipped property providers {} for request {} after the timeout of {}ms", stage, request, timeout);
+        ServerInternalsMetricsSource.getRegistry().counter(METRIC_PREFIX + ".timeouts").inc(stage.size());
+        break;
+      }
+
+      Set<Resource> stageResources = keepers;
+      int last = stage.size() - 1;
+      List<ResourceCopies> stageCopies = new ArrayList<>(last);
+      List<Future<Set<Resource>>> futures = new ArrayList<>(last);
+      for (PropertyProvider propertyProvider : stage.subList(0, last)) {
+        ResourceCopies copies = new ResourceCopies(stageResources);
+        stageCopies.add(copies);
+        futures.add(executor.submit(new DelegatingSecurityContextCallable<>(
+            inUnitOfWork(() -> populateResources(propertyProvider, copies.getCopies(), request, predicate)))));
+      }
+
+      // the request thread would only wait otherwise, let it run the last provider of the stage
+      List<Set<Resource>> stageKeepers = new ArrayList<>(stage.size());
+      try {
+        stageKeepers.add(populateResources(stage.get(last), stageResources, request, predicate));
+      } catch (SystemException | RuntimeException e) {
+        futures.forEach(future -> future.cancel(true));
+        throw e;
+      }
+
+      for (int i = 0; i < futures.size(); i++) {
+        Future<Set<Resource>> future = futures.get(i);
+        try {
+          Set<Resource> kept = deadline == Long.MAX_VALUE ? future.get() :
+              future.get(Math.max(0L, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+          stageKeepers.add(stageCopies.get(i).copyBack(kept));
+        } catch (TimeoutException e) {
+          future.cancel(true);
+          LOG.warn("Property provider {} did not populate the resources of request {} within {}ms",
+              stage.get(i), request, timeout);
+          ServerInternalsMetricsSource.getRegistry().counter(METRIC_PREFIX + ".timeouts").inc();
+        } catch (InterruptedException e) {
+          futures.forEach(f -> f.cancel(true));
+          Thread.currentThread().interrupt();
+          throw new SystemException("Interrupted while populating resources for request " + request, e);
+        } catch (ExecutionException e) {
+          futures.forEach(f -> f.cancel(true));
+          Throwable cause = e.getCause();
+          if (cause instanceof SystemException) {
+            throw (SystemException) cause;
+          }
+          if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+          }
+          throw new SystemException("Unable to populate resources for request " + request, cause);
+        }
+      }
+      keepers = retainKept(stageResources, stageKeepers);
+    }
+    return keepers;
+  }
+
+  /**
+   * Wrap the given task so that it runs in a unit of work, unless the thread running it is
+   * already in one (when the executor is busy the request thread runs the task itself).
+   *
+   * @param task  the task
+   *
+   * @return the task running in a unit of work
+   */
+  private <T> Callable<T> inUnitOfWork(Callable<T> task) {
+    AmbariJpaPersistService jpaPersistService = persistService;
+    if (jpaPersistService == null) {
+      return task;
+    }
+    return () -> {
+      boolean begun = !jpaPersistService.isWorking();
+      if (begun) {
+        jpaPersistService.begin();
+      }
+      try {
+        return task.call();
+      } finally {
+        if (begun) {
+          jpaPersistService.end();
+        }
+      }
+    };
+  }
+
+  /**
+   * Group the given property providers into stages which can be run concurrently.  A provider is
+   * put into a later stage than every provider which supplies any of its required properties.
+   * Providers which depend on each other in a cycle are run one after another, in list order,
+   * after all other stages.
+   *
+   * @param requestPropertyProviders  the property providers
+   *
+   * @return the stages of property providers, in the order they must be run
+   */
+  private List<List<PropertyProvider>> getPopulateStages(List<PropertyProvider> requestPropertyProviders) {
+    Map<PropertyProvider, Set<PropertyProvider>> dependencies = new IdentityHashMap<>();
+    for (PropertyProvider propertyProvider : requestPropertyProviders) {
+      Set<String> requiredPropertyIds = propertyProvider.getRequiredPropertyIds();
+      Set<PropertyProvider> suppliers = Collections.newSetFromMap(new IdentityHashMap<>());
+
+      if (!requiredPropertyIds.isEmpty()) {
+        for (PropertyProvider supplier : requestPropertyProviders) {
+          if (supplier != propertyProvider &&
+              supplier.checkPropertyIds(new HashSet<>(requiredPropertyIds)).size() < requiredPropertyIds.size()) {
+            suppliers.add(supplier);
+          }
+        }
+      }
+      dependencies.put(propertyProvider, suppliers);
+    }
+
+    List<List<PropertyProvider>> stages = new ArrayList<>();
+    List<PropertyProvider> remaining = new ArrayList<>(requestPropertyProviders);
+    while (!remaining.isEmpty()) {
+      List<PropertyProvider> stage = new ArrayList<>();
+      for (PropertyProvider propertyProvider : remaining) {
+        if (Collections.disjoint(dependencies.get(propertyProvider), remaining)) {
+          stage.add(propertyProvider);
+        }
+      }
+
+      if (stage.isEmpty()) {
+        LOG.warn("Property providers {} depend on each other, running them one after another", remaining);
+        remaining.forEach(propertyProvider -> stages.add(Collections.singletonList(propertyProvider)));
+        break;
+      }
+      remaining.removeAll(stage);
+      stages.add(stage);
+    }
+    return stages;
+  }
+
+  /**
+   * Get the resources which have been kept by all of the given property provider results,
+   * in the order of the given resources.  Resources are compared by identity since their
+   * properties, and so their hash codes, change while they are populated.
+   *
+   * @param resources  the resources given to the property providers
+   * @param keepers    the resources kept by each of the property providers
+   *
+   * @return the kept resources
+   */
+  private Set<Resource> retainKept(Set<Resource> resources, List<Set<Resource>> keepers) {
+    List<Set<Resource>> filters = new ArrayList<>(keepers.size());
+    for (Set<Resource> kept : keepers) {
+      if (kept != resources) {
+        Set<Resource> filter = Collections.newSetFromMap(new IdentityHashMap<>());
+        filter.addAll(kept);
+        filters.add(filter);
+      }
+    }
+    if (filters.isEmpty()) {
+      return resources;
+    }
+
+    Set<Resource> retained = new LinkedHashSet<>();
+    for (Resource resource : resources) {
+      if (filters.stream().allMatch(filter -> filter.contains(resource))) {
+        retained.add(resource);
+      }
+    }
+    return retained;
+  }
+
+  /**
+   * Get the name under which the timing of the given property provider is published.
+   *
+   * @param propertyProvider  the property provider
+   *
+   * @return the metric name
+   */
+  private static String getMetricName(PropertyProvider propertyProvider) {
+    String name = propertyProvider.getClass().getSimpleName();
+    return name.isEmpty() ? propertyProvider.getClass().getName() : name;
+  }
+
   /**
    * Get the list of property providers for the given type.
    *
@@ -589,6 +930,56 @@ public class ClusterControllerImpl implements ClusterController {
     return resources;
   }
 
+  /**
+   * Get one page of resources from the given set of resources starting after the given cursor.
+   * Only the resources of the page are evaluated with the predicate. The total count of the
+   * resources is not determined.
+   *
+   * @param pageSize   the page size
+   * @param cursor     the cursor; {@code null} to start from the beginning of the resources
+   * @param resources  the set of resources, sorted by the properties of the cursor
+   * @param predicate  the predicate
+   * @param evaluator  the evaluator used to evaluate with the given predicate
+   *
+   * @return a page response containing a page of resources
+   */
+  private PageResponse getPageAfterCursor(int pageSize, PageCursor cursor,
+                                          TreeSet<Resource> resources,
+                                          Predicate predicate,
+                                          ResourcePredicateEvaluator evaluator) {
+
+    Resource previous = null;
+    Set<Resource> pageResources = new LinkedHashSet<>();
+
+    // skip the resources up to the cursor without evaluating them
+    NavigableSet<Resource> tailResources = resources;
+    if (cursor != null) {
+      Resource first = null;
+      for (Resource resource : resources) {
+        if (cursor.precedes(resource)) {
+          first = resource;
+          break;
+        }
+        previous = resource;
+      }
+      tailResources = first == null ? Collections.emptyNavigableSet() : resources.tailSet(first, true);
+    }
+
+    // get a page worth of resources
+    Iterator<Resource> iterator =
+        new ResourceIterable(tailResources, predicate, evaluator).iterator();
+    for (int i = 0; i < pageSize && iterator.hasNext(); ++i) {
+      pageResources.add(iterator.next());
+    }
+
+    return new PageResponseImpl(pageResources,
+        0,
+        previous,
+        iterator.hasNext() ? iterator.next() : null,
+        null
+      );
+  }
+
   /**
    * Get one page of resources from the given set of resources starting at the given offset.
    *
@@ -1012,4 +1403,120 @@ public class ClusterControllerImpl implements ClusterController {
       return evaluator.evaluate(predicate, resource);
     }
   }
+
+
+  // ----- inner class : ResourceCopies --------------------------------------
+
+  /**
+   * Copies of resources which are populated by a property provider run on the populate executor.
+   */
+  private static class ResourceCopies {
+
+    /**
+     * The resources which have been copied.
+     */
+    private final Set<Resource> resources;
+
+    /**
+     * The copies, in the order of the resources.
+     */
+    private final Set<Resource> copies = new LinkedHashSet<>();
+
+    /**
+     * The copied resources keyed by their copies.
+     */
+    private final Map<Resource, Resource> originals = new IdentityHashMap<>();
+
+    private ResourceCopies(Set<Resource> resources) {
+      this.resources = resources;
+      for (Resource resource : resources) {
+        PopulatedResource copy = new PopulatedResource(resource);
+        copies.add(copy);
+        originals.put(copy, resource);
+      }
+    }
+
+    private Set<Resource> getCopies() {
+      return copies;
+    }
+
+    /**
+     * Set the properties which the property provider set on the copies on the copied resources.
+     *
+     * @param kept  the copies kept by the property provider
+     *
+     * @return the copied resources whose copies were kept
+     */
+    private Set<Resource> copyBack(Set<Resource> kept) {
+      for (Map.Entry<Resource, Resource> entry : originals.entrySet()) {
+        ((PopulatedResource) entry.getKey()).copyChangesTo(entry.getValue());
+      }
+      if (kept == copies) {
+        return resources;
+      }
+
+      Set<Resource> keptOriginals = Collections.newSetFromMap(new IdentityHashMap<>());
+      for (Resource copy : kept) {
+        Resource original = originals.get(copy);
+        if (original != null) {
+          keptOriginals.add(original);
+        }
+      }
+      return keptOriginals;
+    }
+  }
+
+
+  // ----- inner class : PopulatedResource -----------------------------------
+
+  /**
+   * Copy of a resource which records the properties and categories set on it after it was copied.
+   */
+  private static class PopulatedResource extends ResourceImpl {
+
+    /**
+     * Ids of the properties set since the resource was copied; {@code null} while copying.
+     */
+    private final Set<String> changedPropertyIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Ids of the categories added since the resource was copied.
+     */
+    private final Set<String> addedCategoryIds = ConcurrentHashMap.newKeySet();
+
+    private PopulatedResource(Resource resource) {
+      super(resource);
+    }
+
+    @Override
+    public void setProperty(String id, Object value) {
+      super.setProperty(id, value);
+      // the fields are not assigned yet while the constructor copies the resource
+      if (changedPropertyIds != null) {
+        changedPropertyIds.add(id);
+      }
+    }
+
+    @Override
+    public void addCategory(String id) {
+      super.addCategory(id);
+      if (addedCategoryIds != null) {
+        addedCategoryIds.add(id);
+      }
+    }
+
+    /**
+     * Set the properties and categories set on this copy on the given resource.
+     *
+     * @param resource  the copied resource
+     */
+    private void copyChangesTo(Resource resource) {
+      for (String categoryId : addedCategoryIds) {
+        resource.addCategory(categoryId);
+      }
+      for (String propertyId : changedPropertyIds) {
+        resource.setProperty(propertyId, getPropertyValue(propertyId));
+      }
+    }
+  }
 }
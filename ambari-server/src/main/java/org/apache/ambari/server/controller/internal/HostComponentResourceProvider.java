@@ -172,6 +172,11 @@ public class HostComponentResourceProvider extends AbstractControllerResourcePro
       UPGRADE_STATE,
       QUERY_PARAMETERS_RUN_SMOKE_TEST_ID);
 
+  /**
+   * Slot layout of the HostComponent resource properties.
+   */
+  private static final ResourceSchema RESOURCE_SCHEMA = new ResourceSchema(Resource.Type.HostComponent, propertyIds);
+
   public static final String SKIP_INSTALL_FOR_COMPONENTS = "skipInstallForComponents";
   public static final String DO_NOT_SKIP_INSTALL_FOR_COMPONENTS = "dontSkipInstallForComponents";
   public static final String ALL_COMPONENTS = "ALL";
@@ -271,7 +276,7 @@ public class HostComponentResourceProvider extends AbstractControllerResourcePro
     });
 
     for (ServiceComponentHostResponse response : responses) {
-      Resource resource = new ResourceImpl(Resource.Type.HostComponent);
+      Resource resource = new SchemaResourceImpl(RESOURCE_SCHEMA);
       setResourceProperty(resource, CLUSTER_NAME,
               response.getClusterName(), requestedIds);
       setResourceProperty(resource, SERVICE_NAME,
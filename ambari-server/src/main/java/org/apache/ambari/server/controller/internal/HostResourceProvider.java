@@ -194,6 +194,11 @@ public class HostResourceProvider extends AbstractControllerResourceProvider {
       HOST_TOTAL_MEM_PROPERTY_ID,
       HOST_ATTRIBUTES_PROPERTY_ID);
 
+  /**
+   * Slot layout of the Host resource properties.
+   */
+  private static final ResourceSchema RESOURCE_SCHEMA = new ResourceSchema(Resource.Type.Host, propertyIds);
+
   @Inject
   private OsFamily osFamily;
 
@@ -273,7 +278,7 @@ public class HostResourceProvider extends AbstractControllerResourceProvider {
     Set<Resource> resources    = new HashSet<>();
 
     for (HostResponse response : responses) {
-      Resource resource = new ResourceImpl(Resource.Type.Host);
+      Resource resource = new SchemaResourceImpl(RESOURCE_SCHEMA);
 
       // TODO : properly handle more than one cluster
       if (response.getClusterName() != null
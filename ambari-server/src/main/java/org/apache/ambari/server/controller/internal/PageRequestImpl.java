@@ -20,6 +20,7 @@ package org.apache.ambari.server.controller.internal;
 
 import java.util.Comparator;
 
+import org.apache.ambari.server.controller.spi.PageCursor;
 import org.apache.ambari.server.controller.spi.PageRequest;
 import org.apache.ambari.server.controller.spi.Predicate;
 import org.apache.ambari.server.controller.spi.Resource;
@@ -34,14 +35,21 @@ public class PageRequestImpl implements PageRequest{
   private final int offset;
   private final Predicate predicate;
   private final Comparator<Resource> comparator;
+  private final PageCursor cursor;
 
   public PageRequestImpl(StartingPoint startingPoint, int pageSize, int offset, Predicate predicate,
                          Comparator<Resource> comparator) {
+    this(startingPoint, pageSize, offset, predicate, comparator, null);
+  }
+
+  public PageRequestImpl(StartingPoint startingPoint, int pageSize, int offset, Predicate predicate,
+                         Comparator<Resource> comparator, PageCursor cursor) {
     this.startingPoint = startingPoint;
     this.pageSize = pageSize;
     this.offset = offset;
     this.predicate = predicate;
     this.comparator = comparator;
+    this.cursor = cursor;
   }
 
   @Override
@@ -63,4 +71,9 @@ public class PageRequestImpl implements PageRequest{
   public Predicate getPredicate() {
     return predicate;
   }
+
+  @Override
+  public PageCursor getCursor() {
+    return cursor;
+  }
 }
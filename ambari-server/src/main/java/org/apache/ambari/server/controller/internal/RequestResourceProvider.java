@@ -50,17 +50,22 @@ import org.apache.ambari.server.controller.RequestStatusResponse;
 import org.apache.ambari.server.controller.spi.ClusterController;
 import org.apache.ambari.server.controller.spi.NoSuchParentResourceException;
 import org.apache.ambari.server.controller.spi.NoSuchResourceException;
+import org.apache.ambari.server.controller.spi.PageCursor;
+import org.apache.ambari.server.controller.spi.PageRequest;
 import org.apache.ambari.server.controller.spi.Predicate;
 import org.apache.ambari.server.controller.spi.QueryResponse;
 import org.apache.ambari.server.controller.spi.Request;
 import org.apache.ambari.server.controller.spi.RequestStatus;
 import org.apache.ambari.server.controller.spi.Resource;
 import org.apache.ambari.server.controller.spi.ResourceAlreadyExistsException;
+import org.apache.ambari.server.controller.spi.SortRequest;
+import org.apache.ambari.server.controller.spi.SortRequestProperty;
 import org.apache.ambari.server.controller.spi.SystemException;
 import org.apache.ambari.server.controller.spi.UnsupportedPropertyException;
 import org.apache.ambari.server.controller.utilities.ClusterControllerHelper;
 import org.apache.ambari.server.controller.utilities.PropertyHelper;
 import org.apache.ambari.server.customactions.ActionDefinition;
+import org.apache.ambari.server.events.listeners.tasks.TaskStatusListener;
 import org.apache.ambari.server.orm.dao.HostRoleCommandDAO;
 import org.apache.ambari.server.orm.dao.HostRoleCommandStatusSummaryDTO;
 import org.apache.ambari.server.orm.dao.RequestDAO;
@@ -84,6 +89,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 import com.google.inject.Inject;
+import com.google.inject.Provider;
 
 /**
  * Resource provider for request resources.
@@ -102,6 +108,9 @@ public class RequestResourceProvider extends AbstractControllerResourceProvider
   @Inject
   private static TopologyManager topologyManager;
 
+  @Inject
+  private static Provider<TaskStatusListener> s_taskStatusListener;
+
   // ----- Property ID constants ---------------------------------------------
   // Requests
   public static final String REQUESTS = "Requests";
@@ -296,11 +305,36 @@ public class RequestResourceProvider extends AbstractControllerResourceProvider
 
     Integer maxResults = (maxResultsRaw == null ? null : Integer.parseInt(maxResultsRaw));
     Boolean ascOrder = (ascOrderRaw == null ? null : Boolean.parseBoolean(ascOrderRaw));
+    Long afterRequestId = null;
+
+    PageRequest pageRequest = request.getPageRequest();
+    if (pageRequest != null && pageRequest.getStartingPoint() == PageRequest.StartingPoint.CursorStart) {
+      List<SortRequestProperty> cursorProperties = PageCursor.getCursorProperties(
+          Resource.Type.Request, new SchemaImpl(this), request.getSortRequest());
+      PageCursor cursor = pageRequest.getCursor();
+      if (cursor != null) {
+        cursor.validate(cursorProperties);
+      }
+
+      ascOrder = true;
+      if (cursorProperties.get(0).getPropertyId().equals(REQUEST_ID_PROPERTY_ID) &&
+          cursorProperties.get(0).getOrder() == SortRequest.Order.ASC) {
+        // the page holds the requests following the request of the cursor
+        maxResults = pageRequest.getPageSize();
+        if (cursor != null && cursor.getValues().get(0) instanceof Long) {
+          afterRequestId = (Long) cursor.getValues().get(0);
+        }
+      } else {
+        // the page is cut from all of the requests sorted by other properties
+        maxResults = Integer.MAX_VALUE;
+      }
+    }
 
     if (null == predicate) {
       authorizeGetResources(null);
       // the no-arg call to /requests is here
-      resources.addAll(getRequestResources(null, null, null, maxResults, ascOrder, requestedIds));
+      resources.addAll(getRequestResources(null, null, null, maxResults, ascOrder, afterRequestId,
+          requestedIds));
     } else {
       // process /requests with a predicate
       // process /clusters/[cluster]/requests
@@ -321,7 +355,7 @@ public class RequestResourceProvider extends AbstractControllerResourceProvider
 
         authorizeGetResources(clusterName);
         resources.addAll(getRequestResources(clusterName, requestId, requestStatus, maxResults,
-            ascOrder, requestedIds));
+            ascOrder, afterRequestId, requestedIds));
       }
     }
 
@@ -667,6 +701,7 @@ public class RequestResourceProvider extends AbstractControllerResourceProvider
                                             String requestStatus,
                                             Integer maxResults,
                                             Boolean ascOrder,
+                                            Long afterRequestId,
                                             Set<String> requestedPropertyIds)
       throws NoSuchResourceException, NoSuchParentResourceException {
 
@@ -701,13 +736,20 @@ public class RequestResourceProvider extends AbstractControllerResourceProvider
       ascOrder = (ascOrder != null) ? ascOrder : false;
 
       if (null == status) {
-        if (null != clusterId) {
+        if (null != afterRequestId) {
+          // !!! the page of a cursor starts after the request of the cursor
+          requestIds = s_requestDAO.findAllRequestIds(maxResults, ascOrder, clusterId, afterRequestId);
+        } else if (null != clusterId) {
           // !!! don't mix results of cluster vs non-cluster
           requestIds = s_requestDAO.findAllRequestIds(maxResults, ascOrder, clusterId);
         } else {
           // !!! not a cluster, so get all requests NOT affiliated with a cluster
           requestIds = s_requestDAO.findAllRequestIds(maxResults, ascOrder, null);
         }
+      } else if (null != afterRequestId) {
+        // !!! the status is only known for all of the requests, so the page of a cursor
+        // is cut from all of the requests with the status
+        requestIds = actionManager.getRequestsByStatus(status, Integer.MAX_VALUE, ascOrder);
       } else {
         // !!! this call will result in mixed results of cluster and non-cluster.  this
         // will get fixed in a future iteration, as the host_role_command table does not
@@ -817,29 +859,52 @@ public class RequestResourceProvider extends AbstractControllerResourceProvider
       setResourceProperty(resource, REQUEST_SOURCE_SCHEDULE, null, requestedPropertyIds);
     }
 
-    Map<Long, HostRoleCommandStatusSummaryDTO> summary = s_hostRoleCommandDAO.findAggregateCounts(entity.getRequestId());
-
-    // get summaries from TopologyManager for logical requests
-    summary.putAll(topologyManager.getStageSummaries(entity.getRequestId()));
-
-    // summary might be empty due to delete host have cleared all
-    // HostRoleCommands or due to hosts haven't registered yet with the cluster
-    // when the cluster is provisioned with a Blueprint
-    final CalculatedStatus status;
     LogicalRequest logicalRequest = topologyManager.getRequest(entity.getRequestId());
-    if (summary.isEmpty() && null != logicalRequest) {
-      status = logicalRequest.calculateStatus();
-      if (status == CalculatedStatus.ABORTED) {
-        Optional<String> failureReason = logicalRequest.getFailureReason();
-        if (failureReason.isPresent()) {
-          requestContext += "\nFAILED: " + failureReason.get();
-          setResourceProperty(resource, REQUEST_CONTEXT_ID, requestContext, requestedPropertyIds);
+
+    // the status of a running request is kept up to date from its task updates,
+    // except for logical requests whose tasks are created as hosts register
+    CalculatedStatus status = null;
+    Integer taskCount = null;
+    Map<HostRoleStatus, Integer> hostRoleStatusCounters = null;
+    if (null == logicalRequest && null != s_taskStatusListener) {
+      TaskStatusListener taskStatusListener = s_taskStatusListener.get();
+      taskCount = taskStatusListener.getActiveRequestTaskCount(entity.getRequestId());
+      hostRoleStatusCounters = taskStatusListener.getActiveRequestTaskStatusCounts(entity.getRequestId());
+      status = taskStatusListener.getActiveRequestStatus(entity.getRequestId());
+    }
+
+    if (null == status || null == taskCount || null == hostRoleStatusCounters) {
+      // the summaries are shared with the DAO cache, so copy them before adding logical ones
+      Map<Long, HostRoleCommandStatusSummaryDTO> summary = new HashMap<>(
+          s_hostRoleCommandDAO.findAggregateCounts(entity.getRequestId()));
+
+      // get summaries from TopologyManager for logical requests
+      summary.putAll(topologyManager.getStageSummaries(entity.getRequestId()));
+
+      // summary might be empty due to delete host have cleared all
+      // HostRoleCommands or due to hosts haven't registered yet with the cluster
+      // when the cluster is provisioned with a Blueprint
+      if (summary.isEmpty() && null != logicalRequest) {
+        status = logicalRequest.calculateStatus();
+        if (status == CalculatedStatus.ABORTED) {
+          Optional<String> failureReason = logicalRequest.getFailureReason();
+          if (failureReason.isPresent()) {
+            requestContext += "\nFAILED: " + failureReason.get();
+            setResourceProperty(resource, REQUEST_CONTEXT_ID, requestContext, requestedPropertyIds);
+          }
         }
+      } else {
+        // there are either tasks or this is not a logical request, so do normal
+        // status calculations
+        status = CalculatedStatus.statusFromStageSummary(summary, summary.keySet());
       }
-    } else {
-      // there are either tasks or this is not a logical request, so do normal
-      // status calculations
-      status = CalculatedStatus.statusFromStageSummary(summary, summary.keySet());
+
+      taskCount = 0;
+      for (HostRoleCommandStatusSummaryDTO dto : summary.values()) {
+        taskCount += dto.getTaskTotal();
+      }
+
+      hostRoleStatusCounters = CalculatedStatus.calculateTaskStatusCounts(summary, summary.keySet());
     }
 
     if (null != logicalRequest) {
@@ -849,14 +914,6 @@ public class RequestResourceProvider extends AbstractControllerResourceProvider
     setResourceProperty(resource, REQUEST_STATUS_PROPERTY_ID, status.getStatus().toString(), requestedPropertyIds);
     setResourceProperty(resource, REQUEST_PROGRESS_PERCENT_ID, status.getPercent(), requestedPropertyIds);
 
-    int taskCount = 0;
-    for (HostRoleCommandStatusSummaryDTO dto : summary.values()) {
-      taskCount += dto.getTaskTotal();
-    }
-
-    Map<HostRoleStatus, Integer> hostRoleStatusCounters = CalculatedStatus.calculateTaskStatusCounts(
-        summary, summary.keySet());
-
     setResourceProperty(resource, REQUEST_TASK_CNT_ID, taskCount, requestedPropertyIds);
     setResourceProperty(resource, REQUEST_FAILED_TASK_CNT_ID,
             hostRoleStatusCounters.get(HostRoleStatus.FAILED), requestedPropertyIds);
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.controller.internal;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.ambari.server.controller.spi.Resource;
+import org.apache.ambari.server.controller.utilities.PropertyHelper;
+
+/**
+ * Fixed set of property ids of a resource type. Every property id gets a slot index which is used
+ * by {@link SchemaResourceImpl} to store the property value in an array. Category and name of each
+ * property are resolved once, when the schema is created.
+ */
+public class ResourceSchema {
+
+  /**
+   * The resource type.
+   */
+  private final Resource.Type type;
+
+  /**
+   * Slot indexes keyed by property id.
+   */
+  private final Map<String, Integer> slots;
+
+  /**
+   * Category keys by slot index.
+   */
+  private final String[] categories;
+
+  /**
+   * Property names by slot index.
+   */
+  private final String[] names;
+
+  // ----- Constructors ------------------------------------------------------
+
+  /**
+   * Create a schema for the given resource type.
+   *
+   * @param type         the resource type
+   * @param propertyIds  the property ids which are stored in slots
+   */
+  public ResourceSchema(Resource.Type type, Set<String> propertyIds) {
+    this.type = type;
+
+    Set<String> sortedPropertyIds = new TreeSet<>(propertyIds);
+    slots = new HashMap<>(sortedPropertyIds.size() * 2);
+    categories = new String[sortedPropertyIds.size()];
+    names = new String[sortedPropertyIds.size()];
+
+    int slot = 0;
+    for (String propertyId : sortedPropertyIds) {
+      String category = PropertyHelper.getPropertyCategory(propertyId);
+      slots.put(propertyId, slot);
+      categories[slot] = category == null ? "" : category;
+      names[slot] = PropertyHelper.getPropertyName(propertyId);
+      slot++;
+    }
+  }
+
+  // ----- ResourceSchema ----------------------------------------------------
+
+  /**
+   * @return the resource type
+   */
+  public Resource.Type getType() {
+    return type;
+  }
+
+  /**
+   * @return number of slots
+   */
+  public int size() {
+    return names.length;
+  }
+
+  /**
+   * @param propertyId  the property id
+   * @return slot index of the property, or -1 if the property is not part of the schema
+   */
+  public int getSlot(String propertyId) {
+    Integer slot = slots.get(propertyId);
+    return slot == null ? -1 : slot;
+  }
+
+  /**
+   * @param slot  the slot index
+   * @return category key of the property stored in the slot, empty string for properties without category
+   */
+  public String getCategoryKey(int slot) {
+    return categories[slot];
+  }
+
+  /**
+   * @param slot  the slot index
+   * @return name of the property stored in the slot
+   */
+  public String getPropertyName(int slot) {
+    return names[slot];
+  }
+}
@@ -0,0 +1,508 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.controller.internal;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.ambari.server.controller.spi.Resource;
+import org.apache.ambari.server.controller.utilities.PropertyHelper;
+
+/**
+ * Resource implementation for resource types which are returned in large numbers. Properties
+ * declared in the {@link ResourceSchema} are kept in an array indexed by the property slot, so
+ * setting and getting them takes neither a lock nor a tree lookup. Other properties (e.g. metrics
+ * added by property providers) and categories are kept the same way as in {@link ResourceImpl}.
+ * <p/>
+ * {@link #getPropertiesMap()} returns a view of the properties which is backed by the resource, as
+ * the map of {@link ResourceImpl} is. Properties and categories removed through the view, or through
+ * the iterators of its entries, are removed from the resource.
+ */
+public class SchemaResourceImpl implements Resource {
+
+  /**
+   * Marks slots which are set to {@code null}, empty slots hold Java null.
+   */
+  private static final Object NULL_VALUE = new Object();
+
+  /**
+   * The schema of the resource type.
+   */
+  private final ResourceSchema schema;
+
+  /**
+   * Values of the schema properties by slot.
+   */
+  private final AtomicReferenceArray<Object> values;
+
+  /**
+   * The map of property maps keyed by property category for properties which are not part of
+   * the schema. Created on first use.
+   */
+  private volatile Map<String, Map<String, Object>> extraPropertiesMap;
+
+  // ----- Constructors ------------------------------------------------------
+
+  /**
+   * Create a resource of the type of the given schema.
+   *
+   * @param schema  the resource schema
+   */
+  public SchemaResourceImpl(ResourceSchema schema) {
+    this.schema = schema;
+    values = new AtomicReferenceArray<>(schema.size());
+  }
+
+
+  // ----- Resource ----------------------------------------------------------
+
+  @Override
+  public Type getType() {
+    return schema.getType();
+  }
+
+  @Override
+  public Map<String, Map<String, Object>> getPropertiesMap() {
+    return new PropertiesMapView();
+  }
+
+  @Override
+  public void setProperty(String id, Object value) {
+    int slot = schema.getSlot(id);
+    if (slot != -1) {
+      values.set(slot, value == null ? NULL_VALUE : value);
+      return;
+    }
+
+    String categoryKey = getCategoryKey(PropertyHelper.getPropertyCategory(id));
+    Map<String, Map<String, Object>> extraProperties = getExtraPropertiesMap();
+    Map<String, Object> properties;
+    synchronized (extraProperties) {
+      properties = extraProperties.get(categoryKey);
+      if (properties == null) {
+        properties = Collections.synchronizedMap(new TreeMap<>());
+        extraProperties.put(categoryKey, properties);
+      }
+    }
+    properties.put(PropertyHelper.getPropertyName(id), value);
+  }
+
+  @Override
+  public void addCategory(String id) {
+    String categoryKey = getCategoryKey(id);
+    Map<String, Map<String, Object>> extraProperties = getExtraPropertiesMap();
+
+    synchronized (extraProperties) {
+      if (!extraProperties.containsKey(categoryKey)) {
+        extraProperties.put(categoryKey, Collections.synchronizedMap(new HashMap<>()));
+      }
+    }
+  }
+
+  @Override
+  public Object getPropertyValue(String id) {
+    int slot = schema.getSlot(id);
+    if (slot != -1) {
+      Object value = values.get(slot);
+      if (value != null) {
+        return value == NULL_VALUE ? null : value;
+      }
+    }
+
+    Map<String, Map<String, Object>> extraProperties = extraPropertiesMap;
+    if (extraProperties == null) {
+      return null;
+    }
+    Map<String, Object> properties;
+    synchronized (extraProperties) {
+      properties = extraProperties.get(getCategoryKey(PropertyHelper.getPropertyCategory(id)));
+    }
+    return properties == null ? null : properties.get(PropertyHelper.getPropertyName(id));
+  }
+
+
+  // ----- Object overrides --------------------------------------------------
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+
+    sb.append("Resource : ").append(getType()).append("\n");
+    sb.append("Properties:\n");
+    sb.append(copyPropertiesMap());
+
+    return sb.toString();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+
+    SchemaResourceImpl resource = (SchemaResourceImpl) o;
+
+    if (!getType().equals(resource.getType()) || values.length() != resource.values.length()) {
+      return false;
+    }
+    for (int slot = 0; slot < values.length(); slot++) {
+      if (!Objects.equals(values.get(slot), resource.values.get(slot))) {
+        return false;
+      }
+    }
+    return getExtraProperties().equals(resource.getExtraProperties());
+  }
+
+  @Override
+  public int hashCode() {
+    int result = getType().hashCode();
+    for (int slot = 0; slot < values.length(); slot++) {
+      Object value = values.get(slot);
+      result = 31 * result + (value == null || value == NULL_VALUE ? 0 : value.hashCode());
+    }
+    return 31 * result + getExtraProperties().hashCode();
+  }
+
+  // ----- utility methods ---------------------------------------------------
+
+  private Map<String, Map<String, Object>> getExtraPropertiesMap() {
+    Map<String, Map<String, Object>> extraProperties = extraPropertiesMap;
+    if (extraProperties == null) {
+      synchronized (this) {
+        extraProperties = extraPropertiesMap;
+        if (extraProperties == null) {
+          extraProperties = new TreeMap<>();
+          extraPropertiesMap = extraProperties;
+        }
+      }
+    }
+    return extraProperties;
+  }
+
+  /**
+   * @return a copy of the properties keyed by category, sorted like the map of {@link ResourceImpl}
+   */
+  private Map<String, Map<String, Object>> copyPropertiesMap() {
+    Map<String, Map<String, Object>> propertiesMap = new TreeMap<>();
+    for (int slot = 0; slot < values.length(); slot++) {
+      Object value = values.get(slot);
+      if (value != null) {
+        propertiesMap.computeIfAbsent(schema.getCategoryKey(slot), k -> new TreeMap<>())
+            .put(schema.getPropertyName(slot), value == NULL_VALUE ? null : value);
+      }
+    }
+
+    Map<String, Map<String, Object>> extraProperties = extraPropertiesMap;
+    if (extraProperties != null) {
+      synchronized (extraProperties) {
+        for (Map.Entry<String, Map<String, Object>> categoryEntry : extraProperties.entrySet()) {
+          Map<String, Object> properties = propertiesMap.computeIfAbsent(categoryEntry.getKey(), k -> new TreeMap<>());
+          Map<String, Object> categoryProperties = categoryEntry.getValue();
+          synchronized (categoryProperties) {
+            properties.putAll(categoryProperties);
+          }
+        }
+      }
+    }
+    return propertiesMap;
+  }
+
+  /**
+   * @param categoryKey  the category key
+   * @return a copy of the properties of the category, or null if the resource has no such category
+   */
+  private Map<String, Object> copyCategoryProperties(String categoryKey) {
+    Map<String, Object> properties = null;
+    for (int slot = 0; slot < values.length(); slot++) {
+      Object value = values.get(slot);
+      if (value != null && schema.getCategoryKey(slot).equals(categoryKey)) {
+        if (properties == null) {
+          properties = new TreeMap<>();
+        }
+        properties.put(schema.getPropertyName(slot), value == NULL_VALUE ? null : value);
+      }
+    }
+
+    Map<String, Map<String, Object>> extraProperties = extraPropertiesMap;
+    if (extraProperties != null) {
+      Map<String, Object> categoryProperties;
+      synchronized (extraProperties) {
+        categoryProperties = extraProperties.get(categoryKey);
+      }
+      if (categoryProperties != null) {
+        if (properties == null) {
+          properties = new TreeMap<>();
+        }
+        synchronized (categoryProperties) {
+          properties.putAll(categoryProperties);
+        }
+      }
+    }
+    return properties;
+  }
+
+  /**
+   * Remove a property, the category is kept even if this was its last property.
+   *
+   * @param categoryKey  the category key
+   * @param name         the property name
+   */
+  private void removeProperty(String categoryKey, String name) {
+    int slot = schema.getSlot(PropertyHelper.getPropertyId(categoryKey, name));
+    if (slot != -1) {
+      values.set(slot, null);
+    }
+
+    Map<String, Map<String, Object>> extraProperties = extraPropertiesMap;
+    if (extraProperties != null) {
+      Map<String, Object> categoryProperties;
+      synchronized (extraProperties) {
+        categoryProperties = extraProperties.get(categoryKey);
+      }
+      if (categoryProperties != null) {
+        categoryProperties.remove(name);
+      }
+    }
+  }
+
+  /**
+   * Remove a category along with all of its properties.
+   *
+   * @param categoryKey  the category key
+   */
+  private void removeCategory(String categoryKey) {
+    for (int slot = 0; slot < values.length(); slot++) {
+      if (schema.getCategoryKey(slot).equals(categoryKey)) {
+        values.set(slot, null);
+      }
+    }
+
+    Map<String, Map<String, Object>> extraProperties = extraPropertiesMap;
+    if (extraProperties != null) {
+      synchronized (extraProperties) {
+        extraProperties.remove(categoryKey);
+      }
+    }
+  }
+
+  /**
+   * @return a copy of the properties which are not part of the schema
+   */
+  private Map<String, Map<String, Object>> getExtraProperties() {
+    Map<String, Map<String, Object>> extraProperties = extraPropertiesMap;
+    if (extraProperties == null) {
+      return Collections.emptyMap();
+    }
+    Map<String, Map<String, Object>> copy = new HashMap<>();
+    synchronized (extraProperties) {
+      for (Map.Entry<String, Map<String, Object>> categoryEntry : extraProperties.entrySet()) {
+        Map<String, Object> categoryProperties = categoryEntry.getValue();
+        synchronized (categoryProperties) {
+          copy.put(categoryEntry.getKey(), new HashMap<>(categoryProperties));
+        }
+      }
+    }
+    return copy;
+  }
+
+  private String getCategoryKey(String category) {
+    return category == null ? "" : category;
+  }
+
+
+  // ----- inner classes -----------------------------------------------------
+
+  /**
+   * Map of the properties keyed by category which reads from and writes through to the resource.
+   * Iteration works on a copy of the category keys taken when the iterator is created.
+   */
+  private class PropertiesMapView extends AbstractMap<String, Map<String, Object>> {
+
+    @Override
+    public Set<Entry<String, Map<String, Object>>> entrySet() {
+      return new AbstractSet<Entry<String, Map<String, Object>>>() {
+        @Override
+        public Iterator<Entry<String, Map<String, Object>>> iterator() {
+          Iterator<String> categoryKeys = copyPropertiesMap().keySet().iterator();
+
+          return new Iterator<Entry<String, Map<String, Object>>>() {
+            private String current;
+
+            @Override
+            public boolean hasNext() {
+              return categoryKeys.hasNext();
+            }
+
+            @Override
+            public Entry<String, Map<String, Object>> next() {
+              current = categoryKeys.next();
+              return new SimpleImmutableEntry<>(current, new CategoryView(current));
+            }
+
+            @Override
+            public void remove() {
+              if (current == null) {
+                throw new IllegalStateException();
+              }
+              removeCategory(current);
+              current = null;
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return copyPropertiesMap().size();
+        }
+      };
+    }
+
+    @Override
+    public Map<String, Object> get(Object key) {
+      return containsKey(key) ? new CategoryView((String) key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return key instanceof String && copyCategoryProperties((String) key) != null;
+    }
+
+    @Override
+    public Map<String, Object> put(String key, Map<String, Object> value) {
+      Map<String, Object> previous = copyCategoryProperties(key);
+      removeCategory(key);
+      addCategory(key);
+      for (Map.Entry<String, Object> entry : value.entrySet()) {
+        setProperty(PropertyHelper.getPropertyId(key, entry.getKey()), entry.getValue());
+      }
+      return previous;
+    }
+
+    @Override
+    public Map<String, Object> remove(Object key) {
+      if (!(key instanceof String)) {
+        return null;
+      }
+      Map<String, Object> previous = copyCategoryProperties((String) key);
+      removeCategory((String) key);
+      return previous;
+    }
+  }
+
+  /**
+   * Map of the properties of one category which reads from and writes through to the resource.
+   * Iteration works on a copy of the properties taken when the iterator is created.
+   */
+  private class CategoryView extends AbstractMap<String, Object> {
+
+    /**
+     * The category key.
+     */
+    private final String categoryKey;
+
+    private CategoryView(String categoryKey) {
+      this.categoryKey = categoryKey;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+      return new AbstractSet<Entry<String, Object>>() {
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+          Iterator<Entry<String, Object>> properties = getProperties().entrySet().iterator();
+
+          return new Iterator<Entry<String, Object>>() {
+            private Entry<String, Object> current;
+
+            @Override
+            public boolean hasNext() {
+              return properties.hasNext();
+            }
+
+            @Override
+            public Entry<String, Object> next() {
+              Entry<String, Object> entry = properties.next();
+              current = new SimpleEntry<String, Object>(entry) {
+                @Override
+                public Object setValue(Object value) {
+                  CategoryView.this.put(getKey(), value);
+                  return super.setValue(value);
+                }
+              };
+              return current;
+            }
+
+            @Override
+            public void remove() {
+              if (current == null) {
+                throw new IllegalStateException();
+              }
+              removeProperty(categoryKey, current.getKey());
+              current = null;
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return getProperties().size();
+        }
+      };
+    }
+
+    @Override
+    public Object get(Object key) {
+      return key instanceof String ? getProperties().get(key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return key instanceof String && getProperties().containsKey(key);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+      Object previous = get(key);
+      setProperty(PropertyHelper.getPropertyId(categoryKey, key), value);
+      return previous;
+    }
+
+    @Override
+    public Object remove(Object key) {
+      if (!(key instanceof String)) {
+        return null;
+      }
+      Object previous = get(key);
+      removeProperty(categoryKey, (String) key);
+      return previous;
+    }
+
+    private Map<String, Object> getProperties() {
+      Map<String, Object> properties = copyCategoryProperties(categoryKey);
+      return properties == null ? Collections.emptyMap() : properties;
+    }
+  }
+}
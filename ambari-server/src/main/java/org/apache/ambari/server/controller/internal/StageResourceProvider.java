@@ -45,6 +45,7 @@ import org.apache.ambari.server.controller.spi.ResourceAlreadyExistsException;
 import org.apache.ambari.server.controller.spi.SystemException;
 import org.apache.ambari.server.controller.spi.UnsupportedPropertyException;
 import org.apache.ambari.server.controller.utilities.PredicateHelper;
+import org.apache.ambari.server.events.listeners.tasks.TaskStatusListener;
 import org.apache.ambari.server.orm.dao.HostRoleCommandDAO;
 import org.apache.ambari.server.orm.dao.HostRoleCommandStatusSummaryDTO;
 import org.apache.ambari.server.orm.dao.StageDAO;
@@ -88,6 +89,12 @@ public class StageResourceProvider extends AbstractControllerResourceProvider im
   @Inject
   private static TopologyManager topologyManager;
 
+  /**
+   * Used for the statuses of the stages of running requests.
+   */
+  @Inject
+  private static Provider<TaskStatusListener> taskStatusListener;
+
   /**
    * Stage property constants.
    */
@@ -301,12 +308,6 @@ public class StageResourceProvider extends AbstractControllerResourceProvider im
       }
     }
 
-    if (!cache.containsKey(entity.getRequestId())) {
-      cache.put(entity.getRequestId(), hostRoleCommandDAO.findAggregateCounts(entity.getRequestId()));
-    }
-
-    Map<Long, HostRoleCommandStatusSummaryDTO> summary = cache.get(entity.getRequestId());
-
     setResourceProperty(resource, STAGE_STAGE_ID, entity.getStageId(), requestedIds);
     setResourceProperty(resource, STAGE_REQUEST_ID, entity.getRequestId(), requestedIds);
     setResourceProperty(resource, STAGE_CONTEXT, entity.getRequestContext(), requestedIds);
@@ -330,22 +331,39 @@ public class StageResourceProvider extends AbstractControllerResourceProvider im
 
     setResourceProperty(resource, STAGE_SKIPPABLE, entity.isSkippable(), requestedIds);
 
-    Long startTime = Long.MAX_VALUE;
-    Long endTime = 0L;
-    if (summary.containsKey(entity.getStageId())) {
-      startTime = summary.get(entity.getStageId()).getStartTime();
-      endTime = summary.get(entity.getStageId()).getEndTime();
-    }
+    // the status of a stage of a running request is kept up to date from its task updates
+    CalculatedStatus status = null == taskStatusListener ? null :
+        taskStatusListener.get().getActiveStageStatus(entity.getRequestId(), entity.getStageId());
+
+    // the times of the stages are only known from the summaries, which are
+    // also needed for the status of requests which are not running; they are
+    // kept in memory by the DAO for the requests read recently
+    Map<Long, HostRoleCommandStatusSummaryDTO> summary = null;
+    if (null == status || isPropertyRequested(STAGE_START_TIME, requestedIds)
+        || isPropertyRequested(STAGE_END_TIME, requestedIds)) {
+      if (!cache.containsKey(entity.getRequestId())) {
+        cache.put(entity.getRequestId(), hostRoleCommandDAO.findAggregateCounts(entity.getRequestId()));
+      }
+      summary = cache.get(entity.getRequestId());
 
-    setResourceProperty(resource, STAGE_START_TIME, startTime, requestedIds);
-    setResourceProperty(resource, STAGE_END_TIME, endTime, requestedIds);
+      Long startTime = Long.MAX_VALUE;
+      Long endTime = 0L;
+      if (summary.containsKey(entity.getStageId())) {
+        startTime = summary.get(entity.getStageId()).getStartTime();
+        endTime = summary.get(entity.getStageId()).getEndTime();
+      }
 
-    CalculatedStatus status;
-    if (summary.isEmpty()) {
-      // Delete host might have cleared all HostRoleCommands
-      status = CalculatedStatus.COMPLETED;
-    } else {
-      status = CalculatedStatus.statusFromStageSummary(summary, Collections.singleton(entity.getStageId()));
+      setResourceProperty(resource, STAGE_START_TIME, startTime, requestedIds);
+      setResourceProperty(resource, STAGE_END_TIME, endTime, requestedIds);
+    }
+
+    if (null == status) {
+      if (summary.isEmpty()) {
+        // Delete host might have cleared all HostRoleCommands
+        status = CalculatedStatus.COMPLETED;
+      } else {
+        status = CalculatedStatus.statusFromStageSummary(summary, Collections.singleton(entity.getStageId()));
+      }
     }
 
     setResourceProperty(resource, STAGE_PROGRESS_PERCENT, status.getPercent(), requestedIds);
@@ -66,6 +66,7 @@ import org.apache.ambari.server.controller.spi.SystemException;
 import org.apache.ambari.server.controller.spi.UnsupportedPropertyException;
 import org.apache.ambari.server.events.UpdateEventType;
 import org.apache.ambari.server.events.UpgradeUpdateEvent;
+import org.apache.ambari.server.events.listeners.tasks.TaskStatusListener;
 import org.apache.ambari.server.events.publishers.STOMPUpdatePublisher;
 import org.apache.ambari.server.orm.dao.HostRoleCommandDAO;
 import org.apache.ambari.server.orm.dao.HostRoleCommandStatusSummaryDTO;
@@ -246,6 +247,9 @@ public class UpgradeResourceProvider extends AbstractControllerResourceProvider
   @Inject
   private static HostRoleCommandDAO s_hostRoleCommandDAO = null;
 
+  @Inject
+  private static Provider<TaskStatusListener> s_taskStatusListener;
+
   /**
    * Used to generated the correct tasks and stages during an upgrade.
    */
@@ -435,12 +439,20 @@ public class UpgradeResourceProvider extends AbstractControllerResourceProvider
         setResourceProperty(r, REQUEST_END_TIME_ID, rentity.getEndTime(), requestPropertyIds);
         setResourceProperty(r, REQUEST_EXCLUSIVE_ID, rentity.isExclusive(), requestPropertyIds);
 
-        Map<Long, HostRoleCommandStatusSummaryDTO> summary = s_hostRoleCommandDAO.findAggregateCounts(
-            entity.getRequestId());
+        // the status of a running upgrade is kept up to date from its task updates
+        CalculatedStatus calc = null == s_taskStatusListener ? null :
+            s_taskStatusListener.get().getActiveRequestStatus(entity.getRequestId());
 
-        CalculatedStatus calc = CalculatedStatus.statusFromStageSummary(summary, summary.keySet());
+        Map<Long, HostRoleCommandStatusSummaryDTO> summary = null;
+        if (null == calc) {
+          summary = s_hostRoleCommandDAO.findAggregateCounts(entity.getRequestId());
+          calc = CalculatedStatus.statusFromStageSummary(summary, summary.keySet());
+        }
 
         if (calc.getStatus() == HostRoleStatus.ABORTED && entity.isSuspended()) {
+          if (null == summary) {
+            summary = s_hostRoleCommandDAO.findAggregateCounts(entity.getRequestId());
+          }
           double percent = calculateAbortedProgress(summary);
           setResourceProperty(r, REQUEST_PROGRESS_PERCENT_ID, percent*100, requestPropertyIds);
         } else {
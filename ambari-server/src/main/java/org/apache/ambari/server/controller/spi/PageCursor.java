@@ -0,0 +1,356 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.controller.spi;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+/**
+ * Position in a sorted set of resources used for keyset pagination. A cursor
+ * holds the values of the sort properties of a request, followed by the key
+ * properties of the resource type, taken from the last resource of a page. The
+ * next page starts with the first resource which sorts after those values, so
+ * that it can be found without counting the resources in front of it.
+ * <p/>
+ * Cursors are handed to clients as opaque tokens; see {@link #encode()} and
+ * {@link #decode(String)}.
+ */
+public final class PageCursor {
+
+  /**
+   * Value types in the encoded cursor.
+   */
+  private static final String TYPE_NULL = "n";
+  private static final String TYPE_STRING = "s";
+  private static final String TYPE_LONG = "l";
+  private static final String TYPE_DOUBLE = "d";
+  private static final String TYPE_BOOLEAN = "b";
+  private static final String TYPE_ENUM = "e";
+
+  /**
+   * The properties, in sort order.
+   */
+  private final List<SortRequestProperty> properties;
+
+  /**
+   * The values of the properties. Integral numbers are held as {@link Long},
+   * floating point numbers as {@link Double} and enums as their
+   * {@link Integer} ordinal.
+   */
+  private final List<Object> values;
+
+  /**
+   * The value types, one of the {@code TYPE_*} constants for each value.
+   */
+  private final List<String> types;
+
+  // ----- Constructors ------------------------------------------------------
+
+  private PageCursor(List<SortRequestProperty> properties, List<Object> values, List<String> types) {
+    this.properties = Collections.unmodifiableList(properties);
+    this.values = Collections.unmodifiableList(values);
+    this.types = types;
+  }
+
+  /**
+   * Create a cursor positioned at the given resource.
+   *
+   * @param resource    the last resource of a page
+   * @param properties  the cursor properties; see {@link #getCursorProperties}
+   *
+   * @return the cursor
+   */
+  public static PageCursor fromResource(Resource resource, List<SortRequestProperty> properties) {
+    List<Object> values = new ArrayList<>(properties.size());
+    List<String> types = new ArrayList<>(properties.size());
+
+    for (SortRequestProperty property : properties) {
+      Object value = resource.getPropertyValue(property.getPropertyId());
+
+      if (value == null) {
+        types.add(TYPE_NULL);
+        values.add(null);
+      } else if (value instanceof Enum) {
+        types.add(TYPE_ENUM);
+        values.add(((Enum<?>) value).ordinal());
+      } else if (value instanceof Double || value instanceof Float) {
+        types.add(TYPE_DOUBLE);
+        values.add(((Number) value).doubleValue());
+      } else if (value instanceof Number) {
+        types.add(TYPE_LONG);
+        values.add(((Number) value).longValue());
+      } else if (value instanceof Boolean) {
+        types.add(TYPE_BOOLEAN);
+        values.add(value);
+      } else {
+        types.add(TYPE_STRING);
+        values.add(value.toString());
+      }
+    }
+    return new PageCursor(new ArrayList<>(properties), values, types);
+  }
+
+  /**
+   * Decode a cursor from a token created by {@link #encode()}.
+   *
+   * @param token  the token
+   *
+   * @return the cursor
+   *
+   * @throws IllegalArgumentException if the token is not a valid cursor
+   */
+  public static PageCursor decode(String token) {
+    try {
+      String json = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+      JsonArray array = new JsonParser().parse(json).getAsJsonArray();
+
+      List<SortRequestProperty> properties = new ArrayList<>(array.size());
+      List<Object> values = new ArrayList<>(array.size());
+      List<String> types = new ArrayList<>(array.size());
+
+      for (JsonElement element : array) {
+        JsonObject object = element.getAsJsonObject();
+        String type = object.get("t").getAsString();
+
+        properties.add(new SortRequestProperty(object.get("p").getAsString(),
+            SortRequest.Order.valueOf(object.get("o").getAsString())));
+        types.add(type);
+
+        switch (type) {
+          case TYPE_NULL:
+            values.add(null);
+            break;
+          case TYPE_STRING:
+            values.add(object.get("v").getAsString());
+            break;
+          case TYPE_LONG:
+            values.add(object.get("v").getAsLong());
+            break;
+          case TYPE_DOUBLE:
+            values.add(object.get("v").getAsDouble());
+            break;
+          case TYPE_BOOLEAN:
+            values.add(object.get("v").getAsBoolean());
+            break;
+          case TYPE_ENUM:
+            values.add(object.get("v").getAsInt());
+            break;
+          default:
+            throw new IllegalArgumentException("Unknown value type " + type);
+        }
+      }
+      return new PageCursor(properties, values, types);
+    } catch (JsonParseException | IllegalStateException | NullPointerException |
+        UnsupportedOperationException | NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid page cursor " + token, e);
+    }
+  }
+
+  /**
+   * Get the properties which make up the cursor of a request: the requested
+   * sort properties followed by the key property of the resource type and the
+   * remaining key properties in ascending order. The resulting order is total
+   * for the resources of the type.
+   *
+   * @param type         the resource type
+   * @param schema       the schema of the resource type
+   * @param sortRequest  the sort request; may be {@code null}
+   *
+   * @return the cursor properties
+   */
+  public static List<SortRequestProperty> getCursorProperties(Resource.Type type, Schema schema,
+                                                              SortRequest sortRequest) {
+    List<SortRequestProperty> properties = new ArrayList<>();
+    Set<String> propertyIds = new HashSet<>();
+
+    if (sortRequest != null) {
+      for (SortRequestProperty property : sortRequest.getProperties()) {
+        if (propertyIds.add(property.getPropertyId())) {
+          properties.add(property);
+        }
+      }
+    }
+
+    String keyPropertyId = schema.getKeyPropertyId(type);
+    if (keyPropertyId != null && propertyIds.add(keyPropertyId)) {
+      properties.add(new SortRequestProperty(keyPropertyId, SortRequest.Order.ASC));
+    }
+
+    // sorted so that the order does not depend on the hashing of the key types
+    Set<String> keyPropertyIds = new TreeSet<>();
+    for (Resource.Type keyType : schema.getKeyTypes()) {
+      String propertyId = schema.getKeyPropertyId(keyType);
+      if (propertyId != null && !propertyIds.contains(propertyId)) {
+        keyPropertyIds.add(propertyId);
+      }
+    }
+    for (String propertyId : keyPropertyIds) {
+      properties.add(new SortRequestProperty(propertyId, SortRequest.Order.ASC));
+    }
+    return properties;
+  }
+
+  // ----- PageCursor --------------------------------------------------------
+
+  /**
+   * Get the cursor properties.
+   *
+   * @return the properties, in sort order
+   */
+  public List<SortRequestProperty> getProperties() {
+    return properties;
+  }
+
+  /**
+   * Get the values of the cursor properties. Integral numbers are returned as
+   * {@link Long}, floating point numbers as {@link Double} and enums as their
+   * {@link Integer} ordinal.
+   *
+   * @return the values, in the order of {@link #getProperties()}
+   */
+  public List<Object> getValues() {
+    return values;
+  }
+
+  /**
+   * Determine whether the given value of the cursor is an enum ordinal.
+   *
+   * @param index  the index of the value
+   *
+   * @return true if the value is the ordinal of an enum
+   */
+  public boolean isEnumValue(int index) {
+    return TYPE_ENUM.equals(types.get(index));
+  }
+
+  /**
+   * Make sure that the cursor was created for the given properties.
+   *
+   * @param expectedProperties  the cursor properties of the current request
+   *
+   * @throws IllegalArgumentException if the cursor belongs to a different sort order
+   */
+  public void validate(List<SortRequestProperty> expectedProperties) {
+    boolean valid = expectedProperties.size() == properties.size();
+    for (int i = 0; valid && i < properties.size(); i++) {
+      valid = properties.get(i).getPropertyId().equals(expectedProperties.get(i).getPropertyId()) &&
+          properties.get(i).getOrder() == expectedProperties.get(i).getOrder();
+    }
+    if (!valid) {
+      throw new IllegalArgumentException("The page cursor does not match the sort order of the request");
+    }
+  }
+
+  /**
+   * Determine whether the given resource sorts after the position of this cursor.
+   *
+   * @param resource  the resource
+   *
+   * @return true if the resource belongs to a page following the cursor
+   */
+  public boolean precedes(Resource resource) {
+    for (int i = 0; i < properties.size(); i++) {
+      SortRequestProperty property = properties.get(i);
+      int compVal = compareValues(resource.getPropertyValue(property.getPropertyId()), i);
+
+      if (compVal != 0) {
+        return property.getOrder() == SortRequest.Order.ASC ? compVal > 0 : compVal < 0;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Encode the cursor as an opaque, URL safe token.
+   *
+   * @return the token
+   */
+  public String encode() {
+    JsonArray array = new JsonArray();
+    for (int i = 0; i < properties.size(); i++) {
+      JsonObject object = new JsonObject();
+      object.addProperty("p", properties.get(i).getPropertyId());
+      object.addProperty("o", properties.get(i).getOrder().name());
+      object.addProperty("t", types.get(i));
+
+      Object value = values.get(i);
+      if (value instanceof Number) {
+        object.addProperty("v", (Number) value);
+      } else if (value instanceof Boolean) {
+        object.addProperty("v", (Boolean) value);
+      } else if (value != null) {
+        object.addProperty("v", value.toString());
+      }
+      array.add(object);
+    }
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(
+        array.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  // ----- helper methods ----------------------------------------------------
+
+  /**
+   * Compare a resource value with a value of the cursor the same way that
+   * resources are compared for sorting; {@code null} sorts first.
+   */
+  private int compareValues(Object resourceValue, int index) {
+    Object cursorValue = values.get(index);
+
+    if (resourceValue == null || cursorValue == null) {
+      return resourceValue == null && cursorValue == null ? 0 : resourceValue == null ? -1 : 1;
+    }
+
+    switch (types.get(index)) {
+      case TYPE_ENUM:
+        return resourceValue instanceof Enum ?
+            Integer.compare(((Enum<?>) resourceValue).ordinal(), (Integer) cursorValue) : 0;
+      case TYPE_LONG:
+        return resourceValue instanceof Number ?
+            Long.compare(((Number) resourceValue).longValue(), (Long) cursorValue) : 0;
+      case TYPE_DOUBLE:
+        return resourceValue instanceof Number ?
+            Double.compare(((Number) resourceValue).doubleValue(), (Double) cursorValue) : 0;
+      case TYPE_BOOLEAN:
+        return resourceValue instanceof Boolean ?
+            ((Boolean) resourceValue).compareTo((Boolean) cursorValue) : 0;
+      default:
+        return resourceValue.toString().compareTo((String) cursorValue);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "PageCursor{" +
+      "properties=" + properties +
+      ", values=" + values +
+      '}';
+  }
+}
@@ -53,6 +53,13 @@ public interface PageRequest {
    */
   Predicate getPredicate();
 
+  /**
+   * Return the cursor that identifies the position after which the page starts.
+   *
+   * @return the associated cursor; {@code null} to start from the beginning of the resource set
+   */
+  PageCursor getCursor();
+
   /**
    * The desired starting point of the page being requested.
    */
@@ -62,6 +69,7 @@ public interface PageRequest {
     OffsetStart,    // start the page from the associated offset point
     OffsetEnd,      // end the page at the associated offset point
     PredicateStart, // start the page from the resource identified by the associated predicate
-    PredicateEnd    // end the page at the resource identified by the associated predicate
+    PredicateEnd,   // end the page at the resource identified by the associated predicate
+    CursorStart     // start the page after the position identified by the associated cursor
     }
 }
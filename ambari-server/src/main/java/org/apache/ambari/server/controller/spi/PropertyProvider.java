@@ -17,6 +17,7 @@
  */
 package org.apache.ambari.server.controller.spi;
 
+import java.util.Collections;
 import java.util.Set;
 
 /**
@@ -52,4 +53,16 @@ public interface PropertyProvider {
    *         that all of the given property ids are supported.
    */
   Set<String> checkPropertyIds(Set<String> propertyIds);
+
+  /**
+   * Get the property ids which this provider reads from the resources it populates.
+   * Property providers of the same resource type which supply any of these properties
+   * are run to completion before this provider is run.
+   *
+   * @return the set of property ids required by this provider; empty if the provider
+   *         only relies on properties supplied by the resource provider
+   */
+  default Set<String> getRequiredPropertyIds() {
+    return Collections.emptySet();
+  }
 }
@@ -18,14 +18,19 @@
 
 package org.apache.ambari.server.controller.utilities;
 
+import org.apache.ambari.server.StaticallyInject;
 import org.apache.ambari.server.controller.internal.ClusterControllerImpl;
 import org.apache.ambari.server.controller.spi.ClusterController;
 import org.apache.ambari.server.controller.spi.ProviderModule;
 import org.apache.ambari.server.view.ViewProviderModule;
 
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+
 /**
  * Temporary class to bootstrap a cluster controller.  TODO : Replace this global state with injection.
  */
+@StaticallyInject
 public class ClusterControllerHelper {
 
   private static String PROVIDER_MODULE_CLASS = System.getProperty("provider.module.class",
@@ -33,12 +38,22 @@ public class ClusterControllerHelper {
 
   private static ClusterController controller;
 
+  /**
+   * Used to inject the cluster controller; {@code null} if the server has not been set up.
+   */
+  @Inject
+  private static Injector injector;
+
   public static synchronized ClusterController getClusterController() {
     if (controller == null) {
       try {
         Class<?> implClass = Class.forName(PROVIDER_MODULE_CLASS);
         ProviderModule providerModule = ViewProviderModule.getViewProviderModule((ProviderModule) implClass.newInstance());
-        controller = new ClusterControllerImpl(providerModule);
+        ClusterControllerImpl controllerImpl = new ClusterControllerImpl(providerModule);
+        if (injector != null) {
+          injector.injectMembers(controllerImpl);
+        }
+        controller = controllerImpl;
 
       } catch (Exception e) {
         throw new IllegalStateException("Can't create provider module " + PROVIDER_MODULE_CLASS, e);
@@ -31,6 +31,12 @@ public abstract class AlertEvent {
   protected Alert m_alert;
   protected List<Alert> m_alerts;
 
+  /**
+   * The time at which the event was published, or {@code 0} if it was not
+   * published yet.
+   */
+  private volatile long m_publishTime;
+
   /**
    * Constructor.
    *
@@ -64,6 +70,27 @@ public abstract class AlertEvent {
     return m_alert;
   }
 
+  /**
+   * Gets the time at which the event was published. Events are published
+   * after the changes they describe are committed.
+   *
+   * @return the publish time in milliseconds, or {@code 0} if the event was
+   *         not published yet.
+   */
+  public long getPublishTime() {
+    return m_publishTime;
+  }
+
+  /**
+   * Sets the time at which the event was published.
+   *
+   * @param publishTime
+   *          the publish time in milliseconds.
+   */
+  public void setPublishTime(long publishTime) {
+    m_publishTime = publishTime;
+  }
+
   /**
    * Gets list of alerts this event was created for
    * @return
@@ -86,6 +86,12 @@ public class DefaultMessageEmitter extends MessageEmitter {
     super(agentSessionManager, simpMessagingTemplate, ambariEventPublisher, retryCount, retryInterval);
   }
 
+  public DefaultMessageEmitter(AgentSessionManager agentSessionManager, SimpMessagingTemplate simpMessagingTemplate,
+                               AmbariEventPublisher ambariEventPublisher, int retryCount, int retryInterval,
+                               int windowSize) {
+    super(agentSessionManager, simpMessagingTemplate, ambariEventPublisher, retryCount, retryInterval, windowSize);
+  }
+
   @Override
   public void emitMessage(STOMPEvent event) throws AmbariException {
     if (StringUtils.isEmpty(getDestination(event))) {
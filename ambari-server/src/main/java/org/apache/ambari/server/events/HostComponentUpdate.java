@@ -72,6 +72,21 @@ public class HostComponentUpdate {
     return hostComponentUpdate;
   }
 
+  /**
+   * Creates update which is equivalent to applying this update and then the newer one. The state
+   * transition starts from the previous state of this update, other fields are taken from the
+   * newer update if it has them set.
+   * @param newer update of the same host component received after this one
+   * @return merged update
+   */
+  public HostComponentUpdate mergeWith(HostComponentUpdate newer) {
+    return new HostComponentUpdate(clusterId, serviceName, hostName, componentName,
+        newer.currentState != null ? newer.currentState : currentState,
+        previousState != null ? previousState : newer.previousState,
+        newer.maintenanceState != null ? newer.maintenanceState : maintenanceState,
+        newer.staleConfigs != null ? newer.staleConfigs : staleConfigs);
+  }
+
   public Long getClusterId() {
     return clusterId;
   }
@@ -17,16 +17,23 @@
  */
 package org.apache.ambari.server.events;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.TreeMap;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -35,7 +42,7 @@ import org.apache.ambari.server.HostNotRegisteredException;
 import org.apache.ambari.server.agent.AgentSessionManager;
 import org.apache.ambari.server.agent.stomp.dto.AckReport;
 import org.apache.ambari.server.events.publishers.AmbariEventPublisher;
-import org.apache.ambari.server.utils.ScheduledExecutorCompletionService;
+import org.apache.ambari.server.metrics.system.impl.ServerInternalsMetricsSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.messaging.MessageHeaders;
@@ -43,6 +50,11 @@ import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.eventbus.Subscribe;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
@@ -52,29 +64,61 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
 public abstract class MessageEmitter {
   protected static final AtomicLong MESSAGE_ID = new AtomicLong(0);
   private final static Logger LOG = LoggerFactory.getLogger(MessageEmitter.class);
+  private static final String METRIC_PREFIX = "agent.execution.commands";
   public final int retryCount;
   public final int retryInterval;
+  public final int windowSize;
   protected final AgentSessionManager agentSessionManager;
   protected final SimpMessagingTemplate simpMessagingTemplate;
-  protected final ScheduledExecutorService emitExecutor = Executors.newScheduledThreadPool(10,
+  protected final ExecutorService emitExecutor = Executors.newFixedThreadPool(10,
       new ThreadFactoryBuilder().setNameFormat("agent-message-emitter-%d").build());
   protected final ExecutorService monitorExecutor = Executors.newSingleThreadExecutor(
       new ThreadFactoryBuilder().setNameFormat("agent-message-monitor-%d").build());
   protected final ExecutorService retryExecutor = Executors.newSingleThreadExecutor(
       new ThreadFactoryBuilder().setNameFormat("agent-message-retry-%d").build());
-  protected final ScheduledExecutorCompletionService<EmitTaskWrapper> emitCompletionService =
-      new ScheduledExecutorCompletionService(emitExecutor, new LinkedBlockingQueue<>());
-  protected ConcurrentHashMap<Long, EmitTaskWrapper> unconfirmedMessages = new ConcurrentHashMap<>();
-  protected ConcurrentHashMap<Long, BlockingQueue<EmitTaskWrapper>> messagesToEmit = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<Long, HostMessages> messagesToEmit = new ConcurrentHashMap<>();
+
+  /**
+   * Hosts which may have messages to move into their window, consumed by {@link MessagesToEmitMonitor}.
+   */
+  private final BlockingQueue<HostMessages> hostsToEmit = new LinkedBlockingQueue<>();
+
+  /**
+   * Emitted messages ordered by the time they should be checked for ACK, consumed by {@link MessagesToRetryMonitor}.
+   */
+  private final DelayQueue<EmitTaskWrapper> messagesToRetry = new DelayQueue<>();
   private AmbariEventPublisher ambariEventPublisher;
 
+  private final Timer ackLatency;
+  private final Histogram inFlightDepth;
+  private final Counter retries;
+  private final Counter notDelivered;
+
   public MessageEmitter(AgentSessionManager agentSessionManager, SimpMessagingTemplate simpMessagingTemplate,
                         AmbariEventPublisher ambariEventPublisher, int retryCount, int retryInterval) {
+    this(agentSessionManager, simpMessagingTemplate, ambariEventPublisher, retryCount, retryInterval, 1);
+  }
+
+  public MessageEmitter(AgentSessionManager agentSessionManager, SimpMessagingTemplate simpMessagingTemplate,
+                        AmbariEventPublisher ambariEventPublisher, int retryCount, int retryInterval,
+                        int windowSize) {
     this.agentSessionManager = agentSessionManager;
     this.simpMessagingTemplate = simpMessagingTemplate;
     this.ambariEventPublisher = ambariEventPublisher;
     this.retryCount = retryCount;
     this.retryInterval = retryInterval;
+    this.windowSize = Math.max(1, windowSize);
+
+    MetricRegistry registry = ServerInternalsMetricsSource.getRegistry();
+    ackLatency = registry.timer(METRIC_PREFIX + ".ack.latency");
+    inFlightDepth = registry.histogram(METRIC_PREFIX + ".inflight.depth");
+    retries = registry.counter(METRIC_PREFIX + ".retries");
+    notDelivered = registry.counter(METRIC_PREFIX + ".not.delivered");
+    ServerInternalsMetricsSource.registerGauge(METRIC_PREFIX + ".inflight",
+        (Gauge<Integer>) () -> messagesToEmit.values().stream().mapToInt(HostMessages::getUnconfirmedCount).sum());
+    ServerInternalsMetricsSource.registerGauge(METRIC_PREFIX + ".inflight.max",
+        (Gauge<Integer>) () -> messagesToEmit.values().stream().mapToInt(HostMessages::getUnconfirmedCount).max().orElse(0));
+
     ambariEventPublisher.register(this);
     monitorExecutor.execute(new MessagesToEmitMonitor());
     retryExecutor.execute(new MessagesToRetryMonitor());
@@ -93,28 +137,30 @@ public abstract class MessageEmitter {
     EmitTaskWrapper wrapper = new EmitTaskWrapper(0, MESSAGE_ID.getAndIncrement(), event);
 
     Long hostId = event.getHostId();
-    messagesToEmit.compute(hostId, (id, hostMessages) -> {
-      if (hostMessages == null) {
-        LOG.error("Trying to emit message to unregistered host with id {}", hostId);
-        return null;
-      } else {
-        hostMessages.add(wrapper);
-        return hostMessages;
-      }
-    });
+    HostMessages hostMessages = messagesToEmit.get(hostId);
+    if (hostMessages == null || !hostMessages.add(wrapper)) {
+      LOG.error("Trying to emit message to unregistered host with id {}", hostId);
+      return;
+    }
+    hostMessages.signal();
   }
 
+  /**
+   * Confirms execution command delivery. OK report confirms the acknowledged message only, messages rejected
+   * by the agent stay unconfirmed and are emitted again until they are confirmed or run out of retries.
+   *
+   * @param hostId host the report was received from.
+   * @param ackReport agent report.
+   */
   public void processReceiveReport(Long hostId, AckReport ackReport) {
     Long messageId = ackReport.getMessageId();
     if (AckReport.AckStatus.OK.equals(ackReport.getStatus())) {
-      unconfirmedMessages.compute(hostId, (id, commandInUse) -> {
-        if (commandInUse != null && commandInUse.getMessageId().equals(ackReport.getMessageId())) {
-          return null;
-        } else {
-          LOG.warn("OK agent report was received again for already complete command with message id {}", messageId);
-        }
-        return commandInUse;
-      });
+      HostMessages hostMessages = messagesToEmit.get(hostId);
+      if (hostMessages == null || !hostMessages.confirm(messageId)) {
+        LOG.warn("OK agent report was received again for already complete command with message id {}", messageId);
+      } else {
+        hostMessages.signal();
+      }
     } else {
       LOG.error("Received {} agent report for execution command with messageId {} with following reason: {}",
           ackReport.getStatus(), messageId, ackReport.getReason());
@@ -192,52 +238,34 @@ public abstract class MessageEmitter {
   @Subscribe
   public void onHostRegister(HostRegisteredEvent hostRegisteredEvent) {
     Long hostId = hostRegisteredEvent.getHostId();
-    messagesToEmit.computeIfAbsent(hostId, id -> new LinkedBlockingQueue<>());
+    messagesToEmit.computeIfAbsent(hostId, HostMessages::new);
   }
 
   /**
-   * Is used for first emit of arrived messages. There is a single command in process per host at each time.
-   * Host will be released on agent ACK response receiving or {@link MessageNotDelivered} event firing.
-   * In case no new operations were emitted thread will sleep for a small time.
+   * Is used for first emit of arrived messages. Up to {@link MessageEmitter#windowSize} commands are in process per
+   * host at each time. Window is released on agent ACK response receiving or {@link MessageNotDelivered} event
+   * firing. Hosts are signalled on new messages and ACKs, so the monitor waits while there is nothing to emit.
    */
   private class MessagesToEmitMonitor implements Runnable {
 
-    /**
-     * Is used to check any message was emitted over available hosts.
-     */
-    private boolean anyActionPerformed;
-
     @Override
     public void run() {
       while (true) {
-        anyActionPerformed = false;
-        for (Long hostId : messagesToEmit.keySet()) {
-          unconfirmedMessages.computeIfAbsent(hostId, id -> {
-            EmitTaskWrapper event = messagesToEmit.get(hostId).poll();
-            if (event != null) {
-              LOG.info("Schedule execution command emitting, retry: {}, messageId: {}",
-                  event.getRetryCounter(), event.getMessageId());
-              emitCompletionService.submit(new EmitMessageTask(event, false));
-              anyActionPerformed = true;
-            }
-            return event;
-          });
-        }
-        if (!anyActionPerformed) {
-          try {
-            Thread.sleep(200);
-          } catch (InterruptedException e) {
-            LOG.error("Exception during sleep", e);
-          }
+        try {
+          hostsToEmit.take().fillWindow();
+        } catch (InterruptedException e) {
+          LOG.error("Message emitting monitor was interrupted", e);
+        } catch (RuntimeException e) {
+          LOG.error("Exception during message emitting", e);
         }
       }
     }
   }
 
   /**
-   * After first emit completion message will be scheduled to re-emit with delay.
-   * Re-emit task also should check was message already delivered.
-   * After {@link MessageEmitter#retryCount} retries limit exceeded {@link MessageNotDelivered} event will be fired.
+   * After each emit message is checked for ACK with delay. Unconfirmed message is re-emitted through the host's
+   * ordered emit queue. After {@link MessageEmitter#retryCount} retries limit exceeded {@link MessageNotDelivered}
+   * event will be fired.
    */
   private class MessagesToRetryMonitor implements Runnable {
 
@@ -245,32 +273,29 @@ public abstract class MessageEmitter {
     public void run() {
       while (true) {
         try {
-          Future<EmitTaskWrapper> future = emitCompletionService.take();
-          EmitTaskWrapper result = future.get();
-          Long hostId = result.getExecutionCommandEvent().getHostId();
-          unconfirmedMessages.compute(hostId, (id, commandInUse) -> {
-            if (commandInUse != null && commandInUse.getMessageId().equals(result.getMessageId())) {
-              if (result.getRetryCounter() < retryCount) {
-                result.retry();
-                LOG.warn("Reschedule execution command emitting, retry: {}, messageId: {}",
-                    result.getRetryCounter(), result.getMessageId());
-                emitCompletionService.schedule(new EmitMessageTask(result, true), retryInterval, TimeUnit.SECONDS);
-              } else {
-                ExecutionCommandEvent event = result.getExecutionCommandEvent();
-                // remove commands queue for host
-                messagesToEmit.remove(event.getHostId());
-
-                // generate delivery failed event and cancel emitter
-                ambariEventPublisher.publish(new MessageNotDelivered(event.getHostId()));
-
-                return null;
-              }
-            }
-            return commandInUse;
-          });
+          EmitTaskWrapper wrapper = messagesToRetry.take();
+          Long hostId = wrapper.getExecutionCommandEvent().getHostId();
+          HostMessages hostMessages = messagesToEmit.get(hostId);
+          if (hostMessages == null || !hostMessages.isUnconfirmed(wrapper)) {
+            continue;
+          }
+          if (wrapper.getRetryCounter() < retryCount) {
+            wrapper.retry();
+            retries.inc();
+            LOG.warn("Reschedule execution command emitting, retry: {}, messageId: {}",
+                wrapper.getRetryCounter(), wrapper.getMessageId());
+            hostMessages.emit(Collections.singletonList(wrapper));
+          } else if (messagesToEmit.remove(hostId, hostMessages)) {
+            // remove commands queue for host
+            hostMessages.release();
+            notDelivered.inc();
+
+            // generate delivery failed event and cancel emitter
+            ambariEventPublisher.publish(new MessageNotDelivered(hostId));
+          }
         } catch (InterruptedException e) {
           LOG.error("Retry message emitting monitor was interrupted", e);
-        } catch (ExecutionException e) {
+        } catch (RuntimeException e) {
           LOG.error("Exception during message emitting retry", e);
         }
       }
@@ -278,51 +303,165 @@ public abstract class MessageEmitter {
   }
 
   /**
-   * Task to emit command.
+   * Execution commands of a single host. Messages move from {@link #pending} into the window of
+   * {@link #unconfirmed} ones and are emitted by a single {@link EmitMessagesTask} at a time, so agent receives
+   * them in the order of emitting while different hosts are served concurrently.
    */
-  private class EmitMessageTask implements Callable<EmitTaskWrapper> {
+  private class HostMessages {
+    private final Long hostId;
+
+    /**
+     * Messages waiting for a free place in the window.
+     */
+    private final Queue<EmitTaskWrapper> pending = new ArrayDeque<>();
 
     /**
-     * Wrapped command to emit.
+     * Emitted messages waiting for ACK, by message id.
      */
-    private final EmitTaskWrapper emitTaskWrapper;
+    private final NavigableMap<Long, EmitTaskWrapper> unconfirmed = new TreeMap<>();
 
     /**
-     * Should {@link #call()} check for command was successfully emitted and ACK already received.
+     * Messages to be emitted (or re-emitted) by {@link EmitMessagesTask}.
      */
-    private final boolean checkRelevance;
+    private final Queue<EmitTaskWrapper> toEmit = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean emitting = new AtomicBoolean();
+    private final AtomicBoolean signalled = new AtomicBoolean();
+    private boolean released;
 
-    public EmitMessageTask(EmitTaskWrapper emitTaskWrapper, boolean checkRelevance) {
-      this.emitTaskWrapper = emitTaskWrapper;
-      this.checkRelevance = checkRelevance;
+    public HostMessages(Long hostId) {
+      this.hostId = hostId;
     }
 
-    @Override
-    public EmitTaskWrapper call() throws Exception {
-      try {
-        if (checkRelevance) {
-          Long hostId = emitTaskWrapper.getExecutionCommandEvent().getHostId();
-          EmitTaskWrapper commandInUse = unconfirmedMessages.get(hostId);
+    public synchronized boolean add(EmitTaskWrapper wrapper) {
+      if (released) {
+        return false;
+      }
+      pending.add(wrapper);
+      return true;
+    }
 
-          // check ack was already received
-          if (commandInUse != null && commandInUse.getMessageId().equals(emitTaskWrapper.getMessageId())) {
-            emitExecutionCommandToHost(emitTaskWrapper);
-          }
-        } else {
-          emitExecutionCommandToHost(emitTaskWrapper);
+    /**
+     * Queues host for {@link MessagesToEmitMonitor} unless it is queued already.
+     */
+    public void signal() {
+      if (signalled.compareAndSet(false, true)) {
+        hostsToEmit.add(this);
+      }
+    }
+
+    /**
+     * Moves pending messages into the window while it has free places and emits them.
+     */
+    public void fillWindow() {
+      signalled.set(false);
+      List<EmitTaskWrapper> wrappers = new ArrayList<>();
+      synchronized (this) {
+        while (!released && unconfirmed.size() < windowSize && !pending.isEmpty()) {
+          EmitTaskWrapper wrapper = pending.poll();
+          unconfirmed.put(wrapper.getMessageId(), wrapper);
+          wrappers.add(wrapper);
+        }
+        if (!wrappers.isEmpty()) {
+          inFlightDepth.update(unconfirmed.size());
         }
+      }
+      for (EmitTaskWrapper wrapper : wrappers) {
+        LOG.info("Schedule execution command emitting, retry: {}, messageId: {}",
+            wrapper.getRetryCounter(), wrapper.getMessageId());
+      }
+      emit(wrappers);
+    }
+
+    public void emit(List<EmitTaskWrapper> wrappers) {
+      if (wrappers.isEmpty()) {
+        return;
+      }
+      toEmit.addAll(wrappers);
+      scheduleEmitting();
+    }
+
+    private void scheduleEmitting() {
+      if (emitting.compareAndSet(false, true)) {
+        emitExecutor.execute(new EmitMessagesTask(this));
+      }
+    }
+
+    public synchronized boolean isUnconfirmed(EmitTaskWrapper wrapper) {
+      return !released && unconfirmed.get(wrapper.getMessageId()) == wrapper;
+    }
+
+    public synchronized int getUnconfirmedCount() {
+      return unconfirmed.size();
+    }
+
+    /**
+     * Confirms message.
+     *
+     * @return {@code false} if message is not waiting for ACK.
+     */
+    public synchronized boolean confirm(Long messageId) {
+      EmitTaskWrapper acked = unconfirmed.remove(messageId);
+      if (acked == null) {
+        return false;
+      }
+      ackLatency.update(System.nanoTime() - acked.getFirstEmitTime(), TimeUnit.NANOSECONDS);
+      return true;
+    }
+
+    public synchronized void release() {
+      released = true;
+      pending.clear();
+      unconfirmed.clear();
+    }
+  }
+
+  /**
+   * Task to emit queued commands of a host in order.
+   */
+  private class EmitMessagesTask implements Runnable {
+
+    private final HostMessages hostMessages;
+
+    public EmitMessagesTask(HostMessages hostMessages) {
+      this.hostMessages = hostMessages;
+    }
+
+    @Override
+    public void run() {
+      do {
+        EmitTaskWrapper wrapper;
+        while ((wrapper = hostMessages.toEmit.poll()) != null) {
+          emit(wrapper);
+        }
+        hostMessages.emitting.set(false);
+      } while (!hostMessages.toEmit.isEmpty() && hostMessages.emitting.compareAndSet(false, true));
+    }
+
+    private void emit(EmitTaskWrapper wrapper) {
+      // check ack was already received
+      if (!hostMessages.isUnconfirmed(wrapper)) {
+        return;
+      }
+      wrapper.emitting();
+      try {
+        emitExecutionCommandToHost(wrapper);
       } catch (HostNotRegisteredException e) {
         LOG.error("Trying to emit execution command to unregistered host {} on attempt {}",
-            emitTaskWrapper.getMessageId(), emitTaskWrapper.getRetryCounter(), e);
+            wrapper.getMessageId(), wrapper.getRetryCounter(), e);
+      } catch (RuntimeException e) {
+        LOG.error("Exception during execution command {} emitting", wrapper.getMessageId(), e);
       }
-      return emitTaskWrapper;
+      wrapper.scheduleCheck(retryInterval);
+      messagesToRetry.add(wrapper);
     }
   }
 
-  private class EmitTaskWrapper {
+  private class EmitTaskWrapper implements Delayed {
     private final Long messageId;
     private final ExecutionCommandEvent executionCommandEvent;
     private final AtomicInteger retryCounter;
+    private volatile long firstEmitTime;
+    private volatile long checkTime;
 
     public EmitTaskWrapper(int retryCounter, Long messageId, ExecutionCommandEvent executionCommandEvent) {
       this.retryCounter = new AtomicInteger(retryCounter);
@@ -345,5 +484,31 @@ public abstract class MessageEmitter {
     public void retry() {
       retryCounter.incrementAndGet();
     }
+
+    public long getFirstEmitTime() {
+      return firstEmitTime;
+    }
+
+    void emitting() {
+      if (firstEmitTime == 0) {
+        firstEmitTime = System.nanoTime();
+      }
+    }
+
+    void scheduleCheck(int delaySeconds) {
+      checkTime = System.nanoTime() + TimeUnit.SECONDS.toNanos(delaySeconds);
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+      return unit.convert(checkTime - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+      EmitTaskWrapper wrapper = (EmitTaskWrapper) other;
+      int result = Long.compare(checkTime - wrapper.checkTime, 0);
+      return result != 0 ? result : messageId.compareTo(wrapper.messageId);
+    }
   }
 }
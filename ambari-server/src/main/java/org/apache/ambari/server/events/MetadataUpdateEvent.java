@@ -19,6 +19,7 @@ package org.apache.ambari.server.events;
 
 import java.util.Map;
 import java.util.SortedMap;
+import java.util.TreeMap;
 
 import org.apache.ambari.server.agent.stomp.dto.Hashable;
 import org.apache.ambari.server.agent.stomp.dto.MetadataCluster;
@@ -86,6 +87,22 @@ public class MetadataUpdateEvent extends STOMPEvent implements Hashable {
     return eventType;
   }
 
+  /**
+   * @return copy of the event which is not affected by further changes of the clusters metadata
+   */
+  public MetadataUpdateEvent deepCopy() {
+    SortedMap<String, MetadataCluster> copiedClusters = null;
+    if (metadataClusters != null) {
+      copiedClusters = new TreeMap<>();
+      for (Map.Entry<String, MetadataCluster> metadataClusterEntry : metadataClusters.entrySet()) {
+        copiedClusters.put(metadataClusterEntry.getKey(), metadataClusterEntry.getValue().deepCopy());
+      }
+    }
+    MetadataUpdateEvent copiedEvent = new MetadataUpdateEvent(copiedClusters, null, null, eventType);
+    copiedEvent.setHash(hash);
+    return copiedEvent;
+  }
+
   public static MetadataUpdateEvent emptyUpdate() {
     return new MetadataUpdateEvent();
   }
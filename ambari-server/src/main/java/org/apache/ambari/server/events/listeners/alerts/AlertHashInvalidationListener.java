@@ -26,7 +26,10 @@ import org.apache.ambari.server.agent.HeartBeatResponse;
 import org.apache.ambari.server.events.AlertHashInvalidationEvent;
 import org.apache.ambari.server.events.AmbariEvent.AmbariEventType;
 import org.apache.ambari.server.events.ClusterEvent;
+import org.apache.ambari.server.events.HostsRemovedEvent;
+import org.apache.ambari.server.events.ServiceComponentInstalledEvent;
 import org.apache.ambari.server.events.ServiceComponentUninstalledEvent;
+import org.apache.ambari.server.events.ServiceRemovedEvent;
 import org.apache.ambari.server.events.publishers.AmbariEventPublisher;
 import org.apache.ambari.server.state.alert.AlertDefinitionHash;
 import org.slf4j.Logger;
@@ -48,6 +51,10 @@ import com.google.inject.Singleton;
  * <li>{@link ClusterEvent} - invalidates all alerts across the cluster</li>
  * <li>{@link AlertHashInvalidationEvent} - invalidates a specific alert across
  * affected hosts</li>
+ * <li>{@link ServiceComponentInstalledEvent},
+ * {@link ServiceComponentUninstalledEvent}, {@link ServiceRemovedEvent} and
+ * {@link HostsRemovedEvent} - keep the host index of the
+ * {@link AlertDefinitionHash} current</li>
  * </ul>
  */
 @Singleton
@@ -103,10 +110,41 @@ public class AlertHashInvalidationListener {
   }
 
   /**
-   * Handles {@link AlertHashInvalidationEvent} by performing the following
+   * Handles {@link ServiceComponentInstalledEvent} by performing the following
    * tasks:
    * <ul>
-   * <li>Alert has invalidation</li>
+   * <li>Adding the component to the host index</li>
+   * <li>Alert hash invalidation</li>
+   * <li>Enqueuing {@link AlertDefinitionCommand}</li>
+   * </ul>
+   */
+  @Subscribe
+  @AllowConcurrentEvents
+  public void onEvent(ServiceComponentInstalledEvent event) {
+    LOG.debug("Received event {}", event);
+
+    long clusterId = event.getClusterId();
+    String hostName = event.getHostName();
+
+    if (null == hostName) {
+      return;
+    }
+
+    // index the component and then invalidate the hash of its host only
+    AlertDefinitionHash hash = m_alertDefinitionHash.get();
+    hash.addComponentHost(clusterId, event.getServiceName(), event.getComponentName(), hostName,
+        event.isMasterComponent());
+
+    hash.invalidate(hostName);
+    hash.enqueueAgentCommands(clusterId, Collections.singletonList(hostName));
+  }
+
+  /**
+   * Handles {@link ServiceComponentUninstalledEvent} by performing the
+   * following tasks:
+   * <ul>
+   * <li>Removing the component from the host index</li>
+   * <li>Alert hash invalidation</li>
    * <li>Enqueuing {@link AlertDefinitionCommand}</li>
    * </ul>
    */
@@ -122,12 +160,44 @@ public class AlertHashInvalidationListener {
       return;
     }
 
+    m_alertDefinitionHash.get().removeComponentHost(clusterId, event.getServiceName(),
+        event.getComponentName(), hostName);
+
     // invalidate hash and enqueue commands
     m_alertDefinitionHash.get().invalidate(hostName);
     m_alertDefinitionHash.get().enqueueAgentCommands(clusterId,
         Collections.singletonList(hostName));
   }
 
+  /**
+   * Handles {@link ServiceRemovedEvent} by discarding the host index of the
+   * cluster, since the components of the service are not reported
+   * individually.
+   *
+   * @param event
+   *          the event being handled.
+   */
+  @Subscribe
+  @AllowConcurrentEvents
+  public void onEvent(ServiceRemovedEvent event) {
+    LOG.debug("Received event {}", event);
+    m_alertDefinitionHash.get().invalidateHostIndex(event.getClusterId());
+  }
+
+  /**
+   * Handles {@link HostsRemovedEvent} by discarding the host indexes so that
+   * removed hosts are no longer considered.
+   *
+   * @param event
+   *          the event being handled.
+   */
+  @Subscribe
+  @AllowConcurrentEvents
+  public void onEvent(HostsRemovedEvent event) {
+    LOG.debug("Received event {}", event);
+    m_alertDefinitionHash.get().invalidateHostIndexes();
+  }
+
   /**
    * Handles {@link ClusterEvent} by performing the following tasks:
    * <ul>
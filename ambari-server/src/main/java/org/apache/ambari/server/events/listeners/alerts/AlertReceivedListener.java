@@ -153,6 +153,7 @@ public class AlertReceivedListener {
 
     // these can be wrapped in their own transaction
     List<AlertCurrentEntity> toMerge = new ArrayList<>();
+    List<AlertCurrentEntity> toMergeUncached = new ArrayList<>();
     List<AlertCurrentEntity> toCreateHistoryAndMerge = new ArrayList<>();
 
     List<AlertEvent> alertEvents = new ArrayList<>(20);
@@ -273,6 +274,7 @@ public class AlertReceivedListener {
         clearStaleAlerts(alert.getHostName(), definition.getDefinitionId());
 
         // only update some fields if the alert isn't SKIPPED
+        boolean firmnessChanged = false;
         if (alertState != AlertState.SKIPPED) {
           current.setLatestText(alert.getText());
 
@@ -288,6 +290,7 @@ public class AlertReceivedListener {
           int repeatTolerance = getRepeatTolerance(definition, clusterId);
           if (firmness == AlertFirmness.SOFT && occurrences >= repeatTolerance) {
             current.setFirmness(AlertFirmness.HARD);
+            firmnessChanged = true;
 
             // create the event to fire later
             AlertStateChangeEvent stateChangedEvent = new AlertStateChangeEvent(clusterId, alert,
@@ -307,8 +310,13 @@ public class AlertReceivedListener {
           }
         }
 
-        // store the entity for merging later
-        toMerge.add(current);
+        // store the entity for merging later; firmness changes are never left
+        // in the alert cache since notifications depend on them
+        if (firmnessChanged) {
+          toMergeUncached.add(current);
+        } else {
+          toMerge.add(current);
+        }
       } else {
         if (LOG.isDebugEnabled()) {
           LOG.debug(
@@ -384,7 +392,7 @@ public class AlertReceivedListener {
 
     // invokes the EntityManager create/merge on various entities in a single
     // transaction
-    m_alertsDao.saveEntities(toMerge, toCreateHistoryAndMerge);
+    m_alertsDao.saveEntities(toMerge, toMergeUncached, toCreateHistoryAndMerge);
 
     // broadcast events
     for (AlertEvent eventToFire : alertEvents) {
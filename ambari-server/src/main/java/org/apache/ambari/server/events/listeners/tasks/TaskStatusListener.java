@@ -20,6 +20,7 @@ package org.apache.ambari.server.events.listeners.tasks;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -27,6 +28,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.ambari.server.EagerSingleton;
 import org.apache.ambari.server.Role;
@@ -35,6 +38,7 @@ import org.apache.ambari.server.actionmanager.HostRoleStatus;
 import org.apache.ambari.server.actionmanager.Request;
 import org.apache.ambari.server.actionmanager.Stage;
 import org.apache.ambari.server.api.stomp.NamedTasksSubscriptions;
+import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.controller.internal.CalculatedStatus;
 import org.apache.ambari.server.events.NamedTaskUpdateEvent;
 import org.apache.ambari.server.events.RequestUpdateEvent;
@@ -42,7 +46,11 @@ import org.apache.ambari.server.events.TaskCreateEvent;
 import org.apache.ambari.server.events.TaskUpdateEvent;
 import org.apache.ambari.server.events.publishers.STOMPUpdatePublisher;
 import org.apache.ambari.server.events.publishers.TaskEventPublisher;
+import org.apache.ambari.server.metrics.system.impl.ServerInternalsMetricsSource;
+import org.apache.ambari.server.orm.dao.HostRoleCommandDAO;
+import org.apache.ambari.server.orm.dao.HostRoleCommandStatusSummaryDTO;
 import org.apache.ambari.server.orm.dao.RequestDAO;
+import org.apache.ambari.server.orm.dao.RequestTaskStatuses;
 import org.apache.ambari.server.orm.dao.StageDAO;
 import org.apache.ambari.server.orm.entities.RequestEntity;
 import org.apache.ambari.server.orm.entities.RoleSuccessCriteriaEntity;
@@ -51,6 +59,7 @@ import org.apache.ambari.server.orm.entities.StageEntityPK;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Counter;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.FluentIterable;
@@ -64,6 +73,8 @@ import com.google.inject.Singleton;
  * The {@link TaskStatusListener} is used to constantly update status of running Stages and Requests
  * {@link TaskUpdateEvent} listens for all incoming events. These events are fired when either host role commands are created/updated
  * This listener maintains map of all running tasks, stages and requests
+ * It also accumulates the counts of task statuses of running requests, so that their calculated statuses and progress
+ * can be read without going through all of their tasks
  */
 @Singleton
 @EagerSingleton
@@ -99,6 +110,23 @@ public class TaskStatusListener {
 
   private NamedTasksSubscriptions namedTasksSubscriptions;
 
+  private HostRoleCommandDAO hostRoleCommandDAO;
+
+  /**
+   * Whether the accumulated request and stage statuses are verified against
+   * the statuses calculated from all the tasks of the request.
+   */
+  private boolean statusConsistencyCheck;
+
+  /**
+   * The minimal interval, in nanoseconds, between the verifications of the
+   * statuses of a request.
+   */
+  private long statusConsistencyCheckInterval;
+
+  private final Counter statusMismatches = ServerInternalsMetricsSource.getRegistry().counter(
+      "tasks.status.listener.status.mismatches");
+
   @Inject
   public TaskStatusListener(TaskEventPublisher taskEventPublisher, StageDAO stageDAO, RequestDAO requestDAO,
                             STOMPUpdatePublisher STOMPUpdatePublisher, NamedTasksSubscriptions namedTasksSubscriptions) {
@@ -121,6 +149,111 @@ public class TaskStatusListener {
     return activeStageMap;
   }
 
+  /**
+   * Enables verification of the accumulated request and stage statuses if
+   * configured. The statuses of a request are verified at most once per
+   * configured interval, so that reading them does not query all its tasks
+   * each time.
+   *
+   * @param configuration
+   *          the server configuration
+   * @param hostRoleCommandDAO
+   *          used to calculate the statuses from all the tasks of a request
+   */
+  @Inject
+  void setStatusConsistencyCheck(Configuration configuration, HostRoleCommandDAO hostRoleCommandDAO) {
+    this.hostRoleCommandDAO = hostRoleCommandDAO;
+    statusConsistencyCheck = configuration.isRequestStatusConsistencyCheckEnabled();
+    statusConsistencyCheckInterval = TimeUnit.SECONDS.toNanos(
+        configuration.getRequestStatusConsistencyCheckInterval());
+  }
+
+  /**
+   * Returns the status of a running request, accumulated from the task events
+   * received for it.
+   *
+   * @param requestId
+   *          the request id
+   * @return the status of the request, or {@code null} if the request is not
+   *         being tracked as running
+   */
+  public CalculatedStatus getActiveRequestStatus(Long requestId) {
+    ActiveRequest request = activeRequestMap.get(requestId);
+    if (null == request) {
+      return null;
+    }
+
+    CalculatedStatus status = request.getTaskStatuses().getRequestStatus();
+    if (statusConsistencyCheck && request.isStatusCheckDue(statusConsistencyCheckInterval)) {
+      Map<Long, HostRoleCommandStatusSummaryDTO> summary = hostRoleCommandDAO.findAggregateCounts(requestId);
+      status = verifyStatus(status, CalculatedStatus.statusFromStageSummary(summary, summary.keySet()),
+          "request " + requestId);
+    }
+    return status;
+  }
+
+  /**
+   * Returns the status of a stage of a running request, accumulated from the
+   * task events received for it.
+   *
+   * @param requestId
+   *          the request id
+   * @param stageId
+   *          the stage id
+   * @return the status of the stage, or {@code null} if the stage is not being
+   *         tracked as running
+   */
+  public CalculatedStatus getActiveStageStatus(Long requestId, Long stageId) {
+    ActiveRequest request = activeRequestMap.get(requestId);
+    CalculatedStatus status = null == request ? null : request.getTaskStatuses().getStageStatus(stageId);
+    if (null != status && statusConsistencyCheck && request.isStatusCheckDue(statusConsistencyCheckInterval)) {
+      Map<Long, HostRoleCommandStatusSummaryDTO> summary = hostRoleCommandDAO.findAggregateCounts(requestId);
+      status = verifyStatus(status, CalculatedStatus.statusFromStageSummary(summary, Collections.singleton(stageId)),
+          "stage " + stageId + " of request " + requestId);
+    }
+    return status;
+  }
+
+  /**
+   * Returns the counts of the tasks of a running request in various states, as
+   * returned by {@link CalculatedStatus#calculateStatusCounts(Collection)}.
+   *
+   * @param requestId
+   *          the request id
+   * @return the counts of the tasks, or {@code null} if the request is not
+   *         being tracked as running
+   */
+  public Map<HostRoleStatus, Integer> getActiveRequestTaskStatusCounts(Long requestId) {
+    ActiveRequest request = activeRequestMap.get(requestId);
+    return null == request ? null : request.getTaskStatuses().getTaskStatusCounts();
+  }
+
+  /**
+   * @param requestId
+   *          the request id
+   * @return the number of tasks of a running request, or {@code null} if the
+   *         request is not being tracked as running
+   */
+  public Integer getActiveRequestTaskCount(Long requestId) {
+    ActiveRequest request = activeRequestMap.get(requestId);
+    return null == request ? null : request.getTaskStatuses().getTaskCount();
+  }
+
+  /**
+   * Compares an accumulated status with the one calculated from all the tasks.
+   *
+   * @return the calculated status
+   */
+  private CalculatedStatus verifyStatus(CalculatedStatus accumulated, CalculatedStatus calculated, String target) {
+    if (!accumulated.isSameAs(calculated)) {
+      statusMismatches.inc();
+      LOG.warn("The accumulated status of {} is {}/{} at {}% while the calculated one is {}/{} at {}%", target,
+          accumulated.getStatus(), accumulated.getDisplayStatus(), accumulated.getPercent(),
+          calculated.getStatus(), calculated.getDisplayStatus(), calculated.getPercent());
+    }
+    return calculated;
+  }
+
   /**
    * On receiving task update event, update related entries of the running request, stage and task in the maps
    * Event containing newly created tasks is expected to contain complete set of all tasks for a request
@@ -214,21 +347,42 @@ public class TaskStatusListener {
       activeTasksMap.put(hostRoleCommand.getTaskId(), hostRoleCommand);
       addStagePK(hostRoleCommand);
       addRequestId(hostRoleCommand);
+      addToTaskStatuses(hostRoleCommand);
     }
   }
 
 
   /**
-   * update changed host role command status
+   * update changed host role command status and the status counts of its request
    * @param hostRoleCommandWithReceivedStatus list of host role commands reported
    */
   private void updateActiveTasksMap(List<HostRoleCommand> hostRoleCommandWithReceivedStatus) {
     for (HostRoleCommand hostRoleCommand : hostRoleCommandWithReceivedStatus) {
       Long taskId = hostRoleCommand.getTaskId();
       activeTasksMap.put(taskId , hostRoleCommand);
+      ActiveRequest request = activeRequestMap.get(hostRoleCommand.getRequestId());
+      if (request != null && request.getTaskStatuses().hasTask(taskId)) {
+        request.getTaskStatuses().update(taskId, hostRoleCommand.getStageId(), false,
+            hostRoleCommand.getStatus(), hostRoleCommand.getStartTime(), hostRoleCommand.getEndTime());
+      }
     }
   }
 
+  /**
+   * Adds newly tracked host role command to the status counts of its request.
+   * The status is copied, as the tracked command may be changed in place.
+   * @param hostRoleCommand newly created {@link HostRoleCommand} in {@link #activeTasksMap}
+   */
+  private void addToTaskStatuses(HostRoleCommand hostRoleCommand) {
+    StageEntityPK stageEntityPK = new StageEntityPK();
+    stageEntityPK.setRequestId(hostRoleCommand.getRequestId());
+    stageEntityPK.setStageId(hostRoleCommand.getStageId());
+    ActiveStage stage = activeStageMap.get(stageEntityPK);
+    activeRequestMap.get(hostRoleCommand.getRequestId()).getTaskStatuses().update(hostRoleCommand.getTaskId(),
+        hostRoleCommand.getStageId(), stage.getSkippable(), hostRoleCommand.getStatus(),
+        hostRoleCommand.getStartTime(), hostRoleCommand.getEndTime());
+  }
+
 
   /**
    * Adds new {@link StageEntityPK} to be tracked as running stage in {@link #activeStageMap}
@@ -561,6 +715,19 @@ public class TaskStatusListener {
     private Set <StageEntityPK> stageEntityPks;
     private Long clusterId;
 
+    /**
+     * The statuses of the tasks of the request. Their summaries are never
+     * read, so that the statuses of completed tasks are not released and
+     * updates are never rejected.
+     */
+    private final RequestTaskStatuses taskStatuses = new RequestTaskStatuses();
+
+    /**
+     * The time, as returned by {@link System#nanoTime()}, the statuses of the
+     * request are verified next time.
+     */
+    private final AtomicLong nextStatusCheck = new AtomicLong(System.nanoTime());
+
     public ActiveRequest(HostRoleStatus status, HostRoleStatus displayStatus, Set<StageEntityPK> stageEntityPks,
                          Long clusterId) {
       this.status = status;
@@ -589,6 +756,20 @@ public class TaskStatusListener {
       return status.isCompletedState() && displayStatus.isCompletedState();
     }
 
+    /**
+     * Claims the next verification of the statuses of the request if it is
+     * due.
+     *
+     * @param interval
+     *          the minimal interval, in nanoseconds, between verifications
+     * @return {@code true} if the statuses should be verified now
+     */
+    boolean isStatusCheckDue(long interval) {
+      long now = System.nanoTime();
+      long next = nextStatusCheck.get();
+      return now - next >= 0 && nextStatusCheck.compareAndSet(next, now + interval);
+    }
+
     public Set <StageEntityPK> getStageEntityPks() {
       return stageEntityPks;
     }
@@ -604,6 +785,10 @@ public class TaskStatusListener {
     public void setClusterId(Long clusterId) {
       this.clusterId = clusterId;
     }
+
+    RequestTaskStatuses getTaskStatuses() {
+      return taskStatuses;
+    }
   }
 
   /**
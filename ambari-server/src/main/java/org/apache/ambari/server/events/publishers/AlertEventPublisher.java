@@ -76,6 +76,7 @@ public final class AlertEventPublisher {
    * @param event
    */
   public void publish(AlertEvent event) {
+    event.setPublishTime(System.currentTimeMillis());
     m_eventBus.post(event);
   }
 
@@ -18,39 +18,114 @@
 
 package org.apache.ambari.server.events.publishers;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.ambari.server.events.STOMPEvent;
-
+import org.apache.ambari.server.metrics.system.impl.ServerInternalsMetricsSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.eventbus.EventBus;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
+/**
+ * Buffers events of one type and periodically posts them merged, in the order they arrived.
+ * Subclasses which are able to identify events describing the same entity override
+ * {@link #getCoalescingKey(Object)} and {@link #coalesce(Object, Object)}. An event is merged into
+ * the last buffered event when both describe the same entity, so a burst of updates of one entity
+ * takes a single buffer entry without reordering it relative to the updates of other entities.
+ * <p/>
+ * All publishers are flushed by one shared scheduler. The flush interval is {@link #TIMEOUT} and
+ * grows up to {@link #MAX_TIMEOUT} while posting takes a noticeable part of the interval.
+ */
 public abstract class BufferedUpdateEventPublisher<T> {
+  private static final Logger LOG = LoggerFactory.getLogger(BufferedUpdateEventPublisher.class);
 
   private static final long TIMEOUT = 1000L;
-  private final ConcurrentLinkedQueue<T> buffer = new ConcurrentLinkedQueue<>();
+  private static final long MAX_TIMEOUT = 5000L;
 
-  public abstract STOMPEvent.Type getType();
+  private static final ScheduledExecutorService SCHEDULER = Executors.newScheduledThreadPool(2,
+      new ThreadFactoryBuilder().setNameFormat("buffered-update-publisher-%d").setDaemon(true).build());
+
+  /**
+   * The buffered events in the order they arrived, guarded by itself.
+   */
+  private final Deque<T> buffer = new ArrayDeque<>();
+
+  /**
+   * The coalescing key of the last buffered event, guarded by {@link #buffer}.
+   */
+  private Object lastKey;
+
+  private final AtomicInteger bufferSize = new AtomicInteger();
+  private final AtomicBoolean started = new AtomicBoolean(false);
+
+  private final Counter receivedEvents;
+  private final Counter coalescedEvents;
+  private final Timer publishTime;
 
-  private ScheduledExecutorService scheduledExecutorService;
+  public abstract STOMPEvent.Type getType();
 
   public BufferedUpdateEventPublisher(STOMPUpdatePublisher stompUpdatePublisher) {
     stompUpdatePublisher.registerPublisher(this);
+
+    String metricPrefix = "stomp.buffered." + getType().name().toLowerCase();
+    MetricRegistry registry = ServerInternalsMetricsSource.getRegistry();
+    receivedEvents = registry.counter(metricPrefix + ".received");
+    coalescedEvents = registry.counter(metricPrefix + ".coalesced");
+    publishTime = registry.timer(metricPrefix + ".publish.time");
+    ServerInternalsMetricsSource.registerGauge(metricPrefix + ".buffer.size", (Gauge<Integer>) bufferSize::get);
   }
 
   public void publish(T event, EventBus m_eventBus) {
-    if (scheduledExecutorService == null) {
-      scheduledExecutorService =
-          Executors.newScheduledThreadPool(1);
-      scheduledExecutorService
-          .scheduleWithFixedDelay(getScheduledPublisher(m_eventBus), TIMEOUT, TIMEOUT, TimeUnit.MILLISECONDS);
+    if (started.compareAndSet(false, true)) {
+      SCHEDULER.schedule(getScheduledPublisher(m_eventBus), TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+    receivedEvents.inc();
+    Object key = getCoalescingKey(event);
+    synchronized (buffer) {
+      if (key != null && key.equals(lastKey)) {
+        buffer.addLast(coalesce(buffer.pollLast(), event));
+        coalescedEvents.inc();
+      } else {
+        buffer.addLast(event);
+      }
+      lastKey = key;
+      bufferSize.set(buffer.size());
     }
-    buffer.add(event);
+  }
+
+  /**
+   * Returns key of the entity the event describes. An event is merged by
+   * {@link #coalesce(Object, Object)} into the last buffered event if it has the same key.
+   * @param event buffered event
+   * @return key, or {@code null} if the event should be buffered as is
+   */
+  protected Object getCoalescingKey(T event) {
+    return null;
+  }
+
+  /**
+   * Merges two events with the same coalescing key.
+   * @param buffered event already in the buffer
+   * @param update newer event
+   * @return event replacing the buffered one
+   */
+  protected T coalesce(T buffered, T update) {
+    return update;
   }
 
   protected MergingRunnable getScheduledPublisher(EventBus m_eventBus) {
@@ -58,11 +133,13 @@ public abstract class BufferedUpdateEventPublisher<T> {
   }
 
   protected List<T> retrieveBuffer() {
-    List<T> bufferContent = new ArrayList<>();
-    while (!buffer.isEmpty()) {
-      bufferContent.add(buffer.poll());
+    synchronized (buffer) {
+      List<T> bufferContent = new ArrayList<>(buffer);
+      buffer.clear();
+      lastKey = null;
+      bufferSize.set(0);
+      return bufferContent;
     }
-    return bufferContent;
   }
 
   public abstract void mergeBufferAndPost(List<T> events, EventBus m_eventBus);
@@ -77,11 +154,21 @@ public abstract class BufferedUpdateEventPublisher<T> {
 
     @Override
     public final void run() {
-      List<T> events = retrieveBuffer();
-      if (events.isEmpty()) {
-        return;
+      long delay = TIMEOUT;
+      try {
+        List<T> events = retrieveBuffer();
+        if (!events.isEmpty()) {
+          long start = System.nanoTime();
+          mergeBufferAndPost(events, m_eventBus);
+          long elapsed = System.nanoTime() - start;
+          publishTime.update(elapsed, TimeUnit.NANOSECONDS);
+          delay = Math.min(MAX_TIMEOUT, Math.max(TIMEOUT, 2 * TimeUnit.NANOSECONDS.toMillis(elapsed)));
+        }
+      } catch (Exception e) {
+        LOG.error("Unable to publish buffered events of type {}", getType(), e);
+      } finally {
+        SCHEDULER.schedule(this, delay, TimeUnit.MILLISECONDS);
       }
-      mergeBufferAndPost(events, m_eventBus);
     }
   }
 
@@ -18,6 +18,7 @@
 
 package org.apache.ambari.server.events.publishers;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -42,13 +43,36 @@ public class HostComponentUpdateEventPublisher extends BufferedUpdateEventPublis
     return STOMPEvent.Type.HOSTCOMPONENT;
   }
 
+  /**
+   * Buffers every host component update separately, so consecutive updates of the same host
+   * component are merged while waiting for publishing.
+   */
+  @Override
+  public void publish(HostComponentsUpdateEvent event, EventBus m_eventBus) {
+    for (HostComponentUpdate hostComponentUpdate : event.getHostComponentUpdates()) {
+      super.publish(new HostComponentsUpdateEvent(Collections.singletonList(hostComponentUpdate)), m_eventBus);
+    }
+  }
+
+  @Override
+  protected Object getCoalescingKey(HostComponentsUpdateEvent event) {
+    HostComponentUpdate update = event.getHostComponentUpdates().get(0);
+    return update.getClusterId() + "/" + update.getServiceName() + "/" + update.getHostName() + "/"
+        + update.getComponentName();
+  }
+
+  @Override
+  protected HostComponentsUpdateEvent coalesce(HostComponentsUpdateEvent buffered, HostComponentsUpdateEvent update) {
+    return new HostComponentsUpdateEvent(Collections.singletonList(
+        buffered.getHostComponentUpdates().get(0).mergeWith(update.getHostComponentUpdates().get(0))));
+  }
+
   @Override
   public void mergeBufferAndPost(List<HostComponentsUpdateEvent> events, EventBus m_eventBus) {
     List<HostComponentUpdate> hostComponentUpdates = events.stream().flatMap(
         u -> u.getHostComponentUpdates().stream()).collect(Collectors.toList());
 
     HostComponentsUpdateEvent resultEvents = new HostComponentsUpdateEvent(hostComponentUpdates);
-    //TODO add logging and metrics posting
     m_eventBus.post(resultEvents);
   }
 }
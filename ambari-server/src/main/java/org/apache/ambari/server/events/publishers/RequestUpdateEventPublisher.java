@@ -18,9 +18,7 @@
 
 package org.apache.ambari.server.events.publishers;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import org.apache.ambari.server.EagerSingleton;
 import org.apache.ambari.server.controller.internal.CalculatedStatus;
@@ -60,23 +58,25 @@ public class RequestUpdateEventPublisher extends BufferedUpdateEventPublisher<Re
     return STOMPEvent.Type.REQUEST;
   }
 
+  @Override
+  protected Object getCoalescingKey(RequestUpdateEvent event) {
+    return event.getRequestId();
+  }
+
+  @Override
+  protected RequestUpdateEvent coalesce(RequestUpdateEvent buffered, RequestUpdateEvent update) {
+    buffered.setEndTime(update.getEndTime());
+    buffered.setRequestStatus(update.getRequestStatus());
+    buffered.setRequestContext(update.getRequestContext());
+    buffered.getHostRoleCommands().removeAll(update.getHostRoleCommands());
+    buffered.getHostRoleCommands().addAll(update.getHostRoleCommands());
+    return buffered;
+  }
+
   @Override
   public void mergeBufferAndPost(List<RequestUpdateEvent> events, EventBus m_eventBus) {
-    Map<Long, RequestUpdateEvent> filteredRequests = new HashMap<>();
-    for (RequestUpdateEvent event : events) {
-      Long requestId = event.getRequestId();
-      if (filteredRequests.containsKey(requestId)) {
-        RequestUpdateEvent filteredRequest = filteredRequests.get(requestId);
-        filteredRequest.setEndTime(event.getEndTime());
-        filteredRequest.setRequestStatus(event.getRequestStatus());
-        filteredRequest.setRequestContext(event.getRequestContext());
-        filteredRequest.getHostRoleCommands().removeAll(event.getHostRoleCommands());
-        filteredRequest.getHostRoleCommands().addAll(event.getHostRoleCommands());
-      } else {
-        filteredRequests.put(requestId, event);
-      }
-    }
-    for (RequestUpdateEvent requestUpdateEvent : filteredRequests.values()) {
+    // consecutive events of a request are already merged while buffered
+    for (RequestUpdateEvent requestUpdateEvent : events) {
       RequestUpdateEvent filled = fillRequest(requestUpdateEvent);
       m_eventBus.post(filled);
     }
@@ -18,7 +18,6 @@
 
 package org.apache.ambari.server.events.publishers;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -49,22 +48,25 @@ public class ServiceUpdateEventPublisher extends BufferedUpdateEventPublisher<Se
   }
 
   @Override
-  public void mergeBufferAndPost(List<ServiceUpdateEvent> events, EventBus eventBus) {
-    List<ServiceUpdateEvent> filtered = new ArrayList<>();
-    for (ServiceUpdateEvent event : events) {
-      int pos = filtered.indexOf(event);
-      if (pos != -1) {
-        if (event.isStateChanged()) {
-          filtered.get(pos).setStateChanged(true);
-        }
-        if (event.getMaintenanceState() != null) {
-          filtered.get(pos).setMaintenanceState(event.getMaintenanceState());
-        }
-      } else {
-        filtered.add(event);
-      }
+  protected Object getCoalescingKey(ServiceUpdateEvent event) {
+    return event.getClusterName() + "/" + event.getServiceName();
+  }
+
+  @Override
+  protected ServiceUpdateEvent coalesce(ServiceUpdateEvent buffered, ServiceUpdateEvent update) {
+    if (update.isStateChanged()) {
+      buffered.setStateChanged(true);
+    }
+    if (update.getMaintenanceState() != null) {
+      buffered.setMaintenanceState(update.getMaintenanceState());
     }
-    for (ServiceUpdateEvent serviceUpdateEvent : filtered) {
+    return buffered;
+  }
+
+  @Override
+  public void mergeBufferAndPost(List<ServiceUpdateEvent> events, EventBus eventBus) {
+    // consecutive events of a service are already merged while buffered
+    for (ServiceUpdateEvent serviceUpdateEvent : events) {
       // calc state
       if (serviceUpdateEvent.isStateChanged()) {
         ServiceCalculatedState serviceCalculatedState =
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.metrics.system.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.metrics.system.MetricsSink;
+import org.apache.ambari.server.metrics.system.SingleMetric;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+
+/**
+ * {@link ServerInternalsMetricsSource} publishes metrics registered by server components (queues,
+ * schedulers, caches) to Metrics Sink. Components register their gauges, counters, histograms
+ * and timers in the shared {@link #getRegistry() registry} regardless of whether the source is
+ * enabled, so registration is always cheap and safe.
+ */
+public class ServerInternalsMetricsSource extends AbstractMetricsSource {
+  private static final Logger LOG = LoggerFactory.getLogger(ServerInternalsMetricsSource.class);
+  private static final MetricRegistry registry = new MetricRegistry();
+  private static final double NANOS_IN_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
+  private int interval = 60;
+
+  /**
+   * @return registry shared by all server components
+   */
+  public static MetricRegistry getRegistry() {
+    return registry;
+  }
+
+  /**
+   * Registers gauge replacing the one previously registered with the same name, so components
+   * which are re-created (e.g. in tests) do not fail on duplicate registration.
+   * @param name metric name
+   * @param gauge gauge to register
+   */
+  public static <T> void registerGauge(String name, Gauge<T> gauge) {
+    registry.remove(name);
+    registry.register(name, gauge);
+  }
+
+  @Override
+  public void init(MetricsConfiguration configuration, MetricsSink sink) {
+    super.init(configuration, sink);
+    interval = Integer.parseInt(configuration.getProperty("interval", "60"));
+    LOG.info("Initialized server internals metrics source...");
+  }
+
+  @Override
+  public void start() {
+    try {
+      executor.scheduleWithFixedDelay(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            LOG.debug("Publishing server internals metrics to sink");
+            sink.publish(getMetrics());
+          } catch (Exception e) {
+            LOG.debug("Error in publishing server internals metrics to sink.", e);
+          }
+        }
+      }, interval, interval, TimeUnit.SECONDS);
+      LOG.info("Started server internals metrics source...");
+    } catch (Exception e) {
+      LOG.info("Throwing exception when starting metric source", e);
+    }
+  }
+
+  public List<SingleMetric> getMetrics() {
+    List<SingleMetric> metrics = new ArrayList<>();
+    long now = System.currentTimeMillis();
+
+    for (Map.Entry<String, Gauge> gauge : registry.getGauges().entrySet()) {
+      Object value = gauge.getValue().getValue();
+      if (value instanceof Number) {
+        metrics.add(new SingleMetric(gauge.getKey(), ((Number) value).doubleValue(), now));
+      }
+    }
+    for (Map.Entry<String, Counter> counter : registry.getCounters().entrySet()) {
+      metrics.add(new SingleMetric(counter.getKey(), counter.getValue().getCount(), now));
+    }
+    for (Map.Entry<String, Histogram> histogram : registry.getHistograms().entrySet()) {
+      addSnapshot(metrics, histogram.getKey(), histogram.getValue().getSnapshot(), 1, now);
+    }
+    for (Map.Entry<String, Timer> timer : registry.getTimers().entrySet()) {
+      metrics.add(new SingleMetric(timer.getKey() + ".count", timer.getValue().getCount(), now));
+      addSnapshot(metrics, timer.getKey() + ".ms", timer.getValue().getSnapshot(), NANOS_IN_MILLI, now);
+    }
+    return metrics;
+  }
+
+  private void addSnapshot(List<SingleMetric> metrics, String name, Snapshot snapshot, double divisor, long now) {
+    metrics.add(new SingleMetric(name + ".mean", snapshot.getMean() / divisor, now));
+    metrics.add(new SingleMetric(name + ".p95", snapshot.get95thPercentile() / divisor, now));
+    metrics.add(new SingleMetric(name + ".max", snapshot.getMax() / divisor, now));
+  }
+}
@@ -20,8 +20,10 @@ package org.apache.ambari.server.orm;
 
 import java.lang.reflect.Method;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 
@@ -38,6 +40,7 @@ import org.eclipse.persistence.exceptions.EclipseLinkException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
 import com.google.inject.persist.UnitOfWork;
@@ -56,6 +59,19 @@ import com.google.inject.persist.jpa.AmbariJpaPersistService;
  * back. This ensures that transactional methods invoke from an already running
  * transaction can have their lock invoked for the lifespan of the outer
  * "parent" transaction.
+ * <p/>
+ * Work which must not be done before the data is committed, such as updating
+ * caches, can be registered with {@link #runAfterCommit(Runnable)}. Such work
+ * is run by the outer-most interceptor once the transaction has been committed
+ * and its locks are released, and is dropped if the transaction is rolled
+ * back.
+ * <p/>
+ * Work which groups what would otherwise be several transactions into one,
+ * such as the command reports of many hosts, is run with
+ * {@link #runAsBatch(Runnable)}. Side effects registered with
+ * {@link #runAfterBatchCommit(Runnable)} are then deferred the same way, so
+ * that the parts of a failed batch can be processed again one by one. Outside
+ * of a batch they are run immediately.
  */
 public class AmbariJpaLocalTxnInterceptor implements MethodInterceptor {
 
@@ -77,6 +93,18 @@ public class AmbariJpaLocalTxnInterceptor implements MethodInterceptor {
     }
   };
 
+  /**
+   * The actions to run when the transaction in progress on the thread
+   * completes, {@code null} if there is no transaction managed by this
+   * interceptor.
+   */
+  private static final ThreadLocal<CompletionActions> s_completionActions = new ThreadLocal<>();
+
+  /**
+   * {@code true} while the thread runs a batch, see {@link #runAsBatch(Runnable)}.
+   */
+  private static final ThreadLocal<Boolean> s_batch = new ThreadLocal<>();
+
   /**
    * Used to ensure that methods which rely on the completion of
    * {@link Transactional} can detect when they are able to run.
@@ -118,6 +146,8 @@ public class AmbariJpaLocalTxnInterceptor implements MethodInterceptor {
       return methodInvocation.proceed();
     }
 
+    boolean committed = false;
+    s_completionActions.set(new CompletionActions());
     try {
       // this is the outer-most transactional, begin a transaction
       final EntityTransaction txn = em.getTransaction();
@@ -131,6 +161,7 @@ public class AmbariJpaLocalTxnInterceptor implements MethodInterceptor {
         // commit transaction only if rollback didn't occur
         if (rollbackIfNecessary(transactional, e, txn)) {
           txn.commit();
+          committed = true;
         }
 
         detailedLogForPersistenceError(e);
@@ -151,6 +182,7 @@ public class AmbariJpaLocalTxnInterceptor implements MethodInterceptor {
       // interferes with the advised method's throwing semantics)
       try {
         txn.commit();
+        committed = true;
       } catch (Exception e) {
         detailedLogForPersistenceError(e);
         throw e;
@@ -165,8 +197,125 @@ public class AmbariJpaLocalTxnInterceptor implements MethodInterceptor {
       // or return result
       return result;
     } finally {
+      CompletionActions completionActions = s_completionActions.get();
+      s_completionActions.remove();
+
       // unlock all lock areas for this transaction
       unlockTransaction();
+
+      // complete once the locks are released, so that the actions do not
+      // hold up other transactions
+      runCompletionActions(completionActions, committed);
+    }
+  }
+
+  /**
+   * Runs the action once the transaction in progress on the calling thread is
+   * committed and its locks are released. The action is dropped if the
+   * transaction is rolled back. If there is no transaction in progress, the
+   * action is run immediately.
+   *
+   * @param action
+   *          the action to run after commit
+   */
+  public static void runAfterCommit(Runnable action) {
+    CompletionActions completionActions = s_completionActions.get();
+    if (null == completionActions) {
+      action.run();
+    } else {
+      completionActions.afterCommit.add(action);
+    }
+  }
+
+  /**
+   * Runs the action if the transaction in progress on the calling thread is
+   * rolled back, which allows to revert in-memory state changed along with the
+   * data of the transaction. Actions are run in the reverse order of their
+   * registration. If there is no transaction in progress, nothing is done.
+   *
+   * @param action
+   *          the action to run after rollback
+   */
+  public static void runAfterRollback(Runnable action) {
+    CompletionActions completionActions = s_completionActions.get();
+    if (null != completionActions) {
+      completionActions.afterRollback.add(action);
+    }
+  }
+
+  /**
+   * Runs the work as a batch: the side effects registered with
+   * {@link #runAfterBatchCommit(Runnable)} and
+   * {@link #runAfterBatchRollback(Runnable)} by the transactions of the work
+   * follow the outcome of their transaction.
+   *
+   * @param work
+   *          the work to run
+   */
+  public static void runAsBatch(Runnable work) {
+    Boolean batch = s_batch.get();
+    s_batch.set(Boolean.TRUE);
+    try {
+      work.run();
+    } finally {
+      if (null == batch) {
+        s_batch.remove();
+      }
+    }
+  }
+
+  /**
+   * Runs the side effect once the transaction in progress on the calling
+   * thread is committed if the thread runs a batch, see
+   * {@link #runAfterCommit(Runnable)}. Otherwise the side effect is run
+   * immediately.
+   *
+   * @param action
+   *          the side effect to run
+   */
+  public static void runAfterBatchCommit(Runnable action) {
+    if (null == s_batch.get()) {
+      action.run();
+    } else {
+      runAfterCommit(action);
+    }
+  }
+
+  /**
+   * Runs the action if the thread runs a batch and its transaction is rolled
+   * back, see {@link #runAfterRollback(Runnable)}. Otherwise nothing is done.
+   *
+   * @param action
+   *          the action to run after rollback
+   */
+  public static void runAfterBatchRollback(Runnable action) {
+    if (null != s_batch.get()) {
+      runAfterRollback(action);
+    }
+  }
+
+  /**
+   * Runs the actions registered for the transaction which has just completed.
+   * Failing actions are logged and do not prevent the others from running.
+   *
+   * @param completionActions
+   *          the actions of the transaction, {@code null} if there are none
+   * @param committed
+   *          {@code true} if the transaction was committed
+   */
+  private void runCompletionActions(CompletionActions completionActions, boolean committed) {
+    if (null == completionActions) {
+      return;
+    }
+
+    List<Runnable> actions = committed ? completionActions.afterCommit
+        : Lists.reverse(completionActions.afterRollback);
+    for (Runnable action : actions) {
+      try {
+        action.run();
+      } catch (RuntimeException e) {
+        LOG.error("Unable to complete the {} transaction", committed ? "committed" : "rolled back", e);
+      }
     }
   }
 
@@ -331,4 +480,12 @@ public class AmbariJpaLocalTxnInterceptor implements MethodInterceptor {
   @Transactional
   private static class Internal {
   }
+
+  /**
+   * The actions registered during a transaction.
+   */
+  private static class CompletionActions {
+    private final List<Runnable> afterCommit = new ArrayList<>();
+    private final List<Runnable> afterRollback = new ArrayList<>();
+  }
 }
@@ -728,6 +728,28 @@ public class AlertDispatchDAO {
     return entityManagerProvider.get().merge(alertNotice);
   }
 
+  /**
+   * Sets the {@link NotificationState} of each of the notifications with the
+   * given UUIDs in a single transaction.
+   *
+   * @param states
+   *          the new state of each notification by UUID (not {@code null}).
+   */
+  @Transactional
+  public void updateNoticeStates(Map<String, NotificationState> states) {
+    EntityManager entityManager = entityManagerProvider.get();
+    for (Map.Entry<String, NotificationState> entry : states.entrySet()) {
+      AlertNoticeEntity notice = findNoticeByUuid(entry.getKey());
+      if (null == notice) {
+        LOG.warn("Unable to find an alert notice with UUID {}", entry.getKey());
+        continue;
+      }
+
+      notice.setNotifyState(entry.getValue());
+      entityManager.merge(notice);
+    }
+  }
+
   /**
    * Removes the specified notification from the database.
    *
@@ -18,6 +18,7 @@
 package org.apache.ambari.server.orm.dao;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.EnumSet;
@@ -25,7 +26,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 
@@ -44,7 +45,10 @@ import org.apache.ambari.server.cleanup.TimeBasedCleanupPolicy;
 import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.controller.AlertCurrentRequest;
 import org.apache.ambari.server.controller.AlertHistoryRequest;
+import org.apache.ambari.server.controller.internal.SortRequestImpl;
+import org.apache.ambari.server.controller.spi.PageCursor;
 import org.apache.ambari.server.controller.spi.Predicate;
+import org.apache.ambari.server.controller.spi.SortRequest;
 import org.apache.ambari.server.controller.utilities.PredicateHelper;
 import org.apache.ambari.server.events.AggregateAlertRecalculateEvent;
 import org.apache.ambari.server.events.publishers.AlertEventPublisher;
@@ -110,6 +114,15 @@ public class AlertsDAO implements Cleanable {
       + "SUM(CASE WHEN alert.maintenanceState != :maintenanceStateOff THEN 1 ELSE 0 END)) "
       + "FROM AlertCurrentEntity alert JOIN alert.alertHistory history WHERE history.clusterId = :clusterId GROUP BY history.hostName";
 
+  private static final String ALERT_COUNT_PER_SERVICE_SQL_TEMPLATE = "SELECT NEW %s("
+      + "history.serviceName, "
+      + "SUM(CASE WHEN history.alertState = :okState AND alert.maintenanceState = :maintenanceStateOff THEN 1 ELSE 0 END), "
+      + "SUM(CASE WHEN history.alertState = :warningState AND alert.maintenanceState = :maintenanceStateOff THEN 1 ELSE 0 END), "
+      + "SUM(CASE WHEN history.alertState = :criticalState AND alert.maintenanceState = :maintenanceStateOff THEN 1 ELSE 0 END), "
+      + "SUM(CASE WHEN history.alertState = :unknownState AND alert.maintenanceState = :maintenanceStateOff THEN 1 ELSE 0 END), "
+      + "SUM(CASE WHEN alert.maintenanceState != :maintenanceStateOff THEN 1 ELSE 0 END)) "
+      + "FROM AlertCurrentEntity alert JOIN alert.alertHistory history WHERE history.clusterId = :clusterId GROUP BY history.serviceName";
+
   /**
    * JPA entity manager
    */
@@ -150,6 +163,14 @@ public class AlertsDAO implements Cleanable {
    */
   private LoadingCache<AlertCacheKey, AlertCurrentEntity> m_currentAlertCache = null;
 
+  /**
+   * Current alerts which were only updated in {@link #m_currentAlertCache} and
+   * are waiting to be written to the database. They are kept here even if they
+   * are evicted from the cache so that their updates are not lost and so that
+   * the cache loads them instead of the stale database rows.
+   */
+  private final ConcurrentMap<AlertCacheKey, AlertCurrentEntity> m_pendingCurrentAlerts = new ConcurrentHashMap<>();
+
   /**
    * Batch size to query the DB and use the results in an IN clause.
    */
@@ -175,6 +196,11 @@ public class AlertsDAO implements Cleanable {
           maximumSize).build(new CacheLoader<AlertCacheKey, AlertCurrentEntity>() {
             @Override
             public AlertCurrentEntity load(AlertCacheKey key) throws Exception {
+              AlertCurrentEntity pendingEntity = m_pendingCurrentAlerts.get(key);
+              if (null != pendingEntity) {
+                return pendingEntity;
+              }
+
               LOG.debug("Cache miss for alert key {}, fetching from JPA", key);
 
               final AlertCurrentEntity alertCurrentEntity;
@@ -350,6 +376,10 @@ public class AlertsDAO implements Cleanable {
     HistoryPredicateVisitor visitor = new HistoryPredicateVisitor();
     PredicateHelper.visit(request.Predicate, visitor);
 
+    if (null != request.CursorProperties) {
+      return findAfterCursor(request, visitor);
+    }
+
     CriteriaQuery<AlertHistoryEntity> query = visitor.getCriteriaQuery();
     javax.persistence.criteria.Predicate jpaPredicate = visitor.getJpaPredicate();
 
@@ -372,6 +402,56 @@ public class AlertsDAO implements Cleanable {
     return m_daoUtils.selectList(typedQuery);
   }
 
+  /**
+   * Finds the {@link AlertHistoryEntity} instances of a keyset page, which
+   * follow the cursor of the page request. The entities are always restricted
+   * to those following the cursor; the query is only limited to the size of
+   * the page if the database orders and filters the entities exactly like the
+   * page is cut from the resources afterwards.
+   *
+   * @param request
+   *          the request with a cursor page (not {@code null}).
+   * @param visitor
+   *          the visitor which converted the predicate of the request (not
+   *          {@code null}).
+   * @return the entities following the cursor.
+   */
+  private List<AlertHistoryEntity> findAfterCursor(AlertHistoryRequest request,
+      HistoryPredicateVisitor visitor) {
+    CriteriaQuery<AlertHistoryEntity> query = visitor.getCriteriaQuery();
+    javax.persistence.criteria.Predicate jpaPredicate = visitor.getJpaPredicate();
+
+    JpaSortBuilder<AlertHistoryEntity> sortBuilder = new JpaSortBuilder<>();
+    SortRequest cursorSort = new SortRequestImpl(request.CursorProperties);
+    boolean limit = visitor.isFullyTranslated()
+        && sortBuilder.isOrderExact(request.CursorProperties, visitor);
+
+    PageCursor cursor = request.Pagination.getCursor();
+    if (null != cursor) {
+      javax.persistence.criteria.Predicate keyset = sortBuilder.buildKeysetPredicate(
+          request.CursorProperties, cursor, visitor);
+
+      if (null == keyset) {
+        limit = false;
+      } else {
+        jpaPredicate = null == jpaPredicate ? keyset
+            : visitor.getCriteriaBuilder().and(jpaPredicate, keyset);
+      }
+    }
+
+    if (null != jpaPredicate) {
+      query.where(jpaPredicate);
+    }
+    query.orderBy(sortBuilder.buildSortOrders(cursorSort, visitor));
+
+    TypedQuery<AlertHistoryEntity> typedQuery = m_entityManagerProvider.get().createQuery(query);
+    if (limit) {
+      typedQuery.setMaxResults(request.Pagination.getPageSize());
+    }
+
+    return m_daoUtils.selectList(typedQuery);
+  }
+
   /**
    * Finds all {@link AlertCurrentEntity} that match the provided
    * {@link AlertCurrentRequest}. This method will make JPA do the heavy lifting
@@ -431,8 +511,14 @@ public class AlertsDAO implements Cleanable {
    *          the predicate to apply, or {@code null} for none.
    * @return the total count of rows that would be returned in a result set.
    */
+  @RequiresSession
   public int getCount(Predicate predicate) {
-    return 0;
+    HistoryPredicateVisitor visitor = new HistoryPredicateVisitor();
+    TypedQuery<Long> query = m_entityManagerProvider.get().createQuery(
+        visitor.createCountQuery(predicate));
+
+    Long count = m_daoUtils.selectSingle(query);
+    return null == count ? 0 : count.intValue();
   }
 
   /**
@@ -595,6 +681,35 @@ public class AlertsDAO implements Cleanable {
     return map;
   }
 
+  /**
+   * Retrieves the summary information for all the services in the provided
+   * cluster. The result is mapping from service name to summary DTO.
+   *
+   * @param clusterId
+   *          the cluster id
+   * @return map from service names to summary DTO
+   */
+  @RequiresSession
+  public Map<String, AlertSummaryDTO> findCurrentPerServiceCounts(long clusterId) {
+    String sql = String.format(ALERT_COUNT_PER_SERVICE_SQL_TEMPLATE, ServiceAlertSummaryDTO.class.getName());
+
+    TypedQuery<ServiceAlertSummaryDTO> query = m_entityManagerProvider.get().createQuery(sql, ServiceAlertSummaryDTO.class);
+
+    query.setParameter("clusterId", Long.valueOf(clusterId));
+    query.setParameter("okState", AlertState.OK);
+    query.setParameter("warningState", AlertState.WARNING);
+    query.setParameter("criticalState", AlertState.CRITICAL);
+    query.setParameter("unknownState", AlertState.UNKNOWN);
+    query.setParameter("maintenanceStateOff", MaintenanceState.OFF);
+
+    Map<String, AlertSummaryDTO> map = new HashMap<>();
+    List<ServiceAlertSummaryDTO> resultList = m_daoUtils.selectList(query);
+    for (ServiceAlertSummaryDTO result : resultList) {
+      map.put(result.getServiceName(), result);
+    }
+    return map;
+  }
+
   /**
    * Retrieve the summary alert information for all hosts. This is different
    * from {@link #findCurrentCounts(long, String, String)} since this will
@@ -760,7 +875,7 @@ public class AlertsDAO implements Cleanable {
     // if caching is enabled, invalidate the cache to force the latest values
     // back from the DB
     if (m_configuration.isAlertCacheEnabled()) {
-      m_currentAlertCache.invalidateAll();
+      invalidateCachedAlerts();
     }
   }
 
@@ -781,7 +896,7 @@ public class AlertsDAO implements Cleanable {
     // if caching is enabled, invalidate the cache to force the latest values
     // back from the DB
     if (m_configuration.isAlertCacheEnabled()) {
-      m_currentAlertCache.invalidateAll();
+      invalidateCachedAlerts();
     }
 
     return rowsRemoved;
@@ -809,7 +924,7 @@ public class AlertsDAO implements Cleanable {
     // if caching is enabled, invalidate the cache to force the latest values
     // back from the DB
     if (m_configuration.isAlertCacheEnabled()) {
-      m_currentAlertCache.invalidateAll();
+      invalidateCachedAlerts();
     }
 
     return rowsRemoved;
@@ -848,7 +963,7 @@ public class AlertsDAO implements Cleanable {
     // if caching is enabled, invalidate the cache to force the latest values
     // back from the DB
     if (m_configuration.isAlertCacheEnabled()) {
-      m_currentAlertCache.invalidateAll();
+      invalidateCachedAlerts();
     }
 
     // publish the event to recalculate aggregates
@@ -886,7 +1001,7 @@ public class AlertsDAO implements Cleanable {
     // if caching is enabled, invalidate the cache to force the latest values
     // back from the DB
     if (m_configuration.isAlertCacheEnabled()) {
-      m_currentAlertCache.invalidateAll();
+      invalidateCachedAlerts();
     }
 
     // publish the event to recalculate aggregates for every cluster since a host could potentially have several clusters
@@ -947,7 +1062,7 @@ public class AlertsDAO implements Cleanable {
     // if caching is enabled, invalidate the cache to force the latest values
     // back from the DB
     if (m_configuration.isAlertCacheEnabled()) {
-      m_currentAlertCache.invalidateAll();
+      invalidateCachedAlerts();
     }
 
     // publish the event to recalculate aggregates
@@ -1058,10 +1173,12 @@ public class AlertsDAO implements Cleanable {
     // perform the JPA merge
     alert = m_entityManagerProvider.get().merge(alert);
 
-    // if caching is enabled, update the cache
+    // if caching is enabled, update the cache; the alert is written so any
+    // pending cache-only update of it is superseded
     if( m_configuration.isAlertCacheEnabled() ){
       AlertCacheKey key = AlertCacheKey.build(alert);
       m_currentAlertCache.put(key, alert);
+      m_pendingCurrentAlerts.remove(key);
     }
 
     return alert;
@@ -1073,7 +1190,8 @@ public class AlertsDAO implements Cleanable {
    * updates the cache.
    * <p/>
    * The alert should already exist in JPA - this is mainly to update the text
-   * and timestamp.
+   * and timestamp. Cache-only updates are written to the database by
+   * {@link #flushCachedEntitiesToJPA()}.
    *
    * @param alert
    *          the alert to update in the cache (not {@code null}).
@@ -1094,6 +1212,7 @@ public class AlertsDAO implements Cleanable {
       } else {
         // update cache and return alert; no database work
         m_currentAlertCache.put(key, alert);
+        m_pendingCurrentAlerts.put(key, alert);
         return alert;
       }
     }
@@ -1191,34 +1310,74 @@ public class AlertsDAO implements Cleanable {
   }
 
   /**
-   * Writes all cached {@link AlertCurrentEntity} instances to the database and
-   * clears the cache.
+   * Writes the cached {@link AlertCurrentEntity} instances which were updated
+   * only in the cache to the database. Alerts are written in transactions of
+   * at most {@link #BATCH_SIZE} entities and remain cached, so that reading
+   * them again does not hit the database.
    */
   public void flushCachedEntitiesToJPA() {
-    if (m_configuration.isAlertCacheEnabled()) {
-      synchronized (this) {
-        flushCachedEntitiesToJPATransactional();
-      }
-    } else {
+    if (!m_configuration.isAlertCacheEnabled()) {
       LOG.warn("Unable to flush cached alerts to JPA because caching is not enabled");
+      return;
     }
-  }
 
-  @Transactional
-  protected void flushCachedEntitiesToJPATransactional() {
+    int flushedEntityCount = 0;
+    synchronized (this) {
+      List<AlertCacheKey> keys = new ArrayList<>(m_pendingCurrentAlerts.keySet());
+      for (int i = 0; i < keys.size(); i += BATCH_SIZE) {
+        int endIndex = (i + BATCH_SIZE) > keys.size() ? keys.size() : (i + BATCH_SIZE);
+
+        Map<AlertCacheKey, AlertCurrentEntity> batch = new HashMap<>();
+        for (AlertCacheKey key : keys.subList(i, endIndex)) {
+          AlertCurrentEntity alert = m_pendingCurrentAlerts.get(key);
+          if (null != alert) {
+            batch.put(key, alert);
+          }
+        }
+
+        try {
+          flushCachedEntitiesToJPATransactional(batch.values());
+        } catch (RuntimeException exception) {
+          // keep the updates of the failed batch for the next flush
+          for (Entry<AlertCacheKey, AlertCurrentEntity> entry : batch.entrySet()) {
+            m_pendingCurrentAlerts.putIfAbsent(entry.getKey(), entry.getValue());
+          }
+
+          throw exception;
+        }
 
-    // capture for logging purposes
-    long cachedEntityCount = m_currentAlertCache.size();
+        flushedEntityCount += batch.size();
+      }
+    }
+
+    LOG.info("Flushed {} cached alerts to the database", flushedEntityCount);
+  }
 
-    ConcurrentMap<AlertCacheKey, AlertCurrentEntity> map = m_currentAlertCache.asMap();
-    Set<Entry<AlertCacheKey, AlertCurrentEntity>> entries = map.entrySet();
-    for (Entry<AlertCacheKey, AlertCurrentEntity> entry : entries) {
-      merge(entry.getValue());
+  @Transactional
+  protected void flushCachedEntitiesToJPATransactional(Collection<AlertCurrentEntity> alerts) {
+    for (AlertCurrentEntity alert : alerts) {
+      mergeTransactional(alert);
     }
+  }
 
-    m_currentAlertCache.invalidateAll();
+  /**
+   * Gets the number of cached alerts which were updated only in the cache and
+   * are not yet written to the database.
+   *
+   * @return the number of alerts waiting to be flushed.
+   */
+  public int getPendingCachedAlertCount() {
+    return m_pendingCurrentAlerts.size();
+  }
 
-    LOG.info("Flushed {} cached alerts to the database", cachedEntityCount);
+  /**
+   * Discards all cached alerts along with the updates which were not yet
+   * written to the database. Invoked after current alerts are removed, since
+   * flushing an update of a removed alert would insert it again.
+   */
+  private void invalidateCachedAlerts() {
+    m_pendingCurrentAlerts.clear();
+    m_currentAlertCache.invalidateAll();
   }
 
   /**
@@ -1571,6 +1730,12 @@ public class AlertsDAO implements Cleanable {
       }
     }
 
+    // removed alerts must not be served from the cache or written back to
+    // the database by a flush
+    if (affectedRows > 0 && m_configuration.isAlertCacheEnabled()) {
+      invalidateCachedAlerts();
+    }
+
     return affectedRows;
   }
 
@@ -1615,28 +1780,42 @@ public class AlertsDAO implements Cleanable {
   }
 
   /**
-   * Saves alert and alert history entities in single transaction
-   * @param toMerge - merge alert only
+   * Saves alert and alert history entities in single transaction. When alerts
+   * are cached, the alerts which only need merging are updated in the cache and
+   * written later, unless there are more such alerts than
+   * {@link Configuration#getAlertCacheFlushThreshold()}.
+   *
+   * @param toMerge - merge alert only, cached if caching is enabled
+   * @param toMergeUncached - merge alert only, always written to the database
    * @param toCreateHistoryAndMerge - create new history, merge alert
    */
-  public void saveEntities(List<AlertCurrentEntity> toMerge,
+  public void saveEntities(List<AlertCurrentEntity> toMerge, List<AlertCurrentEntity> toMergeUncached,
                                  List<AlertCurrentEntity> toCreateHistoryAndMerge) {
     if (m_configuration.isAlertCacheEnabled()) {
       synchronized (this) {
-        saveEntitiesTransactional(toMerge, toCreateHistoryAndMerge);
+        saveEntitiesTransactional(toMerge, toMergeUncached, toCreateHistoryAndMerge);
+
+        if (m_pendingCurrentAlerts.size() >= m_configuration.getAlertCacheFlushThreshold()) {
+          flushCachedEntitiesToJPA();
+        }
       }
     } else {
-      saveEntitiesTransactional(toMerge, toCreateHistoryAndMerge);
+      saveEntitiesTransactional(toMerge, toMergeUncached, toCreateHistoryAndMerge);
     }
   }
 
   @Transactional
   protected void saveEntitiesTransactional(List<AlertCurrentEntity> toMerge,
+                    List<AlertCurrentEntity> toMergeUncached,
                     List<AlertCurrentEntity> toCreateHistoryAndMerge) {
     for (AlertCurrentEntity entity : toMerge) {
       merge(entity, m_configuration.isAlertCacheEnabled());
     }
 
+    for (AlertCurrentEntity entity : toMergeUncached) {
+      merge(entity);
+    }
+
     for (AlertCurrentEntity entity : toCreateHistoryAndMerge) {
       create(entity.getAlertHistory());
       merge(entity);
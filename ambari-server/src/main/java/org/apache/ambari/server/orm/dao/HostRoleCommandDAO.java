@@ -23,18 +23,20 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.stream.Collectors;
 
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Root;
 import javax.persistence.metamodel.SingularAttribute;
 
 import org.apache.ambari.annotations.TransactionalLock;
@@ -53,10 +55,12 @@ import org.apache.ambari.server.controller.spi.PageRequest;
 import org.apache.ambari.server.controller.spi.Predicate;
 import org.apache.ambari.server.controller.spi.Request;
 import org.apache.ambari.server.controller.spi.SortRequest;
+import org.apache.ambari.server.controller.spi.SortRequestProperty;
 import org.apache.ambari.server.controller.utilities.PredicateHelper;
 import org.apache.ambari.server.events.TaskCreateEvent;
 import org.apache.ambari.server.events.TaskUpdateEvent;
 import org.apache.ambari.server.events.publishers.TaskEventPublisher;
+import org.apache.ambari.server.orm.AmbariJpaLocalTxnInterceptor;
 import org.apache.ambari.server.orm.RequiresSession;
 import org.apache.ambari.server.orm.TransactionalLocks;
 import org.apache.ambari.server.orm.entities.HostEntity;
@@ -123,10 +127,20 @@ public class HostRoleCommandDAO {
   private static final String COMPLETED_REQUESTS_SQL = "SELECT DISTINCT task.requestId FROM HostRoleCommandEntity task WHERE task.requestId NOT IN (SELECT task.requestId FROM HostRoleCommandEntity task WHERE task.status IN :notCompletedStatuses) ORDER BY task.requestId {0}";
 
   /**
-   * A cache that holds {@link HostRoleCommandStatusSummaryDTO} grouped by stage
-   * id for requests by request id. The JPQL computing the host role command
-   * status summary for a request is rather expensive thus this cache helps
-   * reducing the load on the database.
+   * JPQL template to load the statuses of all the tasks of a request, which
+   * are then counted in memory by {@link RequestTaskStatuses}.
+   */
+  private static final String TASK_STATUSES_SQL = "SELECT hrc.taskId, hrc.stageId, hrc.stage.skippable, hrc.status, " +
+      "hrc.startTime, hrc.endTime FROM HostRoleCommandEntity hrc WHERE hrc.requestId = :requestId";
+
+  /**
+   * A cache that holds the {@link RequestTaskStatuses} of requests by request
+   * id, which provide {@link HostRoleCommandStatusSummaryDTO} grouped by stage
+   * id. The JPQL computing the host role command status summary for a request
+   * is rather expensive, so instead of being invalidated on every task
+   * transition, cached entries are updated with the new task statuses and
+   * only the summaries of the changed stages are rebuilt. Entries are
+   * reloaded from the database once they expire.
    * <p/>
    * Methods which interact with this cache, including invalidation and
    * population, should use the {@link TransactionalLock} annotation along with
@@ -142,7 +156,7 @@ public class HostRoleCommandDAO {
    * last invalidation would not invalidate anything since the cache was empty
    * at the time.
    */
-  private final Cache<Long, Map<Long, HostRoleCommandStatusSummaryDTO>> hrcStatusSummaryCache;
+  private final Cache<Long, RequestTaskStatuses> hrcStatusSummaryCache;
 
   /**
    * Specifies whether caching for {@link HostRoleCommandStatusSummaryDTO} grouped by stage id for requests
@@ -150,6 +164,14 @@ public class HostRoleCommandDAO {
    */
   private final boolean hostRoleCommandStatusSummaryCacheEnabled;
 
+  /**
+   * Numbers the changes of the cached status summaries in the order in which
+   * they are made. Changes are made under the
+   * {@link LockArea#HRC_STATUS_CACHE} write lock but applied after it is
+   * released, see {@link RequestTaskStatuses#applyChange}.
+   */
+  private final AtomicLong hrcStatusSummarySequence = new AtomicLong();
+
 
   @Inject
   private Provider<EntityManager> entityManagerProvider;
@@ -193,21 +215,6 @@ public class HostRoleCommandDAO {
     hrcStatusSummaryCache.invalidate(requestId);
   }
 
-  /**
-   * Invalidates the host role command status summary cache entry that
-   * corresponds to each request.
-   *
-   * @param requestIds
-   *          the requests to invalidate
-   */
-  protected void invalidateHostRoleCommandStatusSummaryCache(Set<Long> requestIds) {
-    for (Long requestId : requestIds) {
-      if (null != requestId) {
-        invalidateHostRoleCommandStatusSummaryCache(requestId);
-      }
-    }
-  }
-
   /**
    * Invalidates those entries in host role command status cache which are
    * dependent on the passed
@@ -222,20 +229,143 @@ public class HostRoleCommandDAO {
     }
 
     if (hostRoleCommandEntity != null) {
-      Long requestId = hostRoleCommandEntity.getRequestId();
-      if (requestId == null) {
-        StageEntity stageEntity = hostRoleCommandEntity.getStage();
-        if (stageEntity != null) {
-          requestId = stageEntity.getRequestId();
-        }
-      }
-
+      Long requestId = getRequestId(hostRoleCommandEntity);
       if (requestId != null) {
         invalidateHostRoleCommandStatusSummaryCache(requestId.longValue());
       }
     }
   }
 
+  /**
+   * Applies the status of the task to the cached status summary of its
+   * request, if any, once the transaction is committed. Readers of the cache
+   * do not wait for transactions in progress, so they never see statuses
+   * which may still be rolled back. The cache entry is invalidated if the
+   * task can not be applied or the transaction is rolled back.
+   *
+   * @param hostRoleCommandEntity
+   *          the created or merged task
+   */
+  protected void updateHostRoleCommandStatusSummaryCache(HostRoleCommandEntity hostRoleCommandEntity) {
+    if (!hostRoleCommandStatusSummaryCacheEnabled || null == hostRoleCommandEntity) {
+      return;
+    }
+
+    Long requestId = getRequestId(hostRoleCommandEntity);
+    if (null == requestId) {
+      return;
+    }
+
+    // the entry may be loaded by this transaction before it completes
+    AmbariJpaLocalTxnInterceptor.runAfterRollback(() -> invalidateHostRoleCommandStatusSummaryCache(requestId));
+
+    RequestTaskStatuses taskStatuses = hrcStatusSummaryCache.getIfPresent(requestId);
+    if (null == taskStatuses) {
+      return;
+    }
+
+    Long taskId = hostRoleCommandEntity.getTaskId();
+    Long stageId = hostRoleCommandEntity.getStageId();
+    boolean known = null != taskId && taskStatuses.hasTask(taskId);
+
+    // the stage is only needed to know whether it is skippable for new tasks
+    StageEntity stageEntity = null == taskId || (known && null != stageId) ? null : hostRoleCommandEntity.getStage();
+    if (null == stageId && null != stageEntity) {
+      stageId = stageEntity.getStageId();
+    }
+
+    if (null == taskId || null == stageId || (!known && null == stageEntity)) {
+      invalidateHostRoleCommandStatusSummaryCache(requestId);
+      return;
+    }
+
+    // the entity may change again before the transaction is committed
+    long taskStageId = stageId;
+    boolean skippable = !known && stageEntity.isSkippable();
+    HostRoleStatus status = hostRoleCommandEntity.getStatus();
+    Long startTime = hostRoleCommandEntity.getStartTime();
+    Long endTime = hostRoleCommandEntity.getEndTime();
+    long sequence = hrcStatusSummarySequence.incrementAndGet();
+
+    AmbariJpaLocalTxnInterceptor.runAfterCommit(() -> {
+      if (taskStatuses != hrcStatusSummaryCache.getIfPresent(requestId) || !taskStatuses.applyChange(sequence,
+          () -> taskStatuses.update(taskId, taskStageId, skippable, status, startTime, endTime))) {
+        invalidateHostRoleCommandStatusSummaryCache(requestId);
+      }
+    });
+  }
+
+  /**
+   * Removes the task from the cached status summary of its request, if any,
+   * once the transaction is committed. The cache entry is invalidated if the
+   * task can not be removed or the transaction is rolled back.
+   *
+   * @param hostRoleCommandEntity
+   *          the removed task
+   */
+  protected void removeFromHostRoleCommandStatusSummaryCache(HostRoleCommandEntity hostRoleCommandEntity) {
+    if (!hostRoleCommandStatusSummaryCacheEnabled || null == hostRoleCommandEntity) {
+      return;
+    }
+
+    Long requestId = getRequestId(hostRoleCommandEntity);
+    if (null == requestId) {
+      return;
+    }
+
+    AmbariJpaLocalTxnInterceptor.runAfterRollback(() -> invalidateHostRoleCommandStatusSummaryCache(requestId));
+
+    Long taskId = hostRoleCommandEntity.getTaskId();
+    long sequence = hrcStatusSummarySequence.incrementAndGet();
+    AmbariJpaLocalTxnInterceptor.runAfterCommit(() -> {
+      RequestTaskStatuses taskStatuses = hrcStatusSummaryCache.getIfPresent(requestId);
+      if (null != taskStatuses
+          && (null == taskId || !taskStatuses.applyChange(sequence, () -> taskStatuses.remove(taskId)))) {
+        invalidateHostRoleCommandStatusSummaryCache(requestId);
+      }
+    });
+  }
+
+  /**
+   * @return the id of the request of the task, {@code null} if it is not
+   *         known.
+   */
+  private static Long getRequestId(HostRoleCommandEntity hostRoleCommandEntity) {
+    Long requestId = hostRoleCommandEntity.getRequestId();
+    if (requestId == null) {
+      StageEntity stageEntity = hostRoleCommandEntity.getStage();
+      if (stageEntity != null) {
+        requestId = stageEntity.getRequestId();
+      }
+    }
+    return requestId;
+  }
+
+  /**
+   * Loads the statuses of the tasks of a request to count them by stage id in
+   * memory.
+   *
+   * @param requestId
+   *          the request id
+   * @return the task statuses of the request
+   */
+  @RequiresSession
+  private RequestTaskStatuses loadTaskStatuses(Long requestId) {
+    RequestTaskStatuses taskStatuses = new RequestTaskStatuses();
+
+    EntityManager entityManager = entityManagerProvider.get();
+    TypedQuery<Object[]> query = entityManager.createQuery(TASK_STATUSES_SQL, Object[].class);
+    query.setParameter("requestId", requestId);
+
+    for (Object[] row : daoUtils.selectList(query)) {
+      Number skippable = (Number) row[2];
+      taskStatuses.update(((Number) row[0]).longValue(), ((Number) row[1]).longValue(),
+          null != skippable && skippable.intValue() == 1, (HostRoleStatus) row[3], (Long) row[4], (Long) row[5]);
+    }
+
+    return taskStatuses;
+  }
+
   /**
    * Loads the counts of tasks for a request and groups them by stage id.
    * This allows for very efficient loading when there are a huge number of stages
@@ -703,7 +833,7 @@ public class HostRoleCommandDAO {
     EntityManager entityManager = entityManagerProvider.get();
     entityManager.persist(entity);
 
-    invalidateHostRoleCommandStatusSummaryCache(entity);
+    updateHostRoleCommandStatusSummaryCache(entity);
   }
 
   @Transactional
@@ -719,7 +849,7 @@ public class HostRoleCommandDAO {
   public HostRoleCommandEntity mergeWithoutPublishEvent(HostRoleCommandEntity entity) {
     EntityManager entityManager = entityManagerProvider.get();
     entity = entityManager.merge(entity);
-    invalidateHostRoleCommandStatusSummaryCache(entity);
+    updateHostRoleCommandStatusSummaryCache(entity);
     return entity;
   }
 
@@ -734,26 +864,17 @@ public class HostRoleCommandDAO {
   @Transactional
   @TransactionalLock(lockArea = LockArea.HRC_STATUS_CACHE, lockType = LockType.WRITE)
   public List<HostRoleCommandEntity> mergeAll(Collection<HostRoleCommandEntity> entities) {
-    Set<Long> requestsToInvalidate = new LinkedHashSet<>();
     List<HostRoleCommandEntity> managedList = new ArrayList<>(entities.size());
     for (HostRoleCommandEntity entity : entities) {
       EntityManager entityManager = entityManagerProvider.get();
       entity = entityManager.merge(entity);
       managedList.add(entity);
 
-      Long requestId = entity.getRequestId();
-      if (requestId == null) {
-        StageEntity stageEntity = entity.getStage();
-        if (stageEntity != null) {
-          requestId = stageEntity.getRequestId();
-        }
-      }
-
-      requestsToInvalidate.add(requestId);
+      updateHostRoleCommandStatusSummaryCache(entity);
     }
 
-    invalidateHostRoleCommandStatusSummaryCache(requestsToInvalidate);
-    publishTaskUpdateEvent(getHostRoleCommands(entities));
+    List<HostRoleCommand> hostRoleCommands = getHostRoleCommands(entities);
+    AmbariJpaLocalTxnInterceptor.runAfterBatchCommit(() -> publishTaskUpdateEvent(hostRoleCommands));
     return managedList;
   }
 
@@ -803,7 +924,7 @@ public class HostRoleCommandDAO {
   public void remove(HostRoleCommandEntity entity) {
     EntityManager entityManager = entityManagerProvider.get();
     entityManager.remove(entity);
-    invalidateHostRoleCommandStatusSummaryCache(entity);
+    removeFromHostRoleCommandStatusSummaryCache(entity);
   }
 
   @Transactional
@@ -815,8 +936,8 @@ public class HostRoleCommandDAO {
   /**
    * Finds the counts of tasks for a request and groups them by stage id. If
    * caching is enabled, this will first consult the cache. Cache misses will
-   * then defer to loading the data from the database and then caching the
-   * result.
+   * then defer to loading the task statuses from the database and then
+   * caching them, so that they are kept up to date as tasks change.
    *
    * @param requestId
    *          the request id
@@ -828,9 +949,9 @@ public class HostRoleCommandDAO {
       return loadAggregateCounts(requestId);
     }
 
-    Map<Long, HostRoleCommandStatusSummaryDTO> map = hrcStatusSummaryCache.getIfPresent(requestId);
-    if (null != map) {
-      return map;
+    RequestTaskStatuses taskStatuses = hrcStatusSummaryCache.getIfPresent(requestId);
+    if (null != taskStatuses) {
+      return taskStatuses.getSummaries();
     }
 
     // ensure that we wait for any running transactions working on this cache to
@@ -839,10 +960,10 @@ public class HostRoleCommandDAO {
     lock.readLock().lock();
 
     try {
-      map = loadAggregateCounts(requestId);
-      hrcStatusSummaryCache.put(requestId, map);
+      taskStatuses = loadTaskStatuses(requestId);
+      hrcStatusSummaryCache.put(requestId, taskStatuses);
 
-      return map;
+      return taskStatuses.getSummaries();
     } finally {
       lock.readLock().unlock();
     }
@@ -961,19 +1082,38 @@ public class HostRoleCommandDAO {
 
     // sorting
     SortRequest sortRequest = request.getSortRequest();
-    if (null != sortRequest) {
-      JpaSortBuilder<HostRoleCommandEntity> sortBuilder = new JpaSortBuilder<>();
-      List<Order> sortOrders = sortBuilder.buildSortOrders(sortRequest, visitor);
+    JpaSortBuilder<HostRoleCommandEntity> sortBuilder = new JpaSortBuilder<>();
+    List<Order> sortOrders = new ArrayList<>(sortBuilder.buildSortOrders(sortRequest, visitor));
+
+    // the page is cut from the resources again by the cluster controller, which
+    // sorts ties by the resource keys; the database must return the same
+    // leading entities, so it is only limited if it sees the whole predicate
+    // and orders by the sort exactly like the resources are ordered, and only
+    // to the entities up to the end of the page
+    PageRequest pagination = request.getPageRequest();
+    List<SortRequestProperty> sortProperties = null == sortRequest || null == sortRequest.getProperties()
+        ? Collections.emptyList() : sortRequest.getProperties();
+    boolean limit = null != pagination && visitor.isFullyTranslated()
+        && sortBuilder.isOrderExact(sortProperties, visitor)
+        && (pagination.getStartingPoint() == PageRequest.StartingPoint.Beginning
+            || pagination.getStartingPoint() == PageRequest.StartingPoint.OffsetStart);
+
+    if (limit) {
+      CriteriaBuilder criteriaBuilder = visitor.getCriteriaBuilder();
+      Root<?> root = query.getRoots().iterator().next();
+      sortOrders.add(criteriaBuilder.asc(root.get(HostRoleCommandEntity_.requestId.getName())));
+      sortOrders.add(criteriaBuilder.asc(root.get(HostRoleCommandEntity_.taskId.getName())));
+    }
+
+    if (!sortOrders.isEmpty()) {
       query.orderBy(sortOrders);
     }
 
     TypedQuery<HostRoleCommandEntity> typedQuery = entityManager.createQuery(query);
 
     // pagination
-    PageRequest pagination = request.getPageRequest();
-    if (null != pagination) {
-      typedQuery.setFirstResult(pagination.getOffset());
-      typedQuery.setMaxResults(pagination.getPageSize());
+    if (limit) {
+      typedQuery.setMaxResults(Math.max(0, pagination.getOffset()) + pagination.getPageSize());
     }
 
     return daoUtils.selectList(typedQuery);
@@ -75,12 +75,12 @@ public class RequestDAO implements Cleanable {
    * Requests by cluster.  Cannot be a NamedQuery due to the ORDER BY clause.
    */
   private final static String REQUESTS_WITH_CLUSTER_SQL =
-      "SELECT request.requestId FROM RequestEntity request WHERE request.clusterId = %s ORDER BY request.requestId %s";
+      "SELECT request.requestId FROM RequestEntity request WHERE request.clusterId = %s%s ORDER BY request.requestId %s";
   /**
    * Requests by cluster.  Cannot be a NamedQuery due to the ORDER BY clause.
    */
   private final static String REQUESTS_WITH_NO_CLUSTER_SQL =
-      "SELECT request.requestId FROM RequestEntity request WHERE request.clusterId = -1 OR request.clusterId IS NULL ORDER BY request.requestId %s";
+      "SELECT request.requestId FROM RequestEntity request WHERE (request.clusterId = -1 OR request.clusterId IS NULL)%s ORDER BY request.requestId %s";
 
   @Inject
   Provider<EntityManager> entityManagerProvider;
@@ -225,13 +225,33 @@ public class RequestDAO implements Cleanable {
    */
   @RequiresSession
   public List<Long> findAllRequestIds(int limit, boolean sortAscending, Long clusterId) {
+    return findAllRequestIds(limit, sortAscending, clusterId, null);
+  }
+
+  /**
+   * Retrieves from the database for a cluster, or specifically for non-cluster requests,
+   * the requests which follow the given request in the sort order.  Used to page through
+   * the requests without counting the requests in front of the page.
+   *
+   * @param limit the max number to return
+   * @param sortAscending {@code true} to sort by requestId ascending, {@code false} for descending
+   * @param clusterId   the cluster to find, or {@code null} to search for requests without cluster
+   * @param afterRequestId  the request after which to start, or {@code null} to start with the first
+   */
+  @RequiresSession
+  public List<Long> findAllRequestIds(int limit, boolean sortAscending, Long clusterId,
+      Long afterRequestId) {
 
     final String sql;
+    String after = "";
+    if (null != afterRequestId) {
+      after = sortAscending ? " AND request.requestId > ?1" : " AND request.requestId < ?1";
+    }
 
     if (null == clusterId) {
-      sql = String.format(REQUESTS_WITH_NO_CLUSTER_SQL, sortAscending ? "ASC" : "DESC");
+      sql = String.format(REQUESTS_WITH_NO_CLUSTER_SQL, after, sortAscending ? "ASC" : "DESC");
     } else {
-      sql = String.format(REQUESTS_WITH_CLUSTER_SQL, clusterId, sortAscending ? "ASC" : "DESC");
+      sql = String.format(REQUESTS_WITH_CLUSTER_SQL, clusterId, after, sortAscending ? "ASC" : "DESC");
     }
 
     TypedQuery<Long> query = entityManagerProvider.get().createQuery(sql,
@@ -239,6 +259,9 @@ public class RequestDAO implements Cleanable {
 
     query.setMaxResults(limit);
 
+    if (null != afterRequestId) {
+      return daoUtils.selectList(query, afterRequestId);
+    }
     return daoUtils.selectList(query);
   }
 
@@ -0,0 +1,511 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.orm.dao;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+import org.apache.ambari.server.actionmanager.HostRoleStatus;
+import org.apache.ambari.server.controller.internal.CalculatedStatus;
+
+/**
+ * The statuses of the tasks of a single request along with the counts of
+ * those statuses per stage. The counts are updated as tasks are created,
+ * merged and removed, so that the status summary of a request does not have
+ * to be aggregated by the database again after every task transition. The
+ * {@link HostRoleCommandStatusSummaryDTO}s are rebuilt only for the stages
+ * which changed since they were last read.
+ * <p/>
+ * The {@link CalculatedStatus} of the request and of its stages are kept the
+ * same way: the stages are counted by status and only the statuses of the
+ * stages which changed are recalculated when the status of the request is
+ * read, rather than going through all of its stages.
+ * <p/>
+ * The statuses of the individual tasks are needed to apply transitions to the
+ * counts. Once all of them are completed, {@link #getSummaries()} releases
+ * them and only the counts are kept. Any further update is then rejected, so
+ * that the caller reloads the request.
+ * <p/>
+ * Instances are thread safe.
+ */
+public final class RequestTaskStatuses {
+
+  /**
+   * The tasks by task id, {@code null} once all the tasks are completed.
+   */
+  private Map<Long, TaskStatus> tasks = new HashMap<>();
+
+  /**
+   * The tasks by stage id.
+   */
+  private final Map<Long, StageStatuses> stages = new HashMap<>();
+
+  /**
+   * The summaries of all the stages, {@code null} if a stage changed since
+   * the summaries were built.
+   */
+  private Map<Long, HostRoleCommandStatusSummaryDTO> summaries;
+
+  /**
+   * The counts of all the tasks by status.
+   */
+  private final int[] taskCounts = new int[HostRoleStatus.values().length];
+  private int taskTotal;
+
+  /**
+   * The counts of the stages by the status and display status they had when
+   * they were last counted.
+   */
+  private final Map<HostRoleStatus, Integer> stageStatusCounts = emptyCounts();
+  private final Map<HostRoleStatus, Integer> stageDisplayStatusCounts = emptyCounts();
+
+  /**
+   * The stages which changed since the status of the request was last
+   * calculated.
+   */
+  private final Set<StageStatuses> changedStages = new HashSet<>();
+
+  /**
+   * The status of the request, {@code null} if a stage changed since it was
+   * calculated.
+   */
+  private CalculatedStatus requestStatus;
+
+  /**
+   * The sequence number of the last change applied with
+   * {@link #applyChange(long, BooleanSupplier)}.
+   */
+  private long appliedSequence;
+
+  /**
+   * @param taskId
+   *          the task id
+   * @return {@code true} if the status of the task is known.
+   */
+  public synchronized boolean hasTask(long taskId) {
+    return null != tasks && tasks.containsKey(taskId);
+  }
+
+  /**
+   * Adds the task or applies its new status and times.
+   *
+   * @param taskId
+   *          the task id
+   * @param stageId
+   *          the id of the stage of the task
+   * @param skippable
+   *          whether the stage of the task is skippable; only used for tasks
+   *          which are not known yet
+   * @param status
+   *          the status of the task
+   * @param startTime
+   *          the start time of the task
+   * @param endTime
+   *          the end time of the task
+   * @return {@code false} if the update could not be applied since the task
+   *         statuses were released already.
+   */
+  public synchronized boolean update(long taskId, long stageId, boolean skippable, HostRoleStatus status,
+      Long startTime, Long endTime) {
+    if (null == tasks) {
+      return false;
+    }
+
+    TaskStatus task = new TaskStatus(stageId, status, startTime, endTime);
+    TaskStatus previous = tasks.put(taskId, task);
+    if (task.equals(previous)) {
+      return true;
+    }
+
+    if (null != previous) {
+      skippable = stages.get(previous.stageId).skippable;
+      removeFromStage(taskId, previous);
+    }
+
+    StageStatuses stage = stages.computeIfAbsent(stageId, StageStatuses::new);
+    stage.add(taskId, task, skippable);
+    taskCounts[status.ordinal()]++;
+    taskTotal++;
+    stageChanged(stage);
+    return true;
+  }
+
+  /**
+   * Applies a change made by a committed transaction. Transactions apply their
+   * changes once they are committed, which is not necessarily in the order in
+   * which they made them, so a change older than the last one applied is
+   * rejected.
+   *
+   * @param sequence
+   *          the sequence number of the change, increasing in the order in
+   *          which the changes were made
+   * @param change
+   *          applies the change, {@code false} if it could not be applied
+   * @return {@code false} if the change is older than the last one applied or
+   *         could not be applied.
+   */
+  public synchronized boolean applyChange(long sequence, BooleanSupplier change) {
+    if (sequence < appliedSequence) {
+      return false;
+    }
+
+    appliedSequence = sequence;
+    return change.getAsBoolean();
+  }
+
+  /**
+   * Removes the task.
+   *
+   * @param taskId
+   *          the task id
+   * @return {@code false} if the task could not be removed since the task
+   *         statuses were released already.
+   */
+  public synchronized boolean remove(long taskId) {
+    if (null == tasks) {
+      return false;
+    }
+
+    TaskStatus previous = tasks.remove(taskId);
+    if (null != previous) {
+      removeFromStage(taskId, previous);
+    }
+    return true;
+  }
+
+  /**
+   * Gets the status summaries of the stages of the request, rebuilding only
+   * the summaries of the stages which changed. Releases the statuses of the
+   * individual tasks once all of them are completed.
+   *
+   * @return the unmodifiable map of stage-to-summary objects
+   */
+  public synchronized Map<Long, HostRoleCommandStatusSummaryDTO> getSummaries() {
+    if (null == summaries) {
+      Map<Long, HostRoleCommandStatusSummaryDTO> map = new HashMap<>(stages.size());
+      boolean completed = true;
+      for (StageStatuses stage : stages.values()) {
+        map.put(stage.stageId, stage.getSummary());
+        completed &= stage.isCompleted();
+      }
+      summaries = Collections.unmodifiableMap(map);
+
+      if (completed && null != tasks) {
+        tasks = null;
+        for (StageStatuses stage : stages.values()) {
+          stage.tasks.clear();
+        }
+      }
+    }
+    return summaries;
+  }
+
+  /**
+   * @return the status of the request, calculated the same way as
+   *         {@link CalculatedStatus#statusFromStageSummary} does for all the
+   *         stages of the request
+   */
+  public synchronized CalculatedStatus getRequestStatus() {
+    if (stages.isEmpty()) {
+      return CalculatedStatus.COMPLETED;
+    }
+
+    if (null == requestStatus) {
+      for (StageStatuses stage : changedStages) {
+        countStage(stage);
+      }
+      changedStages.clear();
+
+      requestStatus = CalculatedStatus.statusFromStageStatuses(presentStatuses(stageStatusCounts),
+          presentStatuses(stageDisplayStatusCounts), getStatusCounts(taskCounts, taskTotal), taskTotal);
+    }
+    return requestStatus;
+  }
+
+  /**
+   * @param stageId
+   *          the id of the stage
+   * @return the status of the stage, or {@code null} if the stage has no
+   *         known tasks
+   */
+  public synchronized CalculatedStatus getStageStatus(long stageId) {
+    StageStatuses stage = stages.get(stageId);
+    if (null == stage) {
+      return null;
+    }
+
+    if (null == stage.calculatedStatus) {
+      stage.calculatedStatus = CalculatedStatus.statusFromStageTaskCounts(
+          getStatusCounts(stage.counts, stage.total), stage.total, stage.skippable);
+    }
+    return stage.calculatedStatus;
+  }
+
+  /**
+   * @return the counts of the tasks of the request in various states, the way
+   *         {@link CalculatedStatus#calculateStatusCounts} returns them
+   */
+  public synchronized Map<HostRoleStatus, Integer> getTaskStatusCounts() {
+    return Collections.unmodifiableMap(getStatusCounts(taskCounts, taskTotal));
+  }
+
+  /**
+   * @return the number of tasks of the request
+   */
+  public synchronized int getTaskCount() {
+    return taskTotal;
+  }
+
+  /**
+   * Removes a known task from its stage and from the counts of the request.
+   */
+  private void removeFromStage(long taskId, TaskStatus task) {
+    StageStatuses stage = stages.get(task.stageId);
+    stage.remove(taskId, task);
+    taskCounts[task.status.ordinal()]--;
+    taskTotal--;
+    stageChanged(stage);
+    if (stage.isEmpty()) {
+      stages.remove(task.stageId);
+      changedStages.remove(stage);
+      if (null != stage.status) {
+        increment(stageStatusCounts, stage.status, -1);
+        increment(stageDisplayStatusCounts, stage.displayStatus, -1);
+      }
+    }
+  }
+
+  /**
+   * Marks a stage whose tasks changed, so that its status is recalculated
+   * when it is read.
+   */
+  private void stageChanged(StageStatuses stage) {
+    changedStages.add(stage);
+
+    // the progress changes along with any task
+    stage.calculatedStatus = null;
+    summaries = null;
+    requestStatus = null;
+  }
+
+  /**
+   * Recalculates the status and the display status of a changed stage and
+   * moves it between the stage counts of the request.
+   */
+  private void countStage(StageStatuses stage) {
+    Map<HostRoleStatus, Integer> counts = getStatusCounts(stage.counts, stage.total);
+    HostRoleStatus status = CalculatedStatus.calculateSummaryStatus(counts, stage.total, stage.skippable);
+    HostRoleStatus displayStatus = CalculatedStatus.calculateSummaryDisplayStatus(counts, stage.total,
+        stage.skippable);
+
+    if (stage.status != status) {
+      if (null != stage.status) {
+        increment(stageStatusCounts, stage.status, -1);
+      }
+      increment(stageStatusCounts, status, 1);
+      stage.status = status;
+    }
+
+    if (stage.displayStatus != displayStatus) {
+      if (null != stage.displayStatus) {
+        increment(stageDisplayStatusCounts, stage.displayStatus, -1);
+      }
+      increment(stageDisplayStatusCounts, displayStatus, 1);
+      stage.displayStatus = displayStatus;
+    }
+  }
+
+  /**
+   * Converts the counts of tasks by status to the counts
+   * {@link CalculatedStatus#calculateStatusCounts} returns for the same tasks.
+   */
+  private static Map<HostRoleStatus, Integer> getStatusCounts(int[] counts, int total) {
+    Map<HostRoleStatus, Integer> statusCounts = emptyCounts();
+    for (HostRoleStatus status : HostRoleStatus.values()) {
+      int count = counts[status.ordinal()];
+      if (status.isCompletedState() && status != HostRoleStatus.COMPLETED) {
+        increment(statusCounts, HostRoleStatus.COMPLETED, count);
+      }
+      increment(statusCounts, status, count);
+    }
+
+    statusCounts.put(HostRoleStatus.IN_PROGRESS, total - statusCounts.get(HostRoleStatus.COMPLETED)
+        - statusCounts.get(HostRoleStatus.QUEUED) - statusCounts.get(HostRoleStatus.PENDING));
+    return statusCounts;
+  }
+
+  private static void increment(Map<HostRoleStatus, Integer> counts, HostRoleStatus status, int delta) {
+    counts.put(status, counts.get(status) + delta);
+  }
+
+  private static Collection<HostRoleStatus> presentStatuses(Map<HostRoleStatus, Integer> counts) {
+    Collection<HostRoleStatus> statuses = EnumSet.noneOf(HostRoleStatus.class);
+    for (Map.Entry<HostRoleStatus, Integer> entry : counts.entrySet()) {
+      if (entry.getValue() > 0) {
+        statuses.add(entry.getKey());
+      }
+    }
+    return statuses;
+  }
+
+  private static Map<HostRoleStatus, Integer> emptyCounts() {
+    return CalculatedStatus.calculateStatusCounts(Collections.<HostRoleStatus>emptyList());
+  }
+
+  /**
+   * The last known status and times of a task.
+   */
+  private static final class TaskStatus {
+    private final long stageId;
+    private final HostRoleStatus status;
+    private final Long startTime;
+    private final Long endTime;
+
+    private TaskStatus(long stageId, HostRoleStatus status, Long startTime, Long endTime) {
+      this.stageId = stageId;
+      this.status = status;
+      this.startTime = startTime;
+      this.endTime = endTime;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      TaskStatus that = (TaskStatus) o;
+      return stageId == that.stageId && status == that.status && Objects.equals(startTime, that.startTime)
+          && Objects.equals(endTime, that.endTime);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(stageId, status, startTime, endTime);
+    }
+  }
+
+  /**
+   * The counts of the statuses of the tasks of a stage.
+   */
+  private static final class StageStatuses {
+    private final long stageId;
+    private final Map<Long, TaskStatus> tasks = new HashMap<>();
+    private final int[] counts = new int[HostRoleStatus.values().length];
+    private boolean skippable;
+    private int total;
+
+    /**
+     * The summary of the stage, {@code null} if the stage changed since it
+     * was built.
+     */
+    private HostRoleCommandStatusSummaryDTO summary;
+
+    /**
+     * The statuses the stage is counted with by the request, {@code null}
+     * until it is first counted.
+     */
+    private HostRoleStatus status;
+    private HostRoleStatus displayStatus;
+    private CalculatedStatus calculatedStatus;
+
+    private StageStatuses(long stageId) {
+      this.stageId = stageId;
+    }
+
+    private void add(long taskId, TaskStatus task, boolean skippable) {
+      this.skippable |= skippable;
+      tasks.put(taskId, task);
+      counts[task.status.ordinal()]++;
+      total++;
+      summary = null;
+    }
+
+    private void remove(long taskId, TaskStatus task) {
+      tasks.remove(taskId);
+      counts[task.status.ordinal()]--;
+      total--;
+      summary = null;
+    }
+
+    private boolean isEmpty() {
+      return total == 0;
+    }
+
+    private boolean isCompleted() {
+      for (HostRoleStatus status : HostRoleStatus.values()) {
+        if (!status.isCompletedState() && counts[status.ordinal()] > 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Builds the summary the same way the database aggregates it: the
+     * earliest start time and the latest end time of the tasks along with
+     * the counts of every status.
+     */
+    private HostRoleCommandStatusSummaryDTO getSummary() {
+      if (null == summary) {
+        Long minStartTime = null;
+        Long maxEndTime = null;
+        for (TaskStatus task : tasks.values()) {
+          if (null != task.startTime && (null == minStartTime || task.startTime < minStartTime)) {
+            minStartTime = task.startTime;
+          }
+          if (null != task.endTime && (null == maxEndTime || task.endTime > maxEndTime)) {
+            maxEndTime = task.endTime;
+          }
+        }
+
+        summary = new HostRoleCommandStatusSummaryDTO(
+            skippable ? 1 : 0,
+            minStartTime,
+            maxEndTime,
+            stageId,
+            count(HostRoleStatus.ABORTED),
+            count(HostRoleStatus.COMPLETED),
+            count(HostRoleStatus.FAILED),
+            count(HostRoleStatus.HOLDING),
+            count(HostRoleStatus.HOLDING_FAILED),
+            count(HostRoleStatus.HOLDING_TIMEDOUT),
+            count(HostRoleStatus.IN_PROGRESS),
+            count(HostRoleStatus.PENDING),
+            count(HostRoleStatus.QUEUED),
+            count(HostRoleStatus.TIMEDOUT),
+            count(HostRoleStatus.SKIPPED_FAILED));
+      }
+      return summary;
+    }
+
+    private Integer count(HostRoleStatus status) {
+      return counts[status.ordinal()];
+    }
+  }
+}
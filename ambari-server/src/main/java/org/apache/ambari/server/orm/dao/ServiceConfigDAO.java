@@ -269,6 +269,27 @@ public class ServiceConfigDAO {
     return daoUtils.selectList(query);
   }
 
+  /**
+   * Gets all service configs of a single service in the given cluster, newest
+   * version first.
+   *
+   * @param clusterId
+   *          the cluster ID
+   * @param serviceName
+   *          the name of the service
+   * @return Collection of service configs of the service in the given cluster.
+   */
+  @RequiresSession
+  public List<ServiceConfigEntity> getServiceConfigs(Long clusterId, String serviceName) {
+    TypedQuery<ServiceConfigEntity> query = entityManagerProvider.get().createNamedQuery(
+        "ServiceConfigEntity.findAllByService", ServiceConfigEntity.class);
+
+    query.setParameter("clusterId", clusterId);
+    query.setParameter("serviceName", serviceName);
+
+    return daoUtils.selectList(query);
+  }
+
   /**
    * Get all service configs
    * @return Collection of all service configs.
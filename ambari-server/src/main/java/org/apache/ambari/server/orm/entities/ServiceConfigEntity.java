@@ -49,6 +49,9 @@ import javax.persistence.TableGenerator;
     @NamedQuery(
         name = "ServiceConfigEntity.findAll",
         query = "SELECT serviceConfig FROM ServiceConfigEntity serviceConfig WHERE serviceConfig.clusterId=:clusterId ORDER BY serviceConfig.version DESC"),
+    @NamedQuery(
+        name = "ServiceConfigEntity.findAllByService",
+        query = "SELECT serviceConfig FROM ServiceConfigEntity serviceConfig WHERE serviceConfig.clusterId=:clusterId AND serviceConfig.serviceName=:serviceName ORDER BY serviceConfig.version DESC"),
     @NamedQuery(
         name = "ServiceConfigEntity.findNextServiceConfigVersion",
         query = "SELECT COALESCE(MAX(serviceConfig.version), 0) + 1 AS nextVersion FROM ServiceConfigEntity serviceConfig WHERE serviceConfig.serviceName=:serviceName AND serviceConfig.clusterId=:clusterId"),
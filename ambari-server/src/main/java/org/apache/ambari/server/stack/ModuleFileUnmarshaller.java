@@ -25,6 +25,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.xml.XMLConstants;
 import javax.xml.bind.JAXBContext;
@@ -62,7 +63,7 @@ public class ModuleFileUnmarshaller {
    * Map of class to JAXB context
    */
   private static final Map<Class<?>, JAXBContext> jaxbContexts = new HashMap<>();
-  private static final Map<String, Schema> jaxbSchemas = new HashMap<>();
+  private static final Map<String, Schema> jaxbSchemas = new ConcurrentHashMap<>();
 
 
   /**
@@ -99,11 +100,16 @@ public class ModuleFileUnmarshaller {
 
     XMLInputFactory xmlFactory = XMLInputFactory.newInstance();
 
-    FileReader reader = new FileReader(file);
-    XMLStreamReader xmlReader = xmlFactory.createXMLStreamReader(reader);
-
-    xmlReader.nextTag();
-    String xsdName = xmlReader.getAttributeValue(XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, "noNamespaceSchemaLocation");
+    String xsdName;
+    try (FileReader reader = new FileReader(file)) {
+      XMLStreamReader xmlReader = xmlFactory.createXMLStreamReader(reader);
+      try {
+        xmlReader.nextTag();
+        xsdName = xmlReader.getAttributeValue(XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, "noNamespaceSchemaLocation");
+      } finally {
+        xmlReader.close();
+      }
+    }
 
     InputStream xsdStream = null;
 
@@ -111,8 +117,10 @@ public class ModuleFileUnmarshaller {
       if (logXsd) {
         LOG.info("Processing " + file.getAbsolutePath() + " with " + xsdName);
       }
-      if (jaxbSchemas.containsKey(xsdName)) {
-        u.setSchema(jaxbSchemas.get(xsdName));
+      // schemas are thread-safe and shared by the stack directories parsed concurrently
+      Schema cachedSchema = jaxbSchemas.get(xsdName);
+      if (cachedSchema != null) {
+        u.setSchema(cachedSchema);
       } else {
 
         xsdStream = clz.getClassLoader().getResourceAsStream(xsdName);
@@ -21,13 +21,19 @@ package org.apache.ambari.server.stack;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import javax.annotation.Nullable;
 import javax.xml.XMLConstants;
@@ -87,6 +93,12 @@ public class StackManager {
 
   public static final String METAINFO_FILE_NAME = "metainfo.xml";
 
+  /**
+   * The number of threads parsing stack, common service and extension
+   * directories.
+   */
+  private static final int PARSING_PARALLELISM = Math.max(1, Runtime.getRuntime().availableProcessors());
+
   /**
    * Provides access to non-stack server functionality
    */
@@ -149,6 +161,7 @@ public class StackManager {
       throws AmbariException {
 
     LOG.info("Initializing the stack manager...");
+    long startTime = System.currentTimeMillis();
 
     if (validate) {
       validateStackDirectory(stackRoot);
@@ -186,13 +199,30 @@ public class StackManager {
     fullyResolveStacks(stackModules, commonServiceModules, extensionModules);
 
     populateDB(stackDao, extensionDao);
+
+    LOG.info("Initialized the stack manager in {} ms", System.currentTimeMillis() - startTime);
   }
 
+  /**
+   * Parses the stack, common service and extension directories. The
+   * directories of each kind are parsed concurrently, as they do not depend on
+   * each other until they are resolved.
+   */
   protected void parseDirectories(File stackRoot, File commonServicesRoot, File extensionRoot) throws AmbariException {
-    commonServiceModules = parseCommonServicesDirectory(commonServicesRoot);
-    stackModules = parseStackDirectory(stackRoot);
-    LOG.info("About to parse extension directories");
-    extensionModules = parseExtensionDirectory(extensionRoot);
+    long startTime = System.currentTimeMillis();
+    ForkJoinPool pool = new ForkJoinPool(PARSING_PARALLELISM);
+    try {
+      commonServiceModules = parseCommonServicesDirectory(commonServicesRoot, pool);
+      stackModules = parseStackDirectory(stackRoot, pool);
+      LOG.info("About to parse extension directories");
+      extensionModules = parseExtensionDirectory(extensionRoot, pool);
+    } finally {
+      pool.shutdown();
+    }
+
+    LOG.info("Parsed {} stacks, {} common services and {} extensions using {} threads in {} ms",
+        stackModules.size(), commonServiceModules.size(), extensionModules.size(), PARSING_PARALLELISM,
+        System.currentTimeMillis() - startTime);
   }
 
   private void populateDB(StackDAO stackDao, ExtensionDAO extensionDao) throws AmbariException {
@@ -560,40 +590,59 @@ public class StackManager {
    * @return map of common service id which contains name and version to common service module.
    * @throws AmbariException if unable to parse all common services
    */
-  private Map<String, ServiceModule> parseCommonServicesDirectory(File commonServicesRoot) throws AmbariException {
+  private Map<String, ServiceModule> parseCommonServicesDirectory(File commonServicesRoot, ForkJoinPool pool)
+      throws AmbariException {
     Map<String, ServiceModule> commonServiceModules = new HashMap<>();
 
     if(commonServicesRoot != null) {
+      List<File> serviceFolders = new ArrayList<>();
       File[] commonServiceFiles = commonServicesRoot.listFiles(StackDirectory.FILENAME_FILTER);
       for (File commonService : commonServiceFiles) {
         if (commonService.isFile()) {
           continue;
         }
-        for (File serviceFolder : commonService.listFiles(StackDirectory.FILENAME_FILTER)) {
-          ServiceDirectory serviceDirectory = new CommonServiceDirectory(serviceFolder.getPath());
-          ServiceMetainfoXml metaInfoXml = serviceDirectory.getMetaInfoFile();
-          if (metaInfoXml != null) {
-            if (metaInfoXml.isValid()) {
-              for (ServiceInfo serviceInfo : metaInfoXml.getServices()) {
-                ServiceModule serviceModule = new ServiceModule(stackContext, serviceInfo, serviceDirectory, true);
-
-                String commonServiceKey = serviceInfo.getName() + StackManager.PATH_DELIMITER + serviceInfo.getVersion();
-                commonServiceModules.put(commonServiceKey, serviceModule);
-              }
-            } else {
-              ServiceModule serviceModule = new ServiceModule(stackContext, new ServiceInfo(), serviceDirectory, true);
-              serviceModule.setValid(false);
-              serviceModule.addErrors(metaInfoXml.getErrors());
-              commonServiceModules.put(metaInfoXml.getSchemaVersion(), serviceModule);
-              metaInfoXml.setSchemaVersion(null);
-            }
-          }
-        }
+        Collections.addAll(serviceFolders, commonService.listFiles(StackDirectory.FILENAME_FILTER));
+      }
+
+      for (Map<String, ServiceModule> serviceModules : parseConcurrently(serviceFolders, pool,
+          this::parseCommonServiceFolder)) {
+        commonServiceModules.putAll(serviceModules);
       }
     }
     return commonServiceModules;
   }
 
+  /**
+   * Parse a common service version directory.
+   *
+   * @param serviceFolder  the common service version directory to parse
+   * @return map of common service id which contains name and version to common service module.
+   * @throws AmbariException if unable to parse the common service
+   */
+  private Map<String, ServiceModule> parseCommonServiceFolder(File serviceFolder) throws AmbariException {
+    Map<String, ServiceModule> serviceModules = new LinkedHashMap<>();
+
+    ServiceDirectory serviceDirectory = new CommonServiceDirectory(serviceFolder.getPath());
+    ServiceMetainfoXml metaInfoXml = serviceDirectory.getMetaInfoFile();
+    if (metaInfoXml != null) {
+      if (metaInfoXml.isValid()) {
+        for (ServiceInfo serviceInfo : metaInfoXml.getServices()) {
+          ServiceModule serviceModule = new ServiceModule(stackContext, serviceInfo, serviceDirectory, true);
+
+          String commonServiceKey = serviceInfo.getName() + StackManager.PATH_DELIMITER + serviceInfo.getVersion();
+          serviceModules.put(commonServiceKey, serviceModule);
+        }
+      } else {
+        ServiceModule serviceModule = new ServiceModule(stackContext, new ServiceInfo(), serviceDirectory, true);
+        serviceModule.setValid(false);
+        serviceModule.addErrors(metaInfoXml.getErrors());
+        serviceModules.put(metaInfoXml.getSchemaVersion(), serviceModule);
+        metaInfoXml.setSchemaVersion(null);
+      }
+    }
+    return serviceModules;
+  }
+
   /**
    * Parse the specified stack root directory
    *
@@ -601,9 +650,10 @@ public class StackManager {
    * @return map of stack id which contains name and version to stack module.
    * @throws AmbariException if unable to parse all stacks
    */
-  private Map<String, StackModule> parseStackDirectory(File stackRoot) throws AmbariException {
+  private Map<String, StackModule> parseStackDirectory(File stackRoot, ForkJoinPool pool) throws AmbariException {
     Map<String, StackModule> stackModules = new HashMap<>();
 
+    List<File> stackFolders = new ArrayList<>();
     File[] stackFiles = stackRoot.listFiles(StackDirectory.FILENAME_FILTER);
     for (File stack : stackFiles) {
       if (stack.isFile()) {
@@ -613,16 +663,24 @@ public class StackManager {
         if (stackFolder.isFile()) {
           continue;
         }
-        String stackName = stackFolder.getParentFile().getName();
-        String stackVersion = stackFolder.getName();
-
-        StackModule stackModule = new StackModule(new StackDirectory(stackFolder.getPath()), stackContext);
-        String stackKey = stackName + StackManager.PATH_DELIMITER + stackVersion;
-        stackModules.put(stackKey, stackModule);
-        stackMap.put(stackKey, stackModule.getModuleInfo());
+        stackFolders.add(stackFolder);
       }
     }
 
+    List<StackModule> parsedModules = parseConcurrently(stackFolders, pool,
+        stackFolder -> new StackModule(new StackDirectory(stackFolder.getPath()), stackContext));
+
+    for (int i = 0; i < stackFolders.size(); i++) {
+      File stackFolder = stackFolders.get(i);
+      String stackName = stackFolder.getParentFile().getName();
+      String stackVersion = stackFolder.getName();
+
+      StackModule stackModule = parsedModules.get(i);
+      String stackKey = stackName + StackManager.PATH_DELIMITER + stackVersion;
+      stackModules.put(stackKey, stackModule);
+      stackMap.put(stackKey, stackModule.getModuleInfo());
+    }
+
     if (stackMap.isEmpty()) {
       throw new AmbariException("Unable to find stack definitions under " +
           "stackRoot = " + stackRoot.getAbsolutePath());
@@ -645,12 +703,14 @@ public class StackManager {
    * @return map of extension id which contains name and version to extension module.
    * @throws AmbariException if unable to parse all extensions
    */
-  private Map<String, ExtensionModule> parseExtensionDirectory(File extensionRoot) throws AmbariException {
+  private Map<String, ExtensionModule> parseExtensionDirectory(File extensionRoot, ForkJoinPool pool)
+      throws AmbariException {
     Map<String, ExtensionModule> extensionModules = new HashMap<>();
     if (extensionRoot == null || !extensionRoot.exists()) {
       return extensionModules;
     }
 
+    List<File> extensionVersionFolders = new ArrayList<>();
     File[] extensionFiles = extensionRoot.listFiles(StackDirectory.FILENAME_FILTER);
     for (File extensionNameFolder : extensionFiles) {
       if (extensionNameFolder.isFile()) {
@@ -660,16 +720,25 @@ public class StackManager {
         if (extensionVersionFolder.isFile()) {
           continue;
         }
-        String extensionName = extensionNameFolder.getName();
-        String extensionVersion = extensionVersionFolder.getName();
-
-        ExtensionModule extensionModule = new ExtensionModule(new ExtensionDirectory(extensionVersionFolder.getPath()), stackContext);
-        String extensionKey = extensionName + StackManager.PATH_DELIMITER + extensionVersion;
-        extensionModules.put(extensionKey, extensionModule);
-        extensionMap.put(extensionKey, extensionModule.getModuleInfo());
+        extensionVersionFolders.add(extensionVersionFolder);
       }
     }
 
+    List<ExtensionModule> parsedModules = parseConcurrently(extensionVersionFolders, pool,
+        extensionVersionFolder -> new ExtensionModule(new ExtensionDirectory(extensionVersionFolder.getPath()),
+            stackContext));
+
+    for (int i = 0; i < extensionVersionFolders.size(); i++) {
+      File extensionVersionFolder = extensionVersionFolders.get(i);
+      String extensionName = extensionVersionFolder.getParentFile().getName();
+      String extensionVersion = extensionVersionFolder.getName();
+
+      ExtensionModule extensionModule = parsedModules.get(i);
+      String extensionKey = extensionName + StackManager.PATH_DELIMITER + extensionVersion;
+      extensionModules.put(extensionKey, extensionModule);
+      extensionMap.put(extensionKey, extensionModule.getModuleInfo());
+    }
+
     if (stackMap.isEmpty()) {
       throw new AmbariException("Unable to find extension definitions under " +
           "extensionRoot = " + extensionRoot.getAbsolutePath());
@@ -677,6 +746,51 @@ public class StackManager {
     return extensionModules;
   }
 
+  /**
+   * Parses the given directories on the pool, one task per directory.
+   *
+   * @param directories  the directories to parse
+   * @param pool         the pool to parse the directories on
+   * @param parser       parses a single directory
+   * @return the results of parsing the directories, in the order of the directories
+   * @throws AmbariException if unable to parse any of the directories
+   */
+  private static <T> List<T> parseConcurrently(List<File> directories, ForkJoinPool pool,
+      DirectoryParser<T> parser) throws AmbariException {
+    List<Callable<T>> tasks = new ArrayList<>(directories.size());
+    for (File directory : directories) {
+      tasks.add(() -> parser.parse(directory));
+    }
+
+    List<T> results = new ArrayList<>(tasks.size());
+    try {
+      for (Future<T> future : pool.invokeAll(tasks)) {
+        results.add(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AmbariException("Interrupted while parsing stack definitions", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof AmbariException) {
+        throw (AmbariException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new AmbariException("Unable to parse stack definitions", cause);
+    }
+    return results;
+  }
+
+  /**
+   * Parses a stack definition directory.
+   */
+  @FunctionalInterface
+  private interface DirectoryParser<T> {
+    T parse(File directory) throws AmbariException;
+  }
+
   public void removeStack(StackEntity stackEntity) {
     String stackKey = stackEntity.getStackName() + StackManager.PATH_DELIMITER +  stackEntity.getStackVersion();
     stackMap.remove(stackKey);
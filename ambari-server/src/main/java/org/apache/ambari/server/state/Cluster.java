@@ -380,6 +380,13 @@ public interface Cluster {
    */
   List<ServiceConfigVersionResponse> getServiceConfigVersions();
 
+  /**
+   * Get service config version history of a single service
+   * @param serviceName service name
+   * @return
+   */
+  List<ServiceConfigVersionResponse> getServiceConfigVersions(String serviceName);
+
   /**
    * Gets the desired (and selected) config by type.
    * @param configType  the type of configuration
@@ -22,8 +22,10 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -332,7 +334,7 @@ public class ConfigHelper {
                 overrideEntry.getValue());
 
             if (overrideConfig != null) {
-              propertyMap = getMergedConfig(propertyMap, overrideConfig.getProperties());
+              mergeConfig(propertyMap, overrideConfig.getProperties());
             }
           }
         }
@@ -405,7 +407,16 @@ public class ConfigHelper {
       String> persistedClusterConfig, Map<String, String> override) {
 
     Map<String, String> finalConfig = new HashMap<>(persistedClusterConfig);
+    mergeConfig(finalConfig, override);
+    return finalConfig;
+  }
 
+  /**
+   * Merge override into the original properties in place.
+   *
+   * @see #getMergedConfig(Map, Map)
+   */
+  private void mergeConfig(Map<String, String> finalConfig, Map<String, String> override) {
     if (override != null && override.size() > 0) {
       for (Entry<String, String> entry : override.entrySet()) {
         Boolean deleted = 0 == entry.getKey().indexOf(DELETED);
@@ -419,8 +430,6 @@ public class ConfigHelper {
         }
       }
     }
-
-    return finalConfig;
   }
 
   /**
@@ -443,15 +452,14 @@ public class ConfigHelper {
         Map<String, String> allLevelMergedConfig = entry.getValue();
 
         if (configurations.containsKey(type)) {
-          Map<String, String> mergedConfig = getMergedConfig(allLevelMergedConfig,
-              configurations.get(type));
+          // effective properties are built for this call only, so present ones are merged into them
+          mergeConfig(allLevelMergedConfig, configurations.get(type));
 
           configurations.get(type).clear();
-          configurations.get(type).putAll(mergedConfig);
+          configurations.get(type).putAll(allLevelMergedConfig);
 
         } else {
-          configurations.put(type, new HashMap<>());
-          configurations.get(type).putAll(allLevelMergedConfig);
+          configurations.put(type, allLevelMergedConfig);
         }
       }
     }
@@ -1577,63 +1585,32 @@ public class ConfigHelper {
     }
 
     // get all current and previous host configs
-    Map<Long, AgentConfigsUpdateEvent> currentConfigEvents = new HashMap<>();
-    Map<Long, AgentConfigsUpdateEvent> previousConfigEvents = new HashMap<>();
+    Set<Long> hostIds = new LinkedHashSet<>();
     for (Cluster cluster : clustersInUse) {
       for (Host host : cluster.getHosts()) {
-        Long hostId = host.getHostId();
-        if (!currentConfigEvents.containsKey(hostId)) {
-          currentConfigEvents.put(host.getHostId(), m_agentConfigsHolder.get().getCurrentData(hostId));
-        }
-        if (!previousConfigEvents.containsKey(host.getHostId())) {
-          previousConfigEvents.put(host.getHostId(),
-              m_agentConfigsHolder.get().initializeDataIfNeeded(hostId, true));
-        }
+        hostIds.add(host.getHostId());
       }
     }
+    Map<Long, AgentConfigsUpdateEvent> currentConfigEvents = getHostsActualConfigs(hostIds);
+    Map<Long, AgentConfigsUpdateEvent> previousConfigEvents = new HashMap<>();
+    for (Long hostId : hostIds) {
+      previousConfigEvents.put(hostId, m_agentConfigsHolder.get().initializeDataIfNeeded(hostId, true));
+    }
 
     for (Cluster cluster : clustersInUse) {
+      String clusterId = Long.toString(cluster.getClusterId());
       Map<Long, Map<String, Collection<String>>> changedConfigs = new HashMap<>();
+
+      // hosts sharing the same current and previous configs snapshots have the same changes
+      Map<ClusterConfigs, Map<ClusterConfigs, Map<String, Collection<String>>>> snapshotsChanges = new IdentityHashMap<>();
       for (Host host : cluster.getHosts()) {
-        AgentConfigsUpdateEvent currentConfigData = currentConfigEvents.get(host.getHostId());
-        AgentConfigsUpdateEvent previousConfigsData = previousConfigEvents.get(host.getHostId());
-
-        SortedMap<String, SortedMap<String, String>> currentConfigs =
-            currentConfigData.getClustersConfigs().get(Long.toString(cluster.getClusterId())).getConfigurations();
-        SortedMap<String, SortedMap<String, String>> previousConfigs =
-            previousConfigsData.getClustersConfigs().get(Long.toString(cluster.getClusterId())).getConfigurations();
-
-        Map<String, Collection<String>> changedConfigsHost = new HashMap<>();
-        for (String currentConfigType : currentConfigs.keySet()) {
-          if (previousConfigs.containsKey(currentConfigType)) {
-            Set<String> changedKeys = new HashSet<>();
-            Map<String, String> currentTypedConfigs = currentConfigs.get(currentConfigType);
-            Map<String, String> previousTypedConfigs = previousConfigs.get(currentConfigType);
-
-            for (String currentKey : currentTypedConfigs.keySet()) {
-              if (!previousTypedConfigs.containsKey(currentKey)
-                  || !currentTypedConfigs.get(currentKey).equals(previousTypedConfigs.get(currentKey))) {
-                changedKeys.add(currentKey);
-              }
-            }
-            for (String previousKey : previousTypedConfigs.keySet()) {
-              if (!currentTypedConfigs.containsKey(previousKey)) {
-                changedKeys.add(previousKey);
-              }
-            }
+        ClusterConfigs currentConfigs = currentConfigEvents.get(host.getHostId()).getClustersConfigs().get(clusterId);
+        ClusterConfigs previousConfigs = previousConfigEvents.get(host.getHostId()).getClustersConfigs().get(clusterId);
 
-            if (!changedKeys.isEmpty()) {
-              changedConfigsHost.put(currentConfigType, changedKeys);
-            }
-          } else {
-            changedConfigsHost.put(currentConfigType, currentConfigs.get(currentConfigType).keySet());
-          }
-        }
-        for (String previousConfigType : previousConfigs.keySet()) {
-          if (!currentConfigs.containsKey(previousConfigType)) {
-            changedConfigsHost.put(previousConfigType, previousConfigs.get(previousConfigType).keySet());
-          }
-        }
+        Map<String, Collection<String>> changedConfigsHost = snapshotsChanges
+            .computeIfAbsent(currentConfigs, k -> new IdentityHashMap<>())
+            .computeIfAbsent(previousConfigs,
+                k -> getChangedConfigs(currentConfigs.getConfigurations(), previousConfigs.getConfigurations()));
         changedConfigs.put(host.getHostId(), changedConfigsHost);
       }
       for (String serviceName : cluster.getServices().keySet()) {
@@ -1645,6 +1622,48 @@ public class ConfigHelper {
     }
   }
 
+  /**
+   * Calculates names of changed properties by config type.
+   * @param currentConfigs actual configurations
+   * @param previousConfigs configurations known by agent
+   * @return map of config types to collections of changed properties' names.
+   */
+  private Map<String, Collection<String>> getChangedConfigs(SortedMap<String, SortedMap<String, String>> currentConfigs,
+                                                            SortedMap<String, SortedMap<String, String>> previousConfigs) {
+    Map<String, Collection<String>> changedConfigs = new HashMap<>();
+    for (String currentConfigType : currentConfigs.keySet()) {
+      if (previousConfigs.containsKey(currentConfigType)) {
+        Set<String> changedKeys = new HashSet<>();
+        Map<String, String> currentTypedConfigs = currentConfigs.get(currentConfigType);
+        Map<String, String> previousTypedConfigs = previousConfigs.get(currentConfigType);
+
+        for (String currentKey : currentTypedConfigs.keySet()) {
+          if (!previousTypedConfigs.containsKey(currentKey)
+              || !currentTypedConfigs.get(currentKey).equals(previousTypedConfigs.get(currentKey))) {
+            changedKeys.add(currentKey);
+          }
+        }
+        for (String previousKey : previousTypedConfigs.keySet()) {
+          if (!currentTypedConfigs.containsKey(previousKey)) {
+            changedKeys.add(previousKey);
+          }
+        }
+
+        if (!changedKeys.isEmpty()) {
+          changedConfigs.put(currentConfigType, changedKeys);
+        }
+      } else {
+        changedConfigs.put(currentConfigType, currentConfigs.get(currentConfigType).keySet());
+      }
+    }
+    for (String previousConfigType : previousConfigs.keySet()) {
+      if (!currentConfigs.containsKey(previousConfigType)) {
+        changedConfigs.put(previousConfigType, previousConfigs.get(previousConfigType).keySet());
+      }
+    }
+    return changedConfigs;
+  }
+
   /**
    * Checks configs are stale after specified config changes for service's components.
    * @param clusterId cluster with changed config
@@ -2106,8 +2125,6 @@ public class ConfigHelper {
       if (clusterId != null && cl.getClusterId() == clusterId) {
         continue;
       }
-      Map<String, Map<String, String>> configurations = new HashMap<>();
-      Map<String, Map<String, Map<String, String>>> configurationAttributes = new HashMap<>();
       Map<String, DesiredConfig> clusterDesiredConfigs = cl.getDesiredConfigs(false);
       Map<String, Map<String, String>> configTags = getEffectiveDesiredTags(cl, host.getHostName(), clusterDesiredConfigs);
 
@@ -2118,21 +2135,77 @@ public class ConfigHelper {
         LOG.debug("For configs update on host {} will be used following effective desired tags {}", hostId, configTags.toString());
       }
 
-      getAndMergeHostConfigs(configurations, configTags, cl);
-      configurations = unescapeConfigNames(configurations);
-      getAndMergeHostConfigAttributes(configurationAttributes, configTags, cl);
-      configurationAttributes = unescapeConfigAttributeNames(configurationAttributes);
-
-      SortedMap<String, SortedMap<String, String>> configurationsTreeMap = sortConfigutations(configurations);
-      SortedMap<String, SortedMap<String, SortedMap<String, String>>> configurationAttributesTreeMap =
-          sortConfigurationAttributes(configurationAttributes);
-      clustersConfigs.put(Long.toString(cl.getClusterId()),
-          new ClusterConfigs(configurationsTreeMap, configurationAttributesTreeMap));
+      clustersConfigs.put(Long.toString(cl.getClusterId()), getClusterConfigs(cl, configTags));
     }
 
     return new AgentConfigsUpdateEvent(hostId, clustersConfigs);
   }
 
+  /**
+   * Collects actual configurations and configuration attributes for specified hosts. Configurations are built once
+   * per distinct set of effective desired tags, so hosts with the same config groups membership (usually none) share
+   * the same {@link ClusterConfigs} instances and clusters configs map. Shared instances should not be modified.
+   * @param hostIds host ids to collect configurations and configuration attributes
+   * @return events ready to send to agents by host id
+   * @throws AmbariException
+   */
+  public Map<Long, AgentConfigsUpdateEvent> getHostsActualConfigs(Collection<Long> hostIds) throws AmbariException {
+    Collection<Cluster> allClusters = clusters.getClusters().values();
+    Map<Long, Map<String, DesiredConfig>> clustersDesiredConfigs = new HashMap<>();
+    for (Cluster cl : allClusters) {
+      clustersDesiredConfigs.put(cl.getClusterId(), cl.getDesiredConfigs(false));
+    }
+
+    Map<Pair<Long, Map<String, Map<String, String>>>, ClusterConfigs> clusterSnapshots = new HashMap<>();
+    Map<Map<Long, Map<String, Map<String, String>>>, SortedMap<String, ClusterConfigs>> snapshots = new HashMap<>();
+    Map<Long, AgentConfigsUpdateEvent> events = new HashMap<>();
+    for (Long hostId : hostIds) {
+      Host host = clusters.getHostById(hostId);
+      Map<Long, Map<String, Map<String, String>>> hostTags = new TreeMap<>();
+      for (Cluster cl : allClusters) {
+        hostTags.put(cl.getClusterId(),
+            getEffectiveDesiredTags(cl, host.getHostName(), clustersDesiredConfigs.get(cl.getClusterId())));
+      }
+
+      SortedMap<String, ClusterConfigs> clustersConfigs = snapshots.get(hostTags);
+      if (clustersConfigs == null) {
+        clustersConfigs = new TreeMap<>();
+        for (Cluster cl : allClusters) {
+          Pair<Long, Map<String, Map<String, String>>> key = Pair.of(cl.getClusterId(), hostTags.get(cl.getClusterId()));
+          ClusterConfigs clusterConfigs = clusterSnapshots.get(key);
+          if (clusterConfigs == null) {
+            clusterConfigs = getClusterConfigs(cl, key.getValue());
+            clusterSnapshots.put(key, clusterConfigs);
+          }
+          clustersConfigs.put(Long.toString(cl.getClusterId()), clusterConfigs);
+        }
+        snapshots.put(hostTags, clustersConfigs);
+      }
+      events.put(hostId, new AgentConfigsUpdateEvent(hostId, clustersConfigs));
+    }
+
+    LOG.debug("Built {} configs snapshots for {} hosts", snapshots.size(), events.size());
+    return events;
+  }
+
+  /**
+   * Builds configurations and configuration attributes of the cluster for specified effective desired tags.
+   */
+  private ClusterConfigs getClusterConfigs(Cluster cl, Map<String, Map<String, String>> configTags) throws AmbariException {
+    Map<String, Map<String, String>> configurations = new HashMap<>();
+    Map<String, Map<String, Map<String, String>>> configurationAttributes = new HashMap<>();
+
+    getAndMergeHostConfigs(configurations, configTags, cl);
+    configurations = unescapeConfigNames(configurations);
+    getAndMergeHostConfigAttributes(configurationAttributes, configTags, cl);
+    configurationAttributes = unescapeConfigAttributeNames(configurationAttributes);
+
+    SortedMap<String, SortedMap<String, String>> configurationsTreeMap = sortConfigutations(configurations);
+    SortedMap<String, SortedMap<String, SortedMap<String, String>>> configurationAttributesTreeMap =
+        sortConfigurationAttributes(configurationAttributes);
+    return new ClusterConfigs(configurationsTreeMap, configurationAttributesTreeMap);
+  }
+
   private Map<String, Map<String, String>> unescapeConfigNames(Map<String, Map<String, String>> configurations) {
     Map<String, Map<String, String>> unescapedConfigs = new HashMap<>();
     for (Entry<String, Map<String, String>> configTypeEntry : configurations.entrySet()) {
@@ -72,9 +72,11 @@ public class ConfigImpl implements Config {
   private final Long version;
 
   /**
-   * The properties of this configuration. This cannot be a
-   * {@link ConcurrentMap} since we allow null values. Therefore, it must be
-   * synchronized externally.
+   * The properties of this configuration. This is an immutable
+   * {@link ConfigPropertyMap} sharing names and values with other versions of
+   * the same type, which is replaced on every change. Since we allow null
+   * values, it cannot be a {@link ConcurrentMap}, and changes are synchronized
+   * externally.
    */
   private Map<String, String> properties;
 
@@ -86,7 +88,8 @@ public class ConfigImpl implements Config {
   private final ReadWriteLock propertyLock;
 
   /**
-   * The property attributes for this configuration.
+   * The property attributes for this configuration, each attribute is kept as
+   * a {@link ConfigPropertyMap}.
    */
   private Map<String, Map<String, String>> propertiesAttributes;
 
@@ -139,12 +142,11 @@ public class ConfigImpl implements Config {
 
     this.cluster = cluster;
     this.type = type;
-    this.properties = properties;
+    this.properties = ConfigPropertyMap.of(type, properties);
     configPropertiesEncryptor.encryptSensitiveData(this);
 
     // only set this if it's non-null
-    this.propertiesAttributes = null == propertiesAttributes ? null
-        : new HashMap<>(propertiesAttributes);
+    this.propertiesAttributes = compactAttributes(type, propertiesAttributes);
 
     this.clusterDAO = clusterDAO;
     this.gson = new GsonBuilder().disableHtmlEscaping().create();
@@ -212,7 +214,7 @@ public class ConfigImpl implements Config {
         deserializedProperties = new HashMap<>();
       }
 
-      properties = deserializedProperties;
+      properties = ConfigPropertyMap.of(type, deserializedProperties);
       configPropertiesEncryptor.decryptSensitiveData(this);
     } catch (JsonSyntaxException e) {
       LOG.error("Malformed configuration JSON stored in the database for {}/{}", entity.getType(),
@@ -225,7 +227,7 @@ public class ConfigImpl implements Config {
           entity.getAttributes(), Map.class);
 
       if (null != deserializedAttributes) {
-        propertiesAttributes = new HashMap<>(deserializedAttributes);
+        propertiesAttributes = compactAttributes(type, deserializedAttributes);
       }
     } catch (JsonSyntaxException e) {
       LOG.error("Malformed configuration attribute JSON stored in the database for {}/{}",
@@ -256,9 +258,8 @@ public class ConfigImpl implements Config {
 
     this.tag = tag;
     this.type = type;
-    this.properties = new HashMap<>(properties);
-    this.propertiesAttributes = null == propertiesAttributes ? null
-        : new HashMap<>(propertiesAttributes);
+    this.properties = ConfigPropertyMap.of(type, properties);
+    this.propertiesAttributes = compactAttributes(type, propertiesAttributes);
     this.clusterDAO = clusterDAO;
     this.gson = gson;
     this.eventPublisher = eventPublisher;
@@ -314,15 +315,20 @@ public class ConfigImpl implements Config {
 
   @Override
   public Map<String, Map<String, String>> getPropertiesAttributes() {
-    return null == propertiesAttributes ? null
-        : new HashMap<>(propertiesAttributes);
+    Map<String, Map<String, String>> attributes = propertiesAttributes;
+    if (null == attributes) {
+      return null;
+    }
+    Map<String, Map<String, String>> copy = new HashMap<>();
+    attributes.forEach((name, values) -> copy.put(name, values == null ? null : new HashMap<>(values)));
+    return copy;
   }
 
   @Override
   public void setProperties(Map<String, String> properties) {
     propertyLock.writeLock().lock();
     try {
-      this.properties = properties;
+      this.properties = ConfigPropertyMap.of(type, properties);
     } finally {
       propertyLock.writeLock().unlock();
     }
@@ -330,14 +336,16 @@ public class ConfigImpl implements Config {
 
   @Override
   public void setPropertiesAttributes(Map<String, Map<String, String>> propertiesAttributes) {
-    this.propertiesAttributes = propertiesAttributes;
+    this.propertiesAttributes = compactAttributes(type, propertiesAttributes);
   }
 
   @Override
   public void updateProperties(Map<String, String> propertiesToUpdate) {
     propertyLock.writeLock().lock();
     try {
-      properties.putAll(propertiesToUpdate);
+      Map<String, String> updated = new HashMap<>(properties);
+      updated.putAll(propertiesToUpdate);
+      properties = ConfigPropertyMap.of(type, updated);
     } finally {
       propertyLock.writeLock().unlock();
     }
@@ -357,13 +365,28 @@ public class ConfigImpl implements Config {
   public void deleteProperties(List<String> propertyKeysToRemove) {
     propertyLock.writeLock().lock();
     try {
-      Set<String> keySet = properties.keySet();
-      keySet.removeAll(propertyKeysToRemove);
+      Map<String, String> updated = new HashMap<>(properties);
+      updated.keySet().removeAll(propertyKeysToRemove);
+      properties = ConfigPropertyMap.of(type, updated);
     } finally {
       propertyLock.writeLock().unlock();
     }
   }
 
+  /**
+   * Converts property attributes to compact immutable maps shared with other versions of the type.
+   */
+  private static Map<String, Map<String, String>> compactAttributes(String type,
+      @Nullable Map<String, Map<String, String>> propertiesAttributes) {
+    if (null == propertiesAttributes) {
+      return null;
+    }
+    Map<String, Map<String, String>> attributes = new HashMap<>(propertiesAttributes.size());
+    propertiesAttributes.forEach((name, values) ->
+        attributes.put(name, ConfigPropertyMap.of(type == null ? null : type + "/" + name, values)));
+    return attributes;
+  }
+
   /**
    * Persist the entity and update the internal state relationships once the
    * transaction has been committed.
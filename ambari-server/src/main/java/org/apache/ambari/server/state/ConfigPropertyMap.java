@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.state;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * Compact immutable map of configuration properties. Keys and values are kept in two arrays sorted by key, which takes
+ * a fraction of a {@link java.util.HashMap} footprint. Property names are interned, and every new map of a config type
+ * shares the keys array (when the set of names is unchanged) and equal values with the map built last for the same
+ * type, so consecutive versions of a config mostly reference the same objects. Null values are supported, null keys
+ * are not.
+ */
+public final class ConfigPropertyMap extends AbstractMap<String, String> {
+
+  private static final Interner<String> KEYS = Interners.newWeakInterner();
+
+  /**
+   * Map built last for a config type, used as a base for structural sharing.
+   */
+  private static final ConcurrentMap<String, ConfigPropertyMap> LATEST = new ConcurrentHashMap<>();
+
+  private static final ConfigPropertyMap EMPTY = new ConfigPropertyMap(new String[0], new String[0]);
+
+  private final String[] keys;
+  private final String[] values;
+  private int hash;
+
+  private ConfigPropertyMap(String[] keys, String[] values) {
+    this.keys = keys;
+    this.values = values;
+  }
+
+  /**
+   * Creates immutable copy of the properties sharing names and values with the previous map of the same type.
+   *
+   * @param type config type, may be {@code null} if unknown
+   * @param properties properties to copy
+   * @return compact copy of the properties, or {@code null} if properties are {@code null}
+   */
+  @Nullable
+  public static ConfigPropertyMap of(@Nullable String type, @Nullable Map<String, String> properties) {
+    if (properties == null) {
+      return null;
+    }
+    if (properties instanceof ConfigPropertyMap) {
+      return (ConfigPropertyMap) properties;
+    }
+    if (properties.isEmpty()) {
+      return EMPTY;
+    }
+
+    String[] keys = properties.keySet().toArray(new String[0]);
+    Arrays.sort(keys);
+    ConfigPropertyMap previous = type == null ? null : LATEST.get(type);
+    if (previous != null && Arrays.equals(keys, previous.keys)) {
+      keys = previous.keys;
+    } else {
+      for (int i = 0; i < keys.length; i++) {
+        keys[i] = KEYS.intern(keys[i]);
+      }
+    }
+
+    String[] values = new String[keys.length];
+    boolean sameValues = keys == (previous == null ? null : previous.keys);
+    for (int i = 0; i < keys.length; i++) {
+      String value = properties.get(keys[i]);
+      int previousIndex = previous == null ? -1
+          : keys == previous.keys ? i : Arrays.binarySearch(previous.keys, keys[i]);
+      if (previousIndex >= 0 && Objects.equals(value, previous.values[previousIndex])) {
+        value = previous.values[previousIndex];
+      } else {
+        sameValues = false;
+      }
+      values[i] = value;
+    }
+    if (sameValues) {
+      return previous;
+    }
+
+    ConfigPropertyMap map = new ConfigPropertyMap(keys, values);
+    if (type != null) {
+      LATEST.put(type, map);
+    }
+    return map;
+  }
+
+  /**
+   * @return {@code true} if both maps reference the same array of property names.
+   */
+  boolean sharesKeysWith(ConfigPropertyMap other) {
+    return keys == other.keys;
+  }
+
+  @Override
+  public int size() {
+    return keys.length;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return indexOf(key) >= 0;
+  }
+
+  @Override
+  public String get(Object key) {
+    int index = indexOf(key);
+    return index >= 0 ? values[index] : null;
+  }
+
+  private int indexOf(Object key) {
+    return key instanceof String ? Arrays.binarySearch(keys, key) : -1;
+  }
+
+  @Override
+  public Set<Entry<String, String>> entrySet() {
+    return new AbstractSet<Entry<String, String>>() {
+      @Override
+      public Iterator<Entry<String, String>> iterator() {
+        return new Iterator<Entry<String, String>>() {
+          private int index;
+
+          @Override
+          public boolean hasNext() {
+            return index < keys.length;
+          }
+
+          @Override
+          public Entry<String, String> next() {
+            if (index >= keys.length) {
+              throw new NoSuchElementException();
+            }
+            Entry<String, String> entry = new SimpleImmutableEntry<>(keys[index], values[index]);
+            index++;
+            return entry;
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return keys.length;
+      }
+    };
+  }
+
+  @Override
+  public int hashCode() {
+    int h = hash;
+    if (h == 0 && keys.length > 0) {
+      for (int i = 0; i < keys.length; i++) {
+        h += keys[i].hashCode() ^ Objects.hashCode(values[i]);
+      }
+      hash = h;
+    }
+    return h;
+  }
+}
@@ -117,6 +117,31 @@ public class AlertDefinitionHash {
   private ConcurrentMap<String, ConcurrentMap<String, String>> m_hashes =
     new ConcurrentHashMap<>();
 
+  /**
+   * The hosts of every component by cluster ID. This is used to find the hosts
+   * affected by a definition, and the master services of a host, without
+   * walking every host of the cluster. An index is built from the cluster the
+   * first time it is needed and is then kept current by
+   * {@link #addComponentHost(long, String, String, String, boolean)} and
+   * {@link #removeComponentHost(long, String, String, String)}. Indexes are
+   * only added and changed while holding {@link #m_hostIndexLock}.
+   */
+  private final ConcurrentMap<Long, HostIndex> m_hostIndexes = new ConcurrentHashMap<>();
+
+  /**
+   * Guards the changes of {@link #m_hostIndexes} against an index being cached
+   * while a component change is reported.
+   */
+  private final Object m_hostIndexLock = new Object();
+
+  /**
+   * The number of component changes and invalidations reported for any
+   * cluster. A host index is only cached if no change was reported while it
+   * was built, since the walk of the cluster may have missed the change.
+   * Written only while holding {@link #m_hostIndexLock}.
+   */
+  private volatile long m_hostIndexChanges = 0;
+
   /**
    * Gets a unique hash value reprssenting all of the alert definitions that
    * should be scheduled to run on a given host.
@@ -143,7 +168,7 @@ public class AlertDefinitionHash {
       }
     }
 
-    String hash = clusterMapping.get(hostName);
+    String hash = clusterMapping.get(clusterName);
     if (null != hash) {
       return hash;
     }
@@ -154,6 +179,83 @@ public class AlertDefinitionHash {
     return hash;
   }
 
+  /**
+   * Adds a component installed on a host to the host index of the cluster, if
+   * the index was already built.
+   *
+   * @param clusterId
+   *          the ID of the cluster.
+   * @param serviceName
+   *          the service of the component.
+   * @param componentName
+   *          the component installed.
+   * @param hostName
+   *          the host the component was installed on.
+   * @param masterComponent
+   *          whether the component is a master of its service.
+   */
+  public void addComponentHost(long clusterId, String serviceName, String componentName,
+      String hostName, boolean masterComponent) {
+    synchronized (m_hostIndexLock) {
+      m_hostIndexChanges++;
+
+      HostIndex index = m_hostIndexes.get(clusterId);
+      if (null != index) {
+        index.add(serviceName, componentName, hostName, masterComponent);
+      }
+    }
+  }
+
+  /**
+   * Removes a component uninstalled from a host from the host index of the
+   * cluster, if the index was already built.
+   *
+   * @param clusterId
+   *          the ID of the cluster.
+   * @param serviceName
+   *          the service of the component.
+   * @param componentName
+   *          the component uninstalled.
+   * @param hostName
+   *          the host the component was uninstalled from.
+   */
+  public void removeComponentHost(long clusterId, String serviceName, String componentName,
+      String hostName) {
+    synchronized (m_hostIndexLock) {
+      m_hostIndexChanges++;
+
+      HostIndex index = m_hostIndexes.get(clusterId);
+      if (null != index) {
+        index.remove(serviceName, componentName, hostName);
+      }
+    }
+  }
+
+  /**
+   * Discards the host index of a cluster so that it is built again from the
+   * cluster when next needed. This should be invoked when the topology changes
+   * in a way which is not reported per component, such as a service removal.
+   *
+   * @param clusterId
+   *          the ID of the cluster.
+   */
+  public void invalidateHostIndex(long clusterId) {
+    synchronized (m_hostIndexLock) {
+      m_hostIndexChanges++;
+      m_hostIndexes.remove(clusterId);
+    }
+  }
+
+  /**
+   * Discards the host indexes of all clusters.
+   */
+  public void invalidateHostIndexes() {
+    synchronized (m_hostIndexLock) {
+      m_hostIndexChanges++;
+      m_hostIndexes.clear();
+    }
+  }
+
   /**
    * Invalidate all cached hashes causing subsequent lookups to recalculate.
    */
@@ -381,48 +483,130 @@ public class AlertDefinitionHash {
     }
 
     // find all hosts that have the matching service and component
-    for (String hostName : hosts.keySet()) {
+    HostIndex index = getHostIndex(cluster, hosts.keySet());
+    affectedHosts.addAll(index.getHosts(definitionServiceName, definitionComponentName));
+
+    if (!index.hasService(definitionServiceName)) {
+      LOG.warn("The alert definition {} has an unknown service of {}",
+          definitionName, definitionServiceName);
+
+      return affectedHosts;
+    }
+
+    // any hosts that run a master of the definition's service should be
+    // invalidated as well
+    affectedHosts.addAll(index.getMasterHosts(definitionServiceName));
+
+    return affectedHosts;
+  }
+
+  /**
+   * Gets the host index of a cluster, building it if necessary. A built index
+   * is only cached if no component change was reported while it was built;
+   * otherwise it is used once and built again when next needed, so that a
+   * change which the walk of the cluster missed is not lost.
+   *
+   * @param cluster
+   *          the cluster (not {@code null}).
+   * @param hostNames
+   *          the hosts of the cluster, used only if the index is built.
+   * @return the index (never {@code null}).
+   */
+  private HostIndex getHostIndex(Cluster cluster, Collection<String> hostNames) {
+    long clusterId = cluster.getClusterId();
+    HostIndex index = m_hostIndexes.get(clusterId);
+    if (null != index) {
+      return index;
+    }
+
+    long changes = m_hostIndexChanges;
+    index = buildHostIndex(cluster, hostNames);
+
+    synchronized (m_hostIndexLock) {
+      HostIndex cachedIndex = m_hostIndexes.get(clusterId);
+      if (null != cachedIndex) {
+        return cachedIndex;
+      }
+
+      if (changes == m_hostIndexChanges) {
+        m_hostIndexes.put(clusterId, index);
+      } else {
+        LOG.debug("Not caching the alert definition host index of cluster {}, "
+            + "components changed while it was built", cluster.getClusterName());
+      }
+    }
+
+    return index;
+  }
+
+  /**
+   * Gets the host index of a cluster, building it if necessary.
+   *
+   * @param cluster
+   *          the cluster (not {@code null}).
+   * @return the index (never {@code null}).
+   * @throws AmbariException
+   *           if the hosts of the cluster cannot be determined.
+   */
+  private HostIndex getHostIndex(Cluster cluster) throws AmbariException {
+    HostIndex index = m_hostIndexes.get(cluster.getClusterId());
+    if (null != index) {
+      return index;
+    }
+
+    Map<String, Host> hosts = m_clusters.get().getHostsForCluster(cluster.getClusterName());
+    return getHostIndex(cluster, hosts.keySet());
+  }
+
+  /**
+   * Builds the host index of a cluster by walking each of its hosts.
+   *
+   * @param cluster
+   *          the cluster (not {@code null}).
+   * @param hostNames
+   *          the hosts of the cluster (not {@code null}).
+   * @return the index (never {@code null}).
+   */
+  private HostIndex buildHostIndex(Cluster cluster, Collection<String> hostNames) {
+    long startTime = System.currentTimeMillis();
+    HostIndex index = new HostIndex();
+
+    for (String hostName : hostNames) {
       List<ServiceComponentHost> hostComponents = cluster.getServiceComponentHosts(hostName);
-      if (null == hostComponents || hostComponents.size() == 0) {
+      if (null == hostComponents) {
         continue;
       }
 
-      // if a host has a matching service/component, invalidate it
       for (ServiceComponentHost component : hostComponents) {
-        String serviceName = component.getServiceName();
-        String componentName = component.getServiceComponentName();
-        if (serviceName.equals(definitionServiceName)
-            && componentName.equals(definitionComponentName)) {
-          affectedHosts.add(hostName);
-        }
+        index.add(component.getServiceName(), component.getServiceComponentName(), hostName,
+            false);
       }
     }
 
-    // get the service that this alert definition is associated with
-    Map<String, Service> services = cluster.getServices();
-    Service service = services.get(definitionServiceName);
-    if (null == service) {
-      LOG.warn("The alert definition {} has an unknown service of {}",
-          definitionName, definitionServiceName);
+    for (Entry<String, Service> service : cluster.getServices().entrySet()) {
+      index.addService(service.getKey());
 
-      return affectedHosts;
-    }
+      Map<String, ServiceComponent> components = service.getValue().getServiceComponents();
+      if (null == components) {
+        continue;
+      }
 
-    // get all master components of the definition's service; any hosts that
-    // run the master should be invalidated as well
-    Map<String, ServiceComponent> components = service.getServiceComponents();
-    if (null != components) {
       for (Entry<String, ServiceComponent> component : components.entrySet()) {
         if (component.getValue().isMasterComponent()) {
           Map<String, ServiceComponentHost> componentHosts = component.getValue().getServiceComponentHosts();
           if (null != componentHosts) {
-            affectedHosts.addAll(componentHosts.keySet());
+            for (String hostName : componentHosts.keySet()) {
+              index.add(service.getKey(), component.getKey(), hostName, true);
+            }
           }
         }
       }
     }
 
-    return affectedHosts;
+    LOG.debug("Built the alert definition host index of cluster {} with {} hosts in {}ms",
+        cluster.getClusterName(), hostNames.size(), System.currentTimeMillis() - startTime);
+
+    return index;
   }
 
   /**
@@ -631,22 +815,8 @@ public class AlertDefinitionHash {
           }
         }
 
-        // for every service, get the master components and see if the host
-        // is a master
-        Set<String> services = new HashSet<>();
-        for (Entry<String, Service> entry : cluster.getServices().entrySet()) {
-          Service service = entry.getValue();
-          Map<String, ServiceComponent> components = service.getServiceComponents();
-          for (Entry<String, ServiceComponent> component : components.entrySet()) {
-            if (component.getValue().isMasterComponent()) {
-              Map<String, ServiceComponentHost> hosts = component.getValue().getServiceComponentHosts();
-
-              if (hosts.containsKey(hostName)) {
-                services.add(service.getName());
-              }
-            }
-          }
-        }
+        // get the services that the host is a master of
+        Set<String> services = getHostIndex(cluster).getMasterServices(hostName);
 
         // add all service scoped alerts
         if (services.size() > 0) {
@@ -682,4 +852,108 @@ public class AlertDefinitionHash {
       .collect(Collectors.toMap(AlertDefinition::getDefinitionId, Function.identity()));
   }
 
+  /**
+   * The components of the hosts of a cluster, indexed in both directions:
+   * from a service component to its hosts and from a host to the services it
+   * is a master of. Access is synchronized on the instance.
+   */
+  private static final class HostIndex {
+
+    /**
+     * The hosts of each component by service name and component name.
+     */
+    private final Map<String, Map<String, Set<String>>> m_componentHosts = new HashMap<>();
+
+    /**
+     * The hosts of each master component by service name and component name.
+     */
+    private final Map<String, Map<String, Set<String>>> m_masterHosts = new HashMap<>();
+
+    /**
+     * The master components of each host by host name and service name.
+     */
+    private final Map<String, Map<String, Set<String>>> m_hostMasters = new HashMap<>();
+
+    private synchronized void addService(String serviceName) {
+      m_componentHosts.computeIfAbsent(serviceName, name -> new HashMap<>());
+    }
+
+    private synchronized void add(String serviceName, String componentName, String hostName,
+        boolean masterComponent) {
+      add(m_componentHosts, serviceName, componentName, hostName);
+
+      if (masterComponent) {
+        add(m_masterHosts, serviceName, componentName, hostName);
+        add(m_hostMasters, hostName, serviceName, componentName);
+      }
+    }
+
+    private synchronized void remove(String serviceName, String componentName, String hostName) {
+      remove(m_componentHosts, serviceName, componentName, hostName);
+      remove(m_masterHosts, serviceName, componentName, hostName);
+      remove(m_hostMasters, hostName, serviceName, componentName);
+    }
+
+    private synchronized boolean hasService(String serviceName) {
+      return m_componentHosts.containsKey(serviceName);
+    }
+
+    private synchronized Set<String> getHosts(String serviceName, String componentName) {
+      Map<String, Set<String>> components = m_componentHosts.get(serviceName);
+      if (null == components || !components.containsKey(componentName)) {
+        return Collections.emptySet();
+      }
+
+      return new HashSet<>(components.get(componentName));
+    }
+
+    private synchronized Set<String> getMasterHosts(String serviceName) {
+      Map<String, Set<String>> components = m_masterHosts.get(serviceName);
+      if (null == components) {
+        return Collections.emptySet();
+      }
+
+      Set<String> hosts = new HashSet<>();
+      for (Set<String> componentHosts : components.values()) {
+        hosts.addAll(componentHosts);
+      }
+
+      return hosts;
+    }
+
+    private synchronized Set<String> getMasterServices(String hostName) {
+      Map<String, Set<String>> services = m_hostMasters.get(hostName);
+      if (null == services) {
+        return new HashSet<>();
+      }
+
+      return new HashSet<>(services.keySet());
+    }
+
+    private static void add(Map<String, Map<String, Set<String>>> index, String key,
+        String subKey, String value) {
+      index.computeIfAbsent(key, k -> new HashMap<>()).computeIfAbsent(subKey,
+          k -> new HashSet<>()).add(value);
+    }
+
+    private void remove(Map<String, Map<String, Set<String>>> index, String key,
+        String subKey, String value) {
+      Map<String, Set<String>> subIndex = index.get(key);
+      if (null == subIndex) {
+        return;
+      }
+
+      Set<String> values = subIndex.get(subKey);
+      if (null != values && values.remove(value) && values.isEmpty()) {
+        subIndex.remove(subKey);
+
+        // services stay in the component index after their last host is
+        // removed so that they are still known
+        if (subIndex.isEmpty() && index != m_componentHosts) {
+          index.remove(key);
+        }
+      }
+    }
+  }
+
 }
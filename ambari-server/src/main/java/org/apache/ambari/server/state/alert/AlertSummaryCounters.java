@@ -0,0 +1,436 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.state.alert;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.EagerSingleton;
+import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.events.AggregateAlertRecalculateEvent;
+import org.apache.ambari.server.events.AlertEvent;
+import org.apache.ambari.server.events.AlertStateChangeEvent;
+import org.apache.ambari.server.events.InitialAlertEvent;
+import org.apache.ambari.server.events.publishers.AlertEventPublisher;
+import org.apache.ambari.server.orm.dao.AlertHostSummaryDTO;
+import org.apache.ambari.server.orm.dao.AlertSummaryDTO;
+import org.apache.ambari.server.orm.dao.AlertsDAO;
+import org.apache.ambari.server.orm.entities.AlertHistoryEntity;
+import org.apache.ambari.server.state.AlertState;
+import org.apache.ambari.server.state.MaintenanceState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.Subscribe;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * The {@link AlertSummaryCounters} keeps the number of current alerts in each
+ * state per cluster, service and host, so that alert summaries can be rendered
+ * without aggregating the current alerts in the database every time.
+ * <p/>
+ * The counts of a cluster are loaded from the database when they are first
+ * requested and are then updated from the {@link InitialAlertEvent}s and
+ * {@link AlertStateChangeEvent}s published after they were loaded. Maintenance
+ * mode changes and alert removals are not applied incrementally; they cause the
+ * counts to be loaded again, as does
+ * {@link Configuration#getAlertSummaryReconcileInterval()} passing, which
+ * corrects any drift.
+ */
+@Singleton
+@EagerSingleton
+public class AlertSummaryCounters {
+
+  /**
+   * Logger.
+   */
+  private static final Logger LOG = LoggerFactory.getLogger(AlertSummaryCounters.class);
+
+  /**
+   * Used to load the counts from the database.
+   */
+  @Inject
+  private AlertsDAO m_alertsDao;
+
+  /**
+   * Configuration.
+   */
+  @Inject
+  private Configuration m_configuration;
+
+  /**
+   * The loaded counts by cluster ID.
+   */
+  private final ConcurrentMap<Long, ClusterCounts> m_clusterCounts = new ConcurrentHashMap<>();
+
+  /**
+   * Constructor.
+   *
+   * @param publisher
+   *          the publisher of alert events to subscribe to.
+   */
+  @Inject
+  public AlertSummaryCounters(AlertEventPublisher publisher) {
+    publisher.register(this);
+  }
+
+  /**
+   * Counts a newly created alert.
+   *
+   * @param event
+   *          the event for the new alert.
+   */
+  @Subscribe
+  @AllowConcurrentEvents
+  public void onInitialAlertEvent(InitialAlertEvent event) {
+    ClusterCounts counts = getLoadedCounts(event);
+    if (null == counts) {
+      return;
+    }
+
+    AlertHistoryEntity history = event.getNewHistoricalEntry();
+    MaintenanceState maintenanceState = event.getCurrentAlert().getMaintenanceState();
+    counts.move(history.getServiceName(), history.getHostName(), -1,
+        getIndex(history.getAlertState(), maintenanceState));
+  }
+
+  /**
+   * Moves an alert which changed state to the count of its new state. Events
+   * which only change the firmness of an alert have no effect.
+   *
+   * @param event
+   *          the state change event.
+   */
+  @Subscribe
+  @AllowConcurrentEvents
+  public void onAlertStateChangeEvent(AlertStateChangeEvent event) {
+    ClusterCounts counts = getLoadedCounts(event);
+    if (null == counts) {
+      return;
+    }
+
+    AlertHistoryEntity history = event.getNewHistoricalEntry();
+    MaintenanceState maintenanceState = event.getCurrentAlert().getMaintenanceState();
+    int from = getIndex(event.getFromState(), maintenanceState);
+    int to = getIndex(history.getAlertState(), maintenanceState);
+    if (from != to) {
+      counts.move(history.getServiceName(), history.getHostName(), from, to);
+    }
+  }
+
+  /**
+   * Discards the counts of a cluster whose alerts were removed or changed
+   * maintenance mode; they are loaded again when next requested.
+   *
+   * @param event
+   *          the recalculation event.
+   */
+  @Subscribe
+  @AllowConcurrentEvents
+  public void onAggregateAlertRecalculateEvent(AggregateAlertRecalculateEvent event) {
+    m_clusterCounts.remove(event.getClusterId());
+  }
+
+  /**
+   * Gets the summary of all current alerts in a cluster.
+   *
+   * @param clusterId
+   *          the cluster id
+   * @return the summary DTO (never {@code null}).
+   */
+  public AlertSummaryDTO getClusterCounts(long clusterId) {
+    return getCounts(clusterId).getClusterCounts();
+  }
+
+  /**
+   * Gets the summary of the current alerts of a service.
+   *
+   * @param clusterId
+   *          the cluster id
+   * @param serviceName
+   *          the service name
+   * @return the summary DTO (never {@code null}).
+   */
+  public AlertSummaryDTO getServiceCounts(long clusterId, String serviceName) {
+    return getCounts(clusterId).getServiceCounts(serviceName);
+  }
+
+  /**
+   * Gets the summary of the current alerts of a host.
+   *
+   * @param clusterId
+   *          the cluster id
+   * @param hostName
+   *          the host name
+   * @return the summary DTO (never {@code null}).
+   */
+  public AlertSummaryDTO getHostCounts(long clusterId, String hostName) {
+    return getCounts(clusterId).getHostCounts(hostName);
+  }
+
+  /**
+   * Gets the number of hosts in each state, where the state of a host is the
+   * most severe state of its alerts. This is the in-memory equivalent of
+   * {@link AlertsDAO#findCurrentHostCounts(long)}.
+   *
+   * @param clusterId
+   *          the cluster id
+   * @return the summary DTO for host alerts (never {@code null}).
+   */
+  public AlertHostSummaryDTO getHostSummary(long clusterId) {
+    return getCounts(clusterId).getHostSummary();
+  }
+
+  /**
+   * Gets the counts an event should be applied to. Events are published after
+   * their changes are committed, so the changes of an event published before
+   * the counts were loaded are already part of them.
+   *
+   * @param event
+   *          the alert event.
+   * @return the counts, or {@code null} if the counts of the cluster are not
+   *         loaded or already contain the change of the event.
+   */
+  private ClusterCounts getLoadedCounts(AlertEvent event) {
+    ClusterCounts counts = m_clusterCounts.get(event.getClusterId());
+    if (null == counts || event.getPublishTime() < counts.getLoadTime()) {
+      return null;
+    }
+
+    return counts;
+  }
+
+  /**
+   * Gets the counts of a cluster, loading them from the database if they were
+   * not loaded yet or if they are due for reconciliation.
+   *
+   * @param clusterId
+   *          the cluster id
+   * @return the counts (never {@code null}).
+   */
+  private ClusterCounts getCounts(long clusterId) {
+    long reconcileIntervalMs = TimeUnit.MINUTES.toMillis(
+        m_configuration.getAlertSummaryReconcileInterval());
+
+    return m_clusterCounts.compute(clusterId, (id, counts) -> {
+      if (null != counts && System.currentTimeMillis() - counts.getLoadTime() < reconcileIntervalMs) {
+        return counts;
+      }
+
+      return load(id);
+    });
+  }
+
+  /**
+   * Loads the counts of a cluster from the database.
+   *
+   * @param clusterId
+   *          the cluster id
+   * @return the counts (never {@code null}).
+   */
+  private ClusterCounts load(long clusterId) {
+    long startTime = System.currentTimeMillis();
+
+    ClusterCounts counts = new ClusterCounts(startTime);
+    for (Entry<String, AlertSummaryDTO> entry : m_alertsDao.findCurrentPerHostCounts(clusterId).entrySet()) {
+      counts.addHost(entry.getKey(), entry.getValue());
+    }
+
+    for (Entry<String, AlertSummaryDTO> entry : m_alertsDao.findCurrentPerServiceCounts(clusterId).entrySet()) {
+      counts.addService(entry.getKey(), entry.getValue());
+    }
+
+    LOG.debug("Loaded the alert summary counts of cluster {} in {}ms", clusterId,
+        System.currentTimeMillis() - startTime);
+
+    return counts;
+  }
+
+  /**
+   * Gets the index of the count an alert belongs to, mirroring the aggregate
+   * queries of {@link AlertsDAO}: alerts in maintenance mode are counted
+   * regardless of their state.
+   *
+   * @param state
+   *          the state of the alert, or {@code null} if none.
+   * @param maintenanceState
+   *          the maintenance state of the alert.
+   * @return the index into {@link Counts}, or {@code -1} if the alert is not
+   *         counted.
+   */
+  private static int getIndex(AlertState state, MaintenanceState maintenanceState) {
+    if (null != maintenanceState && maintenanceState != MaintenanceState.OFF) {
+      return Counts.MAINTENANCE;
+    }
+
+    if (null == state) {
+      return -1;
+    }
+
+    switch (state) {
+      case OK:
+        return Counts.OK;
+      case WARNING:
+        return Counts.WARNING;
+      case CRITICAL:
+        return Counts.CRITICAL;
+      case UNKNOWN:
+        return Counts.UNKNOWN;
+      default:
+        return -1;
+    }
+  }
+
+  /**
+   * The number of alerts in each state.
+   */
+  private static final class Counts {
+    private static final int OK = 0;
+    private static final int WARNING = 1;
+    private static final int CRITICAL = 2;
+    private static final int UNKNOWN = 3;
+    private static final int MAINTENANCE = 4;
+
+    private final int[] m_counts = new int[5];
+
+    private void add(AlertSummaryDTO summary) {
+      m_counts[OK] += summary.getOkCount();
+      m_counts[WARNING] += summary.getWarningCount();
+      m_counts[CRITICAL] += summary.getCriticalCount();
+      m_counts[UNKNOWN] += summary.getUnknownCount();
+      m_counts[MAINTENANCE] += summary.getMaintenanceCount();
+    }
+
+    private void move(int from, int to) {
+      // a count which drifted is not made negative; reconciliation corrects it
+      if (from >= 0 && m_counts[from] > 0) {
+        m_counts[from]--;
+      }
+
+      if (to >= 0) {
+        m_counts[to]++;
+      }
+    }
+
+    /**
+     * @return the most severe state of the counted alerts, in the same order of
+     *         precedence as {@link AlertsDAO#findCurrentHostCounts(long)}.
+     */
+    private int getHostState() {
+      if (m_counts[CRITICAL] > 0) {
+        return CRITICAL;
+      } else if (m_counts[WARNING] > 0) {
+        return WARNING;
+      } else if (m_counts[UNKNOWN] > 0) {
+        return UNKNOWN;
+      }
+
+      return OK;
+    }
+
+    private AlertSummaryDTO toDTO() {
+      return new AlertSummaryDTO(m_counts[OK], m_counts[WARNING], m_counts[CRITICAL],
+          m_counts[UNKNOWN], m_counts[MAINTENANCE]);
+    }
+  }
+
+  /**
+   * The counts of a single cluster. Access is synchronized on the instance.
+   */
+  private static final class ClusterCounts {
+    private final long m_loadTime;
+    private final Counts m_cluster = new Counts();
+    private final Map<String, Counts> m_services = new HashMap<>();
+    private final Map<String, Counts> m_hosts = new HashMap<>();
+
+    /**
+     * The number of hosts by their most severe alert state.
+     */
+    private final int[] m_hostStates = new int[4];
+
+    private ClusterCounts(long loadTime) {
+      m_loadTime = loadTime;
+    }
+
+    private long getLoadTime() {
+      return m_loadTime;
+    }
+
+    private synchronized void addHost(String hostName, AlertSummaryDTO summary) {
+      m_cluster.add(summary);
+      if (null != hostName) {
+        Counts counts = m_hosts.computeIfAbsent(hostName, name -> new Counts());
+        counts.add(summary);
+        m_hostStates[counts.getHostState()]++;
+      }
+    }
+
+    private synchronized void addService(String serviceName, AlertSummaryDTO summary) {
+      if (null != serviceName) {
+        m_services.computeIfAbsent(serviceName, name -> new Counts()).add(summary);
+      }
+    }
+
+    private synchronized void move(String serviceName, String hostName, int from, int to) {
+      m_cluster.move(from, to);
+
+      if (null != serviceName) {
+        m_services.computeIfAbsent(serviceName, name -> new Counts()).move(from, to);
+      }
+
+      if (null != hostName) {
+        Counts counts = m_hosts.get(hostName);
+        if (null == counts) {
+          counts = new Counts();
+          m_hosts.put(hostName, counts);
+        } else {
+          m_hostStates[counts.getHostState()]--;
+        }
+
+        counts.move(from, to);
+        m_hostStates[counts.getHostState()]++;
+      }
+    }
+
+    private synchronized AlertSummaryDTO getClusterCounts() {
+      return m_cluster.toDTO();
+    }
+
+    private synchronized AlertSummaryDTO getServiceCounts(String serviceName) {
+      Counts counts = m_services.get(serviceName);
+      return null == counts ? new Counts().toDTO() : counts.toDTO();
+    }
+
+    private synchronized AlertSummaryDTO getHostCounts(String hostName) {
+      Counts counts = m_hosts.get(hostName);
+      return null == counts ? new Counts().toDTO() : counts.toDTO();
+    }
+
+    private synchronized AlertHostSummaryDTO getHostSummary() {
+      return new AlertHostSummaryDTO(m_hostStates[Counts.OK], m_hostStates[Counts.UNKNOWN],
+          m_hostStates[Counts.WARNING], m_hostStates[Counts.CRITICAL]);
+    }
+  }
+}
@@ -1771,59 +1771,76 @@ public class ClusterImpl implements Cluster {
   public List<ServiceConfigVersionResponse> getServiceConfigVersions() {
     clusterGlobalLock.readLock().lock();
     try {
-      List<ServiceConfigVersionResponse> serviceConfigVersionResponses = new ArrayList<>();
+      return getServiceConfigVersions(serviceConfigDAO.getServiceConfigs(getClusterId()));
+    } finally {
+      clusterGlobalLock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public List<ServiceConfigVersionResponse> getServiceConfigVersions(String serviceName) {
+    clusterGlobalLock.readLock().lock();
+    try {
+      return getServiceConfigVersions(serviceConfigDAO.getServiceConfigs(getClusterId(), serviceName));
+    } finally {
+      clusterGlobalLock.readLock().unlock();
+    }
+  }
 
-      List<ServiceConfigEntity> serviceConfigs = serviceConfigDAO.getServiceConfigs(getClusterId());
+  /**
+   * Converts the given service configs into responses, marking the active
+   * version of every service and config group as current. Must be called under
+   * the cluster read lock.
+   */
+  private List<ServiceConfigVersionResponse> getServiceConfigVersions(List<ServiceConfigEntity> serviceConfigs) {
+    List<ServiceConfigVersionResponse> serviceConfigVersionResponses = new ArrayList<>();
 
-      // Gather for each service in each config group the active service config response  as we
-      // iterate through all service config responses
-      Map<String, Map<String, ServiceConfigVersionResponse>> activeServiceConfigResponses = new HashMap<>();
+    // Gather for each service in each config group the active service config response  as we
+    // iterate through all service config responses
+    Map<String, Map<String, ServiceConfigVersionResponse>> activeServiceConfigResponses = new HashMap<>();
 
-      for (ServiceConfigEntity serviceConfigEntity : serviceConfigs) {
-        ServiceConfigVersionResponse serviceConfigVersionResponse = convertToServiceConfigVersionResponse(serviceConfigEntity);
+    for (ServiceConfigEntity serviceConfigEntity : serviceConfigs) {
+      ServiceConfigVersionResponse serviceConfigVersionResponse = convertToServiceConfigVersionResponse(serviceConfigEntity);
 
-        Map<String, ServiceConfigVersionResponse> activeServiceConfigResponseGroups = activeServiceConfigResponses.get(serviceConfigVersionResponse.getServiceName());
+      Map<String, ServiceConfigVersionResponse> activeServiceConfigResponseGroups = activeServiceConfigResponses.get(serviceConfigVersionResponse.getServiceName());
 
-        if (activeServiceConfigResponseGroups == null) {
-          Map<String, ServiceConfigVersionResponse> serviceConfigGroups = new HashMap<>();
-          activeServiceConfigResponses.put(serviceConfigVersionResponse.getServiceName(), serviceConfigGroups);
+      if (activeServiceConfigResponseGroups == null) {
+        Map<String, ServiceConfigVersionResponse> serviceConfigGroups = new HashMap<>();
+        activeServiceConfigResponses.put(serviceConfigVersionResponse.getServiceName(), serviceConfigGroups);
 
-          activeServiceConfigResponseGroups = serviceConfigGroups;
-        }
+        activeServiceConfigResponseGroups = serviceConfigGroups;
+      }
 
-        // the active config within a group
-        ServiceConfigVersionResponse activeServiceConfigResponse = activeServiceConfigResponseGroups.get(serviceConfigVersionResponse.getGroupName());
+      // the active config within a group
+      ServiceConfigVersionResponse activeServiceConfigResponse = activeServiceConfigResponseGroups.get(serviceConfigVersionResponse.getGroupName());
 
-        if (activeServiceConfigResponse == null && !ServiceConfigVersionResponse.DELETED_CONFIG_GROUP_NAME.equals(serviceConfigVersionResponse.getGroupName())) {
-          // service config version with deleted group should always be marked is not current
+      if (activeServiceConfigResponse == null && !ServiceConfigVersionResponse.DELETED_CONFIG_GROUP_NAME.equals(serviceConfigVersionResponse.getGroupName())) {
+        // service config version with deleted group should always be marked is not current
+        activeServiceConfigResponseGroups.put(serviceConfigVersionResponse.getGroupName(), serviceConfigVersionResponse);
+        activeServiceConfigResponse = serviceConfigVersionResponse;
+      }
+      if (serviceConfigEntity.getGroupId() == null) {
+        if (serviceConfigVersionResponse.getCreateTime() > activeServiceConfigResponse.getCreateTime()) {
           activeServiceConfigResponseGroups.put(serviceConfigVersionResponse.getGroupName(), serviceConfigVersionResponse);
-          activeServiceConfigResponse = serviceConfigVersionResponse;
-        }
-        if (serviceConfigEntity.getGroupId() == null) {
-          if (serviceConfigVersionResponse.getCreateTime() > activeServiceConfigResponse.getCreateTime()) {
-            activeServiceConfigResponseGroups.put(serviceConfigVersionResponse.getGroupName(), serviceConfigVersionResponse);
-          }
-        }
-        else if (clusterConfigGroups != null && clusterConfigGroups.containsKey(serviceConfigEntity.getGroupId())){
-          if (serviceConfigVersionResponse.getVersion() > activeServiceConfigResponse.getVersion()) {
-            activeServiceConfigResponseGroups.put(serviceConfigVersionResponse.getGroupName(), serviceConfigVersionResponse);
-          }
         }
-
-        serviceConfigVersionResponse.setIsCurrent(false);
-        serviceConfigVersionResponses.add(getServiceConfigVersionResponseWithConfig(serviceConfigVersionResponse, serviceConfigEntity));
       }
-
-      for (Map<String, ServiceConfigVersionResponse> serviceConfigVersionResponseGroup: activeServiceConfigResponses.values()) {
-        for (ServiceConfigVersionResponse serviceConfigVersionResponse : serviceConfigVersionResponseGroup.values()) {
-          serviceConfigVersionResponse.setIsCurrent(true);
+      else if (clusterConfigGroups != null && clusterConfigGroups.containsKey(serviceConfigEntity.getGroupId())){
+        if (serviceConfigVersionResponse.getVersion() > activeServiceConfigResponse.getVersion()) {
+          activeServiceConfigResponseGroups.put(serviceConfigVersionResponse.getGroupName(), serviceConfigVersionResponse);
         }
       }
 
-      return serviceConfigVersionResponses;
-    } finally {
-      clusterGlobalLock.readLock().unlock();
+      serviceConfigVersionResponse.setIsCurrent(false);
+      serviceConfigVersionResponses.add(getServiceConfigVersionResponseWithConfig(serviceConfigVersionResponse, serviceConfigEntity));
     }
+
+    for (Map<String, ServiceConfigVersionResponse> serviceConfigVersionResponseGroup: activeServiceConfigResponses.values()) {
+      for (ServiceConfigVersionResponse serviceConfigVersionResponse : serviceConfigVersionResponseGroup.values()) {
+        serviceConfigVersionResponse.setIsCurrent(true);
+      }
+    }
+
+    return serviceConfigVersionResponses;
   }
 
   private Set<ServiceConfigVersionResponse> getActiveServiceConfigVersionSet() {
@@ -26,17 +26,27 @@ import java.io.Writer;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.xml.bind.JAXBContext;
@@ -49,6 +59,7 @@ import org.apache.ambari.server.AmbariService;
 import org.apache.ambari.server.api.services.AmbariMetaInfo;
 import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.events.AlertEvent;
+import org.apache.ambari.server.metrics.system.impl.ServerInternalsMetricsSource;
 import org.apache.ambari.server.notifications.DispatchCallback;
 import org.apache.ambari.server.notifications.DispatchCredentials;
 import org.apache.ambari.server.notifications.DispatchFactory;
@@ -70,6 +81,11 @@ import org.apache.velocity.app.Velocity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.util.concurrent.AbstractScheduledService;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -90,7 +106,16 @@ import com.google.inject.Provider;
  * <p/>
  * The dispatch system will then make a callback to
  * {@link AlertNoticeDispatchCallback} so that the {@link NotificationState} can
- * be updated to its final value.
+ * be updated to its final value. These updates are collected and written in a
+ * single transaction shortly after they are received.
+ * <p/>
+ * Notifications are queued per target and each target is served by one thread
+ * at a time, so a slow target does not hold up the others. Each notification
+ * type has its own bounded set of threads, so the scheduler thread never
+ * performs the dispatch itself. If
+ * {@link Configuration#getAlertNotificationCoalesceWindow()} is set, repeated
+ * notices for the same alert and target which fall within it are combined into
+ * a single notification of the latest state.
  * <p/>
  * This class uses the templates that are defined via
  * {@link Configuration#getAlertTemplateFile()} or the fallback internal
@@ -151,6 +176,17 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
    */
   private static final String VELOCITY_DISPATCH_KEY = "dispatch";
 
+  /**
+   * The prefix of the metrics of this service.
+   */
+  private static final String METRIC_PREFIX = "alerts.notification";
+
+  /**
+   * The time to wait for further dispatch callbacks before writing the
+   * collected {@link NotificationState} updates.
+   */
+  private static final long NOTICE_STATE_FLUSH_DELAY_MILLIS = 1000;
+
   /**
    * Gson used to convert JSON properties to a map.
    */
@@ -164,7 +200,7 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
 
   /**
    * The factory used to get an {@link NotificationDispatcher} instance to
-   * submit to the {@link #m_executor}.
+   * dispatch through {@link #getExecutor(String)}.
    */
   @Inject
   private DispatchFactory m_dispatchFactory;
@@ -188,23 +224,80 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
   private Provider<AmbariMetaInfo> m_metaInfo;
 
   /**
-   * The executor responsible for dispatching.
+   * The executor used for dispatching all notification types, if set by
+   * {@link #setExecutor(Executor)}.
    */
   private Executor m_executor;
 
+  /**
+   * The executors responsible for dispatching, by notification type. Each
+   * executor's queue holds at most one task per target since each
+   * {@link TargetQueue} is only scheduled when it is not already running.
+   */
+  private final ConcurrentMap<String, ExecutorService> m_dispatchExecutors = new ConcurrentHashMap<>();
+
+  /**
+   * The notifications waiting to be dispatched, by target ID.
+   */
+  private final ConcurrentMap<Long, TargetQueue> m_targetQueues = new ConcurrentHashMap<>();
+
+  /**
+   * The number of notifications in all of the {@link #m_targetQueues}.
+   */
+  private final AtomicInteger m_queuedNotifications = new AtomicInteger();
+
+  /**
+   * The {@link NotificationState} updates received from dispatch callbacks
+   * which are not yet written, by notice UUID.
+   */
+  private final ConcurrentMap<String, NotificationState> m_pendingNoticeStates = new ConcurrentHashMap<>();
+
+  /**
+   * Whether a write of the {@link #m_pendingNoticeStates} is scheduled.
+   */
+  private final AtomicBoolean m_noticeStateFlushScheduled = new AtomicBoolean();
+
+  /**
+   * The executor which writes the {@link #m_pendingNoticeStates}.
+   */
+  private final ScheduledExecutorService m_noticeStateExecutor;
+
+  /**
+   * The time from an alert being received until its notification is handed to
+   * a dispatcher.
+   */
+  private final Timer m_notificationLag;
+
+  /**
+   * The number of notices which were combined into a later notice for the same
+   * alert.
+   */
+  private final Counter m_coalescedNotices;
+
+  /**
+   * The number of {@link NotificationState} updates written per transaction.
+   */
+  private final Histogram m_noticeStateBatchSize;
+
   /**
    * Constructor.
    */
   public AlertNoticeDispatchService() {
-    m_executor = new ThreadPoolExecutor(0, 2, 5L, TimeUnit.MINUTES,
-      new LinkedBlockingQueue<>(), new AlertDispatchThreadFactory(),
-        new ThreadPoolExecutor.CallerRunsPolicy());
+    m_noticeStateExecutor = Executors.newSingleThreadScheduledExecutor(
+        new AlertDispatchThreadFactory("alert-dispatch-callback-"));
 
     GsonBuilder gsonBuilder = new GsonBuilder();
     gsonBuilder.registerTypeAdapter(AlertTargetProperties.class,
         new AlertTargetPropertyDeserializer());
 
     m_gson = gsonBuilder.create();
+
+    MetricRegistry registry = ServerInternalsMetricsSource.getRegistry();
+    m_notificationLag = registry.timer(METRIC_PREFIX + ".lag");
+    m_coalescedNotices = registry.counter(METRIC_PREFIX + ".coalesced");
+    m_noticeStateBatchSize = registry.histogram(METRIC_PREFIX + ".state.batch.size");
+    ServerInternalsMetricsSource.registerGauge(METRIC_PREFIX + ".queued",
+        (Gauge<Integer>) m_queuedNotifications::get);
   }
 
   /**
@@ -255,8 +348,27 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
   }
 
   /**
-   * Sets the {@link Executor} to use when dispatching {@link Notification}s.
-   * This should only be used by unit tests to provide a mock executor.
+   * {@inheritDoc}
+   * <p/>
+   * Stops the dispatch executors and writes any {@link NotificationState}
+   * updates which were already received.
+   */
+  @Override
+  protected void shutDown() throws Exception {
+    for (ExecutorService executor : m_dispatchExecutors.values()) {
+      executor.shutdown();
+    }
+
+    m_noticeStateExecutor.shutdown();
+    flushNoticeStates();
+
+    super.shutDown();
+  }
+
+  /**
+   * Sets the {@link Executor} to use when dispatching {@link Notification}s of
+   * every type. This should only be used by unit tests to provide a mock
+   * executor.
    *
    * @param executor
    *          the executor to use (not {@code null).
@@ -289,17 +401,184 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
       try {
         String targetType = target.getNotificationType();
         NotificationDispatcher dispatcher = m_dispatchFactory.getDispatcher(targetType);
+        List<CoalescedNotice> coalescedNotices = coalesce(notices);
 
         // create a single digest notification if supported
         if (dispatcher.isDigestSupported()) {
-          createSingleNotice(dispatcher, target, notices);
+          createSingleNotice(dispatcher, target, coalescedNotices);
         } else {
-          createSeparateNotices(dispatcher, target, notices);
+          createSeparateNotices(dispatcher, target, coalescedNotices);
         }
       } catch (Exception e) {
         LOG.error("Caught exception during Alert Notice dispatching.", e);
       }
     }
+
+    // write the outcome of anything which was dispatched or failed already
+    flushNoticeStates();
+  }
+
+  /**
+   * Combines the notices of a single target which are for the same alert and
+   * were created within {@link Configuration#getAlertNotificationCoalesceWindow()}
+   * of each other. Only the latest notice of each combined group is rendered,
+   * but the UUIDs of all of them are kept so that they share its outcome.
+   *
+   * @param notices
+   *          the notices of a single target (not {@code null}).
+   * @return the notices to render, ordered by alert time (never {@code null}).
+   */
+  private List<CoalescedNotice> coalesce(List<AlertNoticeEntity> notices) {
+    long window = TimeUnit.SECONDS.toMillis(m_configuration.getAlertNotificationCoalesceWindow());
+
+    List<AlertNoticeEntity> sorted = new ArrayList<>(notices);
+    sorted.sort(Comparator.comparingLong(AlertNoticeDispatchService::getAlertTimestamp));
+
+    List<CoalescedNotice> coalesced = new ArrayList<>(sorted.size());
+    Map<String, CoalescedNotice> latestByAlert = new HashMap<>();
+
+    for (AlertNoticeEntity notice : sorted) {
+      AlertHistoryEntity history = notice.getAlertHistory();
+      String alertKey = history.getAlertDefinition().getDefinitionId() + "/"
+          + history.getHostName() + "/" + history.getAlertInstance();
+
+      CoalescedNotice latest = latestByAlert.get(alertKey);
+      if (window > 0 && null != latest
+          && getAlertTimestamp(notice) - getAlertTimestamp(latest.m_notice) <= window) {
+        latest.coalesce(notice);
+        m_coalescedNotices.inc();
+        continue;
+      }
+
+      CoalescedNotice coalescedNotice = new CoalescedNotice(notice);
+      coalesced.add(coalescedNotice);
+      latestByAlert.put(alertKey, coalescedNotice);
+    }
+
+    if (coalesced.size() < notices.size()) {
+      LOG.debug("Combined {} alert notices into {} notifications", notices.size(),
+          coalesced.size());
+    }
+
+    return coalesced;
+  }
+
+  /**
+   * Gets the time of the alert that a notice is for.
+   *
+   * @param notice
+   *          the notice (not {@code null}).
+   * @return the alert time, or {@code 0} if not known.
+   */
+  private static long getAlertTimestamp(AlertNoticeEntity notice) {
+    Long timestamp = notice.getAlertHistory().getAlertTimestamp();
+    return null == timestamp ? 0 : timestamp;
+  }
+
+  /**
+   * Queues a notification for its target and schedules the target to be
+   * served on the executor for its notification type.
+   *
+   * @param dispatcher
+   *          the dispatcher of the notification (not {@code null}).
+   * @param target
+   *          the target of the notification (not {@code null}).
+   * @param notification
+   *          the notification (not {@code null}).
+   * @param alertTimestamp
+   *          the time of the earliest alert in the notification.
+   */
+  private void dispatch(NotificationDispatcher dispatcher, AlertTargetEntity target,
+      AlertNotification notification, long alertTimestamp) {
+    TargetQueue queue = m_targetQueues.computeIfAbsent(target.getTargetId(),
+        targetId -> new TargetQueue());
+
+    queue.add(new DispatchTask(dispatcher, notification, alertTimestamp),
+        getExecutor(target.getNotificationType()));
+  }
+
+  /**
+   * Gets the executor which dispatches notifications of the given type,
+   * creating it if necessary.
+   *
+   * @param targetType
+   *          the notification type.
+   * @return the executor (never {@code null}).
+   */
+  private Executor getExecutor(String targetType) {
+    if (null != m_executor) {
+      return m_executor;
+    }
+
+    return m_dispatchExecutors.computeIfAbsent(targetType, type -> {
+      int threads = Math.max(1, m_configuration.getAlertNotificationDispatchThreads());
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 5L,
+          TimeUnit.MINUTES, new LinkedBlockingQueue<>(),
+          new AlertDispatchThreadFactory("alert-dispatch-" + type.toLowerCase() + "-"));
+
+      executor.allowCoreThreadTimeOut(true);
+      return executor;
+    });
+  }
+
+  /**
+   * Collects a {@link NotificationState} update from a dispatch callback and
+   * schedules the collected updates to be written if they are not already.
+   *
+   * @param callbackIds
+   *          the UUIDs of the notices.
+   * @param state
+   *          the new state of the notices.
+   */
+  private void queueNoticeStates(List<String> callbackIds, NotificationState state) {
+    if (null == callbackIds || callbackIds.isEmpty()) {
+      return;
+    }
+
+    for (String callbackId : callbackIds) {
+      m_pendingNoticeStates.put(callbackId, state);
+    }
+
+    if (m_noticeStateFlushScheduled.compareAndSet(false, true)) {
+      try {
+        m_noticeStateExecutor.schedule(this::flushNoticeStates,
+            NOTICE_STATE_FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException exception) {
+        // shutting down; the updates are written by shutDown()
+        m_noticeStateFlushScheduled.set(false);
+      }
+    }
+  }
+
+  /**
+   * Writes all of the collected {@link NotificationState} updates in a single
+   * transaction.
+   */
+  private void flushNoticeStates() {
+    m_noticeStateFlushScheduled.set(false);
+    if (m_pendingNoticeStates.isEmpty()) {
+      return;
+    }
+
+    Map<String, NotificationState> states = new HashMap<>();
+    for (Entry<String, NotificationState> entry : m_pendingNoticeStates.entrySet()) {
+      if (m_pendingNoticeStates.remove(entry.getKey(), entry.getValue())) {
+        states.put(entry.getKey(), entry.getValue());
+      }
+    }
+
+    if (states.isEmpty()) {
+      return;
+    }
+
+    try {
+      m_dao.updateNoticeStates(states);
+      m_noticeStateBatchSize.update(states.size());
+    } catch (Exception exception) {
+      LOG.error(
+          "Unable to update the state of {} alert notices, notifications will continue to be sent",
+          states.size(), exception);
+    }
   }
 
   /**
@@ -343,7 +622,7 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
    * @param notices notices should be dispatched.
    */
   private void createSingleNotice(NotificationDispatcher dispatcher, AlertTargetEntity target,
-                                           List<AlertNoticeEntity> notices) {
+                                           List<CoalescedNotice> notices) {
     AlertNotification notification = buildNotificationFromTarget(target);
     notification.CallbackIds = new ArrayList<>(notices.size());
     List<AlertHistoryEntity> histories = new ArrayList<>(
@@ -351,11 +630,13 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
 
     // add callback IDs so that the notices can be marked as DELIVERED or
     // FAILED, and create a list of just the alert histories
-    for (AlertNoticeEntity notice : notices) {
-      AlertHistoryEntity history = notice.getAlertHistory();
+    long alertTimestamp = Long.MAX_VALUE;
+    for (CoalescedNotice notice : notices) {
+      AlertHistoryEntity history = notice.m_notice.getAlertHistory();
       histories.add(history);
 
-      notification.CallbackIds.add(notice.getUuid());
+      notification.CallbackIds.addAll(notice.m_callbackIds);
+      alertTimestamp = Math.min(alertTimestamp, notice.m_firstAlertTimestamp);
     }
 
 
@@ -365,8 +646,7 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
       renderDigestNotificationContent(dispatcher, notification, histories, target);
 
       // dispatch
-      DispatchRunnable runnable = new DispatchRunnable(dispatcher, notification);
-      m_executor.execute(runnable);
+      dispatch(dispatcher, target, notification, alertTimestamp);
     } catch (Exception exception) {
       LOG.error("Unable to create notification for alerts", exception);
 
@@ -384,11 +664,11 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
    * @param notices notices should be dispatched.
    */
   private void createSeparateNotices(NotificationDispatcher dispatcher, AlertTargetEntity target,
-                                      List<AlertNoticeEntity> notices) {
-    for (AlertNoticeEntity notice : notices) {
+                                      List<CoalescedNotice> notices) {
+    for (CoalescedNotice notice : notices) {
       AlertNotification notification = buildNotificationFromTarget(target);
-      AlertHistoryEntity history = notice.getAlertHistory();
-      notification.CallbackIds = Collections.singletonList(notice.getUuid());
+      AlertHistoryEntity history = notice.m_notice.getAlertHistory();
+      notification.CallbackIds = notice.m_callbackIds;
 
       // populate the subject and body fields; if there is a problem
       // generating the content, then mark the notices as FAILED
@@ -396,8 +676,7 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
         renderNotificationContent(dispatcher, notification, history, target);
 
         // dispatch
-        DispatchRunnable runnable = new DispatchRunnable(dispatcher, notification);
-        m_executor.execute(runnable);
+        dispatch(dispatcher, target, notification, notice.m_firstAlertTimestamp);
       } catch (Exception exception) {
         LOG.error("Unable to create notification for alert", exception);
 
@@ -675,12 +954,27 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
 
     private static final AtomicInteger s_threadIdPool = new AtomicInteger(1);
 
+    /**
+     * The prefix of the names of the threads created.
+     */
+    private final String m_namePrefix;
+
+    /**
+     * Constructor.
+     *
+     * @param namePrefix
+     *          the prefix of the names of the threads created.
+     */
+    private AlertDispatchThreadFactory(String namePrefix) {
+      m_namePrefix = namePrefix;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public Thread newThread(Runnable r) {
-      Thread thread = new Thread(r, "alert-dispatch-"
+      Thread thread = new Thread(r, m_namePrefix
           + s_threadIdPool.getAndIncrement());
 
       thread.setDaemon(false);
@@ -702,9 +996,7 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
      */
     @Override
     public void onSuccess(List<String> callbackIds) {
-      for (String callbackId : callbackIds) {
-        updateAlertNotice(callbackId, NotificationState.DELIVERED);
-      }
+      queueNoticeStates(callbackIds, NotificationState.DELIVERED);
     }
 
     /**
@@ -712,34 +1004,139 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
      */
     @Override
     public void onFailure(List<String> callbackIds) {
-      for (String callbackId : callbackIds) {
-        updateAlertNotice(callbackId, NotificationState.FAILED);
+      queueNoticeStates(callbackIds, NotificationState.FAILED);
+    }
+  }
+
+  /**
+   * The {@link CoalescedNotice} is the latest notice for an alert along with
+   * the UUIDs of the earlier notices for the same alert that it replaces.
+   */
+  private static final class CoalescedNotice {
+
+    /**
+     * The notice to render.
+     */
+    private AlertNoticeEntity m_notice;
+
+    /**
+     * The UUIDs of the notice and of those it replaces.
+     */
+    private final List<String> m_callbackIds = new ArrayList<>();
+
+    /**
+     * The time of the alert of the earliest notice.
+     */
+    private final long m_firstAlertTimestamp;
+
+    /**
+     * Constructor.
+     *
+     * @param notice
+     *          the first notice for the alert (not {@code null}).
+     */
+    private CoalescedNotice(AlertNoticeEntity notice) {
+      m_notice = notice;
+      m_callbackIds.add(notice.getUuid());
+      m_firstAlertTimestamp = getAlertTimestamp(notice);
+    }
+
+    /**
+     * Replaces the notice to render with a later notice for the same alert.
+     *
+     * @param notice
+     *          the later notice (not {@code null}).
+     */
+    private void coalesce(AlertNoticeEntity notice) {
+      m_notice = notice;
+      m_callbackIds.add(notice.getUuid());
+    }
+  }
+
+  /**
+   * The {@link DispatchTask} hands a single {@link Notification} to its
+   * {@link NotificationDispatcher} and records how long after the alert this
+   * happened.
+   */
+  private final class DispatchTask implements Runnable {
+
+    private final DispatchRunnable m_runnable;
+    private final long m_alertTimestamp;
+
+    private DispatchTask(NotificationDispatcher dispatcher, Notification notification,
+        long alertTimestamp) {
+      m_runnable = new DispatchRunnable(dispatcher, notification);
+      m_alertTimestamp = alertTimestamp;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run() {
+      if (m_alertTimestamp > 0) {
+        m_notificationLag.update(
+            Math.max(0, System.currentTimeMillis() - m_alertTimestamp), TimeUnit.MILLISECONDS);
       }
+
+      m_runnable.run();
     }
+  }
+
+  /**
+   * The {@link TargetQueue} holds the notifications of a single target. It is
+   * run on at most one thread at a time so that notifications reach the target
+   * in order, and a slow target only ever occupies one dispatch thread.
+   */
+  private final class TargetQueue implements Runnable {
+
+    private final Queue<DispatchTask> m_tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean m_running = new AtomicBoolean();
 
     /**
-     * Updates the {@link AlertNoticeEntity} matching the given UUID with the
-     * specified state.
+     * Queues a notification and schedules this queue to run unless it is
+     * already running.
      *
-     * @param uuid
-     * @param state
+     * @param task
+     *          the notification to dispatch (not {@code null}).
+     * @param executor
+     *          the executor to run this queue on (not {@code null}).
      */
-    private void updateAlertNotice(String uuid, NotificationState state) {
-      try {
-        AlertNoticeEntity entity = m_dao.findNoticeByUuid(uuid);
-        if (null == entity) {
-          LOG.warn("Unable to find an alert notice with UUID {}", uuid);
-          return;
+    private void add(DispatchTask task, Executor executor) {
+      m_tasks.add(task);
+      m_queuedNotifications.incrementAndGet();
+
+      if (m_running.compareAndSet(false, true)) {
+        try {
+          executor.execute(this);
+        } catch (RejectedExecutionException exception) {
+          m_running.set(false);
+          m_tasks.remove(task);
+          m_queuedNotifications.decrementAndGet();
+          throw exception;
         }
-
-        entity.setNotifyState(state);
-        m_dao.merge(entity);
-      } catch (Exception exception) {
-        LOG.error(
-            "Unable to update the alert notice with UUID {} to {}, notifications will continue to be sent",
-            uuid, state, exception);
       }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run() {
+      do {
+        DispatchTask task;
+        while ((task = m_tasks.poll()) != null) {
+          m_queuedNotifications.decrementAndGet();
+          try {
+            task.run();
+          } catch (Exception exception) {
+            LOG.error("Unable to dispatch an alert notification", exception);
+          }
+        }
+
+        m_running.set(false);
+      } while (!m_tasks.isEmpty() && m_running.compareAndSet(false, true));
+    }
   }
 
   /**
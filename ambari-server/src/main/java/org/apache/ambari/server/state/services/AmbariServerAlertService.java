@@ -23,13 +23,20 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.ambari.server.AmbariService;
 import org.apache.ambari.server.alerts.AlertRunnable;
 import org.apache.ambari.server.controller.RootComponent;
+import org.apache.ambari.server.metrics.system.impl.ServerInternalsMetricsSource;
 import org.apache.ambari.server.orm.dao.AlertDefinitionDAO;
 import org.apache.ambari.server.orm.entities.AlertDefinitionEntity;
 import org.apache.ambari.server.state.Cluster;
@@ -41,7 +48,11 @@ import org.apache.ambari.server.state.alert.SourceType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.util.concurrent.AbstractScheduledService;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
 import com.google.inject.Provider;
@@ -51,7 +62,14 @@ import com.google.inject.name.Named;
  * The {@link AmbariServerAlertService} is used to manage the dynamically loaded
  * {@link AlertRunnable}s which perform server-side alert checks. The
  * {@link AlertRunnable}s are scheduled using a {@link ScheduledExecutorService}
- * with a fixed thread pool size.
+ * with a fixed thread pool size, but they are executed on a separate executor
+ * with a thread per scheduled definition so that a runnable which blocks
+ * cannot delay the others.
+ * <p/>
+ * A definition never has more than one run in progress; a run which is due
+ * while the previous one is still going is skipped. A run which does not
+ * complete within the interval of its definition is interrupted, and the next
+ * run only starts once the interrupted one has returned.
  */
 @AmbariService
 public class AmbariServerAlertService extends AbstractScheduledService {
@@ -86,10 +104,36 @@ public class AmbariServerAlertService extends AbstractScheduledService {
   private AlertDefinitionFactory m_alertDefinitionFactory;
 
   /**
-   * The executor to use to run all {@link Runnable} alert classes.
+   * The prefix of the metrics of this service.
+   */
+  private static final String METRIC_PREFIX = "alerts.server.side";
+
+  /**
+   * The executor to use to schedule all {@link Runnable} alert classes and to
+   * enforce their deadlines.
    */
   private ScheduledExecutorService m_scheduledExecutorService;
 
+  /**
+   * The executor which runs the {@link Runnable} alert classes. It is resized
+   * to the number of scheduled definitions, which is the number of runs in
+   * progress when none of them is stuck.
+   */
+  private final ThreadPoolExecutor m_executionService = new ThreadPoolExecutor(1, 1, 0L,
+      TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+      new ThreadFactoryBuilder().setNameFormat("ambari-server-alert-%d").setDaemon(true).build());
+
+  /**
+   * The number of runs which were skipped because the previous run of the
+   * same definition was still in progress.
+   */
+  private final Counter m_skippedRuns;
+
+  /**
+   * The number of runs which were cancelled for exceeding their deadline.
+   */
+  private final Counter m_timedOutRuns;
+
   /**
    * A map of all of the definition names to {@link ScheduledFuture}s.
    */
@@ -100,6 +144,9 @@ public class AmbariServerAlertService extends AbstractScheduledService {
    *
    */
   public AmbariServerAlertService() {
+    MetricRegistry registry = ServerInternalsMetricsSource.getRegistry();
+    m_skippedRuns = registry.counter(METRIC_PREFIX + ".runs.skipped");
+    m_timedOutRuns = registry.counter(METRIC_PREFIX + ".runs.timedout");
   }
 
   @Inject
@@ -135,6 +182,21 @@ public class AmbariServerAlertService extends AbstractScheduledService {
     }
   }
 
+  /**
+   * {@inheritDoc}
+   * <p/>
+   * Cancels all scheduled alerts and any runs in progress.
+   */
+  @Override
+  protected void shutDown() throws Exception {
+    for (Map.Entry<String, ScheduledAlert> entry : m_futureMap.entrySet()) {
+      unschedule(entry.getKey(), entry.getValue());
+    }
+
+    m_scheduledExecutorService.shutdownNow();
+    m_executionService.shutdownNow();
+  }
+
   /**
    * {@inheritDoc}
    * <p/>
@@ -164,7 +226,7 @@ public class AmbariServerAlertService extends AbstractScheduledService {
         // then continue to the next one
         if (!entity.getEnabled()) {
           if (null != scheduledFuture) {
-            unschedule(definitionName, scheduledFuture);
+            unschedule(definitionName, scheduledAlert);
           }
 
           continue;
@@ -181,7 +243,7 @@ public class AmbariServerAlertService extends AbstractScheduledService {
         int scheduledInterval = scheduledAlert.getInterval();
         if (scheduledInterval != entity.getScheduleInterval()) {
           // unschedule
-          unschedule(definitionName, scheduledFuture);
+          unschedule(definitionName, scheduledAlert);
 
           // reschedule
           scheduleRunnable(entity);
@@ -191,19 +253,19 @@ public class AmbariServerAlertService extends AbstractScheduledService {
   }
 
   /**
-   * Invokes {@link ScheduledFuture#cancel(boolean)} and removes the mapping
-   * from {@link #m_futureMap}. Does nothing if the future is not scheduled.
+   * Invokes {@link ScheduledFuture#cancel(boolean)}, cancels any run in
+   * progress and removes the mapping from {@link #m_futureMap}.
    *
-   * @param scheduledFuture
+   * @param scheduledAlert
    */
-  private void unschedule(String definitionName, ScheduledFuture<?> scheduledFuture) {
+  private void unschedule(String definitionName, ScheduledAlert scheduledAlert) {
 
     m_futureMap.remove(definitionName);
+    resizeExecutionService();
 
-    if (null != scheduledFuture) {
-      scheduledFuture.cancel(true);
-      LOG.info("Unscheduled server alert {}", definitionName);
-    }
+    scheduledAlert.getScheduledFuture().cancel(true);
+    scheduledAlert.getExecution().cancel();
+    LOG.info("Unscheduled server alert {}", definitionName);
   }
 
   /**
@@ -247,13 +309,18 @@ public class AmbariServerAlertService extends AbstractScheduledService {
       AlertRunnable alertRunnable = constructor.newInstance(entity.getDefinitionName());
       m_injector.injectMembers(alertRunnable);
 
-      // schedule the runnable alert
+      // schedule the runnable alert; the scheduler only hands it off to the
+      // execution service
+      String definitionName = entity.getDefinitionName();
+      AlertExecution execution = createExecution(definitionName, alertRunnable,
+          TimeUnit.MINUTES.toMillis(interval));
+
       ScheduledFuture<?> scheduledFuture = m_scheduledExecutorService.scheduleWithFixedDelay(
-          alertRunnable, interval, interval, TimeUnit.MINUTES);
+          execution, interval, interval, TimeUnit.MINUTES);
 
-      String definitionName = entity.getDefinitionName();
-      ScheduledAlert scheduledAlert = new ScheduledAlert(scheduledFuture, interval);
+      ScheduledAlert scheduledAlert = new ScheduledAlert(scheduledFuture, execution, interval);
       m_futureMap.put(definitionName, scheduledAlert);
+      resizeExecutionService();
 
       LOG.info("Scheduled server alert {} to run every {} minutes",
           definitionName, interval);
@@ -273,12 +340,203 @@ public class AmbariServerAlertService extends AbstractScheduledService {
     }
   }
 
+  /**
+   * Sizes {@link #m_executionService} to the number of scheduled definitions.
+   * Threads of the runs in progress above the new size end once their run
+   * completes.
+   */
+  private synchronized void resizeExecutionService() {
+    int poolSize = Math.max(1, m_futureMap.size());
+    if (poolSize > m_executionService.getMaximumPoolSize()) {
+      m_executionService.setMaximumPoolSize(poolSize);
+      m_executionService.setCorePoolSize(poolSize);
+    } else {
+      m_executionService.setCorePoolSize(poolSize);
+      m_executionService.setMaximumPoolSize(poolSize);
+    }
+  }
+
+  /**
+   * Creates the {@link AlertExecution} which is scheduled in place of a
+   * runnable.
+   *
+   * @param definitionName
+   *          the name of the definition.
+   * @param alertRunnable
+   *          the runnable to execute.
+   * @param deadlineMillis
+   *          the time after which a run is cancelled.
+   * @return the execution (never {@code null}).
+   */
+  AlertExecution createExecution(String definitionName, Runnable alertRunnable,
+      long deadlineMillis) {
+    return new AlertExecution(definitionName, alertRunnable, deadlineMillis);
+  }
+
+  /**
+   * The {@link AlertExecution} is scheduled in place of an
+   * {@link AlertRunnable}. Each time it is due, it submits the runnable to the
+   * {@link #m_executionService} unless the previous run is still in progress,
+   * and cancels the run if it has not completed by its deadline.
+   */
+  final class AlertExecution implements Runnable {
+    private final String m_definitionName;
+    private final Runnable m_alertRunnable;
+    private final long m_deadlineMillis;
+
+    /**
+     * The run in progress, or {@code null} if none. This is cleared once the
+     * runnable returns, or once the run is cancelled if it never started, so
+     * a runnable which ignores being interrupted never overlaps the next run.
+     */
+    private final AtomicReference<AlertRun> m_running = new AtomicReference<>();
+
+    /**
+     * The duration of each completed run of this definition.
+     */
+    private final Timer m_duration;
+
+    /**
+     * Constructor.
+     *
+     * @param definitionName
+     *          the name of the definition.
+     * @param alertRunnable
+     *          the runnable to execute.
+     * @param deadlineMillis
+     *          the time after which a run is cancelled.
+     */
+    private AlertExecution(String definitionName, Runnable alertRunnable,
+        long deadlineMillis) {
+      m_definitionName = definitionName;
+      m_alertRunnable = alertRunnable;
+      m_deadlineMillis = deadlineMillis;
+      m_duration = ServerInternalsMetricsSource.getRegistry().timer(
+          MetricRegistry.name(METRIC_PREFIX, definitionName, "duration"));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run() {
+      AlertRun run = new AlertRun();
+      if (!m_running.compareAndSet(null, run)) {
+        m_skippedRuns.inc();
+        LOG.warn("Skipping server alert {} because its previous run is still in progress",
+            m_definitionName);
+
+        return;
+      }
+
+      try {
+        m_executionService.execute(run);
+      } catch (RejectedExecutionException exception) {
+        m_running.compareAndSet(run, null);
+        LOG.warn("Unable to run server alert {}", m_definitionName, exception);
+        return;
+      }
+
+      m_scheduledExecutorService.schedule(() -> enforceDeadline(run), m_deadlineMillis,
+          TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs the {@link AlertRunnable} on the execution service.
+     */
+    private void execute() {
+      Timer.Context context = m_duration.time();
+      try {
+        m_alertRunnable.run();
+      } finally {
+        context.stop();
+      }
+    }
+
+    /**
+     * Cancels a run if it has not completed.
+     *
+     * @param run
+     *          the run to cancel.
+     */
+    private void enforceDeadline(AlertRun run) {
+      if (!run.isDone() && run.cancel(true)) {
+        m_timedOutRuns.inc();
+        LOG.warn("Cancelled server alert {} because it did not complete within {}ms",
+            m_definitionName, m_deadlineMillis);
+      }
+    }
+
+    /**
+     * Cancels any run in progress.
+     */
+    void cancel() {
+      AlertRun run = m_running.get();
+      if (null != run) {
+        run.cancel(true);
+      }
+    }
+
+    /**
+     * @return whether a run is in progress.
+     */
+    boolean isRunning() {
+      return null != m_running.get();
+    }
+
+    /**
+     * A single run of the runnable, which releases {@link #m_running} once the
+     * runnable returns, or once it is cancelled before it started.
+     */
+    private final class AlertRun extends FutureTask<Void> {
+
+      /**
+       * Whether the run either started or was released before it started.
+       */
+      private final AtomicBoolean m_started = new AtomicBoolean();
+
+      private AlertRun() {
+        super(AlertExecution.this::execute, null);
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public void run() {
+        if (!m_started.compareAndSet(false, true)) {
+          return;
+        }
+
+        try {
+          super.run();
+        } finally {
+          m_running.compareAndSet(this, null);
+        }
+      }
+
+      /**
+       * {@inheritDoc}
+       * <p/>
+       * A run which started is released once its runnable returns, even if it
+       * was cancelled.
+       */
+      @Override
+      protected void done() {
+        if (m_started.compareAndSet(false, true)) {
+          m_running.compareAndSet(this, null);
+        }
+      }
+    }
+  }
+
   /**
    * The {@link ScheduledAlert} class is used as a way to encapsulate a
    * {@link ScheduledFuture} with the interval it was scheduled with.
    */
   private static final class ScheduledAlert {
     private final ScheduledFuture<?> m_scheduledFuture;
+    private final AlertExecution m_execution;
     private final int m_interval;
 
 
@@ -286,11 +544,14 @@ public class AmbariServerAlertService extends AbstractScheduledService {
      * Constructor.
      *
      * @param scheduledFuture
+     * @param execution
      * @param interval
      */
-    private ScheduledAlert(ScheduledFuture<?> scheduledFuture, int interval) {
+    private ScheduledAlert(ScheduledFuture<?> scheduledFuture, AlertExecution execution,
+        int interval) {
 
       m_scheduledFuture = scheduledFuture;
+      m_execution = execution;
       m_interval = interval;
     }
 
@@ -301,6 +562,13 @@ public class AmbariServerAlertService extends AbstractScheduledService {
       return m_scheduledFuture;
     }
 
+    /**
+     * @return the execution
+     */
+    private AlertExecution getExecution() {
+      return m_execution;
+    }
+
     /**
      * @return the interval
      */
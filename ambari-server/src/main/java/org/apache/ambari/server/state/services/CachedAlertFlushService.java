@@ -35,6 +35,11 @@ import com.google.inject.Inject;
  * alert data to the database. This service is controlled by
  * {@link Configuration#isAlertCacheEnabled()} and
  * {@link Configuration#getAlertCacheFlushInterval()}.
+ * <p/>
+ * Only alert updates which were not already written are flushed. Alert state
+ * and firmness changes are never deferred, so the database always holds them
+ * and the cache reloads them after a restart; the remaining updates are
+ * flushed when the service stops.
  */
 @AmbariService
 @Experimental(feature = ExperimentalFeature.ALERT_CACHING)
@@ -88,10 +93,23 @@ public class CachedAlertFlushService extends AbstractScheduledService {
   @Override
   protected void runOneIteration() throws Exception {
     try {
-      LOG.info("Flushing cached alerts to the database");
+      LOG.info("Flushing {} cached alerts to the database",
+          m_alertsDAO.getPendingCachedAlertCount());
       m_alertsDAO.flushCachedEntitiesToJPA();
     } catch (Exception exception) {
       LOG.error("Unable to flush cached alerts to the database", exception);
     }
   }
+
+  /**
+   * {@inheritDoc}
+   * <p/>
+   * Flushes the remaining cached alerts to the database.
+   */
+  @Override
+  protected void shutDown() throws Exception {
+    if (m_configuration.isAlertCacheEnabled()) {
+      runOneIteration();
+    }
+  }
 }
@@ -48,6 +48,7 @@ import org.apache.ambari.server.events.StaleConfigsUpdateEvent;
 import org.apache.ambari.server.events.TopologyUpdateEvent;
 import org.apache.ambari.server.events.publishers.AmbariEventPublisher;
 import org.apache.ambari.server.events.publishers.STOMPUpdatePublisher;
+import org.apache.ambari.server.orm.AmbariJpaLocalTxnInterceptor;
 import org.apache.ambari.server.orm.dao.HostComponentDesiredStateDAO;
 import org.apache.ambari.server.orm.dao.HostComponentStateDAO;
 import org.apache.ambari.server.orm.dao.HostDAO;
@@ -1012,13 +1013,18 @@ public class ServiceComponentHostImpl implements ServiceComponentHost {
       writeLock.lock();
       try {
         stateMachine.doTransition(event.getType(), event);
+        if (!oldState.equals(stateMachine.getCurrentState())) {
+          // the state is kept in memory, it must follow the data if the enclosing batch fails
+          AmbariJpaLocalTxnInterceptor.runAfterBatchRollback(() -> stateMachine.setCurrentState(oldState));
+        }
         HostComponentStateEntity stateEntity = getStateEntity();
         boolean statusUpdated = !stateEntity.getCurrentState().equals(stateMachine.getCurrentState());
         stateEntity.setCurrentState(stateMachine.getCurrentState());
         stateEntity = hostComponentStateDAO.merge(stateEntity);
         if (statusUpdated) {
-          STOMPUpdatePublisher.publish(new HostComponentsUpdateEvent(Collections.singletonList(
-              HostComponentUpdate.createHostComponentStatusUpdate(stateEntity, oldState))));
+          HostComponentsUpdateEvent updateEvent = new HostComponentsUpdateEvent(Collections.singletonList(
+              HostComponentUpdate.createHostComponentStatusUpdate(stateEntity, oldState)));
+          AmbariJpaLocalTxnInterceptor.runAfterBatchCommit(() -> STOMPUpdatePublisher.publish(updateEvent));
         }
         if (event.getType().equals(ServiceComponentHostEventType.HOST_SVCCOMP_STARTED)) {
           HostComponentDesiredStateEntity desiredStateEntity = getDesiredStateEntity();
@@ -120,12 +120,19 @@ public class LogicalRequest extends Request {
 
     // not explicitly reserved, at least not in this request, so attempt to match to outstanding host requests
     boolean predicateRejected = false;
+    // host requests of a host group share the predicate, so the host is offered to each host group only
+    // until it is declined once instead of evaluating the predicate for every outstanding host request
+    Set<String> decliningHostGroups = new HashSet<>();
     synchronized (outstandingHostRequests) {
       //todo: prioritization of master host requests
+      LOG.info("LogicalRequest.offer: attempting to match a request to a request for a non-reserved host to hostname = {}", host.getHostName());
       Iterator<HostRequest> hostRequestIterator = outstandingHostRequests.iterator();
       while (hostRequestIterator.hasNext()) {
-        LOG.info("LogicalRequest.offer: attempting to match a request to a request for a non-reserved host to hostname = {}", host.getHostName());
-        HostOfferResponse response = hostRequestIterator.next().offer(host);
+        HostRequest hostRequest = hostRequestIterator.next();
+        if (hostRequest.getHostName() == null && decliningHostGroups.contains(hostRequest.getHostgroupName())) {
+          continue;
+        }
+        HostOfferResponse response = hostRequest.offer(host);
         switch (response.getAnswer()) {
           case ACCEPTED:
             hostRequestIterator.remove();
@@ -137,8 +144,11 @@ public class LogicalRequest extends Request {
             LOG.info("LogicalRequest.offer: host request returned DECLINED_DONE for hostname = {}, host request has been removed from list", host.getHostName());
             break;
           case DECLINED_PREDICATE:
-            LOG.info("LogicalRequest.offer: host request returned DECLINED_PREDICATE for hostname = {}", host.getHostName());
+            LOG.debug("LogicalRequest.offer: host request returned DECLINED_PREDICATE for hostname = {}", host.getHostName());
             predicateRejected = true;
+            if (hostRequest.getHostName() == null) {
+              decliningHostGroups.add(hostRequest.getHostgroupName());
+            }
             break;
         }
       }
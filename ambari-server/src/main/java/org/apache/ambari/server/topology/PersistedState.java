@@ -64,6 +64,14 @@ public interface PersistedState {
    */
   void registerHostName(long hostRequestId, String hostName);
 
+  /**
+   * Register hosts with their host requests and with the topology host info
+   * in a single transaction.
+   *
+   * @param hostsByHostRequestId  hosts keyed by the id of the host request they were matched to
+   */
+  void registerHosts(Map<Long, ? extends Host> hostsByHostRequestId);
+
   /**
    * Get all persisted requests.  This is used to replay all
    * requests upon ambari startup.
@@ -170,6 +170,15 @@ public class PersistedStateImpl implements PersistedState {
     }
   }
 
+  @Override
+  @Transactional
+  public void registerHosts(Map<Long, ? extends Host> hostsByHostRequestId) {
+    for (Map.Entry<Long, ? extends Host> entry : hostsByHostRequestId.entrySet()) {
+      registerHostName(entry.getKey(), entry.getValue().getHostName());
+      registerInTopologyHostInfo(entry.getValue());
+    }
+  }
+
   @Override
   public void registerInTopologyHostInfo(Host host) {
     TopologyHostInfoEntity entity = topologyHostInfoDAO.findByHostname(host.getHostName());
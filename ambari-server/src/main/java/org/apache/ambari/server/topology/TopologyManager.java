@@ -24,12 +24,15 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -125,16 +128,26 @@ public class TopologyManager {
    * TopologyTasks are submitted into ExecutorService for each cluster,
    * however the ExecutorService is started only after cluster configuration is finished.
    */
-  private final Map<Long, ManagedThreadPoolExecutor> topologyTaskExecutorServiceMap = new HashMap<>();
+  private final Map<Long, ManagedThreadPoolExecutor> topologyTaskExecutorServiceMap = new ConcurrentHashMap<>();
 
   private Collection<String> hostsToIgnore = new HashSet<>();
+
+  /**
+   * Registered hosts not matched to any request yet. The monitor of this list is the host matching lock, which is
+   * held only while hosts are offered to requests. Accepted hosts are persisted and their tasks are queued after the
+   * lock is released.
+   */
   private final List<HostImpl> availableHosts = new LinkedList<>();
-  private final Map<String, LogicalRequest> reservedHosts = new HashMap<>();
-  private final Map<Long, LogicalRequest> allRequests = new HashMap<>();
+
+  /**
+   * Explicitly requested hosts, claimed without locking by removing the reservation.
+   */
+  private final Map<String, LogicalRequest> reservedHosts = new ConcurrentHashMap<>();
+  private final Map<Long, LogicalRequest> allRequests = new ConcurrentHashMap<>();
   // priority is given to oldest outstanding requests
-  private final Collection<LogicalRequest> outstandingRequests = new ArrayList<>();
+  private final Collection<LogicalRequest> outstandingRequests = new ConcurrentLinkedQueue<>();
   //todo: currently only support a single cluster
-  private Map<Long, ClusterTopology> clusterTopologyMap = new HashMap<>();
+  private Map<Long, ClusterTopology> clusterTopologyMap = new ConcurrentHashMap<>();
 
   @Inject
   private StackAdvisorBlueprintProcessor stackAdvisorBlueprintProcessor;
@@ -659,51 +672,46 @@ public class TopologyManager {
       return;
     }
 
-    boolean matchedToRequest = false;
     String hostName = host.getHostName();
-    // The lock ordering in this method must always be the same ordering as TopologyManager.processRequest
-    // TODO: Locking strategies for TopologyManager should be reviewed and possibly rewritten in a future release
-    synchronized (availableHosts) {
-      synchronized (reservedHosts) {
-        if (reservedHosts.containsKey(hostName)) {
-          LogicalRequest request = reservedHosts.remove(hostName);
-          HostOfferResponse response = request.offer(host);
-          if (response.getAnswer() != HostOfferResponse.Answer.ACCEPTED) {
-            throw new RuntimeException("LogicalRequest declined host offer of explicitly requested host: " + hostName);
-          }
 
-          LOG.info("TopologyManager.onHostRegistered: processing accepted host offer for reserved host = {}", hostName);
-          processAcceptedHostOffer(getClusterTopology(request.getClusterId()), response, host);
-          matchedToRequest = true;
-        }
+    // the reservation is removed atomically, so a reserved host is offered to its request only once
+    LogicalRequest reservedRequest = reservedHosts.remove(hostName);
+    if (reservedRequest != null) {
+      HostOfferResponse response = reservedRequest.offer(host);
+      if (response.getAnswer() != HostOfferResponse.Answer.ACCEPTED) {
+        throw new RuntimeException("LogicalRequest declined host offer of explicitly requested host: " + hostName);
       }
 
-      // can be true if host was reserved
-      if (!matchedToRequest) {
-        synchronized (outstandingRequests) {
-          Iterator<LogicalRequest> outstandingRequestIterator = outstandingRequests.iterator();
-          while (!matchedToRequest && outstandingRequestIterator.hasNext()) {
-            LogicalRequest request = outstandingRequestIterator.next();
-            HostOfferResponse hostOfferResponse = request.offer(host);
-            switch (hostOfferResponse.getAnswer()) {
-              case ACCEPTED:
-                matchedToRequest = true;
-                LOG.info("TopologyManager.onHostRegistered: processing accepted host offer for matched host = {}", hostName);
-                processAcceptedHostOffer(getClusterTopology(request.getClusterId()), hostOfferResponse, host);
-                break;
-              case DECLINED_DONE:
-                LOG.info("TopologyManager.onHostRegistered: DECLINED_DONE received for host = {}", hostName);
-                outstandingRequestIterator.remove();
-                break;
-              case DECLINED_PREDICATE:
-                LOG.info("TopologyManager.onHostRegistered: DECLINED_PREDICATE received for host = {}", hostName);
-                break;
-            }
-          }
+      LOG.info("TopologyManager.onHostRegistered: processing accepted host offer for reserved host = {}", hostName);
+      processAcceptedHostOffer(getClusterTopology(reservedRequest.getClusterId()), response, host);
+      return;
+    }
+
+    LogicalRequest matchedRequest = null;
+    HostOfferResponse acceptedResponse = null;
+    // The host is either matched to an outstanding request or queued as available while holding the matching lock,
+    // so it is not missed by a request being processed concurrently by TopologyManager.processRequest
+    synchronized (availableHosts) {
+      Iterator<LogicalRequest> outstandingRequestIterator = outstandingRequests.iterator();
+      while (acceptedResponse == null && outstandingRequestIterator.hasNext()) {
+        LogicalRequest request = outstandingRequestIterator.next();
+        HostOfferResponse hostOfferResponse = request.offer(host);
+        switch (hostOfferResponse.getAnswer()) {
+          case ACCEPTED:
+            matchedRequest = request;
+            acceptedResponse = hostOfferResponse;
+            break;
+          case DECLINED_DONE:
+            LOG.info("TopologyManager.onHostRegistered: DECLINED_DONE received for host = {}", hostName);
+            outstandingRequestIterator.remove();
+            break;
+          case DECLINED_PREDICATE:
+            LOG.info("TopologyManager.onHostRegistered: DECLINED_PREDICATE received for host = {}", hostName);
+            break;
         }
       }
 
-      if (!matchedToRequest) {
+      if (acceptedResponse == null) {
         boolean addToAvailableList = true;
         for (HostImpl registered : availableHosts) {
           if (Objects.equals(registered.getHostId(), host.getHostId())) {
@@ -719,6 +727,11 @@ public class TopologyManager {
         }
       }
     }
+
+    if (acceptedResponse != null) {
+      LOG.info("TopologyManager.onHostRegistered: processing accepted host offer for matched host = {}", hostName);
+      processAcceptedHostOffer(getClusterTopology(matchedRequest.getClusterId()), acceptedResponse, host);
+    }
   }
 
   /**
@@ -866,29 +879,27 @@ public class TopologyManager {
     finalizeTopology(request, topology);
 
     boolean requestHostComplete = false;
-    //todo: overall synchronization. Currently we have nested synchronization here
+    Map<HostImpl, HostOfferResponse> acceptedOffers = new LinkedHashMap<>();
 
-    // The lock ordering in this method must always be the same ordering as TopologyManager.onHostRegistered
-    // TODO: Locking strategies for TopologyManager should be reviewed and possibly rewritten in a future release
+    // Hosts are matched while holding the matching lock, the same as in TopologyManager.onHostRegistered,
+    // accepted hosts are processed once it is released
     synchronized (availableHosts) {
       Iterator<HostImpl> hostIterator = availableHosts.iterator();
       while (!requestHostComplete && hostIterator.hasNext()) {
         HostImpl host = hostIterator.next();
-        synchronized (reservedHosts) {
-          String hostname = host.getHostName();
-          if (reservedHosts.containsKey(hostname)) {
-            if (logicalRequest.equals(reservedHosts.get(hostname))) {
-              // host is registered to this request, remove it from reserved map
-              LOG.info("TopologyManager.processRequest: host name = {} is mapped to LogicalRequest ID = {} and will be removed from the reserved hosts.",
-                  hostname, logicalRequest.getRequestId());
-              reservedHosts.remove(hostname);
-            } else {
-              // host is registered with another request, don't offer
-              //todo: clean up logic
-              LOG.info("TopologyManager.processRequest: host name = {} is registered with another request, and will not be offered to LogicalRequest ID = {}",
-                  hostname, logicalRequest.getRequestId());
-              continue;
-            }
+        String hostname = host.getHostName();
+        LogicalRequest reservedRequest = reservedHosts.get(hostname);
+        if (reservedRequest != null) {
+          if (logicalRequest.equals(reservedRequest) && reservedHosts.remove(hostname, logicalRequest)) {
+            // host is registered to this request, remove it from reserved map
+            LOG.info("TopologyManager.processRequest: host name = {} is mapped to LogicalRequest ID = {} and will be removed from the reserved hosts.",
+                hostname, logicalRequest.getRequestId());
+          } else {
+            // host is registered with another request, don't offer
+            //todo: clean up logic
+            LOG.info("TopologyManager.processRequest: host name = {} is registered with another request, and will not be offered to LogicalRequest ID = {}",
+                hostname, logicalRequest.getRequestId());
+            continue;
           }
         }
 
@@ -904,7 +915,7 @@ public class TopologyManager {
             hostIterator.remove();
             LOG.info("TopologyManager.processRequest: host name = {} was ACCEPTED by LogicalRequest ID = {} , host has been removed from available hosts.",
                 host.getHostName(), logicalRequest.getRequestId());
-            processAcceptedHostOffer(getClusterTopology(logicalRequest.getClusterId()), response, host);
+            acceptedOffers.put(host, response);
             break;
           case DECLINED_DONE:
             requestHostComplete = true;
@@ -922,11 +933,11 @@ public class TopologyManager {
         // not all required hosts have been matched (see earlier comment regarding outstanding logical requests)
         LOG.info("TopologyManager.processRequest: not all required hosts have been matched, so adding LogicalRequest ID = {} to outstanding requests",
             logicalRequest.getRequestId());
-        synchronized (outstandingRequests) {
-          outstandingRequests.add(logicalRequest);
-        }
+        outstandingRequests.add(logicalRequest);
       }
     }
+
+    processAcceptedHostOffers(getClusterTopology(logicalRequest.getClusterId()), acceptedOffers);
   }
 
   @Transactional
@@ -941,33 +952,51 @@ public class TopologyManager {
     allRequests.put(logicalRequest.getRequestId(), logicalRequest);
     LOG.info("TopologyManager.createLogicalRequest: created LogicalRequest with ID = {} and completed persistence of this request.",
         logicalRequest.getRequestId());
-    synchronized (reservedHosts) {
-      for (String host : logicalRequest.getReservedHosts()) {
-        reservedHosts.put(host, logicalRequest);
-      }
+    for (String host : logicalRequest.getReservedHosts()) {
+      reservedHosts.put(host, logicalRequest);
     }
     return logicalRequest;
   }
 
   private void processAcceptedHostOffer(final ClusterTopology topology, final HostOfferResponse response, final HostImpl host) {
-    final String hostName = host.getHostName();
-    try {
-      topology.addHostToTopology(response.getHostGroupName(), hostName);
+    processAcceptedHostOffers(topology, Collections.singletonMap(host, response));
+  }
 
-      // update the host with the rack info if applicable
-      updateHostWithRackInfo(topology, response, host);
+  /**
+   * Adds the hosts of accepted offers to the topology, persists all the host request -> hostName associations in a
+   * single transaction and queues the tasks of the hosts. It must not be called while holding the host matching lock.
+   *
+   * @param topology        cluster topology
+   * @param acceptedOffers  accepted offers by host
+   */
+  private void processAcceptedHostOffers(final ClusterTopology topology, Map<HostImpl, HostOfferResponse> acceptedOffers) {
+    if (acceptedOffers.isEmpty()) {
+      return;
+    }
+
+    final Map<Long, HostImpl> hostsByHostRequestId = new LinkedHashMap<>();
+    for (Map.Entry<HostImpl, HostOfferResponse> acceptedOffer : acceptedOffers.entrySet()) {
+      HostImpl host = acceptedOffer.getKey();
+      HostOfferResponse response = acceptedOffer.getValue();
+      try {
+        topology.addHostToTopology(response.getHostGroupName(), host.getHostName());
 
-    } catch (InvalidTopologyException | NoSuchHostGroupException e) {
-      // host already registered
-      throw new RuntimeException("An internal error occurred while performing request host registration: " + e, e);
+        // update the host with the rack info if applicable
+        updateHostWithRackInfo(topology, response, host);
+
+      } catch (InvalidTopologyException | NoSuchHostGroupException e) {
+        // host already registered
+        throw new RuntimeException("An internal error occurred while performing request host registration: " + e, e);
+      }
+      hostsByHostRequestId.put(response.getHostRequestId(), host);
     }
 
-    // persist the host request -> hostName association
+    // persist the host request -> hostName associations
     try {
       RetryHelper.executeWithRetry(new Callable<Void>() {
         @Override
         public Void call() throws Exception {
-          persistTopologyHostRegistration(response.getHostRequestId(), host);
+          persistedState.registerHosts(hostsByHostRequestId);
           return null;
         }
       });
@@ -976,28 +1005,23 @@ public class TopologyManager {
       throw new RuntimeException(e);
     }
 
-    LOG.info("TopologyManager.processAcceptedHostOffer: queue tasks for host = {} which responded {}", hostName, response.getAnswer());
-    queueHostTasks(topology, response, hostName);
-
-  }
-
-  @Transactional
-  protected void persistTopologyHostRegistration(long hostRequestId, final HostImpl host) {
-    persistedState.registerHostName(hostRequestId, host.getHostName());
-    persistedState.registerInTopologyHostInfo(host);
+    for (Map.Entry<HostImpl, HostOfferResponse> acceptedOffer : acceptedOffers.entrySet()) {
+      String hostName = acceptedOffer.getKey().getHostName();
+      HostOfferResponse response = acceptedOffer.getValue();
+      LOG.info("TopologyManager.processAcceptedHostOffer: queue tasks for host = {} which responded {}", hostName, response.getAnswer());
+      queueHostTasks(topology, response, hostName);
+    }
   }
 
   private ManagedThreadPoolExecutor getOrCreateTopologyTaskExecutor(Long clusterId) {
-    ManagedThreadPoolExecutor topologyTaskExecutor = this.topologyTaskExecutorServiceMap.get(clusterId);
-    if (topologyTaskExecutor == null) {
-      LOG.info("Creating TopologyTaskExecutorService for clusterId: {}", clusterId);
+    // accepted host offers are processed concurrently, so the executor is created atomically
+    return topologyTaskExecutorServiceMap.computeIfAbsent(clusterId, id -> {
+      LOG.info("Creating TopologyTaskExecutorService for clusterId: {}", id);
 
-      topologyTaskExecutor = new ManagedThreadPoolExecutor(topologyTaskExecutorThreadPoolSize,
+      return new ManagedThreadPoolExecutor(topologyTaskExecutorThreadPoolSize,
               topologyTaskExecutorThreadPoolSize, 0L, TimeUnit.MILLISECONDS,
               new LinkedBlockingQueue<Runnable>());
-      topologyTaskExecutorServiceMap.put(clusterId, topologyTaskExecutor);
-    }
-    return topologyTaskExecutor;
+    });
   }
 
   private void queueHostTasks(ClusterTopology topology, HostOfferResponse response, String hostName) {
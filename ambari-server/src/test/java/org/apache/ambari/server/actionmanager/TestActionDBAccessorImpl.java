@@ -24,6 +24,7 @@ import static org.junit.Assert.assertTrue;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -40,6 +41,9 @@ import org.apache.ambari.server.api.services.BaseRequest;
 import org.apache.ambari.server.audit.AuditLogger;
 import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.controller.internal.RequestResourceFilter;
+import org.apache.ambari.server.events.TaskUpdateEvent;
+import org.apache.ambari.server.events.publishers.TaskEventPublisher;
+import org.apache.ambari.server.orm.AmbariJpaLocalTxnInterceptor;
 import org.apache.ambari.server.orm.DBAccessor;
 import org.apache.ambari.server.orm.DBAccessorImpl;
 import org.apache.ambari.server.orm.GuiceJpaInitializer;
@@ -61,11 +65,13 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.eventbus.Subscribe;
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
 import com.google.inject.Singleton;
+import com.google.inject.persist.Transactional;
 import com.google.inject.util.Modules;
 
 public class TestActionDBAccessorImpl {
@@ -473,6 +479,58 @@ public class TestActionDBAccessorImpl {
 
   }
 
+  @Test
+  public void testUpdateHostRoleStatesMergesAllReportedTasks() throws Exception {
+    populateActionDB(db, hostName, requestId, stageId, false);
+    HostRoleCommandEntity master = hostRoleCommandDAO.findByHostRole(hostName, requestId, stageId,
+        Role.HBASE_MASTER.toString()).get(0);
+    HostRoleCommandEntity regionServer = hostRoleCommandDAO.findByHostRole(hostName, requestId, stageId,
+        Role.HBASE_REGIONSERVER.toString()).get(0);
+
+    TaskUpdateEventCollector collector = new TaskUpdateEventCollector();
+    injector.getInstance(TaskEventPublisher.class).register(collector);
+
+    db.updateHostRoleStates(Arrays.asList(
+        createCommandReport(master.getTaskId(), HostRoleStatus.COMPLETED),
+        createCommandReport(regionServer.getTaskId(), HostRoleStatus.IN_PROGRESS)));
+
+    assertEquals(HostRoleStatus.COMPLETED, db.getTask(master.getTaskId()).getStatus());
+    assertTrue(db.getTask(master.getTaskId()).getEndTime() != -1);
+    assertEquals(HostRoleStatus.IN_PROGRESS, db.getTask(regionServer.getTaskId()).getStatus());
+
+    // both tasks are merged at once and published in a single event
+    assertEquals(1, collector.events.size());
+    assertEquals(2, collector.events.get(0).getHostRoleCommands().size());
+  }
+
+  @Test
+  public void testBatchedUpdateHostRoleStatesPublishesNothingWhenRolledBack() throws Exception {
+    populateActionDB(db, hostName, requestId, stageId, false);
+    HostRoleCommandEntity master = hostRoleCommandDAO.findByHostRole(hostName, requestId, stageId,
+        Role.HBASE_MASTER.toString()).get(0);
+
+    TaskUpdateEventCollector collector = new TaskUpdateEventCollector();
+    injector.getInstance(TaskEventPublisher.class).register(collector);
+
+    List<CommandReport> reports = Collections.singletonList(
+        createCommandReport(master.getTaskId(), HostRoleStatus.COMPLETED));
+    try {
+      AmbariJpaLocalTxnInterceptor.runAsBatch(
+          () -> injector.getInstance(FailingReportsBatch.class).updateHostRoleStates(db, reports));
+      Assert.fail("Expected the batch to fail");
+    } catch (IllegalStateException expected) {
+    }
+
+    assertEquals(0, collector.events.size());
+    injector.getInstance(EntityManager.class).clear();
+    assertEquals(HostRoleStatus.PENDING, db.getTask(master.getTaskId()).getStatus());
+
+    // the reports of a failed batch are applied again, events are published once
+    db.updateHostRoleStates(reports);
+    assertEquals(1, collector.events.size());
+    assertEquals(HostRoleStatus.COMPLETED, db.getTask(master.getTaskId()).getStatus());
+  }
+
 
   @Test
   public void testGetRequestsByStatus() throws AmbariException {
@@ -659,6 +717,42 @@ public class TestActionDBAccessorImpl {
     }
   }
 
+  private CommandReport createCommandReport(long taskId, HostRoleStatus status) {
+    CommandReport commandReport = new CommandReport();
+    commandReport.setTaskId(taskId);
+    commandReport.setActionId(StageUtils.getActionId(requestId, stageId));
+    commandReport.setStatus(status.toString());
+    commandReport.setStdOut("");
+    commandReport.setStdErr("");
+    commandReport.setStructuredOut("");
+    commandReport.setExitCode(0);
+    return commandReport;
+  }
+
+  /**
+   * Collects the task update events.
+   */
+  public static class TaskUpdateEventCollector {
+    private final List<TaskUpdateEvent> events = new ArrayList<>();
+
+    @Subscribe
+    public void onTaskUpdateEvent(TaskUpdateEvent event) {
+      events.add(event);
+    }
+  }
+
+  /**
+   * Applies command reports in a transaction which fails, like a batch of
+   * reports which can not be committed.
+   */
+  public static class FailingReportsBatch {
+    @Transactional
+    public void updateHostRoleStates(ActionDBAccessor db, List<CommandReport> reports) {
+      db.updateHostRoleStates(reports);
+      throw new IllegalStateException("batch failed");
+    }
+  }
+
   private static class TestActionDBAccessorModule extends AbstractModule {
     @Override
     protected void configure() {
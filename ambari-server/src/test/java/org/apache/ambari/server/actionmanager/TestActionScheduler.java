@@ -35,6 +35,7 @@ import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.spy;
@@ -57,6 +58,7 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -76,11 +78,13 @@ import org.apache.ambari.server.agent.ExecutionCommand;
 import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.controller.HostsMap;
 import org.apache.ambari.server.events.AmbariEvent;
+import org.apache.ambari.server.events.TaskUpdateEvent;
 import org.apache.ambari.server.events.publishers.AgentCommandsPublisher;
 import org.apache.ambari.server.events.publishers.AmbariEventPublisher;
 import org.apache.ambari.server.metadata.RoleCommandOrder;
 import org.apache.ambari.server.metadata.RoleCommandOrderProvider;
 import org.apache.ambari.server.metadata.RoleCommandPair;
+import org.apache.ambari.server.metrics.system.impl.ServerInternalsMetricsSource;
 import org.apache.ambari.server.orm.GuiceJpaInitializer;
 import org.apache.ambari.server.orm.InMemoryDefaultTestModule;
 import org.apache.ambari.server.orm.dao.HostDAO;
@@ -1471,6 +1475,278 @@ public class TestActionScheduler {
     Assert.assertFalse(stages.get(0).getExecutionCommands(hostname1).get(0).getExecutionCommand().
         getConfigurations().containsKey("javax.jdo.option.ConnectionPassword"));
   }
+
+  /**
+   * Verifies that the event driven scheduler processes only the requests
+   * which had tasks completed, while the other requests in progress wait for
+   * their own events or the next reconciliation.
+   */
+  @Test
+  public void testEventDrivenSchedulingProcessesOnlyUpdatedRequests() throws Exception {
+    String hostname1 = "ahost.ambari.apache.org";
+    String hostname2 = "bhost.ambari.apache.org";
+    Clusters fsm = mockClusters(hostname1, hostname2);
+    UnitOfWork unitOfWork = mock(UnitOfWork.class);
+    AgentCommandsPublisher agentCommandsPublisher = mock(AgentCommandsPublisher.class);
+
+    Stage request1Stage1 = getStageWithSingleTask(hostname1, "cluster1", Role.DATANODE,
+        RoleCommand.START, Service.Type.HDFS, 1, 1, 1);
+    Stage request2Stage1 = getStageWithSingleTask(hostname2, "cluster1", Role.DATANODE,
+        RoleCommand.START, Service.Type.HDFS, 2, 2, 2);
+    List<Stage> stages = new CopyOnWriteArrayList<>(Arrays.asList(request1Stage1, request2Stage1));
+
+    ActionDBAccessor db = mock(ActionDBAccessor.class);
+    HostRoleCommandDAO hostRoleCommandDAOMock = mock(HostRoleCommandDAO.class);
+    RequestEntity request = mock(RequestEntity.class);
+    when(request.isExclusive()).thenReturn(false);
+    when(request.getClusterHostInfo()).thenReturn(CLUSTER_HOST_INFO);
+    when(db.getRequestEntity(anyLong())).thenReturn(request);
+    when(db.getCommandsInProgressCount()).thenReturn(stages.size());
+    when(db.getFirstStageInProgressPerRequest()).thenReturn(stages);
+
+    Properties properties = new Properties();
+    properties.setProperty(Configuration.EVENT_DRIVEN_STAGE_SCHEDULING.getKey(), "true");
+    properties.setProperty(Configuration.STAGE_RECONCILIATION_INTERVAL.getKey(), "3600");
+    Configuration conf = new Configuration(properties);
+    ActionScheduler scheduler = spy(new ActionScheduler(100, 600000, db, fsm, 3,
+        new HostsMap((String) null), unitOfWork, null, conf, entityManagerProviderMock,
+        hostRoleCommandDAOMock, (HostRoleCommandFactory) null, agentCommandsPublisher));
+    doReturn(false).when(scheduler).wasAgentRestartedDuringOperation(any(Host.class), any(Stage.class), anyString());
+    scheduler.setTaskTimeoutAdjustment(false);
+
+    long eventCycles = getSchedulerCount("action.scheduler.cycles.event");
+    long reconciliations = getSchedulerCount("action.scheduler.cycles.reconciliation");
+
+    scheduler.start();
+    try {
+      // the first run is a reconciliation of all the requests in progress
+      waitForStatus(request1Stage1, hostname1, HostRoleStatus.QUEUED);
+      waitForStatus(request2Stage1, hostname2, HostRoleStatus.QUEUED);
+      assertEquals(reconciliations + 1, getSchedulerCount("action.scheduler.cycles.reconciliation"));
+
+      // both requests move on to their next stage, nothing is processed without events
+      Stage request1Stage2 = getStageWithSingleTask(hostname1, "cluster1", Role.DATANODE,
+          RoleCommand.START, Service.Type.HDFS, 3, 3, 1);
+      Stage request2Stage2 = getStageWithSingleTask(hostname2, "cluster1", Role.DATANODE,
+          RoleCommand.START, Service.Type.HDFS, 4, 4, 2);
+      stages.set(0, request1Stage2);
+      stages.set(1, request2Stage2);
+
+      Thread.sleep(500);
+      assertEquals(HostRoleStatus.PENDING, request1Stage2.getHostRoleStatus(hostname1, "DATANODE"));
+      assertEquals(HostRoleStatus.PENDING, request2Stage2.getHostRoleStatus(hostname2, "DATANODE"));
+      assertEquals(eventCycles, getSchedulerCount("action.scheduler.cycles.event"));
+
+      // a completed task awakes its request only, tasks still running do not
+      HostRoleCommand completed = request1Stage1.getHostRoleCommand(hostname1, "DATANODE");
+      completed.setRequestId(1L);
+      completed.setStatus(HostRoleStatus.COMPLETED);
+      HostRoleCommand queued = request2Stage1.getHostRoleCommand(hostname2, "DATANODE");
+      queued.setRequestId(2L);
+      scheduler.onTaskUpdateEvent(new TaskUpdateEvent(Arrays.asList(completed, queued)));
+
+      waitForStatus(request1Stage2, hostname1, HostRoleStatus.QUEUED);
+      assertEquals(HostRoleStatus.PENDING, request2Stage2.getHostRoleStatus(hostname2, "DATANODE"));
+      assertEquals(eventCycles + 1, getSchedulerCount("action.scheduler.cycles.event"));
+      assertEquals(reconciliations + 1, getSchedulerCount("action.scheduler.cycles.reconciliation"));
+    } finally {
+      scheduler.stop();
+    }
+  }
+
+  /**
+   * Verifies that the event driven scheduler processes a request whose
+   * commands may time out although no event was received for it.
+   */
+  @Test
+  public void testEventDrivenSchedulingChecksTimeoutsWithoutEvents() throws Exception {
+    Clusters fsm = mockClusters(hostname);
+    UnitOfWork unitOfWork = mock(UnitOfWork.class);
+    AgentCommandsPublisher agentCommandsPublisher = mock(AgentCommandsPublisher.class);
+
+    Stage stage = getStageWithSingleTask(hostname, "cluster1", Role.DATANODE,
+        RoleCommand.START, Service.Type.HDFS, 1, 1, 1);
+    List<Stage> stages = Collections.singletonList(stage);
+
+    ActionDBAccessor db = mock(ActionDBAccessor.class);
+    HostRoleCommandDAO hostRoleCommandDAOMock = mock(HostRoleCommandDAO.class);
+    RequestEntity request = mock(RequestEntity.class);
+    when(request.isExclusive()).thenReturn(false);
+    when(request.getClusterHostInfo()).thenReturn(CLUSTER_HOST_INFO);
+    when(db.getRequestEntity(anyLong())).thenReturn(request);
+    when(db.getCommandsInProgressCount()).thenReturn(stages.size());
+    when(db.getFirstStageInProgressPerRequest()).thenReturn(stages);
+
+    Properties properties = new Properties();
+    properties.setProperty(Configuration.EVENT_DRIVEN_STAGE_SCHEDULING.getKey(), "true");
+    properties.setProperty(Configuration.STAGE_RECONCILIATION_INTERVAL.getKey(), "3600");
+    Configuration conf = new Configuration(properties);
+    long actionTimeout = 1000;
+    ActionScheduler scheduler = spy(new ActionScheduler(100, actionTimeout, db, fsm, 3,
+        new HostsMap((String) null), unitOfWork, null, conf, entityManagerProviderMock,
+        hostRoleCommandDAOMock, (HostRoleCommandFactory) null, agentCommandsPublisher));
+    doReturn(false).when(scheduler).wasAgentRestartedDuringOperation(any(Host.class), any(Stage.class), anyString());
+    scheduler.setTaskTimeoutAdjustment(false);
+
+    long eventCycles = getSchedulerCount("action.scheduler.cycles.event");
+    long reconciliations = getSchedulerCount("action.scheduler.cycles.reconciliation");
+
+    scheduler.start();
+    try {
+      waitForStatus(stage, hostname, HostRoleStatus.QUEUED);
+      assertEquals(1, stage.getAttemptCount(hostname, "DATANODE"));
+
+      // the timed out command is rescheduled without any event
+      long timeout = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+      while (stage.getAttemptCount(hostname, "DATANODE") < 2 && System.currentTimeMillis() < timeout) {
+        Thread.sleep(10);
+      }
+
+      assertEquals(2, stage.getAttemptCount(hostname, "DATANODE"));
+      assertEquals(HostRoleStatus.QUEUED, stage.getHostRoleStatus(hostname, "DATANODE"));
+      assertEquals(eventCycles + 1, getSchedulerCount("action.scheduler.cycles.event"));
+      assertEquals(reconciliations + 1, getSchedulerCount("action.scheduler.cycles.reconciliation"));
+    } finally {
+      scheduler.stop();
+    }
+  }
+
+  /**
+   * Verifies that stages of requests which share no host are processed
+   * concurrently by the stage executor, each in its own unit of work, and
+   * that a failing group does not stop the others.
+   */
+  @Test
+  public void testParallelStageGroupsExecution() throws Exception {
+    String hostname1 = "ahost.ambari.apache.org";
+    String hostname2 = "bhost.ambari.apache.org";
+    String hostname3 = "chost.ambari.apache.org";
+    Clusters fsm = mockClusters(hostname1, hostname2, hostname3);
+    UnitOfWork unitOfWork = mock(UnitOfWork.class);
+    AgentCommandsPublisher agentCommandsPublisher = mock(AgentCommandsPublisher.class);
+
+    Stage stage1 = getStageWithSingleTask(hostname1, "cluster1", Role.DATANODE,
+        RoleCommand.START, Service.Type.HDFS, 1, 1, 1);
+    Stage stage2 = getStageWithSingleTask(hostname2, "cluster1", Role.DATANODE,
+        RoleCommand.START, Service.Type.HDFS, 2, 2, 2);
+    Stage failingStage = getStageWithSingleTask(hostname3, "cluster1", Role.DATANODE,
+        RoleCommand.START, Service.Type.HDFS, 3, 3, 3);
+    List<Stage> stages = Arrays.asList(stage1, stage2, failingStage);
+
+    ActionDBAccessor db = mock(ActionDBAccessor.class);
+    HostRoleCommandDAO hostRoleCommandDAOMock = mock(HostRoleCommandDAO.class);
+    RequestEntity request = mock(RequestEntity.class);
+    when(request.isExclusive()).thenReturn(false);
+    when(request.getClusterHostInfo()).thenReturn(CLUSTER_HOST_INFO);
+    when(db.getRequestEntity(anyLong())).thenReturn(request);
+    when(db.getCommandsInProgressCount()).thenReturn(stages.size());
+    when(db.getFirstStageInProgressPerRequest()).thenReturn(stages);
+
+    Properties properties = new Properties();
+    properties.setProperty(Configuration.PARALLEL_STAGE_EXECUTION_THREADS.getKey(), "2");
+    Configuration conf = new Configuration(properties);
+
+    // the scheduler sleeps long enough to run only once it is awaken
+    ActionScheduler scheduler = spy(new ActionScheduler(600000, 600000, db, fsm, 3,
+        new HostsMap((String) null), unitOfWork, null, conf, entityManagerProviderMock,
+        hostRoleCommandDAOMock, (HostRoleCommandFactory) null, agentCommandsPublisher));
+    doReturn(false).when(scheduler).wasAgentRestartedDuringOperation(any(Host.class), any(Stage.class), anyString());
+
+    // the first two groups only go on once both of them are being processed
+    CountDownLatch groupsStarted = new CountDownLatch(2);
+    Set<String> groupThreads = Collections.synchronizedSet(new HashSet<>());
+    Answer<Boolean> awaitOtherGroup = new Answer<Boolean>() {
+      @Override
+      public Boolean answer(InvocationOnMock invocation) throws Throwable {
+        groupsStarted.countDown();
+        if (groupsStarted.await(10, TimeUnit.SECONDS)) {
+          groupThreads.add(Thread.currentThread().getName());
+        }
+        return (Boolean) invocation.callRealMethod();
+      }
+    };
+    doAnswer(awaitOtherGroup).when(scheduler).timeOutActionNeeded(any(HostRoleStatus.class), eq(stage1),
+        any(Host.class), anyString(), anyLong(), anyLong());
+    doAnswer(awaitOtherGroup).when(scheduler).timeOutActionNeeded(any(HostRoleStatus.class), eq(stage2),
+        any(Host.class), anyString(), anyLong(), anyLong());
+    doThrow(new RuntimeException("Stage processing failed")).when(scheduler).timeOutActionNeeded(
+        any(HostRoleStatus.class), eq(failingStage), any(Host.class), anyString(), anyLong(), anyLong());
+
+    // the run is over once the scheduler thread and each of the groups ended their unit of work
+    CountDownLatch unitsOfWorkEnded = new CountDownLatch(4);
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        unitsOfWorkEnded.countDown();
+        return null;
+      }
+    }).when(unitOfWork).end();
+
+    scheduler.start();
+    try {
+      scheduler.awake();
+      assertTrue(unitsOfWorkEnded.await(10, TimeUnit.SECONDS));
+    } finally {
+      scheduler.stop();
+    }
+
+    assertEquals(2, groupThreads.size());
+    for (String groupThread : groupThreads) {
+      assertTrue(groupThread.startsWith("ambari-action-scheduler-stage-"));
+    }
+
+    assertEquals(HostRoleStatus.QUEUED, stage1.getHostRoleStatus(hostname1, "DATANODE"));
+    assertEquals(HostRoleStatus.QUEUED, stage2.getHostRoleStatus(hostname2, "DATANODE"));
+    assertEquals(HostRoleStatus.PENDING, failingStage.getHostRoleStatus(hostname3, "DATANODE"));
+    verify(unitOfWork, times(4)).begin();
+  }
+
+  /**
+   * Mocks a cluster with a single service component installed on the given
+   * healthy hosts.
+   */
+  private Clusters mockClusters(String... hostnames) throws AmbariException {
+    Clusters fsm = mock(Clusters.class);
+    Cluster oneClusterMock = mock(Cluster.class);
+    Service serviceObj = mock(Service.class);
+    ServiceComponent scomp = mock(ServiceComponent.class);
+    ServiceComponentHost sch = mock(ServiceComponentHost.class);
+    when(fsm.getCluster(anyString())).thenReturn(oneClusterMock);
+    when(oneClusterMock.getService(anyString())).thenReturn(serviceObj);
+    when(serviceObj.getServiceComponent(anyString())).thenReturn(scomp);
+    when(scomp.getServiceComponentHost(anyString())).thenReturn(sch);
+    when(serviceObj.getCluster()).thenReturn(oneClusterMock);
+
+    Map<String, ServiceComponentHost> hosts = new HashMap<>();
+    long hostId = 1L;
+    for (String hostname : hostnames) {
+      hosts.put(hostname, sch);
+
+      Host host = mock(Host.class);
+      when(fsm.getHost(hostname)).thenReturn(host);
+      when(host.getState()).thenReturn(HostState.HEALTHY);
+      when(host.getHostName()).thenReturn(hostname);
+      when(host.getHostId()).thenReturn(hostId++);
+    }
+    when(scomp.getServiceComponentHosts()).thenReturn(hosts);
+    return fsm;
+  }
+
+  /**
+   * Waits for the scheduler thread to move the DATANODE command of the stage
+   * to the given status.
+   */
+  private void waitForStatus(Stage stage, String hostname, HostRoleStatus status) throws InterruptedException {
+    long timeout = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+    while (stage.getHostRoleStatus(hostname, "DATANODE") != status && System.currentTimeMillis() < timeout) {
+      Thread.sleep(10);
+    }
+    assertEquals(status, stage.getHostRoleStatus(hostname, "DATANODE"));
+  }
+
+  private long getSchedulerCount(String name) {
+    return ServerInternalsMetricsSource.getRegistry().counter(name).getCount();
+  }
   /**
    * Verifies that ActionScheduler allows to execute background tasks in parallel
    */
@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.agent;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ambari.server.H2DatabaseCleaner;
+import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.orm.AmbariJpaLocalTxnInterceptor;
+import org.apache.ambari.server.orm.GuiceJpaInitializer;
+import org.apache.ambari.server.orm.InMemoryDefaultTestModule;
+import org.junit.Test;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.persist.UnitOfWork;
+
+public class AgentReportsProcessorTest {
+
+  private final List<AgentReport> processedReports = Collections.synchronizedList(new ArrayList<>());
+
+  @Test
+  public void testReportNotResentIsQueuedWhenBacklogIsFull() throws Exception {
+    AgentReportsProcessor processor = createProcessor(1, 0);
+    CountDownLatch release = new CountDownLatch(1);
+    TestReport blocking = new TestReport("h1", true, release);
+    TestReport queued = new TestReport("h1", true, null);
+    TestReport rejected = new TestReport("h2", true, null);
+    TestReport notResent = new TestReport("h2", false, null);
+
+    assertTrue(processor.addAgentReport(blocking));
+    assertTrue(blocking.started.await(10, TimeUnit.SECONDS));
+    // the only worker is busy and the only backlog slot is taken
+    assertTrue(processor.addAgentReport(queued));
+    // the report is rejected right away rather than holding the caller until a slot is free
+    long rejectionStart = System.nanoTime();
+    assertFalse(processor.addAgentReport(rejected));
+    assertTrue(System.nanoTime() - rejectionStart < TimeUnit.SECONDS.toNanos(1));
+    assertTrue(processor.addAgentReport(notResent));
+
+    release.countDown();
+    assertTrue(queued.processed.await(10, TimeUnit.SECONDS));
+    assertTrue(notResent.processed.await(10, TimeUnit.SECONDS));
+    assertFalse(rejected.processed.await(100, TimeUnit.MILLISECONDS));
+
+    // the report queued over the limit must not have released a slot it did not take
+    TestReport next = new TestReport("h3", true, new CountDownLatch(1));
+    assertTrue(processor.addAgentReport(next));
+    assertTrue(next.started.await(10, TimeUnit.SECONDS));
+    assertTrue(processor.addAgentReport(new TestReport("h3", true, null)));
+    assertFalse(processor.addAgentReport(new TestReport("h4", true, null)));
+  }
+
+  @Test
+  public void testComponentVersionReportIsNotResent() {
+    assertFalse(new ComponentVersionAgentReport(null, "h1", null).isResentOnRejection());
+    assertTrue(new ComponentStatusAgentReport(null, "h1", null).isResentOnRejection());
+  }
+
+  @Test
+  public void testBatchedCommandReportIsNotOvertakenByLaterReportsOfItsHost() throws Exception {
+    AgentReportsProcessor processor = createProcessor(10, 500);
+    TestCommandReport command = new TestCommandReport("h1", false);
+    TestReport status = new TestReport("h1", true, null);
+    TestReport otherHost = new TestReport("h2", true, null);
+
+    assertTrue(processor.addAgentReport(command));
+    assertTrue(processor.addAgentReport(status));
+    assertTrue(processor.addAgentReport(otherHost));
+
+    assertTrue(status.processed.await(10, TimeUnit.SECONDS));
+    // the other host is not held up by the batch window, the report of the same host waits for it
+    assertEquals(Arrays.asList(otherHost, command, status), processedReports);
+  }
+
+  @Test
+  public void testCommandReportsOfSeveralHostsAreProcessedInOneBatch() throws Exception {
+    AgentReportsProcessor processor = createProcessor(10, 10000);
+    TestCommandReport first = new TestCommandReport("h1", false);
+    TestCommandReport second = new TestCommandReport("h2", false);
+    TestReport status = new TestReport("h1", true, null);
+
+    assertTrue(processor.addAgentReport(first));
+    assertTrue(processor.addAgentReport(status));
+    assertTrue(processor.addAgentReport(second));
+
+    // the batch is full before the window ends
+    assertTrue(status.processed.await(5, TimeUnit.SECONDS));
+    assertEquals(Arrays.asList(first, second, status), processedReports);
+  }
+
+  @Test
+  public void testFailedBatchIsReplayedWithoutRepeatingSideEffects() throws Exception {
+    InMemoryDefaultTestModule module = new InMemoryDefaultTestModule();
+    Properties properties = module.getProperties();
+    properties.setProperty(Configuration.AGENTS_REPORT_THREAD_POOL_SIZE.getKey(), "1");
+    properties.setProperty(Configuration.AGENTS_REPORT_COMMANDS_BATCH_WINDOW.getKey(), "10000");
+    properties.setProperty(Configuration.AGENTS_REPORT_COMMANDS_BATCH_SIZE.getKey(), "2");
+    Injector injector = Guice.createInjector(module);
+    injector.getInstance(GuiceJpaInitializer.class);
+    try {
+      AgentReportsProcessor processor = injector.getInstance(AgentReportsProcessor.class);
+      TestCommandReport first = new TestCommandReport("h1", false);
+      TestCommandReport failing = new TestCommandReport("h2", true);
+
+      assertTrue(processor.addAgentReport(first));
+      assertTrue(processor.addAgentReport(failing));
+
+      assertTrue(failing.sideEffectsApplied.await(10, TimeUnit.SECONDS));
+      assertTrue(first.sideEffectsApplied.await(10, TimeUnit.SECONDS));
+
+      // both reports were processed in the batch, then again one by one
+      assertEquals(2, first.processCount.get());
+      assertEquals(2, failing.processCount.get());
+      assertEquals(1, first.sideEffects.get());
+      assertEquals(1, failing.sideEffects.get());
+    } finally {
+      H2DatabaseCleaner.clearDatabaseAndStopPersistenceService(injector);
+    }
+  }
+
+  private AgentReportsProcessor createProcessor(int capacity, long commandsBatchWindow) {
+    Properties properties = new Properties();
+    properties.setProperty(Configuration.AGENTS_REPORT_THREAD_POOL_SIZE.getKey(), "1");
+    properties.setProperty(Configuration.AGENTS_REPORT_QUEUE_CAPACITY.getKey(), String.valueOf(capacity));
+    properties.setProperty(Configuration.AGENTS_REPORT_COMMANDS_BATCH_WINDOW.getKey(),
+        String.valueOf(commandsBatchWindow));
+    properties.setProperty(Configuration.AGENTS_REPORT_COMMANDS_BATCH_SIZE.getKey(), "2");
+    final Configuration configuration = new Configuration(properties);
+    final UnitOfWork unitOfWork = createNiceMock(UnitOfWork.class);
+    replay(unitOfWork);
+    Injector injector = Guice.createInjector(new AbstractModule() {
+      @Override
+      protected void configure() {
+        bind(Configuration.class).toInstance(configuration);
+        bind(UnitOfWork.class).toInstance(unitOfWork);
+      }
+    });
+    return injector.getInstance(AgentReportsProcessor.class);
+  }
+
+  private class TestReport extends AgentReport<String> {
+    private final boolean resentOnRejection;
+    private final CountDownLatch release;
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch processed = new CountDownLatch(1);
+
+    private TestReport(String hostName, boolean resentOnRejection, CountDownLatch release) {
+      super(hostName, hostName);
+      this.resentOnRejection = resentOnRejection;
+      this.release = release;
+    }
+
+    @Override
+    public boolean isResentOnRejection() {
+      return resentOnRejection;
+    }
+
+    @Override
+    protected void process(String report, String hostName) {
+      started.countDown();
+      if (release != null) {
+        try {
+          release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      processedReports.add(this);
+      processed.countDown();
+    }
+  }
+
+  /**
+   * Command status report which applies its side effects after commit, optionally failing the
+   * first time it is processed.
+   */
+  private class TestCommandReport extends CommandStatusAgentReport {
+    private final boolean failOnce;
+    private final AtomicInteger processCount = new AtomicInteger();
+    private final AtomicInteger sideEffects = new AtomicInteger();
+    private final CountDownLatch sideEffectsApplied = new CountDownLatch(1);
+
+    private TestCommandReport(String hostName, boolean failOnce) {
+      super(null, hostName, Collections.emptyList());
+      this.failOnce = failOnce;
+    }
+
+    @Override
+    protected void process(List<CommandReport> report, String hostName) {
+      if (processCount.incrementAndGet() == 1 && failOnce) {
+        throw new IllegalStateException("Unable to process report");
+      }
+      AmbariJpaLocalTxnInterceptor.runAfterBatchCommit(() -> {
+        sideEffects.incrementAndGet();
+        sideEffectsApplied.countDown();
+      });
+      processedReports.add(this);
+    }
+  }
+}
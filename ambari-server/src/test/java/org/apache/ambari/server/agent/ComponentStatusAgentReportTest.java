@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.agent;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ComponentStatusAgentReportTest {
+
+  @Test
+  public void testMergeKeepsLatestStatusPerComponent() {
+    ComponentStatusAgentReport first = new ComponentStatusAgentReport(null, "h1", Arrays.asList(
+        createStatus("HDFS", "DATANODE", "INSTALLED"),
+        createStatus("HDFS", "NAMENODE", "STARTED")));
+    ComponentStatusAgentReport second = new ComponentStatusAgentReport(null, "h1", Arrays.asList(
+        createStatus("HDFS", "DATANODE", "STARTED"),
+        createStatus("YARN", "NODEMANAGER", "INSTALLED")));
+
+    ComponentStatusAgentReport merged = first.merge(second);
+    List<ComponentStatus> statuses = merged.getReport();
+
+    assertEquals("h1", merged.getHostName());
+    assertEquals(3, statuses.size());
+    assertEquals("NAMENODE", statuses.get(0).getComponentName());
+    assertEquals("DATANODE", statuses.get(1).getComponentName());
+    assertEquals("STARTED", statuses.get(1).getStatus());
+    assertEquals("NODEMANAGER", statuses.get(2).getComponentName());
+  }
+
+  private ComponentStatus createStatus(String serviceName, String componentName, String status) {
+    ComponentStatus componentStatus = new ComponentStatus();
+    componentStatus.setClusterId(1L);
+    componentStatus.setServiceName(serviceName);
+    componentStatus.setComponentName(componentName);
+    componentStatus.setStatus(status);
+    return componentStatus;
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.agent.stomp;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.lang.reflect.Field;
+import java.util.TreeMap;
+
+import org.apache.ambari.server.agent.stomp.dto.MetadataCluster;
+import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.events.MetadataUpdateEvent;
+import org.apache.ambari.server.events.UpdateEventType;
+import org.apache.ambari.server.events.publishers.AmbariEventPublisher;
+import org.apache.ambari.server.events.publishers.STOMPUpdatePublisher;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AgentClusterDataHolderTest {
+
+  private MetadataHolder metadataHolder;
+
+  @Before
+  public void setUp() throws Exception {
+    metadataHolder = new MetadataHolder(createNiceMock(AmbariEventPublisher.class)) {
+      @Override
+      public MetadataUpdateEvent getCurrentData() {
+        return createMetadataEvent("1", UpdateEventType.CREATE);
+      }
+    };
+
+    Configuration configuration = createNiceMock(Configuration.class);
+    expect(configuration.getAgentsClusterDataDeltasRetained()).andReturn(10).anyTimes();
+    replay(configuration);
+
+    Field configurationField = AgentClusterDataHolder.class.getDeclaredField("configuration");
+    configurationField.setAccessible(true);
+    configurationField.set(metadataHolder, configuration);
+    metadataHolder.STOMPUpdatePublisher = createNiceMock(STOMPUpdatePublisher.class);
+  }
+
+  @Test
+  public void testMissedUpdateIsSentAsDelta() throws Exception {
+    String initialHash = metadataHolder.getUpdateIfChanged("").getHash();
+
+    metadataHolder.updateData(createMetadataEvent("2", UpdateEventType.UPDATE));
+    String currentHash = metadataHolder.getData().getHash();
+
+    MetadataUpdateEvent update = metadataHolder.getUpdateIfChanged(initialHash);
+    assertEquals(UpdateEventType.UPDATE, update.getEventType());
+    assertEquals(currentHash, update.getHash());
+    assertEquals("2", update.getMetadataClusters().get("1").getClusterLevelParams().get("version"));
+
+    // agent which is up to date gets nothing
+    assertNull(metadataHolder.getUpdateIfChanged(currentHash).getEventType());
+    // unknown hash gets full data
+    assertEquals(UpdateEventType.CREATE, metadataHolder.getUpdateIfChanged("unknown").getEventType());
+  }
+
+  @Test
+  public void testSeveralMissedUpdatesFallBackToFullData() throws Exception {
+    String initialHash = metadataHolder.getUpdateIfChanged("").getHash();
+
+    metadataHolder.updateData(createMetadataEvent("2", UpdateEventType.UPDATE));
+    String intermediateHash = metadataHolder.getData().getHash();
+    metadataHolder.updateData(createMetadataEvent("3", UpdateEventType.UPDATE));
+
+    assertEquals(UpdateEventType.CREATE, metadataHolder.getUpdateIfChanged(initialHash).getEventType());
+
+    MetadataUpdateEvent update = metadataHolder.getUpdateIfChanged(intermediateHash);
+    assertEquals(UpdateEventType.UPDATE, update.getEventType());
+    assertEquals("3", update.getMetadataClusters().get("1").getClusterLevelParams().get("version"));
+  }
+
+  private static MetadataUpdateEvent createMetadataEvent(String version, UpdateEventType eventType) {
+    TreeMap<String, String> clusterLevelParams = new TreeMap<>();
+    clusterLevelParams.put("version", version);
+    TreeMap<String, MetadataCluster> metadataClusters = new TreeMap<>();
+    metadataClusters.put("1", MetadataCluster.clusterLevelParamsMetadataCluster(null, clusterLevelParams));
+    return new MetadataUpdateEvent(metadataClusters, null, null, eventType);
+  }
+}
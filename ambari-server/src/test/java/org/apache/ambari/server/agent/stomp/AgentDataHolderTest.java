@@ -21,6 +21,14 @@ import static org.easymock.EasyMock.createNiceMock;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.TreeMap;
+
+import org.apache.ambari.server.agent.stomp.dto.HashIgnoreMixIn;
+import org.apache.ambari.server.agent.stomp.dto.Hashable;
+import org.apache.ambari.server.agent.stomp.dto.MetadataCluster;
 import org.apache.ambari.server.events.AgentConfigsUpdateEvent;
 import org.apache.ambari.server.events.MetadataUpdateEvent;
 import org.apache.ambari.server.events.UpdateEventType;
@@ -29,6 +37,8 @@ import org.apache.ambari.server.security.encryption.Encryptor;
 import org.apache.commons.collections.MapUtils;
 import org.junit.Test;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 public class AgentDataHolderTest {
 
   @Test
@@ -102,4 +112,32 @@ public class AgentDataHolderTest {
     assertEquals(eventHash1, eventHash2);
     assertFalse(eventHash1.equals(eventHash3));
   }
+
+  @Test
+  public void testStreamedHashMatchesSerializedHash() throws Exception {
+    AmbariEventPublisher ambariEventPublisher = createNiceMock(AmbariEventPublisher.class);
+    MetadataHolder metadataHolder = new MetadataHolder(ambariEventPublisher);
+
+    MetadataUpdateEvent event = new MetadataUpdateEvent(
+        new TreeMap<>(Collections.singletonMap("1",
+            new MetadataCluster(null, null, true, null, null))),
+        null,
+        null,
+        UpdateEventType.CREATE);
+    event.setHash("01");
+
+    ObjectMapper mapper = new ObjectMapper();
+    mapper.addMixIn(Hashable.class, HashIgnoreMixIn.class);
+    MessageDigest md = MessageDigest.getInstance("SHA-512");
+    md.update("salt".getBytes(StandardCharsets.UTF_8));
+    byte[] bytes = md.digest(mapper.writeValueAsString(event).getBytes(StandardCharsets.UTF_8));
+    StringBuilder expected = new StringBuilder();
+    for (byte b : bytes) {
+      expected.append(Integer.toString((b & 0xff) + 0x100, 16).substring(1));
+    }
+
+    assertEquals(expected.toString(), metadataHolder.getHash(event, "salt"));
+    // repeated calls reuse the per-thread digest and must not leak state between invocations
+    assertEquals(expected.toString(), metadataHolder.getHash(event, "salt"));
+  }
 }
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.agent.stomp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import org.junit.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MultiValueMap;
+
+public class AmbariSubscriptionRegistryTest {
+
+  private static final int SESSIONS = 5000;
+
+  @Test
+  public void testFindHostSubscriptions() {
+    AmbariSubscriptionRegistry registry = new AmbariSubscriptionRegistry(1000);
+    for (int i = 0; i < SESSIONS; i++) {
+      registry.registerSubscription(subscribeMessage("session" + i, "sub0", "/commands-usersession" + i, null));
+      registry.registerSubscription(subscribeMessage("session" + i, "sub1", "/events/topologies", null));
+    }
+
+    MultiValueMap<String, String> subscriptions = registry.findSubscriptions(message("/commands-usersession42"));
+    assertEquals(1, subscriptions.size());
+    assertEquals(Collections.singletonList("sub0"), subscriptions.get("session42"));
+
+    assertEquals(SESSIONS, registry.findSubscriptions(message("/events/topologies")).size());
+    assertTrue(registry.findSubscriptions(message("/commands-usersession" + SESSIONS)).isEmpty());
+
+    // unsubscribe and session removal
+    registry.unregisterSubscription(unsubscribeMessage("session42", "sub0"));
+    assertTrue(registry.findSubscriptions(message("/commands-usersession42")).isEmpty());
+    registry.unregisterAllSubscriptions("session43");
+    assertTrue(registry.findSubscriptions(message("/commands-usersession43")).isEmpty());
+    assertEquals(SESSIONS - 1, registry.findSubscriptions(message("/events/topologies")).size());
+
+    // re-subscription after session removal
+    registry.registerSubscription(subscribeMessage("session43", "sub0", "/commands-usersession43", null));
+    assertEquals(Collections.singletonList("sub0"),
+        registry.findSubscriptions(message("/commands-usersession43")).get("session43"));
+  }
+
+  @Test
+  public void testFindSubscriptionsWithSelector() {
+    AmbariSubscriptionRegistry registry = new AmbariSubscriptionRegistry(1000);
+    registry.registerSubscription(subscribeMessage("session1", "sub1", "/events/hosts", "headers.foo == 'bar'"));
+    registry.registerSubscription(subscribeMessage("session2", "sub2", "/events/hosts", "headers.foo == 'baz'"));
+    registry.registerSubscription(subscribeMessage("session3", "sub3", "/events/hosts", null));
+
+    SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+    accessor.setDestination("/events/hosts");
+    accessor.setNativeHeader("foo", "bar");
+    MultiValueMap<String, String> subscriptions = registry.findSubscriptions(
+        MessageBuilder.createMessage("", accessor.getMessageHeaders()));
+
+    assertEquals(2, subscriptions.size());
+    assertEquals(Collections.singletonList("sub1"), subscriptions.get("session1"));
+    assertEquals(Collections.singletonList("sub3"), subscriptions.get("session3"));
+  }
+
+  private Message<?> subscribeMessage(String sessionId, String subscriptionId, String destination, String selector) {
+    SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+    accessor.setSessionId(sessionId);
+    accessor.setSubscriptionId(subscriptionId);
+    accessor.setDestination(destination);
+    if (selector != null) {
+      accessor.setNativeHeader("selector", selector);
+    }
+    return MessageBuilder.createMessage("", accessor.getMessageHeaders());
+  }
+
+  private Message<?> unsubscribeMessage(String sessionId, String subscriptionId) {
+    SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.UNSUBSCRIBE);
+    accessor.setSessionId(sessionId);
+    accessor.setSubscriptionId(subscriptionId);
+    return MessageBuilder.createMessage("", accessor.getMessageHeaders());
+  }
+
+  private Message<?> message(String destination) {
+    SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+    accessor.setDestination(destination);
+    return MessageBuilder.createMessage("", accessor.getMessageHeaders());
+  }
+}
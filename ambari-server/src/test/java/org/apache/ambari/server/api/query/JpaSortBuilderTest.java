@@ -18,6 +18,8 @@
 package org.apache.ambari.server.api.query;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
@@ -29,8 +31,11 @@ import javax.persistence.metamodel.SingularAttribute;
 
 import org.apache.ambari.server.H2DatabaseCleaner;
 import org.apache.ambari.server.controller.internal.AlertHistoryResourceProvider;
+import org.apache.ambari.server.controller.internal.ResourceImpl;
 import org.apache.ambari.server.controller.internal.SortRequestImpl;
+import org.apache.ambari.server.controller.spi.PageCursor;
 import org.apache.ambari.server.controller.spi.Predicate;
+import org.apache.ambari.server.controller.spi.Resource;
 import org.apache.ambari.server.controller.spi.SortRequest;
 import org.apache.ambari.server.controller.spi.SortRequestProperty;
 import org.apache.ambari.server.controller.utilities.PredicateBuilder;
@@ -39,6 +44,7 @@ import org.apache.ambari.server.orm.GuiceJpaInitializer;
 import org.apache.ambari.server.orm.InMemoryDefaultTestModule;
 import org.apache.ambari.server.orm.entities.AlertHistoryEntity;
 import org.apache.ambari.server.orm.entities.AlertHistoryEntity_;
+import org.apache.ambari.server.state.AlertState;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -126,6 +132,57 @@ public class JpaSortBuilderTest {
     Assert.assertEquals(1, roots.size());
   }
 
+  /**
+   * Tests that the database order is only exact for columns which can not be
+   * {@code null} and are not enums.
+   */
+  @Test
+  public void testIsOrderExact() throws Exception {
+    JpaSortBuilder<AlertHistoryEntity> sortBuilder = new JpaSortBuilder<>();
+    MockAlertHistoryredicateVisitor visitor = new MockAlertHistoryredicateVisitor();
+
+    Assert.assertTrue(sortBuilder.isOrderExact(Arrays.asList(
+        new SortRequestProperty(AlertHistoryResourceProvider.ALERT_HISTORY_TIMESTAMP, SortRequest.Order.DESC),
+        new SortRequestProperty(AlertHistoryResourceProvider.ALERT_HISTORY_ID, SortRequest.Order.ASC)), visitor));
+
+    // nullable column
+    Assert.assertFalse(sortBuilder.isOrderExact(Collections.singletonList(
+        new SortRequestProperty(AlertHistoryResourceProvider.ALERT_HISTORY_HOSTNAME, SortRequest.Order.ASC)), visitor));
+
+    // enums are sorted by name in the database
+    Assert.assertFalse(sortBuilder.isOrderExact(Collections.singletonList(
+        new SortRequestProperty(AlertHistoryResourceProvider.ALERT_HISTORY_STATE, SortRequest.Order.ASC)), visitor));
+
+    // not mapped to a column
+    Assert.assertFalse(sortBuilder.isOrderExact(Collections.singletonList(
+        new SortRequestProperty(AlertHistoryResourceProvider.ALERT_HISTORY_TEXT, SortRequest.Order.ASC)), visitor));
+  }
+
+  /**
+   * Tests that a keyset predicate is not built for cursors holding an enum,
+   * which can not be compared in the database like in memory.
+   */
+  @Test
+  public void testBuildKeysetPredicateWithEnum() throws Exception {
+    JpaSortBuilder<AlertHistoryEntity> sortBuilder = new JpaSortBuilder<>();
+
+    List<SortRequestProperty> properties = Arrays.asList(
+        new SortRequestProperty(AlertHistoryResourceProvider.ALERT_HISTORY_STATE, SortRequest.Order.ASC),
+        new SortRequestProperty(AlertHistoryResourceProvider.ALERT_HISTORY_ID, SortRequest.Order.ASC));
+
+    Resource resource = new ResourceImpl(Resource.Type.AlertHistory);
+    resource.setProperty(AlertHistoryResourceProvider.ALERT_HISTORY_STATE, AlertState.CRITICAL);
+    resource.setProperty(AlertHistoryResourceProvider.ALERT_HISTORY_ID, 1L);
+
+    PageCursor cursor = PageCursor.fromResource(resource, properties);
+    Assert.assertNull(sortBuilder.buildKeysetPredicate(properties, cursor,
+        new MockAlertHistoryredicateVisitor()));
+
+    // the ID alone is fine
+    Assert.assertNotNull(sortBuilder.buildKeysetPredicate(properties.subList(1, 2),
+        PageCursor.fromResource(resource, properties.subList(1, 2)), new MockAlertHistoryredicateVisitor()));
+  }
+
   private final class MockAlertHistoryredicateVisitor
       extends JpaPredicateVisitor<AlertHistoryEntity> {
 
@@ -27,6 +27,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -43,6 +44,8 @@ import org.apache.ambari.server.api.util.TreeNodeImpl;
 import org.apache.ambari.server.controller.internal.HostComponentResourceProvider;
 import org.apache.ambari.server.controller.internal.HostResourceProvider;
 import org.apache.ambari.server.controller.internal.ResourceImpl;
+import org.apache.ambari.server.controller.internal.ResourceSchema;
+import org.apache.ambari.server.controller.internal.SchemaResourceImpl;
 import org.apache.ambari.server.controller.spi.Resource;
 import org.apache.ambari.server.controller.spi.Schema;
 import org.apache.ambari.server.controller.spi.SchemaFactory;
@@ -453,6 +456,59 @@ public class MinimalRendererTest {
     }
   }
 
+  @Test
+  public void testFinalizeResult_schemaResources() throws Exception {
+    SchemaFactory schemaFactory = createNiceMock(SchemaFactory.class);
+    Schema clusterSchema = createNiceMock(Schema.class);
+    Schema hostSchema = createNiceMock(Schema.class);
+
+    // mock expectations
+    expect(schemaFactory.getSchema(Resource.Type.Cluster)).andReturn(clusterSchema).anyTimes();
+    expect(schemaFactory.getSchema(Resource.Type.Host)).andReturn(hostSchema).anyTimes();
+
+    expect(clusterSchema.getKeyPropertyId(Resource.Type.Cluster)).andReturn("Clusters/cluster_name").anyTimes();
+
+    expect(hostSchema.getKeyPropertyId(Resource.Type.Cluster)).andReturn("Hosts/cluster_name").anyTimes();
+    expect(hostSchema.getKeyPropertyId(Resource.Type.Host)).andReturn("Hosts/host_name").anyTimes();
+
+    replay(schemaFactory, clusterSchema, hostSchema);
+
+    Result result = new ResultImpl(true);
+    Resource clusterResource = new ResourceImpl(Resource.Type.Cluster);
+    clusterResource.setProperty("Clusters/cluster_name", "testCluster");
+    TreeNode<Resource> clusterTree = result.getResultTree().addChild(clusterResource, "Cluster:1");
+
+    TreeNode<Resource> hostsTree = clusterTree.addChild(null, "hosts");
+    hostsTree.setProperty("isCollection", "true");
+
+    PropertyHelper.setKeyPropertyIds(Resource.Type.Host, HostResourceProvider.keyPropertyIds);
+    ResourceSchema resourceSchema = new ResourceSchema(Resource.Type.Host,
+        new HashSet<>(Arrays.asList("Hosts/host_name", "Hosts/cluster_name", "Hosts/ip")));
+    Resource hostResource = new SchemaResourceImpl(resourceSchema);
+    hostResource.setProperty("Hosts/host_name", "testHost");
+    hostResource.setProperty("Hosts/cluster_name", "testCluster");
+    hostResource.setProperty("Hosts/ip", "10.0.0.1");
+    hostResource.setProperty("foo", "bar");
+    hostResource.setProperty("metrics/cpu/cpu_user", 1.5);
+    hostResource.addCategory("metrics/disk");
+    hostsTree.addChild(hostResource, "Host:1");
+
+    MinimalRenderer renderer = new MinimalRenderer();
+    renderer.init(schemaFactory);
+    renderer.finalizeProperties(createPropertyTreeWithSubProps(), false);
+    renderer.finalizeResult(result);
+
+    // unrequested properties are removed from the resource itself, not from a copy of its properties
+    Map<String, Map<String, Object>> hostProperties = hostResource.getPropertiesMap();
+    assertEquals(2, hostProperties.size());
+    assertEquals(1, hostProperties.get("Hosts").size());
+    assertEquals("testHost", hostProperties.get("Hosts").get("host_name"));
+    assertEquals(1, hostProperties.get("").size());
+    assertEquals("bar", hostProperties.get("").get("foo"));
+    assertNull(hostResource.getPropertyValue("Hosts/ip"));
+    assertNull(hostResource.getPropertyValue("metrics/cpu/cpu_user"));
+  }
+
   //todo: test post processing to ensure href removal
   //todo: Need to do some refactoring to do this.
   //todo: BaseResourceDefinition.BaseHrefPostProcessor calls static ClusterControllerHelper.getClusterController().
@@ -23,7 +23,12 @@ import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -34,6 +39,7 @@ import org.apache.ambari.server.api.services.Result;
 import org.apache.ambari.server.api.services.ResultImpl;
 import org.apache.ambari.server.api.services.ResultStatus;
 import org.apache.ambari.server.api.util.TreeNode;
+import org.apache.ambari.server.controller.internal.ResourceImpl;
 import org.apache.ambari.server.controller.spi.Resource;
 import org.apache.ambari.server.security.authorization.AuthorizationException;
 import org.junit.Test;
@@ -243,5 +249,58 @@ public class JsonSerializerTest {
     String  json = new JsonSerializer().serialize(result).toString().replace("\r", "");
     assertEquals(expected, json);
   }
-  
+
+  @Test
+  public void testStreamedSerializationMatchesSerialize() throws Exception {
+    String expected = new JsonSerializer().serialize(createItemsResult()).toString();
+
+    Result result = createItemsResult();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new JsonSerializer().serialize(result, out);
+
+    assertEquals(expected, out.toString("UTF-8"));
+    // the result tree is left as it was
+    assertEquals(2, result.getResultTree().getChild("items").getChildren().size());
+  }
+
+  @Test
+  public void testStreamedSerializationFailureLeavesOutputIncomplete() throws Exception {
+    Result result = createItemsResult();
+    result.getResultTree().getChild("items").addChild(new ResourceImpl(Resource.Type.Host) {
+      @Override
+      public Map<String, Map<String, Object>> getPropertiesMap() {
+        throw new IllegalStateException("property provider failed");
+      }
+    }, "resource3");
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      new JsonSerializer().serialize(result, out);
+      fail("Expected IOException");
+    } catch (IOException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+
+    // the JSON written so far is not completed, so the response can not be taken for a whole result
+    assertFalse(out.toString("UTF-8").trim().endsWith("}"));
+  }
+
+  private Result createItemsResult() {
+    Result result = new ResultImpl(true);
+    result.setResultStatus(new ResultStatus(ResultStatus.STATUS.OK));
+    TreeNode<Resource> items = result.getResultTree().addChild(null, "items");
+    items.setProperty("count", "2");
+
+    for (int i = 1; i <= 2; i++) {
+      Resource resource = new ResourceImpl(Resource.Type.Host);
+      resource.setProperty("Hosts/host_name", "host" + i);
+      resource.setProperty("Hosts/cpu_count", i);
+      resource.setProperty("metrics/cpu/cpu_user", 1.5 * i);
+      resource.setProperty("top", null);
+
+      TreeNode<Resource> child = items.addChild(resource, "resource" + i);
+      child.setProperty("href", "http://host" + i);
+    }
+    return result;
+  }
 }
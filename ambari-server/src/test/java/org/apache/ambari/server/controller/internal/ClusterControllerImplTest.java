@@ -21,24 +21,32 @@ package org.apache.ambari.server.controller.internal;
 import static org.easymock.EasyMock.anyObject;
 import static org.easymock.EasyMock.createNiceMock;
 import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.ambari.server.controller.spi.ClusterController;
 import org.apache.ambari.server.controller.spi.NoSuchParentResourceException;
 import org.apache.ambari.server.controller.spi.NoSuchResourceException;
+import org.apache.ambari.server.controller.spi.PageCursor;
 import org.apache.ambari.server.controller.spi.PageRequest;
 import org.apache.ambari.server.controller.spi.PageResponse;
 import org.apache.ambari.server.controller.spi.Predicate;
@@ -60,6 +68,13 @@ import org.apache.ambari.server.controller.utilities.PropertyHelper;
 import org.easymock.EasyMock;
 import org.junit.Test;
 
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.name.Names;
+import com.google.inject.persist.jpa.AmbariJpaPersistService;
+import com.google.inject.util.Providers;
+
 import junit.framework.Assert;
 
 /**
@@ -346,6 +361,58 @@ public class ClusterControllerImplTest {
     Assert.assertEquals(4, pageResponse.getTotalResourceCount().intValue());
   }
 
+  @Test
+  public void testGetResourcesPageAfterCursor() throws Exception{
+    ClusterControllerImpl controller = new ClusterControllerImpl(new TestProviderModule());
+
+    Set<String> propertyIds = new HashSet<>();
+
+    Request request = PropertyHelper.getReadRequest(propertyIds);
+
+    // get the first two (0 - 1)
+    PageRequest pageRequest = new PageRequestImpl(PageRequest.StartingPoint.CursorStart, 2, 0, null, null, null);
+    PageResponse pageResponse = controller.getResources(Resource.Type.Host, request, null, pageRequest, null);
+
+    List<Resource> list = new LinkedList<>();
+    for (Resource resource : pageResponse.getIterable()) {
+      list.add(resource);
+    }
+    Assert.assertEquals(2, list.size());
+    Assert.assertEquals("host:0", (String) list.get(0).getPropertyValue(PropertyHelper.getPropertyId("Hosts", "host_name")));
+    Assert.assertEquals("host:1", (String) list.get(1).getPropertyValue(PropertyHelper.getPropertyId("Hosts", "host_name")));
+    Assert.assertEquals("host:2", pageResponse.getNextResource().getPropertyValue(PropertyHelper.getPropertyId("Hosts", "host_name")));
+    // the resources are not counted for a cursor page
+    Assert.assertNull(pageResponse.getTotalResourceCount());
+
+    // get the two following the last resource of the first page (2 - 3)
+    List<SortRequestProperty> cursorProperties = PageCursor.getCursorProperties(
+        Resource.Type.Host, controller.getSchema(Resource.Type.Host), null);
+    PageCursor cursor = PageCursor.decode(PageCursor.fromResource(list.get(1), cursorProperties).encode());
+
+    pageRequest = new PageRequestImpl(PageRequest.StartingPoint.CursorStart, 2, 0, null, null, cursor);
+    pageResponse = controller.getResources(Resource.Type.Host, request, null, pageRequest, null);
+
+    list = new LinkedList<>();
+    for (Resource resource : pageResponse.getIterable()) {
+      list.add(resource);
+    }
+    Assert.assertEquals(2, list.size());
+    Assert.assertEquals("host:2", (String) list.get(0).getPropertyValue(PropertyHelper.getPropertyId("Hosts", "host_name")));
+    Assert.assertEquals("host:3", (String) list.get(1).getPropertyValue(PropertyHelper.getPropertyId("Hosts", "host_name")));
+    Assert.assertEquals("host:1", pageResponse.getPreviousResource().getPropertyValue(PropertyHelper.getPropertyId("Hosts", "host_name")));
+    Assert.assertNull(pageResponse.getNextResource());
+
+    // a cursor of a different sort order is rejected
+    List<SortRequestProperty> sortProperties = Collections.singletonList(
+        new SortRequestProperty(PropertyHelper.getPropertyId("Hosts", "host_name"), SortRequest.Order.DESC));
+    try {
+      controller.getResources(Resource.Type.Host, request, null, pageRequest, new SortRequestImpl(sortProperties));
+      Assert.fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
   @Test
   public void testGetResourcesPageToEnd() throws Exception{
     ClusterControllerImpl controller = new ClusterControllerImpl(new TestProviderModule());
@@ -871,6 +938,125 @@ public class ClusterControllerImplTest {
     }
   }
 
+  @Test
+  public void testPopulateResourcesConcurrently() throws Exception {
+    final String propertyA = PropertyHelper.getPropertyId("c5", "a");
+    final String propertyB = PropertyHelper.getPropertyId("c5", "b");
+    final String propertyC = PropertyHelper.getPropertyId("c5", "c");
+    final String hostName = PropertyHelper.getPropertyId("Hosts", "host_name");
+
+    // both independent providers must be running at the same time to pass the latch
+    final CountDownLatch latch = new CountDownLatch(2);
+    final AtomicBoolean concurrent = new AtomicBoolean(true);
+    final AtomicBoolean dependencyPopulated = new AtomicBoolean(true);
+    final Set<Resource> resourcesA = Collections.newSetFromMap(new IdentityHashMap<>());
+    final Set<Resource> resourcesB = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    PropertyProvider providerA = new TestPopulateProvider(propertyA, Collections.emptySet()) {
+      @Override
+      public Set<Resource> populateResources(Set<Resource> resources, Request request, Predicate predicate) {
+        resourcesA.addAll(resources);
+        latch.countDown();
+        try {
+          concurrent.compareAndSet(true, latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+          concurrent.set(false);
+        }
+        resources.forEach(resource -> resource.setProperty(propertyA, 1));
+        return resources;
+      }
+    };
+    PropertyProvider providerB = new TestPopulateProvider(propertyB, Collections.emptySet()) {
+      @Override
+      public Set<Resource> populateResources(Set<Resource> resources, Request request, Predicate predicate) {
+        resourcesB.addAll(resources);
+        latch.countDown();
+        try {
+          concurrent.compareAndSet(true, latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+          concurrent.set(false);
+        }
+        Set<Resource> keepers = new HashSet<>();
+        for (Resource resource : resources) {
+          resource.setProperty(propertyB, 2);
+          if (!"host2".equals(resource.getPropertyValue(hostName))) {
+            keepers.add(resource);
+          }
+        }
+        return keepers;
+      }
+    };
+    PropertyProvider providerC = new TestPopulateProvider(propertyC, Collections.singleton(propertyA)) {
+      @Override
+      public Set<Resource> populateResources(Set<Resource> resources, Request request, Predicate predicate) {
+        for (Resource resource : resources) {
+          dependencyPopulated.compareAndSet(true, resource.getPropertyValue(propertyA) != null);
+          resource.setProperty(propertyC, 3);
+        }
+        return resources;
+      }
+    };
+
+    ProviderModule providerModule = createNiceMock(ProviderModule.class);
+    expect(providerModule.getPropertyProviders(Resource.Type.Host)).andReturn(
+        Arrays.asList(providerC, providerA, providerB)).anyTimes();
+
+    // the provider run on the executor thread has its own unit of work
+    AmbariJpaPersistService persistService = createNiceMock(AmbariJpaPersistService.class);
+    expect(persistService.isWorking()).andReturn(false).anyTimes();
+    persistService.begin();
+    expectLastCall().once();
+    persistService.end();
+    expectLastCall().once();
+    replay(providerModule, persistService);
+
+    Set<Resource> resources = new LinkedHashSet<>();
+    for (int i = 1; i <= 3; i++) {
+      Resource resource = new ResourceImpl(Resource.Type.Host);
+      resource.setProperty(hostName, "host" + i);
+      resources.add(resource);
+    }
+
+    Request request = PropertyHelper.getReadRequest(propertyA, propertyB, propertyC);
+    Predicate predicate = new PredicateBuilder().property(hostName).equals("host1").toPredicate();
+
+    ExecutorService executor = ClusterControllerImpl.createPopulateExecutor(4);
+    Injector injector = Guice.createInjector(new AbstractModule() {
+      @Override
+      protected void configure() {
+        bind(ExecutorService.class).annotatedWith(Names.named(ClusterControllerImpl.POPULATE_EXECUTOR))
+            .toInstance(executor);
+        bind(AmbariJpaPersistService.class).toProvider(Providers.of(persistService));
+      }
+    });
+    ClusterControllerImpl controller = new ClusterControllerImpl(providerModule);
+    injector.injectMembers(controller);
+    try {
+      Set<Resource> keepers = controller.populateResources(Resource.Type.Host, resources, request, predicate);
+
+      Assert.assertTrue(concurrent.get());
+      Assert.assertTrue(dependencyPopulated.get());
+
+      // the providers running at the same time never share resource objects
+      Assert.assertEquals(3, resourcesA.size());
+      Assert.assertEquals(3, resourcesB.size());
+      Assert.assertTrue(Collections.disjoint(resourcesA, resourcesB));
+
+      List<Object> hostNames = new ArrayList<>();
+      for (Resource resource : keepers) {
+        Assert.assertTrue(resources.contains(resource));
+        hostNames.add(resource.getPropertyValue(hostName));
+        Assert.assertEquals(1, resource.getPropertyValue(propertyA));
+        Assert.assertEquals(2, resource.getPropertyValue(propertyB));
+        Assert.assertEquals(3, resource.getPropertyValue(propertyC));
+      }
+      Assert.assertEquals(Arrays.asList("host1", "host3"), hostNames);
+    } finally {
+      executor.shutdownNow();
+    }
+    verify(providerModule, persistService);
+  }
+
   /**
    * Tests that when a {@link PageResponse} is present on the
    * {@link Request}, in-memory paging is not performed.
@@ -929,6 +1115,28 @@ public class ClusterControllerImplTest {
     verify(providerModule, resourceProvider, pageRequest, sortRequest);
   }
 
+  private static abstract class TestPopulateProvider implements PropertyProvider {
+    private final String propertyId;
+    private final Set<String> requiredPropertyIds;
+
+    private TestPopulateProvider(String propertyId, Set<String> requiredPropertyIds) {
+      this.propertyId = propertyId;
+      this.requiredPropertyIds = requiredPropertyIds;
+    }
+
+    @Override
+    public Set<String> getRequiredPropertyIds() {
+      return requiredPropertyIds;
+    }
+
+    @Override
+    public Set<String> checkPropertyIds(Set<String> propertyIds) {
+      Set<String> unsupportedPropertyIds = new HashSet<>(propertyIds);
+      unsupportedPropertyIds.remove(propertyId);
+      return unsupportedPropertyIds;
+    }
+  }
+
   public static class TestProviderModule implements ProviderModule {
     private Map<Resource.Type, ResourceProvider> providers = new HashMap<>();
 
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.controller.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.ambari.server.controller.spi.Resource;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Compares populating and reading many host resources with {@link ResourceImpl} and
+ * {@link SchemaResourceImpl}.
+ */
+@Ignore
+public class SchemaResourceImplPerformanceTest {
+
+  private static final int RESOURCES = 5000;
+  private static final int PROPERTIES = 40;
+  private static final int ITERATIONS = 20;
+
+  @Test
+  public void testPopulateResources() {
+    Set<String> propertyIds = new TreeSet<>();
+    for (int i = 0; i < PROPERTIES; i++) {
+      propertyIds.add("Hosts/property_" + i);
+    }
+    ResourceSchema schema = new ResourceSchema(Resource.Type.Host, propertyIds);
+
+    // warm up both implementations before measuring them
+    populate(() -> new ResourceImpl(Resource.Type.Host), propertyIds);
+    populate(() -> new SchemaResourceImpl(schema), propertyIds);
+
+    System.out.println("ResourceImpl: " + populate(() -> new ResourceImpl(Resource.Type.Host), propertyIds) + " ms");
+    System.out.println("SchemaResourceImpl: " + populate(() -> new SchemaResourceImpl(schema), propertyIds) + " ms");
+  }
+
+  /**
+   * Sets, reads and renders the properties of {@link #RESOURCES} resources, the way the
+   * resource providers, property providers and renderers do.
+   *
+   * @return the average time of an iteration in milliseconds
+   */
+  private long populate(Supplier<Resource> resourceFactory, Set<String> propertyIds) {
+    long time = System.nanoTime();
+    long size = 0;
+    for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+      List<Resource> resources = new ArrayList<>(RESOURCES);
+      for (int i = 0; i < RESOURCES; i++) {
+        Resource resource = resourceFactory.get();
+        for (String propertyId : propertyIds) {
+          resource.setProperty(propertyId, i);
+        }
+        resource.setProperty("metrics/cpu/cpu_user", 1.5);
+        resources.add(resource);
+      }
+      for (Resource resource : resources) {
+        for (String propertyId : propertyIds) {
+          resource.getPropertyValue(propertyId);
+        }
+        for (Map<String, Object> properties : resource.getPropertiesMap().values()) {
+          size += properties.size();
+        }
+      }
+    }
+    if (size != (long) ITERATIONS * RESOURCES * (PROPERTIES + 1)) {
+      throw new IllegalStateException("Unexpected number of properties " + size);
+    }
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - time) / ITERATIONS;
+  }
+}
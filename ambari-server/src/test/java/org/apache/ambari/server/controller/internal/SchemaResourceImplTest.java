@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.controller.internal;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.ambari.server.controller.spi.Resource;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+import junit.framework.Assert;
+
+/**
+ * SchemaResourceImpl tests.
+ */
+public class SchemaResourceImplTest {
+
+  private static final ResourceSchema SCHEMA = new ResourceSchema(Resource.Type.Host,
+      ImmutableSet.of("Hosts/host_name", "Hosts/cpu_count", "Hosts/disk_info", "top_level"));
+
+  @Test
+  public void testGetType() {
+    Assert.assertEquals(Resource.Type.Host, new SchemaResourceImpl(SCHEMA).getType());
+  }
+
+  @Test
+  public void testSetGetProperty() {
+    Resource resource = new SchemaResourceImpl(SCHEMA);
+
+    Assert.assertNull(resource.getPropertyValue("Hosts/host_name"));
+
+    resource.setProperty("Hosts/host_name", "h1");
+    resource.setProperty("Hosts/cpu_count", 4L);
+    resource.setProperty("top_level", "foo");
+    resource.setProperty("metrics/cpu/cpu_user", 1.5);
+
+    Assert.assertEquals("h1", resource.getPropertyValue("Hosts/host_name"));
+    Assert.assertEquals(4L, resource.getPropertyValue("Hosts/cpu_count"));
+    Assert.assertEquals("foo", resource.getPropertyValue("top_level"));
+    Assert.assertEquals(1.5, resource.getPropertyValue("metrics/cpu/cpu_user"));
+    Assert.assertNull(resource.getPropertyValue("metrics/cpu/cpu_system"));
+
+    resource.setProperty("Hosts/host_name", "h2");
+    Assert.assertEquals("h2", resource.getPropertyValue("Hosts/host_name"));
+  }
+
+  @Test
+  public void testPropertiesMapMatchesResourceImpl() {
+    Resource resource = new SchemaResourceImpl(SCHEMA);
+    Resource expected = new ResourceImpl(Resource.Type.Host);
+
+    for (Resource r : new Resource[]{resource, expected}) {
+      r.setProperty("Hosts/host_name", "h1");
+      r.setProperty("Hosts/disk_info", null);
+      r.setProperty("top_level", "foo");
+      r.setProperty("metrics/cpu/cpu_user", 1.5);
+      r.setProperty("metrics/disk/disk_free", 10);
+      r.addCategory("alerts_summary");
+    }
+
+    Map<String, Map<String, Object>> propertiesMap = resource.getPropertiesMap();
+    Assert.assertEquals(expected.getPropertiesMap(), propertiesMap);
+    Assert.assertTrue(propertiesMap.get("Hosts").containsKey("disk_info"));
+    Assert.assertFalse(propertiesMap.get("Hosts").containsKey("cpu_count"));
+    Assert.assertTrue(propertiesMap.get("alerts_summary").isEmpty());
+    Assert.assertEquals("foo", propertiesMap.get("").get("top_level"));
+    Assert.assertEquals(expected.toString(), resource.toString());
+  }
+
+  @Test
+  public void testEquals() {
+    Resource resource1 = new SchemaResourceImpl(SCHEMA);
+    Resource resource2 = new SchemaResourceImpl(SCHEMA);
+
+    resource1.setProperty("Hosts/host_name", "h1");
+    resource2.setProperty("Hosts/host_name", "h1");
+    Assert.assertEquals(resource1, resource2);
+    Assert.assertEquals(resource1.hashCode(), resource2.hashCode());
+
+    resource2.setProperty("metrics/cpu/cpu_user", 1.5);
+    Assert.assertFalse(resource1.equals(resource2));
+
+    resource1.setProperty("metrics/cpu/cpu_user", 1.5);
+    resource1.setProperty("Hosts/disk_info", null);
+    resource2.setProperty("Hosts/disk_info", null);
+    Assert.assertEquals(resource1, resource2);
+    Assert.assertEquals(resource1.hashCode(), resource2.hashCode());
+
+    // a property set to null differs from a property which is not set
+    resource1.setProperty("Hosts/cpu_count", null);
+    Assert.assertFalse(resource1.equals(resource2));
+  }
+
+  @Test
+  public void testPropertiesMapIsLiveView() {
+    Resource resource = new SchemaResourceImpl(SCHEMA);
+    Resource expected = new ResourceImpl(Resource.Type.Host);
+
+    for (Resource r : new Resource[]{resource, expected}) {
+      r.setProperty("Hosts/host_name", "h1");
+      r.setProperty("Hosts/cpu_count", 4L);
+      r.setProperty("top_level", "foo");
+      r.setProperty("metrics/cpu/cpu_user", 1.5);
+      r.setProperty("metrics/disk/disk_free", 10);
+      r.addCategory("alerts_summary");
+
+      Map<String, Map<String, Object>> propertiesMap = r.getPropertiesMap();
+      for (Iterator<Map.Entry<String, Map<String, Object>>> iter = propertiesMap.entrySet().iterator(); iter.hasNext(); ) {
+        Map.Entry<String, Map<String, Object>> entry = iter.next();
+        for (Iterator<String> valueIter = entry.getValue().keySet().iterator(); valueIter.hasNext(); ) {
+          String propertyName = valueIter.next();
+          if (propertyName.equals("cpu_count") || propertyName.equals("cpu_user")) {
+            valueIter.remove();
+          }
+        }
+        if (entry.getValue().isEmpty() || entry.getKey().equals("metrics/disk")) {
+          iter.remove();
+        }
+      }
+
+      // changes to the resource show in a map obtained before
+      r.setProperty("Hosts/disk_info", "sda");
+      Assert.assertEquals("sda", propertiesMap.get("Hosts").get("disk_info"));
+    }
+
+    Map<String, Map<String, Object>> propertiesMap = resource.getPropertiesMap();
+    Assert.assertEquals(expected.getPropertiesMap(), propertiesMap);
+    Assert.assertEquals(expected.getPropertiesMap().hashCode(), propertiesMap.hashCode());
+    Assert.assertNull(resource.getPropertyValue("Hosts/cpu_count"));
+    Assert.assertNull(resource.getPropertyValue("metrics/cpu/cpu_user"));
+    Assert.assertEquals("h1", resource.getPropertyValue("Hosts/host_name"));
+    Assert.assertFalse(propertiesMap.containsKey("metrics/cpu"));
+    Assert.assertFalse(propertiesMap.containsKey("metrics/disk"));
+    Assert.assertFalse(propertiesMap.containsKey("alerts_summary"));
+
+    // changes to the map show in the resource
+    propertiesMap.get("Hosts").put("cpu_count", 8L);
+    Assert.assertEquals(8L, resource.getPropertyValue("Hosts/cpu_count"));
+    propertiesMap.remove("Hosts");
+    Assert.assertNull(resource.getPropertyValue("Hosts/host_name"));
+    Assert.assertFalse(resource.getPropertiesMap().containsKey("Hosts"));
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.controller.spi;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import org.apache.ambari.server.controller.internal.ResourceImpl;
+import org.apache.ambari.server.state.AlertState;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * PageCursor tests.
+ */
+public class PageCursorTest {
+
+  private static final String NAME = "c1/name";
+  private static final String COUNT = "c1/count";
+  private static final String RATIO = "c1/ratio";
+  private static final String ENABLED = "c1/enabled";
+  private static final String STATE = "c1/state";
+  private static final String LABEL = "c1/label";
+
+  private static final List<SortRequestProperty> PROPERTIES = Arrays.asList(
+      new SortRequestProperty(NAME, SortRequest.Order.ASC),
+      new SortRequestProperty(COUNT, SortRequest.Order.DESC),
+      new SortRequestProperty(RATIO, SortRequest.Order.ASC),
+      new SortRequestProperty(ENABLED, SortRequest.Order.ASC),
+      new SortRequestProperty(STATE, SortRequest.Order.ASC),
+      new SortRequestProperty(LABEL, SortRequest.Order.ASC));
+
+  @Test
+  public void testEncodeDecode() {
+    Resource resource = createResource("host1", 5, 0.5f, true, AlertState.WARNING, null);
+    PageCursor cursor = PageCursor.fromResource(resource, PROPERTIES);
+
+    Assert.assertEquals(Arrays.asList("host1", 5L, 0.5d, true, AlertState.WARNING.ordinal(), null),
+        cursor.getValues());
+    Assert.assertTrue(cursor.isEnumValue(4));
+    Assert.assertFalse(cursor.isEnumValue(1));
+
+    String token = cursor.encode();
+    Assert.assertTrue(token.matches("[A-Za-z0-9_-]+"));
+
+    PageCursor decoded = PageCursor.decode(token);
+    Assert.assertEquals(cursor.getValues(), decoded.getValues());
+    Assert.assertEquals(PROPERTIES.size(), decoded.getProperties().size());
+    for (int i = 0; i < PROPERTIES.size(); i++) {
+      Assert.assertEquals(PROPERTIES.get(i).getPropertyId(), decoded.getProperties().get(i).getPropertyId());
+      Assert.assertEquals(PROPERTIES.get(i).getOrder(), decoded.getProperties().get(i).getOrder());
+    }
+    Assert.assertTrue(decoded.isEnumValue(4));
+    Assert.assertEquals(token, decoded.encode());
+
+    // a decoded cursor is valid for the properties it was created for
+    decoded.validate(PROPERTIES);
+  }
+
+  @Test
+  public void testDecodeInvalidToken() {
+    assertInvalid("not a token!");
+    assertInvalid(encode("not json"));
+    assertInvalid(encode("{\"p\":\"c1/name\"}"));
+    assertInvalid(encode("[{\"p\":\"c1/name\",\"o\":\"ASC\"}]"));
+    assertInvalid(encode("[{\"p\":\"c1/name\",\"o\":\"UP\",\"t\":\"s\",\"v\":\"a\"}]"));
+    assertInvalid(encode("[{\"p\":\"c1/name\",\"o\":\"ASC\",\"t\":\"x\",\"v\":\"a\"}]"));
+    assertInvalid(encode("[{\"p\":\"c1/count\",\"o\":\"ASC\",\"t\":\"l\",\"v\":\"many\"}]"));
+    assertInvalid(encode("[{\"p\":\"c1/count\",\"o\":\"ASC\",\"t\":\"l\"}]"));
+  }
+
+  @Test
+  public void testValidate() {
+    PageCursor cursor = PageCursor.fromResource(
+        createResource("host1", 5, 0.5f, true, AlertState.OK, "a"), PROPERTIES);
+
+    // a different order of a property
+    List<SortRequestProperty> properties = Arrays.asList(
+        new SortRequestProperty(NAME, SortRequest.Order.DESC),
+        new SortRequestProperty(COUNT, SortRequest.Order.DESC),
+        new SortRequestProperty(RATIO, SortRequest.Order.ASC),
+        new SortRequestProperty(ENABLED, SortRequest.Order.ASC),
+        new SortRequestProperty(STATE, SortRequest.Order.ASC),
+        new SortRequestProperty(LABEL, SortRequest.Order.ASC));
+    assertInvalid(cursor, properties);
+
+    // fewer properties
+    assertInvalid(cursor, PROPERTIES.subList(0, 5));
+  }
+
+  @Test
+  public void testPrecedes() {
+    PageCursor cursor = PageCursor.fromResource(
+        createResource("host2", 5, 0.5f, true, AlertState.WARNING, null), PROPERTIES);
+
+    // the cursor resource itself is not part of the next page
+    Assert.assertFalse(cursor.precedes(createResource("host2", 5, 0.5f, true, AlertState.WARNING, null)));
+
+    // ASC
+    Assert.assertTrue(cursor.precedes(createResource("host3", 5, 0.5f, true, AlertState.WARNING, null)));
+    Assert.assertFalse(cursor.precedes(createResource("host1", 5, 0.5f, true, AlertState.WARNING, null)));
+
+    // DESC
+    Assert.assertTrue(cursor.precedes(createResource("host2", 4, 0.5f, true, AlertState.WARNING, null)));
+    Assert.assertFalse(cursor.precedes(createResource("host2", 6, 0.5f, true, AlertState.WARNING, null)));
+
+    // doubles and booleans
+    Assert.assertTrue(cursor.precedes(createResource("host2", 5, 0.75f, true, AlertState.WARNING, null)));
+    Assert.assertFalse(cursor.precedes(createResource("host2", 5, 0.5f, false, AlertState.WARNING, null)));
+
+    // enums are compared by ordinal, not by name
+    Assert.assertTrue(cursor.precedes(createResource("host2", 5, 0.5f, true, AlertState.CRITICAL, null)));
+    Assert.assertFalse(cursor.precedes(createResource("host2", 5, 0.5f, true, AlertState.OK, null)));
+
+    // null sorts before all other values
+    Assert.assertTrue(cursor.precedes(createResource("host2", 5, 0.5f, true, AlertState.WARNING, "a")));
+    Assert.assertFalse(cursor.precedes(createResource(null, 5, 0.5f, true, AlertState.WARNING, null)));
+  }
+
+  private Resource createResource(String name, int count, float ratio, boolean enabled,
+                                  AlertState state, String label) {
+    Resource resource = new ResourceImpl(Resource.Type.Host);
+    resource.setProperty(NAME, name);
+    resource.setProperty(COUNT, count);
+    resource.setProperty(RATIO, ratio);
+    resource.setProperty(ENABLED, enabled);
+    resource.setProperty(STATE, state);
+    resource.setProperty(LABEL, label);
+    return resource;
+  }
+
+  private static String encode(String json) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static void assertInvalid(String token) {
+    try {
+      PageCursor.decode(token);
+      Assert.fail("Expected the token to be rejected: " + token);
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  private static void assertInvalid(PageCursor cursor, List<SortRequestProperty> properties) {
+    try {
+      cursor.validate(properties);
+      Assert.fail("Expected the cursor to be rejected for " + properties);
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+}
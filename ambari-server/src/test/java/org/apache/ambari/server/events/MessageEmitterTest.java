@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.events;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.agent.AgentSessionManager;
+import org.apache.ambari.server.agent.stomp.dto.AckReport;
+import org.apache.ambari.server.events.publishers.AmbariEventPublisher;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import com.google.common.eventbus.Subscribe;
+
+/**
+ * Tests the windowed and acknowledged emitting of execution commands by {@link MessageEmitter}.
+ */
+public class MessageEmitterTest {
+
+  private static final Long HOST_ID = 1L;
+  private static final String SESSION_ID = "session1";
+
+  /**
+   * Long enough for an unacknowledged message to never be retried during a test.
+   */
+  private static final int NO_RETRY_INTERVAL = 600;
+
+  private AgentSessionManager agentSessionManager;
+  private RecordingMessagingTemplate messagingTemplate;
+  private AmbariEventPublisher ambariEventPublisher;
+
+  @Before
+  public void setup() throws Exception {
+    agentSessionManager = createNiceMock(AgentSessionManager.class);
+    expect(agentSessionManager.getSessionId(HOST_ID)).andReturn(SESSION_ID).anyTimes();
+    replay(agentSessionManager);
+
+    messagingTemplate = new RecordingMessagingTemplate();
+    ambariEventPublisher = new AmbariEventPublisher();
+  }
+
+  /**
+   * Tests that no more than the window size of messages wait for ACK and that
+   * an ACK lets the next message through.
+   */
+  @Test
+  public void testWindow() throws Exception {
+    MessageEmitter emitter = createEmitter(1, NO_RETRY_INTERVAL, 2);
+
+    for (int i = 0; i < 3; i++) {
+      emitter.emitMessageRetriable(createCommand());
+    }
+
+    Long first = messagingTemplate.nextMessageId();
+    Long second = messagingTemplate.nextMessageId();
+    assertNotNull(first);
+    assertNotNull(second);
+    assertTrue(first < second);
+    assertNull(messagingTemplate.noMoreMessages());
+
+    emitter.processReceiveReport(HOST_ID, createAck(first));
+    Long third = messagingTemplate.nextMessageId();
+    assertNotNull(third);
+    assertTrue(second < third);
+  }
+
+  /**
+   * Tests that a message rejected by the agent is not confirmed by the ACK of
+   * a later message and is emitted again.
+   */
+  @Test
+  public void testErrorAckFollowedByOkAck() throws Exception {
+    MessageEmitter emitter = createEmitter(3, 1, 2);
+
+    for (int i = 0; i < 2; i++) {
+      emitter.emitMessageRetriable(createCommand());
+    }
+    Long first = messagingTemplate.nextMessageId();
+    Long second = messagingTemplate.nextMessageId();
+    assertNotNull(second);
+
+    emitter.processReceiveReport(HOST_ID, createAck(first, AckReport.AckStatus.ERROR));
+    emitter.processReceiveReport(HOST_ID, createAck(second, AckReport.AckStatus.OK));
+
+    // the rejected message still waits for ACK and is re-emitted
+    assertEquals(first, messagingTemplate.nextMessageId());
+
+    emitter.processReceiveReport(HOST_ID, createAck(first, AckReport.AckStatus.OK));
+    assertNull(messagingTemplate.poll(TimeUnit.SECONDS.toMillis(2)));
+  }
+
+  /**
+   * Tests that a message is emitted again when it is not acknowledged in time
+   * and is not emitted any more once it is.
+   */
+  @Test
+  public void testRetryAfterTimeout() throws Exception {
+    MessageEmitter emitter = createEmitter(3, 1, 1);
+
+    emitter.emitMessageRetriable(createCommand());
+    Long messageId = messagingTemplate.nextMessageId();
+    assertNotNull(messageId);
+
+    // re-emitted with the same message id
+    assertEquals(messageId, messagingTemplate.nextMessageId());
+
+    emitter.processReceiveReport(HOST_ID, createAck(messageId));
+    assertNull(messagingTemplate.poll(TimeUnit.SECONDS.toMillis(2)));
+  }
+
+  /**
+   * Tests that the host is given up on once a message is not acknowledged
+   * after all retries, and that no more messages are emitted to it.
+   */
+  @Test
+  public void testNotDelivered() throws Exception {
+    MessageNotDeliveredListener listener = new MessageNotDeliveredListener();
+    ambariEventPublisher.register(listener);
+
+    MessageEmitter emitter = createEmitter(1, 1, 1);
+    emitter.emitMessageRetriable(createCommand());
+
+    Long messageId = messagingTemplate.nextMessageId();
+    assertEquals(messageId, messagingTemplate.nextMessageId());
+
+    assertTrue(listener.notDelivered.await(10, TimeUnit.SECONDS));
+    assertEquals(HOST_ID, listener.hostId);
+
+    // the messages of the host are dropped
+    emitter.emitMessageRetriable(createCommand());
+    assertNull(messagingTemplate.noMoreMessages());
+  }
+
+  private MessageEmitter createEmitter(int retryCount, int retryInterval, int windowSize) {
+    MessageEmitter emitter = new DefaultMessageEmitter(agentSessionManager, messagingTemplate,
+        ambariEventPublisher, retryCount, retryInterval, windowSize);
+    emitter.onHostRegister(new HostRegisteredEvent("host1", HOST_ID));
+    return emitter;
+  }
+
+  private ExecutionCommandEvent createCommand() {
+    return new ExecutionCommandEvent(HOST_ID, 0L, new TreeMap<>());
+  }
+
+  private AckReport createAck(Long messageId) {
+    return createAck(messageId, AckReport.AckStatus.OK);
+  }
+
+  private AckReport createAck(Long messageId, AckReport.AckStatus status) {
+    AckReport ackReport = new AckReport();
+    ackReport.setStatus(status);
+    ackReport.setMessageId(messageId);
+    return ackReport;
+  }
+
+  /**
+   * Records the message ids of the execution commands sent to the agents.
+   */
+  private static class RecordingMessagingTemplate extends SimpMessagingTemplate {
+    private final BlockingQueue<Long> messageIds = new LinkedBlockingQueue<>();
+
+    RecordingMessagingTemplate() {
+      super(createNiceMock(MessageChannel.class));
+    }
+
+    @Override
+    public void convertAndSendToUser(String user, String destination, Object payload,
+                                     Map<String, Object> headers) {
+      messageIds.add(Long.valueOf(SimpMessageHeaderAccessor.getFirstNativeHeader("messageId", headers)));
+    }
+
+    Long poll(long timeoutMillis) throws InterruptedException {
+      return messageIds.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    Long nextMessageId() throws InterruptedException {
+      return poll(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    Long noMoreMessages() throws InterruptedException {
+      return poll(500);
+    }
+  }
+
+  /**
+   * Waits for the {@link MessageNotDelivered} event.
+   */
+  public static class MessageNotDeliveredListener {
+    private final CountDownLatch notDelivered = new CountDownLatch(1);
+    private volatile Long hostId;
+
+    @Subscribe
+    public void onMessageNotDelivered(MessageNotDelivered event) {
+      hostId = event.getHostId();
+      notDelivered.countDown();
+    }
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.events.publishers;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ambari.server.events.HostComponentUpdate;
+import org.apache.ambari.server.events.HostComponentsUpdateEvent;
+import org.apache.ambari.server.state.MaintenanceState;
+import org.junit.Test;
+
+import com.google.common.eventbus.EventBus;
+
+public class HostComponentUpdateEventPublisherTest {
+
+  @Test
+  public void testConsecutiveUpdatesOfSameHostComponentAreCoalesced() {
+    HostComponentUpdateEventPublisher publisher =
+        new HostComponentUpdateEventPublisher(createNiceMock(STOMPUpdatePublisher.class));
+    EventBus eventBus = createNiceMock(EventBus.class);
+
+    publisher.publish(new HostComponentsUpdateEvent(Arrays.asList(
+        HostComponentUpdate.createHostComponentMaintenanceStatusUpdate(1L, "HDFS", "h1", "DATANODE", MaintenanceState.ON),
+        HostComponentUpdate.createHostComponentStaleConfigsStatusUpdate(1L, "HDFS", "h1", "DATANODE", true))),
+        eventBus);
+    publisher.publish(new HostComponentsUpdateEvent(Collections.singletonList(
+        HostComponentUpdate.createHostComponentMaintenanceStatusUpdate(1L, "HDFS", "h2", "DATANODE", MaintenanceState.ON))),
+        eventBus);
+    publisher.publish(new HostComponentsUpdateEvent(Collections.singletonList(
+        HostComponentUpdate.createHostComponentStaleConfigsStatusUpdate(1L, "HDFS", "h1", "DATANODE", false))),
+        eventBus);
+
+    // only the adjacent updates of h1 are merged, the events keep their order
+    List<HostComponentsUpdateEvent> buffered = publisher.retrieveBuffer();
+    assertEquals(3, buffered.size());
+
+    HostComponentUpdate first = buffered.get(0).getHostComponentUpdates().get(0);
+    assertEquals("h1", first.getHostName());
+    assertEquals(MaintenanceState.ON, first.getMaintenanceState());
+    assertEquals(Boolean.TRUE, first.getStaleConfigs());
+
+    HostComponentUpdate second = buffered.get(1).getHostComponentUpdates().get(0);
+    assertEquals("h2", second.getHostName());
+    assertEquals(MaintenanceState.ON, second.getMaintenanceState());
+    assertNull(second.getStaleConfigs());
+
+    HostComponentUpdate third = buffered.get(2).getHostComponentUpdates().get(0);
+    assertEquals("h1", third.getHostName());
+    assertNull(third.getMaintenanceState());
+    assertEquals(Boolean.FALSE, third.getStaleConfigs());
+
+    assertEquals(0, publisher.retrieveBuffer().size());
+  }
+}
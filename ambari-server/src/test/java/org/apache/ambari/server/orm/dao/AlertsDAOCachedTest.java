@@ -190,6 +190,41 @@ public class AlertsDAOCachedTest {
     EasyMock.verify(definition, history, entityManager, daoUtils);
   }
 
+  /**
+   * Tests that flushing writes only the alerts which were updated in the cache
+   * and that they are written once.
+   *
+   * @throws Exception
+   */
+  @Test
+  public void testFlushWritesPendingAlertsOnce() throws Exception {
+    EntityManager entityManager = m_injector.getInstance(EntityManager.class);
+
+    AlertHistoryEntity history = EasyMock.createNiceMock(AlertHistoryEntity.class);
+    AlertDefinitionEntity definition = EasyMock.createNiceMock(AlertDefinitionEntity.class);
+    mock(definition, history);
+
+    AlertCurrentEntity memoryCurrent = new AlertCurrentEntity();
+    memoryCurrent.setAlertHistory(history);
+    memoryCurrent.setOriginalTimestamp(1L);
+    memoryCurrent.setLatestTimestamp(3L);
+
+    // the cached alert should be merged by the first flush only
+    EasyMock.expect(entityManager.merge(memoryCurrent)).andReturn(memoryCurrent).once();
+    EasyMock.replay(entityManager);
+
+    AlertsDAO alertsDAO = m_injector.getInstance(AlertsDAO.class);
+    alertsDAO.merge(memoryCurrent, true);
+    Assert.assertEquals(1, alertsDAO.getPendingCachedAlertCount());
+
+    alertsDAO.flushCachedEntitiesToJPA();
+    Assert.assertEquals(0, alertsDAO.getPendingCachedAlertCount());
+
+    alertsDAO.flushCachedEntitiesToJPA();
+
+    EasyMock.verify(definition, history, entityManager);
+  }
+
   @SuppressWarnings("unchecked")
   private void testFindUsesCache(CachedAlertTestArea testArea) throws Exception {
     EntityManager entityManager = m_injector.getInstance(EntityManager.class);
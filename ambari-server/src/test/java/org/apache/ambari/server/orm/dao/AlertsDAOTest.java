@@ -25,8 +25,10 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -41,9 +43,12 @@ import org.apache.ambari.server.controller.AlertHistoryRequest;
 import org.apache.ambari.server.controller.internal.AlertHistoryResourceProvider;
 import org.apache.ambari.server.controller.internal.AlertResourceProvider;
 import org.apache.ambari.server.controller.internal.PageRequestImpl;
+import org.apache.ambari.server.controller.internal.ResourceImpl;
 import org.apache.ambari.server.controller.internal.SortRequestImpl;
+import org.apache.ambari.server.controller.spi.PageCursor;
 import org.apache.ambari.server.controller.spi.PageRequest.StartingPoint;
 import org.apache.ambari.server.controller.spi.Predicate;
+import org.apache.ambari.server.controller.spi.Resource;
 import org.apache.ambari.server.controller.spi.SortRequest;
 import org.apache.ambari.server.controller.spi.SortRequest.Order;
 import org.apache.ambari.server.controller.spi.SortRequestProperty;
@@ -1297,6 +1302,13 @@ public class AlertsDAOTest {
     histories = m_dao.findAll(request);
     assertEquals(1, histories.size());
 
+    // the count query must apply the same restrictions as the select
+    assertEquals(3, m_dao.getCount(clusterPredicate));
+    assertEquals(2, m_dao.getCount(clusterAndHdfsPredicate));
+    assertEquals(0, m_dao.getCount(clusterAndHdfsAndCriticalPredicate));
+    assertEquals(1, m_dao.getCount(hdfsAndCriticalOrWarningPredicate));
+    assertEquals(3, m_dao.getCount(null));
+
     request.Predicate = alertNamePredicate;
     histories = m_dao.findAll(request);
     assertEquals(1, histories.size());
@@ -1414,6 +1426,130 @@ public class AlertsDAOTest {
     }
   }
 
+  /**
+   * Tests keyset pages which follow a cursor, which are only limited in the
+   * database when it orders the alerts exactly like the resources.
+   *
+   * @throws Exception
+   */
+  @Test
+  public void testAlertHistoryCursorPagination() throws Exception {
+    AlertHistoryRequest request = new AlertHistoryRequest();
+    request.CursorProperties = Arrays.asList(
+        new SortRequestProperty(AlertHistoryResourceProvider.ALERT_HISTORY_TIMESTAMP, Order.DESC),
+        new SortRequestProperty(AlertHistoryResourceProvider.ALERT_HISTORY_ID, Order.ASC));
+
+    // the first page is limited, the timestamps are never null
+    request.Pagination = new PageRequestImpl(StartingPoint.CursorStart, 5, 0, null, null, null);
+    List<AlertHistoryEntity> histories = m_dao.findAll(request);
+    assertEquals(5, histories.size());
+
+    long lastTimestamp = Long.MAX_VALUE;
+    for (AlertHistoryEntity history : histories) {
+      assertTrue(history.getAlertTimestamp() < lastTimestamp);
+      lastTimestamp = history.getAlertTimestamp();
+    }
+
+    // the next page follows the last alert
+    request.Pagination = new PageRequestImpl(StartingPoint.CursorStart, 5, 0, null, null,
+        createCursor(histories.get(4), request.CursorProperties));
+    histories = m_dao.findAll(request);
+    assertEquals(5, histories.size());
+    for (AlertHistoryEntity history : histories) {
+      assertTrue(history.getAlertTimestamp() < lastTimestamp);
+    }
+
+    // the state is an enum, which is sorted by name in the database, so
+    // neither the first page nor a page following a state is limited
+    request.CursorProperties = Arrays.asList(
+        new SortRequestProperty(AlertHistoryResourceProvider.ALERT_HISTORY_STATE, Order.ASC),
+        new SortRequestProperty(AlertHistoryResourceProvider.ALERT_HISTORY_ID, Order.ASC));
+    request.Pagination = new PageRequestImpl(StartingPoint.CursorStart, 5, 0, null, null, null);
+    histories = m_dao.findAll(request);
+    assertEquals(50, histories.size());
+
+    request.Pagination = new PageRequestImpl(StartingPoint.CursorStart, 5, 0, null, null,
+        createCursor(histories.get(0), request.CursorProperties));
+    assertEquals(50, m_dao.findAll(request).size());
+  }
+
+  /**
+   * Tests that a page following a cursor holding or following {@code null}
+   * contains the alerts which sort after it in memory, where {@code null}
+   * sorts first.
+   *
+   * @throws Exception
+   */
+  @Test
+  public void testAlertHistoryCursorPaginationWithNulls() throws Exception {
+    List<AlertHistoryEntity> histories = m_dao.findAll(m_cluster.getClusterId());
+    AlertHistoryEntity first = histories.stream().min(Comparator.comparing(AlertHistoryEntity::getAlertId)).get();
+    AlertHistoryEntity last = histories.stream().max(Comparator.comparing(AlertHistoryEntity::getAlertId)).get();
+
+    // two alerts without a host, following all others by ID
+    List<AlertHistoryEntity> hostless = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      AlertHistoryEntity history = new AlertHistoryEntity();
+      history.setServiceName(first.getServiceName());
+      history.setClusterId(m_cluster.getClusterId());
+      history.setAlertDefinition(first.getAlertDefinition());
+      history.setAlertLabel("Hostless " + i);
+      history.setAlertTimestamp(calendar.getTimeInMillis());
+      history.setAlertState(AlertState.OK);
+      m_dao.create(history);
+      hostless.add(history);
+    }
+
+    List<SortRequestProperty> ascending = Arrays.asList(
+        new SortRequestProperty(AlertHistoryResourceProvider.ALERT_HISTORY_HOSTNAME, Order.ASC),
+        new SortRequestProperty(AlertHistoryResourceProvider.ALERT_HISTORY_ID, Order.ASC));
+    List<SortRequestProperty> descending = Arrays.asList(
+        new SortRequestProperty(AlertHistoryResourceProvider.ALERT_HISTORY_HOSTNAME, Order.DESC),
+        new SortRequestProperty(AlertHistoryResourceProvider.ALERT_HISTORY_ID, Order.ASC));
+
+    // ASC: the other alert without a host and all alerts with one
+    assertEquals(51, findAfter(ascending, hostless.get(0)).size());
+
+    // ASC: the alerts of the same host which follow by ID
+    assertEquals(49, findAfter(ascending, first).size());
+
+    // DESC: only the other alert without a host
+    List<AlertHistoryEntity> page = findAfter(descending, hostless.get(0));
+    assertEquals(1, page.size());
+    assertEquals(hostless.get(1).getAlertId(), page.get(0).getAlertId());
+
+    // DESC: the alerts without a host follow the last alert with one
+    page = findAfter(descending, last);
+    assertEquals(2, page.size());
+    for (AlertHistoryEntity history : page) {
+      assertNull(history.getHostName());
+    }
+  }
+
+  /**
+   * Finds the alerts of the keyset page following the given alert.
+   */
+  private List<AlertHistoryEntity> findAfter(List<SortRequestProperty> cursorProperties,
+      AlertHistoryEntity history) {
+    AlertHistoryRequest request = new AlertHistoryRequest();
+    request.CursorProperties = cursorProperties;
+    request.Pagination = new PageRequestImpl(StartingPoint.CursorStart, 5, 0, null, null,
+        createCursor(history, cursorProperties));
+    return m_dao.findAll(request);
+  }
+
+  /**
+   * Creates a cursor positioned at the resource of the given alert.
+   */
+  private PageCursor createCursor(AlertHistoryEntity history, List<SortRequestProperty> cursorProperties) {
+    Resource resource = new ResourceImpl(Resource.Type.AlertHistory);
+    resource.setProperty(AlertHistoryResourceProvider.ALERT_HISTORY_ID, history.getAlertId());
+    resource.setProperty(AlertHistoryResourceProvider.ALERT_HISTORY_TIMESTAMP, history.getAlertTimestamp());
+    resource.setProperty(AlertHistoryResourceProvider.ALERT_HISTORY_HOSTNAME, history.getHostName());
+    resource.setProperty(AlertHistoryResourceProvider.ALERT_HISTORY_STATE, history.getAlertState());
+    return PageCursor.fromResource(resource, cursorProperties);
+  }
+
   @Test
   public void testRemoveCurrenyByService() throws Exception {
     List<AlertCurrentEntity> currentAlerts = m_dao.findCurrent();
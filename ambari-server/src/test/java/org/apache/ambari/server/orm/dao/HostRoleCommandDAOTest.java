@@ -19,6 +19,7 @@ package org.apache.ambari.server.orm.dao;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -30,6 +31,17 @@ import org.apache.ambari.server.Role;
 import org.apache.ambari.server.RoleCommand;
 import org.apache.ambari.server.actionmanager.HostRoleStatus;
 import org.apache.ambari.server.api.services.AmbariMetaInfo;
+import org.apache.ambari.server.controller.internal.PageRequestImpl;
+import org.apache.ambari.server.controller.internal.SortRequestImpl;
+import org.apache.ambari.server.controller.internal.TaskResourceProvider;
+import org.apache.ambari.server.controller.spi.PageRequest;
+import org.apache.ambari.server.controller.spi.PageRequest.StartingPoint;
+import org.apache.ambari.server.controller.spi.Predicate;
+import org.apache.ambari.server.controller.spi.Request;
+import org.apache.ambari.server.controller.spi.SortRequest;
+import org.apache.ambari.server.controller.spi.SortRequestProperty;
+import org.apache.ambari.server.controller.utilities.PredicateBuilder;
+import org.apache.ambari.server.controller.utilities.PropertyHelper;
 import org.apache.ambari.server.orm.GuiceJpaInitializer;
 import org.apache.ambari.server.orm.InMemoryDefaultTestModule;
 import org.apache.ambari.server.orm.OrmTestHelper;
@@ -43,7 +55,9 @@ import org.junit.Before;
 import org.junit.Test;
 
 import com.google.inject.Guice;
+import com.google.inject.Inject;
 import com.google.inject.Injector;
+import com.google.inject.persist.Transactional;
 
 import junit.framework.Assert;
 
@@ -167,6 +181,104 @@ public class HostRoleCommandDAOTest {
     }
   }
 
+  /**
+   * Tests that a page of tasks is only limited in the database when the
+   * database orders the sort columns like the resources, which is not the case
+   * for columns that may be {@code null}.
+   */
+  @Test
+  public void testFindAllPageSortedByNullableColumn() {
+    OrmTestHelper helper = m_injector.getInstance(OrmTestHelper.class);
+    helper.createDefaultData();
+
+    Long requestId = Long.valueOf(100L);
+    ClusterEntity clusterEntity = m_clusterDAO.findByName("test_cluster1");
+
+    RequestEntity requestEntity = new RequestEntity();
+    requestEntity.setRequestId(requestId);
+    requestEntity.setClusterId(clusterEntity.getClusterId());
+    requestEntity.setStages(new ArrayList<>());
+    m_requestDAO.create(requestEntity);
+
+    HostEntity host = m_hostDAO.findByName("test_host1");
+    host.setHostRoleCommandEntities(new ArrayList<>());
+    createStage(1L, 3, host, requestEntity, HostRoleStatus.COMPLETED);
+
+    // only the last task has no custom command name
+    List<HostRoleCommandEntity> tasks = m_hostRoleCommandDAO.findByRequest(requestId);
+    tasks.get(0).setCustomCommandName("RESTART");
+    tasks.get(1).setCustomCommandName("REBALANCE");
+    m_hostRoleCommandDAO.mergeAll(tasks.subList(0, 2));
+
+    Predicate predicate = new PredicateBuilder().property(
+        TaskResourceProvider.TASK_REQUEST_ID_PROPERTY_ID).equals(requestId).toPredicate();
+    PageRequest pageRequest = new PageRequestImpl(StartingPoint.Beginning, 1, 0, null, null);
+
+    // the task without a name sorts first in memory, but the database may
+    // sort it last, so all tasks must be returned
+    SortRequest sortRequest = new SortRequestImpl(Collections.singletonList(new SortRequestProperty(
+        TaskResourceProvider.TASK_CUST_CMD_NAME_PROPERTY_ID, SortRequest.Order.ASC)));
+    Request request = PropertyHelper.getReadRequest(Collections.emptySet(), null, null, pageRequest, sortRequest);
+    Assert.assertEquals(3, m_hostRoleCommandDAO.findAll(request, predicate).size());
+
+    // the start time is never null, so the database returns just the page
+    sortRequest = new SortRequestImpl(Collections.singletonList(new SortRequestProperty(
+        TaskResourceProvider.TASK_START_TIME_PROPERTY_ID, SortRequest.Order.ASC)));
+    request = PropertyHelper.getReadRequest(Collections.emptySet(), null, null, pageRequest, sortRequest);
+    Assert.assertEquals(1, m_hostRoleCommandDAO.findAll(request, predicate).size());
+  }
+
+  /**
+   * Tests that the cached status summary of a request only reflects the
+   * statuses of tasks once they are committed.
+   */
+  @Test
+  public void testStatusSummaryCacheIgnoresRolledBackTasks() {
+    OrmTestHelper helper = m_injector.getInstance(OrmTestHelper.class);
+    helper.createDefaultData();
+
+    Long requestId = Long.valueOf(100L);
+    ClusterEntity clusterEntity = m_clusterDAO.findByName("test_cluster1");
+
+    RequestEntity requestEntity = new RequestEntity();
+    requestEntity.setRequestId(requestId);
+    requestEntity.setClusterId(clusterEntity.getClusterId());
+    requestEntity.setStages(new ArrayList<>());
+    m_requestDAO.create(requestEntity);
+
+    HostEntity host = m_hostDAO.findByName("test_host1");
+    host.setHostRoleCommandEntities(new ArrayList<>());
+    createStage(1L, 2, host, requestEntity, HostRoleStatus.PENDING);
+
+    // load the cache
+    Assert.assertEquals(2, getCount(requestId, 1L, HostRoleStatus.PENDING));
+
+    FailingTaskUpdater updater = m_injector.getInstance(FailingTaskUpdater.class);
+    HostRoleCommandEntity task = m_hostRoleCommandDAO.findByRequest(requestId).get(0);
+    try {
+      updater.updateAndFail(task, HostRoleStatus.IN_PROGRESS);
+      Assert.fail("Expected the transaction to be rolled back");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+
+    // the uncommitted status was never visible and is gone after the rollback
+    Assert.assertEquals(2, updater.pendingInTransaction);
+    Assert.assertEquals(2, getCount(requestId, 1L, HostRoleStatus.PENDING));
+    Assert.assertEquals(0, getCount(requestId, 1L, HostRoleStatus.IN_PROGRESS));
+
+    task = m_hostRoleCommandDAO.findByPK(task.getTaskId());
+    task.setStatus(HostRoleStatus.IN_PROGRESS);
+    m_hostRoleCommandDAO.merge(task);
+
+    Assert.assertEquals(1, getCount(requestId, 1L, HostRoleStatus.PENDING));
+    Assert.assertEquals(1, getCount(requestId, 1L, HostRoleStatus.IN_PROGRESS));
+  }
+
+  private int getCount(Long requestId, Long stageId, HostRoleStatus status) {
+    return m_hostRoleCommandDAO.findAggregateCounts(requestId).get(stageId).getCounts().get(status);
+  }
+
   /**
    * Creates a single stage with the specified number of commands.
    *
@@ -233,4 +345,27 @@ public class HostRoleCommandDAOTest {
       m_stageDAO.merge(stageEntity);
     }
   }
+
+  /**
+   * Merges a task and fails within the same transaction.
+   */
+  public static class FailingTaskUpdater {
+    @Inject
+    private HostRoleCommandDAO hostRoleCommandDAO;
+
+    /**
+     * The count of pending tasks read within the transaction.
+     */
+    private int pendingInTransaction;
+
+    @Transactional
+    public void updateAndFail(HostRoleCommandEntity task, HostRoleStatus status) {
+      task.setStatus(status);
+      hostRoleCommandDAO.merge(task);
+
+      pendingInTransaction = hostRoleCommandDAO.findAggregateCounts(task.getRequestId()).get(
+          task.getStageId()).getCounts().get(HostRoleStatus.PENDING);
+      throw new IllegalStateException("The task update is rolled back");
+    }
+  }
 }
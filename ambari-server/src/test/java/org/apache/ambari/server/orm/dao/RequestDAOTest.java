@@ -19,6 +19,7 @@ package org.apache.ambari.server.orm.dao;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -99,6 +100,37 @@ public class RequestDAOTest {
   }
 
 
+  @Test
+  public void testFindAllRequestIdsAfterRequest() throws Exception {
+    OrmTestHelper helper = injector.getInstance(OrmTestHelper.class);
+    helper.createDefaultData();
+
+    ClusterEntity clusterEntity = clusterDAO.findByName("test_cluster1");
+    Long clusterId = clusterEntity.getClusterId();
+
+    for (long requestId = 100L; requestId < 105L; requestId++) {
+      createRequest(requestId, clusterId);
+    }
+    createRequest(200L, -1L);
+    createRequest(201L, -1L);
+
+    Assert.assertEquals(Arrays.asList(100L, 101L, 102L, 103L, 104L),
+        requestDAO.findAllRequestIds(10, true, clusterId, null));
+
+    // the page following a request, limited to the page size
+    Assert.assertEquals(Arrays.asList(102L, 103L),
+        requestDAO.findAllRequestIds(2, true, clusterId, 101L));
+    Assert.assertEquals(Arrays.asList(102L, 101L, 100L),
+        requestDAO.findAllRequestIds(10, false, clusterId, 103L));
+    Assert.assertEquals(0, requestDAO.findAllRequestIds(10, true, clusterId, 104L).size());
+
+    // requests without a cluster
+    Assert.assertEquals(Collections.singletonList(201L),
+        requestDAO.findAllRequestIds(10, true, null, 200L));
+    Assert.assertEquals(Collections.singletonList(200L),
+        requestDAO.findAllRequestIds(10, false, null, 201L));
+  }
+
   @Test
   public void testCalculatedStatus() throws Exception {
     createGraph();
@@ -191,6 +223,14 @@ public class RequestDAOTest {
     requestDAO.merge(requestEntity);
   }
 
+  private void createRequest(long requestId, long clusterId) {
+    RequestEntity requestEntity = new RequestEntity();
+    requestEntity.setRequestId(requestId);
+    requestEntity.setClusterId(clusterId);
+    requestEntity.setStages(new ArrayList<>());
+    requestDAO.create(requestEntity);
+  }
+
   private long createStages(long startStageId, int count,
       HostEntity he, RequestEntity re, HostRoleStatus status, boolean skipStage) {
     long stageId = startStageId;
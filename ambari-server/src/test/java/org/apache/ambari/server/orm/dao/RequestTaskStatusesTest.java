@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.orm.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.ambari.server.actionmanager.HostRoleStatus;
+import org.apache.ambari.server.controller.internal.CalculatedStatus;
+import org.junit.Test;
+
+/**
+ * Tests {@link RequestTaskStatuses}.
+ */
+public class RequestTaskStatusesTest {
+
+  private static final int STAGES = 3;
+  private static final int TASKS_PER_STAGE = 4;
+
+  @Test
+  public void testCountsAreUpdatedOnTransitions() {
+    RequestTaskStatuses taskStatuses = new RequestTaskStatuses();
+    for (long taskId = 1; taskId <= 20000; taskId++) {
+      taskStatuses.update(taskId, taskId % 2, false, HostRoleStatus.PENDING, -1L, -1L);
+    }
+
+    Map<Long, HostRoleCommandStatusSummaryDTO> summaries = taskStatuses.getSummaries();
+    assertEquals(2, summaries.size());
+    assertEquals(10000, summaries.get(0L).getTaskTotal());
+    assertEquals(Integer.valueOf(10000), summaries.get(1L).getCounts().get(HostRoleStatus.PENDING));
+    assertSame(summaries, taskStatuses.getSummaries());
+
+    assertTrue(taskStatuses.update(2L, 0L, false, HostRoleStatus.QUEUED, -1L, -1L));
+    assertTrue(taskStatuses.update(2L, 0L, false, HostRoleStatus.IN_PROGRESS, 100L, -1L));
+    assertTrue(taskStatuses.update(4L, 0L, false, HostRoleStatus.COMPLETED, 100L, 200L));
+
+    Map<Long, HostRoleCommandStatusSummaryDTO> updated = taskStatuses.getSummaries();
+    assertNotSame(summaries, updated);
+
+    HostRoleCommandStatusSummaryDTO stage = updated.get(0L);
+    assertEquals(10000, stage.getTaskTotal());
+    assertEquals(Integer.valueOf(9998), stage.getCounts().get(HostRoleStatus.PENDING));
+    assertEquals(Integer.valueOf(0), stage.getCounts().get(HostRoleStatus.QUEUED));
+    assertEquals(Integer.valueOf(1), stage.getCounts().get(HostRoleStatus.IN_PROGRESS));
+    assertEquals(Integer.valueOf(1), stage.getCounts().get(HostRoleStatus.COMPLETED));
+    assertEquals(Long.valueOf(-1L), stage.getStartTime());
+    assertEquals(Long.valueOf(200L), stage.getEndTime());
+
+    // the summary of the stage which did not change is not rebuilt
+    assertSame(summaries.get(1L), updated.get(1L));
+  }
+
+  @Test
+  public void testSkippableAndRemove() {
+    RequestTaskStatuses taskStatuses = new RequestTaskStatuses();
+    taskStatuses.update(1L, 0L, true, HostRoleStatus.PENDING, 10L, 20L);
+    taskStatuses.update(2L, 0L, true, HostRoleStatus.PENDING, 5L, 30L);
+    taskStatuses.update(3L, 1L, false, HostRoleStatus.PENDING, 5L, 30L);
+
+    // skippable is kept for known tasks
+    taskStatuses.update(1L, 0L, false, HostRoleStatus.QUEUED, 10L, 20L);
+
+    HostRoleCommandStatusSummaryDTO stage = taskStatuses.getSummaries().get(0L);
+    assertTrue(stage.isStageSkippable());
+    assertEquals(Long.valueOf(5L), stage.getStartTime());
+    assertEquals(Long.valueOf(30L), stage.getEndTime());
+    assertFalse(taskStatuses.getSummaries().get(1L).isStageSkippable());
+
+    assertTrue(taskStatuses.remove(2L));
+    stage = taskStatuses.getSummaries().get(0L);
+    assertEquals(1, stage.getTaskTotal());
+    assertEquals(Long.valueOf(10L), stage.getStartTime());
+    assertEquals(Long.valueOf(20L), stage.getEndTime());
+
+    assertTrue(taskStatuses.remove(3L));
+    assertFalse(taskStatuses.getSummaries().containsKey(1L));
+  }
+
+  @Test
+  public void testChangesAppliedOutOfOrderAreRejected() {
+    RequestTaskStatuses taskStatuses = new RequestTaskStatuses();
+    assertTrue(taskStatuses.applyChange(1L,
+        () -> taskStatuses.update(1L, 0L, false, HostRoleStatus.PENDING, -1L, -1L)));
+
+    // the transaction which made the second change completes first
+    assertTrue(taskStatuses.applyChange(3L,
+        () -> taskStatuses.update(1L, 0L, false, HostRoleStatus.COMPLETED, 100L, 200L)));
+    assertFalse(taskStatuses.applyChange(2L,
+        () -> taskStatuses.update(1L, 0L, false, HostRoleStatus.IN_PROGRESS, 100L, -1L)));
+
+    assertEquals(Integer.valueOf(1), taskStatuses.getTaskStatusCounts().get(HostRoleStatus.COMPLETED));
+    assertEquals(Integer.valueOf(0), taskStatuses.getTaskStatusCounts().get(HostRoleStatus.IN_PROGRESS));
+  }
+
+  @Test
+  public void testTasksAreReleasedOnceCompleted() {
+    RequestTaskStatuses taskStatuses = new RequestTaskStatuses();
+    taskStatuses.update(1L, 0L, false, HostRoleStatus.IN_PROGRESS, 10L, -1L);
+    taskStatuses.update(2L, 0L, false, HostRoleStatus.COMPLETED, 10L, 20L);
+    taskStatuses.getSummaries();
+    assertTrue(taskStatuses.hasTask(1L));
+
+    taskStatuses.update(1L, 0L, false, HostRoleStatus.FAILED, 10L, 30L);
+    HostRoleCommandStatusSummaryDTO stage = taskStatuses.getSummaries().get(0L);
+    assertEquals(Integer.valueOf(1), stage.getCounts().get(HostRoleStatus.FAILED));
+    assertEquals(Integer.valueOf(1), stage.getCounts().get(HostRoleStatus.COMPLETED));
+
+    // all the tasks are completed; summaries are kept while further updates require a reload
+    assertFalse(taskStatuses.hasTask(1L));
+    assertFalse(taskStatuses.update(1L, 0L, false, HostRoleStatus.PENDING, -1L, -1L));
+    assertFalse(taskStatuses.remove(1L));
+    assertSame(stage, taskStatuses.getSummaries().get(0L));
+  }
+
+  @Test
+  public void testStatusesMatchCalculatedOnes() {
+    RequestTaskStatuses taskStatuses = new RequestTaskStatuses();
+    Map<Long, HostRoleStatus> statuses = new HashMap<>();
+
+    for (long taskId = 0; taskId < STAGES * TASKS_PER_STAGE; taskId++) {
+      long stageId = getStageId(taskId);
+      taskStatuses.update(taskId, stageId, isSkippable(stageId), HostRoleStatus.PENDING, -1L, -1L);
+      statuses.put(taskId, HostRoleStatus.PENDING);
+    }
+    assertStatuses(taskStatuses, statuses);
+
+    HostRoleStatus[] values = HostRoleStatus.values();
+    Random random = new Random(42L);
+    for (int i = 0; i < 2000; i++) {
+      long taskId = random.nextInt(STAGES * TASKS_PER_STAGE);
+      HostRoleStatus status = values[random.nextInt(values.length)];
+
+      assertTrue(taskStatuses.update(taskId, getStageId(taskId), false, status, -1L, -1L));
+      statuses.put(taskId, status);
+      assertStatuses(taskStatuses, statuses);
+    }
+
+    // a removed stage no longer counts for the request
+    for (long taskId = 0; taskId < TASKS_PER_STAGE; taskId++) {
+      assertTrue(taskStatuses.remove(taskId));
+      statuses.remove(taskId);
+    }
+    assertNull(taskStatuses.getStageStatus(0L));
+    assertStatuses(taskStatuses, statuses);
+  }
+
+  @Test
+  public void testUnknownTasksAndStages() {
+    RequestTaskStatuses taskStatuses = new RequestTaskStatuses();
+    assertSame(CalculatedStatus.COMPLETED, taskStatuses.getRequestStatus());
+    assertFalse(taskStatuses.hasTask(1L));
+
+    taskStatuses.update(1L, 1L, false, HostRoleStatus.PENDING, -1L, -1L);
+    assertNull(taskStatuses.getStageStatus(2L));
+    assertEquals(HostRoleStatus.PENDING, taskStatuses.getStageStatus(1L).getStatus());
+
+    // updating a known task does not count it twice
+    taskStatuses.update(1L, 1L, false, HostRoleStatus.COMPLETED, 10L, 20L);
+    assertEquals(1, taskStatuses.getTaskCount());
+    assertEquals(HostRoleStatus.COMPLETED, taskStatuses.getRequestStatus().getStatus());
+    assertEquals(100.0, taskStatuses.getRequestStatus().getPercent(), 0.0);
+  }
+
+  private static void assertStatuses(RequestTaskStatuses taskStatuses, Map<Long, HostRoleStatus> statuses) {
+    Map<Long, HostRoleCommandStatusSummaryDTO> summary = new HashMap<>();
+    for (long stageId = 0; stageId < STAGES; stageId++) {
+      Map<HostRoleStatus, Integer> counts = new HashMap<>();
+      for (Map.Entry<Long, HostRoleStatus> entry : statuses.entrySet()) {
+        if (getStageId(entry.getKey()) == stageId) {
+          counts.merge(entry.getValue(), 1, Integer::sum);
+        }
+      }
+      if (!counts.isEmpty()) {
+        summary.put(stageId, createSummary(stageId, counts));
+      }
+    }
+
+    CalculatedStatus expected = CalculatedStatus.statusFromStageSummary(summary, summary.keySet());
+    assertTrue(expected.isSameAs(taskStatuses.getRequestStatus()));
+
+    for (Long stageId : summary.keySet()) {
+      expected = CalculatedStatus.statusFromStageSummary(summary, Collections.singleton(stageId));
+      assertTrue(expected.isSameAs(taskStatuses.getStageStatus(stageId)));
+    }
+
+    assertEquals(statuses.size(), taskStatuses.getTaskCount());
+    assertEquals(CalculatedStatus.calculateTaskStatusCounts(summary, summary.keySet()),
+        taskStatuses.getTaskStatusCounts());
+  }
+
+  private static HostRoleCommandStatusSummaryDTO createSummary(long stageId, Map<HostRoleStatus, Integer> counts) {
+    return new HostRoleCommandStatusSummaryDTO(isSkippable(stageId) ? 1 : 0, 0L, 0L, stageId,
+        count(counts, HostRoleStatus.ABORTED), count(counts, HostRoleStatus.COMPLETED),
+        count(counts, HostRoleStatus.FAILED), count(counts, HostRoleStatus.HOLDING),
+        count(counts, HostRoleStatus.HOLDING_FAILED), count(counts, HostRoleStatus.HOLDING_TIMEDOUT),
+        count(counts, HostRoleStatus.IN_PROGRESS), count(counts, HostRoleStatus.PENDING),
+        count(counts, HostRoleStatus.QUEUED), count(counts, HostRoleStatus.TIMEDOUT),
+        count(counts, HostRoleStatus.SKIPPED_FAILED));
+  }
+
+  private static long count(Map<HostRoleStatus, Integer> counts, HostRoleStatus status) {
+    return counts.getOrDefault(status, 0);
+  }
+
+  private static long getStageId(long taskId) {
+    return taskId / TASKS_PER_STAGE;
+  }
+
+  private static boolean isSkippable(long stageId) {
+    return stageId == 1;
+  }
+}
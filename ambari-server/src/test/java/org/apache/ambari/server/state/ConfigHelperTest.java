@@ -43,12 +43,14 @@ import javax.persistence.EntityManager;
 
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.H2DatabaseCleaner;
+import org.apache.ambari.server.agent.stomp.AgentConfigsHolder;
 import org.apache.ambari.server.api.services.AmbariMetaInfo;
 import org.apache.ambari.server.controller.AmbariCustomCommandExecutionHelper;
 import org.apache.ambari.server.controller.AmbariManagementController;
 import org.apache.ambari.server.controller.ClusterRequest;
 import org.apache.ambari.server.controller.ConfigurationRequest;
 import org.apache.ambari.server.controller.spi.ClusterController;
+import org.apache.ambari.server.events.AgentConfigsUpdateEvent;
 import org.apache.ambari.server.events.publishers.STOMPUpdatePublisher;
 import org.apache.ambari.server.mpack.MpackManagerFactory;
 import org.apache.ambari.server.orm.DBAccessor;
@@ -421,6 +423,53 @@ public class ConfigHelperTest {
       Assert.assertEquals("version122", tagsWithOverrides.get(groupId.toString()));
     }
 
+    @Test
+    public void testHostsActualConfigsShareSnapshots() throws Exception {
+      applyConfig(new HashMap<String, String>() {{
+        put("a", "b");
+      }}, "ams-env", "version1");
+
+      Map<String, String> properties = new HashMap<>();
+      properties.put("a", "c");
+      final Config config = configFactory.createNew(cluster, "ams-env", "version122", properties, null);
+      addConfigGroup("g4", "t1", new ArrayList<String>() {{
+        add("h3");
+      }}, new ArrayList<Config>() {{
+        add(config);
+      }});
+
+      Long h1 = clusters.getHost("h1").getHostId();
+      Long h2 = clusters.getHost("h2").getHostId();
+      Long h3 = clusters.getHost("h3").getHostId();
+      String clusterId = Long.toString(cluster.getClusterId());
+
+      // hosts outside of config groups share one snapshot
+      Map<Long, AgentConfigsUpdateEvent> events = configHelper.getHostsActualConfigs(Arrays.asList(h1, h2, h3));
+      Assert.assertSame(events.get(h1).getClustersConfigs(), events.get(h2).getClustersConfigs());
+      Assert.assertNotSame(events.get(h1).getClustersConfigs(), events.get(h3).getClustersConfigs());
+      Assert.assertEquals("b",
+          events.get(h1).getClustersConfigs().get(clusterId).getConfigurations().get("ams-env").get("a"));
+      Assert.assertEquals("c",
+          events.get(h3).getClustersConfigs().get(clusterId).getConfigurations().get("ams-env").get("a"));
+
+      // the holder hashes a shared snapshot once, so hosts sharing it share the hash
+      AgentConfigsHolder agentConfigsHolder = injector.getInstance(AgentConfigsHolder.class);
+      agentConfigsHolder.updateData(cluster.getClusterId(), Arrays.asList(h1, h2, h3));
+      String hash = agentConfigsHolder.getData(h1).getHash();
+      Assert.assertNotNull(hash);
+      Assert.assertEquals(hash, agentConfigsHolder.getData(h2).getHash());
+      Assert.assertFalse(hash.equals(agentConfigsHolder.getData(h3).getHash()));
+
+      // a changed config is a new snapshot with a new hash
+      applyConfig(new HashMap<String, String>() {{
+        put("a", "d");
+      }}, "ams-env", "version2");
+      agentConfigsHolder.updateData(cluster.getClusterId(), Arrays.asList(h1, h2, h3));
+      String changedHash = agentConfigsHolder.getData(h1).getHash();
+      Assert.assertFalse(hash.equals(changedHash));
+      Assert.assertEquals(changedHash, agentConfigsHolder.getData(h2).getHash());
+    }
+
     @Test
     public void testEffectivePropertiesWithOverrides() throws Exception {
 
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.state;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class ConfigPropertyMapTest {
+
+  @Test
+  public void testMapContract() {
+    Map<String, String> properties = new HashMap<>();
+    properties.put("b", "2");
+    properties.put("a", "1");
+    properties.put("c", null);
+
+    ConfigPropertyMap map = ConfigPropertyMap.of("test-contract", properties);
+    assertEquals(properties, map);
+    assertEquals(map, properties);
+    assertEquals(properties.hashCode(), map.hashCode());
+    assertEquals(3, map.size());
+    assertEquals("1", map.get("a"));
+    assertNull(map.get("c"));
+    assertTrue(map.containsKey("c"));
+    assertFalse(map.containsKey("d"));
+    assertNull(map.get(1));
+    assertEquals(Arrays.asList("a", "b", "c"), new ArrayList<>(map.keySet()));
+    assertNull(ConfigPropertyMap.of("test-contract", null));
+    assertTrue(ConfigPropertyMap.of("test-contract", new HashMap<>()).isEmpty());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testImmutable() {
+    ConfigPropertyMap.of("test-immutable", Collections.singletonMap("a", "1")).put("b", "2");
+  }
+
+  /**
+   * Builds 200 versions of HDFS, YARN and Hive configs, each version changing a few properties, and checks that
+   * versions share property names and unchanged values.
+   */
+  @Test
+  public void testStructuralSharingOfConfigHistory() {
+    String[] types = {"hdfs-site", "yarn-site", "hive-site"};
+    int propertiesCount = 300;
+    int versions = 200;
+
+    for (String type : types) {
+      Map<String, String> properties = new HashMap<>();
+      for (int i = 0; i < propertiesCount; i++) {
+        properties.put(new String(type + ".property." + i), new String("value-" + i));
+      }
+
+      List<ConfigPropertyMap> history = new ArrayList<>();
+      for (int version = 0; version < versions; version++) {
+        Map<String, String> next = new HashMap<>();
+        properties.forEach((key, value) -> next.put(new String(key), new String(value)));
+        next.put(new String(type + ".property." + (version % propertiesCount)), "changed-" + version);
+        if (version % 50 == 49) {
+          next.put(type + ".added." + version, "added");
+        }
+        properties = next;
+        history.add(ConfigPropertyMap.of(type, next));
+        assertEquals(next, history.get(version));
+      }
+
+      int sharedKeys = 0;
+      for (int version = 1; version < versions; version++) {
+        ConfigPropertyMap previous = history.get(version - 1);
+        ConfigPropertyMap current = history.get(version);
+        if (current.sharesKeysWith(previous)) {
+          sharedKeys++;
+        }
+
+        // unchanged values are the same instances as in the previous version
+        String unchangedKey = type + ".property." + ((version + 1) % propertiesCount);
+        if (!current.get(unchangedKey).startsWith("changed")) {
+          assertSame(previous.get(unchangedKey), current.get(unchangedKey));
+        }
+      }
+      // keys array changes only when a property is added
+      assertEquals(versions - 1 - versions / 50, sharedKeys);
+
+      // property names are interned across versions
+      String key = type + ".property.7";
+      String internedKey = null;
+      for (String k : history.get(0).keySet()) {
+        if (k.equals(key)) {
+          internedKey = k;
+        }
+      }
+      for (String k : history.get(versions - 1).keySet()) {
+        if (k.equals(key)) {
+          assertSame(internedKey, k);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testUnchangedVersionIsShared() {
+    Map<String, String> properties = new HashMap<>();
+    properties.put("a", "1");
+    ConfigPropertyMap first = ConfigPropertyMap.of("test-unchanged", properties);
+    ConfigPropertyMap second = ConfigPropertyMap.of("test-unchanged", new HashMap<>(properties));
+    assertSame(first, second);
+  }
+}
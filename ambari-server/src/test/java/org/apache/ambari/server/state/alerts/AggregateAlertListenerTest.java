@@ -112,7 +112,7 @@ public class AggregateAlertListenerTest {
     EasyMock.expect(
         m_alertsDao.findAggregateCounts(EasyMock.anyLong(), EasyMock.eq("mock-aggregate-alert"))).andReturn(
         summaryDTO).atLeastOnce();
-    m_alertsDao.saveEntities(EasyMock.anyObject(), EasyMock.anyObject());
+    m_alertsDao.saveEntities(EasyMock.anyObject(), EasyMock.anyObject(), EasyMock.anyObject());
     EasyMock.expectLastCall().anyTimes();
 
     EasyMock.replay(m_alertsDao, m_aggregateMapping, currentEntityMock);
@@ -25,10 +25,12 @@ import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.ambari.server.orm.InMemoryDefaultTestModule;
 import org.apache.ambari.server.orm.dao.AlertDefinitionDAO;
@@ -51,6 +53,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import com.google.common.collect.Sets;
 import com.google.inject.Binder;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
@@ -369,6 +372,151 @@ public class AlertDefinitionHashTest extends TestCase {
     assertEquals(expected, m_hash.getHash(CLUSTERNAME, HOSTNAME));
   }
 
+  /**
+   * Tests that once the host index of a cluster is built, finding the hosts of
+   * a definition does not walk the hosts of the cluster again, regardless of
+   * how many definitions are invalidated, and that the index follows component
+   * installs and uninstalls.
+   */
+  @Test
+  public void testHostIndexIndependentOfClusterSize() throws Exception {
+    final int hostCount = 3000;
+    final String clusterName = "largeCluster";
+    final String masterHost = "host0";
+
+    Cluster cluster = EasyMock.createMock(Cluster.class);
+    Clusters clusters = EasyMock.createNiceMock(Clusters.class);
+
+    Map<String, Host> clusterHosts = new HashMap<>();
+    for (int i = 0; i < hostCount; i++) {
+      clusterHosts.put("host" + i, null);
+    }
+
+    ServiceComponentHost datanode = EasyMock.createNiceMock(ServiceComponentHost.class);
+    expect(datanode.getServiceName()).andReturn("HDFS").anyTimes();
+    expect(datanode.getServiceComponentName()).andReturn("DATANODE").anyTimes();
+
+    Map<String, ServiceComponentHost> namenodeHosts = new HashMap<>();
+    namenodeHosts.put(masterHost, null);
+
+    ServiceComponent namenode = EasyMock.createNiceMock(ServiceComponent.class);
+    expect(namenode.getServiceComponentHosts()).andReturn(namenodeHosts).anyTimes();
+    expect(namenode.isMasterComponent()).andReturn(true).anyTimes();
+
+    Service hdfs = EasyMock.createNiceMock(Service.class);
+    expect(hdfs.getServiceComponents()).andReturn(
+        Collections.singletonMap("NAMENODE", namenode)).anyTimes();
+
+    expect(clusters.getHostsForCluster(clusterName)).andReturn(clusterHosts).anyTimes();
+    expect(cluster.getClusterId()).andReturn(2L).anyTimes();
+    expect(cluster.getClusterName()).andReturn(clusterName).anyTimes();
+    expect(cluster.getServices()).andReturn(Collections.singletonMap("HDFS", hdfs)).once();
+
+    // each host is walked exactly once, when the index is built
+    expect(cluster.getServiceComponentHosts(EasyMock.anyObject(String.class))).andReturn(
+        Collections.singletonList(datanode)).times(hostCount);
+
+    EasyMock.replay(cluster, clusters, datanode, namenode, hdfs);
+
+    AlertDefinitionHash hash = createHash(clusters);
+
+    for (int i = 0; i < 1000; i++) {
+      Set<String> hosts = hash.getAssociatedHosts(cluster, SourceType.PORT,
+          "namenode_process", "HDFS", "NAMENODE");
+
+      assertEquals(Collections.singleton(masterHost), hosts);
+    }
+
+    assertEquals(hostCount, hash.getAssociatedHosts(cluster, SourceType.PORT,
+        "datanode_process", "HDFS", "DATANODE").size());
+
+    // a new master is picked up without walking the cluster again
+    hash.addComponentHost(2L, "HDFS", "NAMENODE", "host1", true);
+    assertEquals(Sets.newHashSet(masterHost, "host1"), hash.getAssociatedHosts(cluster,
+        SourceType.PORT, "namenode_process", "HDFS", "NAMENODE"));
+
+    hash.removeComponentHost(2L, "HDFS", "NAMENODE", masterHost);
+    assertEquals(Collections.singleton("host1"), hash.getAssociatedHosts(cluster,
+        SourceType.PORT, "namenode_process", "HDFS", "NAMENODE"));
+
+    EasyMock.verify(cluster);
+  }
+
+  /**
+   * Tests that a host index is not cached when a component is installed while
+   * it is built, since the walk of the cluster may have missed the component.
+   */
+  @Test
+  public void testComponentInstalledWhileHostIndexIsBuilt() throws Exception {
+    final String clusterName = "c2";
+
+    Cluster cluster = EasyMock.createMock(Cluster.class);
+    Clusters clusters = EasyMock.createNiceMock(Clusters.class);
+
+    // hosts are walked in this order
+    Map<String, Host> clusterHosts = new LinkedHashMap<>();
+    clusterHosts.put("host0", null);
+    clusterHosts.put("host1", null);
+    clusterHosts.put("host2", null);
+
+    ServiceComponentHost datanode = EasyMock.createNiceMock(ServiceComponentHost.class);
+    expect(datanode.getServiceName()).andReturn("HDFS").anyTimes();
+    expect(datanode.getServiceComponentName()).andReturn("DATANODE").anyTimes();
+
+    Map<String, List<ServiceComponentHost>> hostComponents = new HashMap<>();
+    hostComponents.put("host0", Collections.emptyList());
+    hostComponents.put("host1", Collections.singletonList(datanode));
+    hostComponents.put("host2", Collections.singletonList(datanode));
+
+    AtomicReference<AlertDefinitionHash> hash = new AtomicReference<>();
+
+    expect(clusters.getHostsForCluster(clusterName)).andReturn(clusterHosts).anyTimes();
+    expect(cluster.getClusterId()).andReturn(3L).anyTimes();
+    expect(cluster.getClusterName()).andReturn(clusterName).anyTimes();
+    expect(cluster.getServices()).andReturn(Collections.emptyMap()).anyTimes();
+
+    // a DATANODE is installed on host0 after host0 was walked by the first build,
+    // so the second build is the first one to see it
+    expect(cluster.getServiceComponentHosts(EasyMock.anyObject(String.class))).andAnswer(() -> {
+      String hostName = (String) EasyMock.getCurrentArguments()[0];
+      if ("host2".equals(hostName) && hostComponents.get("host0").isEmpty()) {
+        hostComponents.put("host0", Collections.singletonList(datanode));
+        hash.get().addComponentHost(3L, "HDFS", "DATANODE", "host0", false);
+      }
+
+      return hostComponents.get(hostName);
+    }).times(6);
+
+    EasyMock.replay(cluster, clusters, datanode);
+
+    hash.set(createHash(clusters));
+
+    assertEquals(Sets.newHashSet("host1", "host2"), hash.get().getAssociatedHosts(cluster,
+        SourceType.PORT, "datanode_process", "HDFS", "DATANODE"));
+
+    // the index is built again since it may have missed the install; after
+    // that it is cached
+    for (int i = 0; i < 2; i++) {
+      assertEquals(Sets.newHashSet("host0", "host1", "host2"), hash.get().getAssociatedHosts(
+          cluster, SourceType.PORT, "datanode_process", "HDFS", "DATANODE"));
+    }
+
+    EasyMock.verify(cluster);
+  }
+
+  private AlertDefinitionHash createHash(Clusters clusters) {
+    return Guice.createInjector(new Module() {
+      @Override
+      public void configure(Binder binder) {
+        binder.bind(Clusters.class).toInstance(clusters);
+        binder.bind(AlertDefinitionDAO.class).toInstance(
+            EasyMock.createNiceMock(AlertDefinitionDAO.class));
+        binder.bind(ConfigHelper.class).toInstance(
+            EasyMock.createNiceMock(ConfigHelper.class));
+      }
+    }).getInstance(AlertDefinitionHash.class);
+  }
+
   /**
    *
    */
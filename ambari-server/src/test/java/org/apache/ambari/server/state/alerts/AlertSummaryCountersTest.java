@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.state.alerts;
+
+import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.events.AggregateAlertRecalculateEvent;
+import org.apache.ambari.server.events.AlertStateChangeEvent;
+import org.apache.ambari.server.events.InitialAlertEvent;
+import org.apache.ambari.server.events.publishers.AlertEventPublisher;
+import org.apache.ambari.server.orm.dao.AlertHostSummaryDTO;
+import org.apache.ambari.server.orm.dao.AlertSummaryDTO;
+import org.apache.ambari.server.orm.dao.AlertsDAO;
+import org.apache.ambari.server.orm.entities.AlertCurrentEntity;
+import org.apache.ambari.server.orm.entities.AlertHistoryEntity;
+import org.apache.ambari.server.state.Alert;
+import org.apache.ambari.server.state.AlertFirmness;
+import org.apache.ambari.server.state.AlertState;
+import org.apache.ambari.server.state.MaintenanceState;
+import org.apache.ambari.server.state.alert.AlertSummaryCounters;
+import org.easymock.EasyMockSupport;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.google.inject.Binder;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Module;
+
+/**
+ * Tests {@link AlertSummaryCounters}.
+ */
+@Category({ category.AlertTest.class})
+public class AlertSummaryCountersTest extends EasyMockSupport {
+
+  private static final long CLUSTER_ID = 1L;
+
+  private Injector m_injector;
+  private AlertsDAO m_alertsDao;
+  private Configuration m_configuration;
+
+  @Before
+  public void before() {
+    m_alertsDao = createNiceMock(AlertsDAO.class);
+    m_configuration = createNiceMock(Configuration.class);
+    m_injector = Guice.createInjector(new MockModule());
+  }
+
+  /**
+   * Tests that the counts are loaded from the database and then moved by
+   * state changes without querying again.
+   */
+  @Test
+  public void testStateChangesUpdateCounts() throws Exception {
+    expectCounts(1);
+    replayAll();
+
+    AlertSummaryCounters counters = m_injector.getInstance(AlertSummaryCounters.class);
+    assertSummary(counters.getClusterCounts(CLUSTER_ID), 4, 0, 0, 0);
+    assertSummary(counters.getServiceCounts(CLUSTER_ID, "HDFS"), 3, 0, 0, 0);
+    assertSummary(counters.getHostCounts(CLUSTER_ID, "h1"), 2, 0, 0, 0);
+    assertSummary(counters.getServiceCounts(CLUSTER_ID, "FOO"), 0, 0, 0, 0);
+    assertHostSummary(counters.getHostSummary(CLUSTER_ID), 2, 0, 0);
+
+    counters.onAlertStateChangeEvent(createEvent(AlertState.OK, AlertState.CRITICAL));
+    assertSummary(counters.getClusterCounts(CLUSTER_ID), 3, 0, 1, 0);
+    assertSummary(counters.getServiceCounts(CLUSTER_ID, "HDFS"), 2, 0, 1, 0);
+    assertSummary(counters.getHostCounts(CLUSTER_ID, "h1"), 1, 0, 1, 0);
+    assertHostSummary(counters.getHostSummary(CLUSTER_ID), 1, 0, 1);
+
+    // a SOFT to HARD transition does not change the counts
+    counters.onAlertStateChangeEvent(createEvent(AlertState.CRITICAL, AlertState.CRITICAL));
+    assertSummary(counters.getClusterCounts(CLUSTER_ID), 3, 0, 1, 0);
+
+    counters.onAlertStateChangeEvent(createEvent(AlertState.CRITICAL, AlertState.WARNING));
+    assertSummary(counters.getHostCounts(CLUSTER_ID, "h1"), 1, 1, 0, 0);
+    assertHostSummary(counters.getHostSummary(CLUSTER_ID), 1, 1, 0);
+
+    verifyAll();
+  }
+
+  /**
+   * Tests that the counts are loaded again after a recalculation event.
+   */
+  @Test
+  public void testRecalculateReloadsCounts() throws Exception {
+    expectCounts(2);
+    replayAll();
+
+    AlertSummaryCounters counters = m_injector.getInstance(AlertSummaryCounters.class);
+    counters.onAlertStateChangeEvent(createEvent(AlertState.OK, AlertState.CRITICAL));
+    assertSummary(counters.getClusterCounts(CLUSTER_ID), 4, 0, 0, 0);
+
+    counters.onAlertStateChangeEvent(createEvent(AlertState.OK, AlertState.CRITICAL));
+    assertSummary(counters.getClusterCounts(CLUSTER_ID), 3, 0, 1, 0);
+
+    counters.onAggregateAlertRecalculateEvent(new AggregateAlertRecalculateEvent(CLUSTER_ID));
+    assertSummary(counters.getClusterCounts(CLUSTER_ID), 4, 0, 0, 0);
+
+    verifyAll();
+  }
+
+  /**
+   * Tests that new alerts are counted in their initial state, including alerts
+   * of hosts without any alerts so far.
+   */
+  @Test
+  public void testInitialAlertsUpdateCounts() throws Exception {
+    expectCounts(1);
+    replayAll();
+
+    AlertSummaryCounters counters = m_injector.getInstance(AlertSummaryCounters.class);
+    assertSummary(counters.getClusterCounts(CLUSTER_ID), 4, 0, 0, 0);
+
+    counters.onInitialAlertEvent(createInitialEvent("h1", AlertState.CRITICAL));
+    assertSummary(counters.getClusterCounts(CLUSTER_ID), 4, 0, 1, 0);
+    assertSummary(counters.getServiceCounts(CLUSTER_ID, "HDFS"), 3, 0, 1, 0);
+    assertSummary(counters.getHostCounts(CLUSTER_ID, "h1"), 2, 0, 1, 0);
+    assertHostSummary(counters.getHostSummary(CLUSTER_ID), 1, 0, 1);
+
+    counters.onInitialAlertEvent(createInitialEvent("h3", AlertState.WARNING));
+    assertSummary(counters.getClusterCounts(CLUSTER_ID), 4, 1, 1, 0);
+    assertSummary(counters.getServiceCounts(CLUSTER_ID, "HDFS"), 3, 1, 1, 0);
+    assertSummary(counters.getHostCounts(CLUSTER_ID, "h3"), 0, 1, 0, 0);
+    assertHostSummary(counters.getHostSummary(CLUSTER_ID), 1, 1, 1);
+
+    verifyAll();
+  }
+
+  /**
+   * Tests that events published before the counts were loaded are not counted
+   * again, since the loaded counts already contain their changes.
+   */
+  @Test
+  public void testEventsPublishedBeforeLoadAreSkipped() throws Exception {
+    expectCounts(1);
+    replayAll();
+
+    AlertStateChangeEvent stateChangeEvent = createEvent(AlertState.OK, AlertState.CRITICAL);
+    stateChangeEvent.setPublishTime(System.currentTimeMillis() - 1000);
+    InitialAlertEvent initialEvent = createInitialEvent("h1", AlertState.WARNING);
+    initialEvent.setPublishTime(System.currentTimeMillis() - 1000);
+
+    AlertSummaryCounters counters = m_injector.getInstance(AlertSummaryCounters.class);
+    assertSummary(counters.getClusterCounts(CLUSTER_ID), 4, 0, 0, 0);
+
+    counters.onAlertStateChangeEvent(stateChangeEvent);
+    counters.onInitialAlertEvent(initialEvent);
+    assertSummary(counters.getClusterCounts(CLUSTER_ID), 4, 0, 0, 0);
+    assertSummary(counters.getHostCounts(CLUSTER_ID, "h1"), 2, 0, 0, 0);
+
+    verifyAll();
+  }
+
+  /**
+   * Tests that a state change from a state without any counted alerts does not
+   * make its count negative.
+   */
+  @Test
+  public void testCountsAreNotNegative() throws Exception {
+    expectCounts(1);
+    replayAll();
+
+    AlertSummaryCounters counters = m_injector.getInstance(AlertSummaryCounters.class);
+    assertSummary(counters.getClusterCounts(CLUSTER_ID), 4, 0, 0, 0);
+
+    counters.onAlertStateChangeEvent(createEvent(AlertState.WARNING, AlertState.OK));
+    assertSummary(counters.getClusterCounts(CLUSTER_ID), 5, 0, 0, 0);
+    assertSummary(counters.getServiceCounts(CLUSTER_ID, "HDFS"), 4, 0, 0, 0);
+    assertSummary(counters.getHostCounts(CLUSTER_ID, "h1"), 3, 0, 0, 0);
+    assertHostSummary(counters.getHostSummary(CLUSTER_ID), 2, 0, 0);
+
+    verifyAll();
+  }
+
+  /**
+   * Expects the database to be queried for 2 hosts with HDFS alerts and 1
+   * AMBARI alert without a host.
+   *
+   * @param times
+   *          the number of times the counts should be loaded.
+   */
+  private void expectCounts(int times) {
+    Map<String, AlertSummaryDTO> perHost = new HashMap<>();
+    perHost.put("h1", new AlertSummaryDTO(2, 0, 0, 0, 0));
+    perHost.put("h2", new AlertSummaryDTO(1, 0, 0, 0, 0));
+    perHost.put(null, new AlertSummaryDTO(1, 0, 0, 0, 0));
+
+    Map<String, AlertSummaryDTO> perService = new HashMap<>();
+    perService.put("HDFS", new AlertSummaryDTO(3, 0, 0, 0, 0));
+    perService.put("AMBARI", new AlertSummaryDTO(1, 0, 0, 0, 0));
+
+    expect(m_configuration.getAlertSummaryReconcileInterval()).andReturn(5).anyTimes();
+    expect(m_alertsDao.findCurrentPerHostCounts(CLUSTER_ID)).andReturn(perHost).times(times);
+    expect(m_alertsDao.findCurrentPerServiceCounts(CLUSTER_ID)).andReturn(perService).times(times);
+  }
+
+  /**
+   * Creates a state change event for an HDFS alert on h1, published now.
+   */
+  private AlertStateChangeEvent createEvent(AlertState fromState, AlertState toState) {
+    Alert alert = new Alert("datanode_process", null, "HDFS", "DATANODE", "h1", toState);
+    AlertStateChangeEvent event = new AlertStateChangeEvent(CLUSTER_ID, alert,
+        createCurrent("h1", toState), fromState, AlertFirmness.HARD);
+    event.setPublishTime(System.currentTimeMillis());
+    return event;
+  }
+
+  /**
+   * Creates an event for a new HDFS alert on a host, published now.
+   */
+  private InitialAlertEvent createInitialEvent(String hostName, AlertState state) {
+    Alert alert = new Alert("datanode_process", null, "HDFS", "DATANODE", hostName, state);
+    InitialAlertEvent event = new InitialAlertEvent(CLUSTER_ID, alert, createCurrent(hostName, state));
+    event.setPublishTime(System.currentTimeMillis());
+    return event;
+  }
+
+  private AlertCurrentEntity createCurrent(String hostName, AlertState state) {
+    AlertHistoryEntity history = new AlertHistoryEntity();
+    history.setClusterId(CLUSTER_ID);
+    history.setServiceName("HDFS");
+    history.setHostName(hostName);
+    history.setAlertState(state);
+
+    AlertCurrentEntity current = new AlertCurrentEntity();
+    current.setAlertHistory(history);
+    current.setMaintenanceState(MaintenanceState.OFF);
+    current.setFirmness(AlertFirmness.HARD);
+    return current;
+  }
+
+  private void assertSummary(AlertSummaryDTO summary, int ok, int warning, int critical,
+      int unknown) {
+    assertEquals(ok, summary.getOkCount());
+    assertEquals(warning, summary.getWarningCount());
+    assertEquals(critical, summary.getCriticalCount());
+    assertEquals(unknown, summary.getUnknownCount());
+    assertEquals(0, summary.getMaintenanceCount());
+  }
+
+  private void assertHostSummary(AlertHostSummaryDTO summary, int ok, int warning, int critical) {
+    assertEquals(ok, summary.getOkCount());
+    assertEquals(warning, summary.getWarningCount());
+    assertEquals(critical, summary.getCriticalCount());
+    assertEquals(0, summary.getUnknownCount());
+  }
+
+  /**
+   *
+   */
+  private class MockModule implements Module {
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void configure(Binder binder) {
+      binder.bind(AlertsDAO.class).toInstance(m_alertsDao);
+      binder.bind(Configuration.class).toInstance(m_configuration);
+      binder.bind(AlertEventPublisher.class).toInstance(createNiceMock(AlertEventPublisher.class));
+    }
+  }
+}
@@ -30,8 +30,11 @@ import java.lang.management.ManagementFactory;
 import java.lang.management.RuntimeMXBean;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -41,6 +44,7 @@ import java.util.Vector;
 import java.util.concurrent.Executor;
 
 import org.apache.ambari.server.api.services.AmbariMetaInfo;
+import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.notifications.DispatchFactory;
 import org.apache.ambari.server.notifications.Notification;
 import org.apache.ambari.server.notifications.NotificationDispatcher;
@@ -56,6 +60,7 @@ import org.apache.ambari.server.orm.entities.AlertTargetEntity;
 import org.apache.ambari.server.state.AlertState;
 import org.apache.ambari.server.state.Cluster;
 import org.apache.ambari.server.state.NotificationState;
+import org.apache.ambari.server.state.alert.AlertNotification;
 import org.apache.ambari.server.state.alert.Scope;
 import org.apache.ambari.server.state.alert.SourceType;
 import org.apache.ambari.server.state.alert.TargetType;
@@ -387,10 +392,13 @@ public class AlertNoticeDispatchServiceTest extends AlertNoticeDispatchService {
     EasyMock.expect(m_dao.merge(notice1)).andReturn(notice1).once();
     EasyMock.expect(m_dao.merge(notice2)).andReturn(notice2).once();
     EasyMock.expect(m_dispatchFactory.getDispatcher("AMBARI_SNMP")).andReturn(dispatcher).once();
-    EasyMock.expect(m_dao.findNoticeByUuid(ALERT_NOTICE_UUID_1)).andReturn(notice1).once();
-    EasyMock.expect(m_dao.merge(notice1)).andReturn(notice1).once();
-    EasyMock.expect(m_dao.findNoticeByUuid(ALERT_NOTICE_UUID_2)).andReturn(notice2).once();
-    EasyMock.expect(m_dao.merge(notice2)).andReturn(notice2).once();
+
+    // both deliveries are written together
+    Map<String, NotificationState> states = new HashMap<>();
+    states.put(ALERT_NOTICE_UUID_1, NotificationState.DELIVERED);
+    states.put(ALERT_NOTICE_UUID_2, NotificationState.DELIVERED);
+    m_dao.updateNoticeStates(states);
+    EasyMock.expectLastCall().once();
     EasyMock.replay(m_dao, m_dispatchFactory);
 
     // "startup" the service so that its initialization is done
@@ -436,6 +444,55 @@ public class AlertNoticeDispatchServiceTest extends AlertNoticeDispatchService {
     assertEquals(expectedTrapVectors, snmpReceiver.receivedTrapsVectors);
   }
 
+  /**
+   * Tests that when a coalesce window is configured, notices for the same
+   * alert within it are sent as a single notification of the latest state
+   * which carries the UUIDs of all of them.
+   *
+   * @throws Exception
+   */
+  @Test
+  public void testCoalescedDispatch() throws Exception {
+    // notices are only combined when a window is configured
+    m_injector.getInstance(Configuration.class).setProperty(
+        Configuration.ALERTS_NOTIFICATION_COALESCE_WINDOW.getKey(), "120");
+
+    MockSnmpDispatcher dispatcher = new MockSnmpDispatcher();
+
+    List<AlertNoticeEntity> notices = getSnmpMockNotices("SNMP");
+    AlertNoticeEntity notice1 = notices.get(0);
+    AlertNoticeEntity notice2 = notices.get(1);
+
+    // the OK and then CRITICAL notices are a second apart
+    notice1.getAlertHistory().setAlertTimestamp(
+        notice2.getAlertHistory().getAlertTimestamp() - 1000);
+
+    EasyMock.expect(m_dao.findPendingNotices()).andReturn(notices).once();
+    EasyMock.expect(m_dao.merge(notice1)).andReturn(notice1).once();
+    EasyMock.expect(m_dao.merge(notice2)).andReturn(notice2).once();
+    EasyMock.expect(m_dispatchFactory.getDispatcher("SNMP")).andReturn(dispatcher).atLeastOnce();
+
+    EasyMock.replay(m_dao, m_dispatchFactory);
+
+    // "startup" the service so that its initialization is done
+    AlertNoticeDispatchService service = m_injector.getInstance(AlertNoticeDispatchService.class);
+    service.startUp();
+
+    // service trigger with mock executor that blocks
+    service.setExecutor(new MockExecutor());
+    service.runOneIteration();
+
+    EasyMock.verify(m_dao, m_dispatchFactory);
+
+    List<Notification> notifications = dispatcher.getNotifications();
+    assertEquals(1, notifications.size());
+
+    AlertNotification notification = (AlertNotification) notifications.get(0);
+    assertEquals(AlertState.CRITICAL, notification.getAlertInfo().getAlertState());
+    assertEquals(Arrays.asList(ALERT_NOTICE_UUID_1, ALERT_NOTICE_UUID_2),
+        notification.CallbackIds);
+  }
+
   /**
    * Tests that a failed dispatch invokes the callback to mark the UUIDs of the
    * notices as FAILED.
@@ -451,9 +508,10 @@ public class AlertNoticeDispatchServiceTest extends AlertNoticeDispatchService {
     // these expectations happen b/c we need to mark the notice as FAILED
     EasyMock.expect(m_dao.findPendingNotices()).andReturn(notices).once();
     EasyMock.expect(m_dao.merge(notice)).andReturn(notice).once();
-    EasyMock.expect(m_dao.findNoticeByUuid(ALERT_NOTICE_UUID_1)).andReturn(notice).once();
-    EasyMock.expect(m_dao.merge(notice)).andReturn(notice).once();
     EasyMock.expect(m_dispatchFactory.getDispatcher(dispatcher.getType())).andReturn(dispatcher).once();
+    m_dao.updateNoticeStates(
+        Collections.singletonMap(ALERT_NOTICE_UUID_1, NotificationState.FAILED));
+    EasyMock.expectLastCall().once();
 
     EasyMock.replay(m_dao, m_dispatchFactory);
 
@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.state.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ambari.server.metrics.system.impl.ServerInternalsMetricsSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the runs of server side alerts by {@link AmbariServerAlertService}.
+ */
+public class AmbariServerAlertServiceTest {
+
+  /**
+   * Long enough for a run to never reach its deadline during a test.
+   */
+  private static final long NO_DEADLINE = TimeUnit.HOURS.toMillis(1);
+
+  private AmbariServerAlertService m_service;
+  private BlockingRunnable m_runnable;
+
+  @Before
+  public void before() {
+    m_service = new AmbariServerAlertService();
+    m_service.initExecutor(1);
+    m_runnable = new BlockingRunnable();
+  }
+
+  @After
+  public void after() throws Exception {
+    m_runnable.release.countDown();
+    m_service.shutDown();
+  }
+
+  /**
+   * Tests that a run which is due while the previous one is still in progress
+   * is skipped.
+   */
+  @Test
+  public void testRunSkippedWhileInProgress() throws Exception {
+    long skippedRuns = getCount("alerts.server.side.runs.skipped");
+    AmbariServerAlertService.AlertExecution execution = m_service.createExecution(
+        "blocking_alert", m_runnable, NO_DEADLINE);
+
+    execution.run();
+    assertTrue(m_runnable.started.tryAcquire(10, TimeUnit.SECONDS));
+    assertTrue(execution.isRunning());
+
+    execution.run();
+    assertEquals(skippedRuns + 1, getCount("alerts.server.side.runs.skipped"));
+    assertFalse(m_runnable.started.tryAcquire(500, TimeUnit.MILLISECONDS));
+    assertEquals(1, m_runnable.runs.get());
+  }
+
+  /**
+   * Tests that a run which does not complete by its deadline is cancelled and
+   * that no other run starts until the cancelled run, which ignores being
+   * interrupted, has returned.
+   */
+  @Test
+  public void testRunTimedOut() throws Exception {
+    long timedOutRuns = getCount("alerts.server.side.runs.timedout");
+    long skippedRuns = getCount("alerts.server.side.runs.skipped");
+    AmbariServerAlertService.AlertExecution execution = m_service.createExecution(
+        "blocking_alert", m_runnable, 200);
+
+    execution.run();
+    assertTrue(m_runnable.started.tryAcquire(10, TimeUnit.SECONDS));
+    assertTrue(m_runnable.interrupted.await(10, TimeUnit.SECONDS));
+
+    // the run is counted once the cancellation completes
+    long timeout = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+    while (getCount("alerts.server.side.runs.timedout") == timedOutRuns
+        && System.currentTimeMillis() < timeout) {
+      Thread.sleep(10);
+    }
+
+    assertEquals(timedOutRuns + 1, getCount("alerts.server.side.runs.timedout"));
+    assertTrue(execution.isRunning());
+
+    // the cancelled run is still blocked, so the next run is skipped
+    execution.run();
+    assertEquals(skippedRuns + 1, getCount("alerts.server.side.runs.skipped"));
+    assertFalse(m_runnable.started.tryAcquire(500, TimeUnit.MILLISECONDS));
+    assertEquals(1, m_runnable.runs.get());
+
+    // the next run starts once the cancelled one returns
+    m_runnable.release.countDown();
+    waitUntilNotRunning(execution);
+
+    execution.run();
+    assertTrue(m_runnable.started.tryAcquire(10, TimeUnit.SECONDS));
+    assertEquals(2, m_runnable.runs.get());
+  }
+
+  /**
+   * Tests that cancelling runs, as is done when a definition is unscheduled,
+   * releases a run which has not started yet without counting it as timed
+   * out, while a run which started is released once it returns.
+   */
+  @Test
+  public void testCancelReleasesRun() throws Exception {
+    long timedOutRuns = getCount("alerts.server.side.runs.timedout");
+    AmbariServerAlertService.AlertExecution execution = m_service.createExecution(
+        "blocking_alert", m_runnable, NO_DEADLINE);
+    BlockingRunnable queuedRunnable = new BlockingRunnable();
+    AmbariServerAlertService.AlertExecution queuedExecution = m_service.createExecution(
+        "queued_alert", queuedRunnable, NO_DEADLINE);
+
+    execution.run();
+    assertTrue(m_runnable.started.tryAcquire(10, TimeUnit.SECONDS));
+
+    // the only thread of the service is taken, so the run waits to start
+    queuedExecution.run();
+    assertTrue(queuedExecution.isRunning());
+
+    queuedExecution.cancel();
+    assertFalse(queuedExecution.isRunning());
+
+    execution.cancel();
+    assertTrue(m_runnable.interrupted.await(10, TimeUnit.SECONDS));
+    assertTrue(execution.isRunning());
+    assertEquals(timedOutRuns, getCount("alerts.server.side.runs.timedout"));
+
+    m_runnable.release.countDown();
+    waitUntilNotRunning(execution);
+    assertEquals(0, queuedRunnable.runs.get());
+
+    execution.run();
+    assertTrue(m_runnable.started.tryAcquire(10, TimeUnit.SECONDS));
+  }
+
+  /**
+   * Tests that no more runs are started once the service is shut down.
+   */
+  @Test
+  public void testShutDownStopsRuns() throws Exception {
+    AmbariServerAlertService.AlertExecution execution = m_service.createExecution(
+        "blocking_alert", m_runnable, NO_DEADLINE);
+
+    m_service.shutDown();
+
+    execution.run();
+    assertFalse(execution.isRunning());
+    assertEquals(0, m_runnable.runs.get());
+  }
+
+  private static void waitUntilNotRunning(AmbariServerAlertService.AlertExecution execution)
+      throws InterruptedException {
+    long timeout = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+    while (execution.isRunning() && System.currentTimeMillis() < timeout) {
+      Thread.sleep(10);
+    }
+    assertFalse(execution.isRunning());
+  }
+
+  private static long getCount(String name) {
+    return ServerInternalsMetricsSource.getRegistry().counter(name).getCount();
+  }
+
+  /**
+   * Blocks until it is released, ignoring interruptions like an alert which
+   * is stuck on I/O.
+   */
+  private static final class BlockingRunnable implements Runnable {
+    private final Semaphore started = new Semaphore(0);
+    private final CountDownLatch interrupted = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @Override
+    public void run() {
+      runs.incrementAndGet();
+      started.release();
+
+      while (true) {
+        try {
+          release.await();
+          return;
+        } catch (InterruptedException e) {
+          interrupted.countDown();
+        }
+      }
+    }
+  }
+}
@@ -108,6 +108,30 @@ public class CachedAlertFlushServiceTest extends EasyMockSupport {
   }
 
 
+  /**
+   * Tests that the remaining cached alerts are flushed when the service stops.
+   *
+   * @throws Exception
+   */
+  @Test
+  public void testServiceFlushesOnShutdown() throws Exception {
+    Configuration configuration = m_injector.getInstance(Configuration.class);
+    EasyMock.expect(configuration.isAlertCacheEnabled()).andReturn(Boolean.TRUE).atLeastOnce();
+
+    AlertsDAO alertsDAO = m_injector.getInstance(AlertsDAO.class);
+    alertsDAO.flushCachedEntitiesToJPA();
+    EasyMock.expectLastCall().once();
+
+    CachedAlertFlushService service = new CachedAlertFlushService();
+
+    replayAll();
+
+    m_injector.injectMembers(service);
+    service.shutDown();
+
+    verifyAll();
+  }
+
   /**
    *
    */
@@ -33,6 +33,7 @@ import javax.annotation.Nullable;
 import org.apache.ambari.server.controller.AmbariManagementController;
 import org.apache.ambari.server.controller.AmbariServer;
 import org.apache.ambari.server.controller.internal.ProvisionAction;
+import org.apache.ambari.server.controller.spi.Resource;
 import org.apache.ambari.server.orm.entities.TopologyHostGroupEntity;
 import org.apache.ambari.server.orm.entities.TopologyHostInfoEntity;
 import org.apache.ambari.server.orm.entities.TopologyHostRequestEntity;
@@ -40,6 +41,8 @@ import org.apache.ambari.server.orm.entities.TopologyLogicalRequestEntity;
 import org.apache.ambari.server.orm.entities.TopologyRequestEntity;
 import org.apache.ambari.server.state.Cluster;
 import org.apache.ambari.server.state.Clusters;
+import org.apache.ambari.server.state.Host;
+import org.easymock.EasyMock;
 import org.easymock.EasyMockRule;
 import org.easymock.EasyMockSupport;
 import org.easymock.Mock;
@@ -53,6 +56,7 @@ import org.powermock.modules.junit4.PowerMockRunner;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 
@@ -572,6 +576,87 @@ public class LogicalRequestTest extends EasyMockSupport {
     verifyAll();
   }
 
+  @Test
+  public void testOfferHostsByHostCount() throws Exception {
+    // Given
+    int hostCount = 1000;
+    String hostGroupName = "host_group";
+    expect(hostGroup1.getName()).andReturn(hostGroupName).anyTimes();
+    LogicalRequest req = createTopologyRequestByHostCount(hostCount, hostGroupName);
+
+    // When
+    for (int i = 0; i < hostCount; ++i) {
+      HostOfferResponse response = req.offer(createHost("host" + i));
+      assertEquals(HostOfferResponse.Answer.ACCEPTED, response.getAnswer());
+      assertEquals(hostGroupName, response.getHostGroupName());
+    }
+
+    // Then
+    assertEquals(0, req.getPendingHostRequestCount());
+    assertEquals(hostCount, req.getCompletedHostRequests().size());
+    assertEquals(HostOfferResponse.Answer.DECLINED_DONE, req.offer(createHost("host" + hostCount)).getAnswer());
+    verifyAll();
+  }
+
+  @Test
+  public void testOfferSkipsHostGroupAfterPredicateDeclined() throws Exception {
+    // Given
+    CountingPredicate decliningPredicate = new CountingPredicate(false);
+    HostGroupInfo decliningHostGroupInfo = new HostGroupInfo("declining_group") {
+      @Override
+      public org.apache.ambari.server.controller.spi.Predicate getPredicate() {
+        return decliningPredicate;
+      }
+    };
+    decliningHostGroupInfo.setRequestedCount(3);
+
+    HostGroupInfo acceptingHostGroupInfo = new HostGroupInfo("accepting_group");
+    acceptingHostGroupInfo.setRequestedCount(2);
+
+    // the master host group is offered the hosts first
+    expectHostGroup(hostGroup1, "declining_group", true);
+    expectHostGroup(hostGroup2, "accepting_group", false);
+    expect(replayedTopologyRequest.getHostGroupInfo()).andReturn(ImmutableMap.of(
+        "declining_group", decliningHostGroupInfo, "accepting_group", acceptingHostGroupInfo)).anyTimes();
+
+    replayAll();
+
+    LogicalRequest req = new LogicalRequest(1L, replayedTopologyRequest, clusterTopology);
+    assertEquals(5, req.getPendingHostRequestCount());
+
+    // When
+    for (int i = 1; i <= 2; ++i) {
+      HostOfferResponse response = req.offer(createHost("host" + i));
+
+      // Then the predicate is evaluated once for the three host requests of the declining group
+      // and the host is still offered to the other host group
+      assertEquals(HostOfferResponse.Answer.ACCEPTED, response.getAnswer());
+      assertEquals("accepting_group", response.getHostGroupName());
+      assertEquals(i, decliningPredicate.evaluations);
+    }
+
+    assertEquals(HostOfferResponse.Answer.DECLINED_PREDICATE, req.offer(createHost("host3")).getAnswer());
+    assertEquals(3, decliningPredicate.evaluations);
+    assertEquals(3, req.getPendingHostRequestCount());
+    verifyAll();
+  }
+
+  private void expectHostGroup(HostGroup hostGroup, String name, boolean containsMaster) {
+    expect(hostGroup.getName()).andReturn(name).anyTimes();
+    expect(hostGroup.containsMasterComponent()).andReturn(containsMaster).anyTimes();
+    expect(hostGroup.getComponentNames()).andReturn(Collections.emptySet()).anyTimes();
+    expect(hostGroup.getComponentNames(EasyMock.anyObject(ProvisionAction.class))).andReturn(Collections.emptySet()).anyTimes();
+    expect(hostGroup.getStack()).andReturn(null).anyTimes();
+    expect(blueprint.getHostGroup(eq(name))).andReturn(hostGroup).anyTimes();
+  }
+
+  private static Host createHost(String hostName) {
+    Host host = EasyMock.createNiceMock(Host.class);
+    expect(host.getHostName()).andReturn(hostName).anyTimes();
+    EasyMock.replay(host);
+    return host;
+  }
+
   private LogicalRequest createTopologyRequestByHostCount(int hostCount, String hostGroupName) throws Exception {
     final TopologyHostInfoEntity hostInfo = new TopologyHostInfoEntity();
     hostInfo.setId(100L);
@@ -602,4 +687,22 @@ public class LogicalRequestTest extends EasyMockSupport {
 
     return new LogicalRequest(1L, replayedTopologyRequest, clusterTopology, logicalRequestEntity);
   }
+
+  /**
+   * Host predicate with a fixed answer which counts how often it is evaluated.
+   */
+  private static class CountingPredicate implements org.apache.ambari.server.controller.spi.Predicate {
+    private final boolean answer;
+    private int evaluations;
+
+    CountingPredicate(boolean answer) {
+      this.answer = answer;
+    }
+
+    @Override
+    public boolean evaluate(Resource resource) {
+      evaluations++;
+      return answer;
+    }
+  }
 }